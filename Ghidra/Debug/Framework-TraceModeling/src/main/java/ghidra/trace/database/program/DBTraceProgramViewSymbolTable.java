@@ -16,6 +16,7 @@
 package ghidra.trace.database.program;
 
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.StreamSupport;
 
 import generic.NestedIterator;
@@ -341,6 +342,15 @@ public class DBTraceProgramViewSymbolTable implements SymbolTable {
 			symbolManager.allSymbols().getWithMatchingName(searchStr, caseSensitive).iterator());
 	}
 
+	@Override
+	public SymbolIterator getSymbolIterator(Pattern pattern) {
+		return new SymbolIteratorAdapter(symbolManager.allSymbols()
+				.getAll(false)
+				.stream()
+				.filter(s -> pattern.matcher(s.getName()).matches())
+				.iterator());
+	}
+
 	@Override
 	public SymbolIterator getSymbols(AddressSetView set, SymbolType type, boolean forward) {
 		return new SymbolIteratorAdapter(NestedIterator.start(set.iterator(), range -> {
@@ -88,7 +88,7 @@ public class FunctionStartTableProvider extends ProgramAssociatedComponentProvid
 			return;
 		}
 		if (ev.contains(RESTORED, FUNCTION_ADDED, FUNCTION_REMOVED, CODE_ADDED, CODE_REMOVED,
-			CODE_REPLACED, REFERENCE_TYPE_CHANGED, REFERENCE_ADDED, REFERENCE_REMOVED)) {
+			CODE_REPLACED, REFERENCE_TYPE_CHANGED, REFERENCE_ADDED, REFERENCES_ADDED, REFERENCE_REMOVED)) {
 			model.reload();
 			contextChanged();
 		}
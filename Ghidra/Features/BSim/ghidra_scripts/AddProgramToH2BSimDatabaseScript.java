@@ -29,9 +29,9 @@ import ghidra.features.bsim.query.BSimServerInfo.DBType;
 import ghidra.features.bsim.query.FunctionDatabase.Error;
 import ghidra.features.bsim.query.FunctionDatabase.ErrorCategory;
 import ghidra.features.bsim.query.description.DatabaseInformation;
-import ghidra.features.bsim.query.description.DescriptionManager;
 import ghidra.features.bsim.query.file.BSimH2FileDBConnectionManager;
 import ghidra.features.bsim.query.file.BSimH2FileDBConnectionManager.BSimH2FileDataSource;
+import ghidra.features.bsim.query.ingest.StreamingInsert;
 import ghidra.features.bsim.query.protocol.*;
 import ghidra.framework.model.DomainFolder;
 import ghidra.framework.protocol.ghidra.GhidraURL;
@@ -113,18 +113,9 @@ public class AddProgramToH2BSimDatabaseScript extends GhidraScript {
 				gensig.openProgram(this.currentProgram, null, null, null, repo, path);
 				final FunctionManager fman = currentProgram.getFunctionManager();
 				final Iterator<Function> iter = fman.getFunctions(true);
-				gensig.scanFunctions(iter, fman.getFunctionCount(), monitor);
-				final DescriptionManager manager = gensig.getDescriptionManager();
-
-				//need to call sortCallGraph on each FunctionDescription
-				//this de-dupes the list of callees for each function
-				//without this there can be SQL errors due to inserting duplicate
-				//entries into the callgraph table
-				manager.listAllFunctions().forEachRemaining(fd -> fd.sortCallgraph());
-
-				InsertRequest insertreq = new InsertRequest();
-				insertreq.manage = manager;
-				if (insertreq.execute(h2Database) == null) {
+				//signatures are inserted as they are generated
+				StreamingInsert streamingInsert = new StreamingInsert(gensig, h2Database);
+				if (streamingInsert.insert(iter, fman.getFunctionCount(), monitor) == null) {
 					Error lastError = h2Database.getLastError();
 					if ((lastError.category == ErrorCategory.Format) ||
 						(lastError.category == ErrorCategory.Nonfatal)) {
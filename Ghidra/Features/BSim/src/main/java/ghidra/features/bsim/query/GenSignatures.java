@@ -24,12 +24,15 @@ import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiPredicate;
+import java.util.function.Consumer;
 
 import generic.jar.ResourceFile;
 import generic.lsh.vector.LSHVector;
 import generic.lsh.vector.LSHVectorFactory;
 import ghidra.app.decompiler.*;
+import ghidra.app.decompiler.parallel.DecompilerPool;
 import ghidra.app.decompiler.signature.SignatureResult;
+import ghidra.app.plugin.core.analysis.AutoAnalysisManager;
 import ghidra.features.bsim.gui.filters.FunctionTagBSimFilterType;
 import ghidra.features.bsim.query.client.AbstractSQLFunctionDatabase;
 import ghidra.features.bsim.query.description.*;
@@ -42,6 +45,7 @@ import ghidra.program.model.lang.LanguageID;
 import ghidra.program.model.listing.*;
 import ghidra.program.model.symbol.*;
 import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
 /**
@@ -56,10 +60,12 @@ public class GenSignatures {
 	private DecompileOptions options;
 	private ExecutableRecord exerec;
 	private SignatureTask singletask;		// Task for processing one function at a time
+	private DecompilerPool decompilerPool;	// Decompilers kept open across scans of the program
 	private HashMap<String, Integer> attributes;		// Attributes to associate with functions
 	private List<String> categories;	// Category types associated with executables
 	private String dateColumnName;
 	private boolean gencallgraph;			// True if callgraph info should be generated along with signatures
+	private Consumer<FunctionDescription> signatureConsumer;	// Receives functions as their signatures are generated
 
 	private AtomicBoolean isShutdown = new AtomicBoolean(false);
 	private ConcurrentLinkedDeque<ParallelDecompileTask> runningTasks =
@@ -119,6 +125,7 @@ public class GenSignatures {
 		if (vectorFactory == vFactory) {	// No change to factory
 			return;
 		}
+		disposeDecompilerPool();			// Decompilers are configured with the old settings
 		if (manager != null) {
 			manager.clearFunctions();	// Clear out cached signature as settings have changed
 		}
@@ -139,6 +146,17 @@ public class GenSignatures {
 		return manager;
 	}
 
+	/**
+	 * Set a consumer which is passed each function as soon as its signature has been generated
+	 * and written to the {@link DescriptionManager}.  The consumer is called from the decompiler
+	 * worker threads, and may block in order to limit how far signature generation runs ahead
+	 * of whatever is consuming the functions.
+	 * @param consumer the consumer, or null to stop passing functions
+	 */
+	public void setSignatureConsumer(Consumer<FunctionDescription> consumer) {
+		signatureConsumer = consumer;
+	}
+
 	/**
 	 * Clear out any accumulated signatures
 	 */
@@ -223,7 +241,13 @@ public class GenSignatures {
 		manager = new DescriptionManager();
 		exerec = manager.newExecutableRecord(md5string, nmover, compover, archover, progDate, repo,
 			path, null);
-		singletask = null;		// Throw out any old decompiler process
+		if (singletask != null) {
+			singletask.shutdown();	// Throw out any old decompiler process
+			singletask = null;
+		}
+		if (decompilerPool != null && decompilerPool.getProgram() != prog) {
+			disposeDecompilerPool();
+		}
 		fmanage = program.getFunctionManager();
 		fillinExecutableCategories();
 	}
@@ -411,8 +435,8 @@ public class GenSignatures {
 		return true;
 	}
 
-	private synchronized void writeToManager(Function func, int[] hash, List<CallRecord> callrecs,
-			int flags) {
+	private synchronized FunctionDescription writeToManager(Function func, int[] hash,
+			List<CallRecord> callrecs, int flags) {
 		FunctionDescription fdesc = manager.newFunctionDescription(func.getName(true),
 			func.getEntryPoint().getOffset(), exerec);
 		manager.setFunctionDescriptionFlags(fdesc, flags);
@@ -426,6 +450,7 @@ public class GenSignatures {
 				callRecord.address, callRecord.exerec);
 			manager.makeCallgraphLink(fdesc, destfunc, 0);
 		}
+		return fdesc;
 	}
 
 	public int transferCachedFunctions(DescriptionManager otherman, Iterator<Function> functions,
@@ -542,10 +567,47 @@ public class GenSignatures {
 		if (singletask != null) {
 			singletask.shutdown();
 		}
+		disposeDecompilerPool();
 
 		clear();
 	}
 
+	/**
+	 * Get the pool of decompilers for the current program, creating it if necessary.  The
+	 * pool outlives individual calls to {@link #scanFunctions(Iterator, int, TaskMonitor)}, so
+	 * decompiler processes are started once per program rather than once per batch.  Decompiler
+	 * options are captured when the pool is created.
+	 * <p>
+	 * Each worker thread of a scan holds its decompiler until the scan completes, and
+	 * {@link #scanFunction(Function)} holds one more, so the pool is bounded by the size of the
+	 * thread pool which runs the scan plus one.  Scans of a single GenSignatures object must not
+	 * run concurrently.
+	 * @return the decompiler pool
+	 */
+	private synchronized DecompilerPool getDecompilerPool() {
+		int maxSize = AutoAnalysisManager.getSharedAnalsysThreadPool().getMaxThreadCount() + 1;
+		if (decompilerPool != null && decompilerPool.getProgram() == program) {
+			decompilerPool.setMaxSize(maxSize);	// The thread pool size may have changed
+			return decompilerPool;
+		}
+		disposeDecompilerPool();
+		DecompileOptions poolOptions = options;
+		int settings = vectorFactory.getSettings();
+		decompilerPool = new DecompilerPool(program, decompiler -> {
+			decompiler.setOptions(poolOptions);
+			decompiler.toggleSyntaxTree(false);
+			decompiler.setSignatureSettings(settings);
+		}, maxSize);
+		return decompilerPool;
+	}
+
+	private synchronized void disposeDecompilerPool() {
+		if (decompilerPool != null) {
+			decompilerPool.dispose();
+			decompilerPool = null;
+		}
+	}
+
 	/**
 	 * Build an ExecutableRecord path from the domain file.
 	 * WARNING: Make sure the program has been saved previously before calling this, otherwise you get
@@ -641,26 +703,27 @@ public class GenSignatures {
 
 	public class SignatureTask implements DecompileFunctionTask {
 
+		private DecompilerPool pool;
 		private DecompInterface decompiler;
 
 		public SignatureTask() {
 			decompiler = null;
 		}
 
-		private SignatureTask(DecompInterface decompiler) {
+		private SignatureTask(DecompilerPool pool, DecompInterface decompiler) {
+			this.pool = pool;
 			this.decompiler = decompiler;
 		}
 
 		@Override
 		public DecompileFunctionTask clone(int worker) throws DecompileException {
-			DecompInterface newdecompiler = new DecompInterface();
-			newdecompiler.setOptions(options);
-			newdecompiler.toggleSyntaxTree(false);
-			newdecompiler.setSignatureSettings(vectorFactory.getSettings());
-			if (!newdecompiler.openProgram(program)) {
-				String errorMessage = newdecompiler.getLastMessage();
-				throw new DecompileException("Decompiler",
-					"Unable to initialize the DecompilerInterface: " + errorMessage);
+			DecompilerPool decompilerPool = getDecompilerPool();
+			DecompInterface newdecompiler;
+			try {
+				newdecompiler = decompilerPool.acquire(TaskMonitor.DUMMY);
+			}
+			catch (CancelledException e) {
+				throw new DecompileException("Decompiler", "Interrupted starting decompiler");
 			}
 			if (worker == 0) {	// Query the first work for settings info
 				short major = newdecompiler.getMajorVersion();
@@ -669,7 +732,7 @@ public class GenSignatures {
 				manager.setVersion(major, minor);
 				manager.setSettings(settings);
 			}
-			return new SignatureTask(newdecompiler);
+			return new SignatureTask(decompilerPool, newdecompiler);
 		}
 
 		@Override
@@ -723,7 +786,11 @@ public class GenSignatures {
 			else {
 				callrecs = new ArrayList<CallRecord>();
 			}
-			writeToManager(func, sigres.features, callrecs, flags);
+			fdesc = writeToManager(func, sigres.features, callrecs, flags);
+			Consumer<FunctionDescription> consumer = signatureConsumer;
+			if (consumer != null) {
+				consumer.accept(fdesc);
+			}
 		}
 
 		@Override
@@ -735,7 +802,10 @@ public class GenSignatures {
 
 		@Override
 		public void shutdown() {
-			decompiler.dispose();
+			if (decompiler != null) {
+				pool.release(decompiler);	// Keep the process warm for the next scan
+				decompiler = null;
+			}
 		}
 	}
 }
@@ -57,6 +57,8 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 	private static final String PATH_TABLE_NAME = "pathtable";
 	private static final String CAT_STRING_TABLE_NAME = "catstringtable";
 
+	private static final int INSERT_BATCH_SIZE = 256; // Functions whose signatures are stored together
+
 	protected final BSimJDBCDataSource ds;
 
 	// Indicates the version of the db table configuration.  This needs to be updated
@@ -1028,14 +1030,16 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 	 *   </ul>
 	 * </ul>
 	 * @param input is the DescriptionManager
+	 * @param erecs is the subset of executables in -input- to test
 	 * @throws LSHException if this executable has already been inserted
 	 * @throws SQLException if there is an error issuing the query
 	 * @throws DatabaseNonFatalException if a library has already been ingested (non-fatal)
 	 */
-	private void testExecutableDuplication(DescriptionManager input)
+	private void testExecutableDuplication(DescriptionManager input,
+			Collection<ExecutableRecord> erecs)
 			throws SQLException, LSHException, DatabaseNonFatalException {
 		boolean pickout_storedfuncs = false;
-		for (ExecutableRecord erec : input.getExecutableRecordSet()) {
+		for (ExecutableRecord erec : erecs) {
 			ExecutableRow row = exeTable.queryMd5ExeMatch(erec.getMd5());
 			if (row != null) { // Already have a matching executable
 				ExecutableRecord tmp = makeExecutableRecordTemp(row);
@@ -1080,10 +1084,12 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 	 * assumes testExecutableDuplication has already run and marked previously ingested records
 	 * 
 	 * @param input the executable descriptor
+	 * @param erecs the subset of executables in -input- to insert
 	 * @throws SQLException if database records cannot be inserted
 	 */
-	private void commitExecutables(DescriptionManager input) throws SQLException {
-		Iterator<ExecutableRecord> iter = input.getExecutableRecordSet().iterator();
+	private void commitExecutables(DescriptionManager input, Collection<ExecutableRecord> erecs)
+			throws SQLException {
+		Iterator<ExecutableRecord> iter = erecs.iterator();
 		while (iter.hasNext()) {
 			ExecutableRecord erec = iter.next();
 			if (erec.isAlreadyStored()) {
@@ -1093,7 +1099,7 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 			input.setExeRowId(erec, new RowKeySQL(newid));
 		}
 		if (info.execats != null) {
-			iter = input.getExecutableRecordSet().iterator();
+			iter = erecs.iterator();
 			while (iter.hasNext()) {
 				ExecutableRecord erec = iter.next();
 				exeCategoryTable.storeExecutableCategories(erec);
@@ -1247,35 +1253,73 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 		beginTransaction(true);
 		boolean commit = false;
 		try {
-			testExecutableDuplication(input);
-			commitExecutables(input);
-			Iterator<FunctionDescription> iter = input.listAllFunctions();
-			long start_id = 0;
-			while (iter.hasNext()) {
-				FunctionDescription func = iter.next();
-				if (func.getId() != null) {
-					continue; // Already inserted
-				}
-				SignatureRecord srec = func.getSignatureRecord();
-				if (srec != null) {
-					long sig_id = storeSignatureRecord(srec);
-					input.setSignatureId(srec, sig_id);
-				}
-				long id = descTable.insert(func);
-				if (start_id == 0) {
-					start_id = id;
+			testExecutableDuplication(input, input.getExecutableRecordSet());
+			commitExecutables(input, input.getExecutableRecordSet());
+			long start_id = insertFunctions(input, input.listAllFunctions(), false);
+			if (trackcallgraph) {
+				insertCallgraph(input, start_id);
+			}
+			commit = true;
+		}
+		finally {
+			endTransaction(commit);
+		}
+	}
+
+	/**
+	 * Insert a set of functions into the database while they are still being generated.
+	 * Executables in the request which are not libraries are inserted first.  Functions from
+	 * -stream- are then inserted as they arrive, and their signatures are released once stored.
+	 * After -stream- is exhausted, any remaining executables and functions (libraries
+	 * referenced by the callgraph for instance) are inserted, followed by the callgraph.
+	 * Everything is inserted in a single transaction.
+	 * @param query is the InsertRequest containing the functions and executables
+	 * @param stream iterates over the functions as they are added to the request's manager
+	 * 
+	 * @throws LSHException if there are duplicate executables or the settings don't match
+	 * @throws SQLException if there is an error issuing the query
+	 * @throws DatabaseNonFatalException if there are duplicate executables
+	 */
+	private void insert(InsertRequest query, Iterator<FunctionDescription> stream)
+			throws SQLException, LSHException, DatabaseNonFatalException {
+
+		// Executables may be added to -input- while the stream is running, so take
+		// a copy of the ones present before the stream is started
+		DescriptionManager input = query.manage;
+		overrideRepository(query);
+		List<ExecutableRecord> initialExes = new ArrayList<>();
+		for (ExecutableRecord erec : input.getExecutableRecordSet()) {
+			if (!erec.isLibrary()) {
+				initialExes.add(erec);
+			}
+		}
+
+		// The signature settings are known once the first function has been generated
+		stream.hasNext();
+		checkSettingsForInsert(input);
+
+		beginTransaction(true);
+		boolean commit = false;
+		try {
+			testExecutableDuplication(input, initialExes);
+			commitExecutables(input, initialExes);
+			long start_id = insertFunctions(input, stream, true);
+
+			overrideRepository(query); // Include any executables added while streaming
+			List<ExecutableRecord> remainingExes = new ArrayList<>();
+			for (ExecutableRecord erec : input.getExecutableRecordSet()) {
+				if (erec.getRowId() == null) {
+					remainingExes.add(erec);
 				}
-				input.setFunctionDescriptionId(func, new RowKeySQL(id));
+			}
+			testExecutableDuplication(input, remainingExes);
+			commitExecutables(input, remainingExes);
+			long id = insertFunctions(input, input.listAllFunctions(), true);
+			if (start_id == 0) {
+				start_id = id;
 			}
 			if (trackcallgraph) {
-				iter = input.listAllFunctions();
-				while (iter.hasNext()) {
-					FunctionDescription func = iter.next();
-					if (func.getId().getLong() < start_id) {
-						continue; // Already inserted
-					}
-					callgraphTable.insert(func);
-				}
+				insertCallgraph(input, start_id);
 			}
 			commit = true;
 		}
@@ -1284,6 +1328,86 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 		}
 	}
 
+	/**
+	 * Insert functions which have not already been inserted, storing their signatures in
+	 * batches.  Functions whose executable has not been inserted yet are skipped.
+	 * @param input is the DescriptionManager container of the functions
+	 * @param iter iterates over the functions to insert
+	 * @param releaseSignatures is true if each function's SignatureRecord should be released
+	 * once it has been stored
+	 * @return the id of the first function inserted, or 0 if none were inserted
+	 * @throws SQLException if there is an error issuing the query
+	 */
+	private long insertFunctions(DescriptionManager input, Iterator<FunctionDescription> iter,
+			boolean releaseSignatures) throws SQLException {
+		long start_id = 0;
+		List<FunctionDescription> batch = new ArrayList<>(INSERT_BATCH_SIZE);
+		while (iter.hasNext()) {
+			FunctionDescription func = iter.next();
+			if (func.getId() != null) {
+				continue; // Already inserted
+			}
+			if (func.getExecutableRecord().getRowId() == null) {
+				continue; // Executable not inserted yet
+			}
+			batch.add(func);
+			if (batch.size() == INSERT_BATCH_SIZE) {
+				long id = insertFunctionBatch(input, batch, releaseSignatures);
+				if (start_id == 0) {
+					start_id = id;
+				}
+			}
+		}
+		long id = insertFunctionBatch(input, batch, releaseSignatures);
+		if (start_id == 0) {
+			start_id = id;
+		}
+		return start_id;
+	}
+
+	private long insertFunctionBatch(DescriptionManager input, List<FunctionDescription> batch,
+			boolean releaseSignatures) throws SQLException {
+		List<SignatureRecord> sigrecs = new ArrayList<>(batch.size());
+		for (FunctionDescription func : batch) {
+			SignatureRecord srec = func.getSignatureRecord();
+			if (srec != null) {
+				sigrecs.add(srec);
+			}
+		}
+		if (!sigrecs.isEmpty()) {
+			long[] sig_ids = storeSignatureRecords(sigrecs);
+			for (int i = 0; i < sig_ids.length; ++i) {
+				input.setSignatureId(sigrecs.get(i), sig_ids[i]);
+			}
+		}
+		long start_id = 0;
+		for (FunctionDescription func : batch) {
+			long id = descTable.insert(func);
+			if (start_id == 0) {
+				start_id = id;
+			}
+			input.setFunctionDescriptionId(func, new RowKeySQL(id));
+			SignatureRecord srec = func.getSignatureRecord();
+			if (releaseSignatures && srec != null) {
+				input.setSignatureId(func, srec.getVectorId());
+				func.setSignatureRecord(null);
+			}
+		}
+		batch.clear();
+		return start_id;
+	}
+
+	private void insertCallgraph(DescriptionManager input, long start_id) throws SQLException {
+		Iterator<FunctionDescription> iter = input.listAllFunctions();
+		while (iter.hasNext()) {
+			FunctionDescription func = iter.next();
+			if (func.getId().getLong() < start_id) {
+				continue; // Already inserted
+			}
+			callgraphTable.insert(func);
+		}
+	}
+
 	/**
 	 * Make sure the vector corresponding to the SignatureRecord is inserted into the vectable
 	 * @param sigrec is the SignatureRecord
@@ -1292,6 +1416,22 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 	 */
 	protected abstract long storeSignatureRecord(SignatureRecord sigrec) throws SQLException;
 
+	/**
+	 * Make sure the vectors corresponding to a list of SignatureRecords are inserted into the
+	 * vectable.  By default each record is stored individually; implementations which can
+	 * store many vectors at once should override this.
+	 * @param sigrecs is the list of SignatureRecords, which may repeat the same vector
+	 * @return the computed ids of the vectors, in the same order as -sigrecs-
+	 * @throws SQLException if there is a problem creating or executing the query
+	 */
+	protected long[] storeSignatureRecords(List<SignatureRecord> sigrecs) throws SQLException {
+		long[] ids = new long[sigrecs.size()];
+		for (int i = 0; i < ids.length; ++i) {
+			ids[i] = storeSignatureRecord(sigrecs.get(i));
+		}
+		return ids;
+	}
+
 	/**
 	 * Query the database for functions with a similar feature vector to -vec-
 	 * @param simres receives the list of results and their similarity to the base vector
@@ -1622,6 +1762,49 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 		return query.getResponse();
 	}
 
+	/**
+	 * Execute an {@link InsertRequest} while its functions are still being generated, see
+	 * {@link ghidra.features.bsim.query.ingest.StreamingInsert}.  Functions returned by
+	 * -functions- are inserted in batches as they arrive, and their signatures are released
+	 * from the request's DescriptionManager once stored.  Executables (other than libraries)
+	 * must be present in the manager before this is called, and the thread adding functions
+	 * must be finished once -functions- is exhausted.
+	 * @param query is the insert request
+	 * @param functions iterates over the functions as they are added to the request's manager,
+	 * blocking until each is available
+	 * @return the response, or null if there was an error (see {@link #getLastError()})
+	 */
+	public ResponseInsert insertStream(InsertRequest query,
+			Iterator<FunctionDescription> functions) {
+
+		lasterror = null;
+		try {
+			if (!initialize()) {
+				lasterror = new Error(ErrorCategory.Nodatabase, "The database does not exist");
+				return null;
+			}
+
+			query.buildResponseTemplate();
+			fdbDatabaseInsert(query, functions);
+		}
+		catch (DatabaseNonFatalException err) {
+			lasterror = new Error(ErrorCategory.Nonfatal,
+				"Skipping -" + query.getName() + "- : " + err.getMessage());
+			query.clearResponse();
+		}
+		catch (LSHException err) {
+			lasterror = new Error(ErrorCategory.Fatal,
+				"Fatal error during -" + query.getName() + "- : " + err.getMessage());
+			query.clearResponse();
+		}
+		catch (SQLException err) {
+			lasterror = new Error(ErrorCategory.Fatal,
+				"SQL error during -" + query.getName() + "- : " + err.getMessage());
+			query.clearResponse();
+		}
+		return query.getResponse();
+	}
+
 	@Override
 	public QueryResponseRecord query(BSimQuery<?> query) {
 
@@ -1928,24 +2111,60 @@ public abstract class AbstractSQLFunctionDatabase<VF extends LSHVectorFactory>
 	 */
 	private void fdbDatabaseInsert(InsertRequest query)
 			throws LSHException, SQLException, DatabaseNonFatalException {
+		fdbDatabaseInsert(query, null);
+	}
+
+	/**
+	 * Execute an InsertRequest, either all at once or while its functions are being generated
+	 * @param query the query to execute
+	 * @param stream iterates over the functions as they are generated, or null if the
+	 * request's manager is already complete
+	 * @throws LSHException if trying to insert into a read-only database
+	 * @throws SQLException if there is an error issuing the query
+	 * @throws DatabaseNonFatalException if there are duplicate executables and/or functions
+	 */
+	private void fdbDatabaseInsert(InsertRequest query, Iterator<FunctionDescription> stream)
+			throws LSHException, SQLException, DatabaseNonFatalException {
 		if (info.readonly) {
 			throw new LSHException("Trying to insert on read-only database");
 		}
-		if (FunctionDatabase.checkSettingsForInsert(query.manage, info)) { // Check if settings are valid and is this is first insert
-			info.major = query.manage.getMajorVersion();
-			info.minor = query.manage.getMinorVersion();
-			info.settings = query.manage.getSettings();
-			keyValueTable.writeBasicInfo(info); // Save off the settings associated with this first insert
-		}
 		ResponseInsert response = query.insertresponse;
-		if ((query.repo_override != null) && (query.repo_override.length() != 0)) {
-			query.manage.overrideRepository(query.repo_override, query.path_override);
+		if (stream == null) {
+			checkSettingsForInsert(query.manage);
+			overrideRepository(query);
+			insert(query.manage);
+		}
+		else {
+			insert(query, stream);
 		}
-		insert(query.manage);
 		response.numexe = query.manage.getExecutableRecordSet().size();
 		response.numfunc = query.manage.numFunctions();
 	}
 
+	private static void overrideRepository(InsertRequest query) {
+		if ((query.repo_override != null) && (query.repo_override.length() != 0)) {
+			query.manage.overrideRepository(query.repo_override, query.path_override);
+		}
+	}
+
+	/**
+	 * Check that the settings of functions being inserted match the database, saving them
+	 * if this is the first insert
+	 * @param manage is the DescriptionManager container of the functions
+	 * @throws LSHException if the settings don't match
+	 * @throws SQLException if there is an error saving the settings
+	 * @throws DatabaseNonFatalException if there are no functions
+	 */
+	private void checkSettingsForInsert(DescriptionManager manage)
+			throws LSHException, SQLException, DatabaseNonFatalException {
+		if (FunctionDatabase.checkSettingsForInsert(manage, info)) { // Check if settings are valid and is this is first insert
+			info.major = manage.getMajorVersion();
+			info.minor = manage.getMinorVersion();
+			info.settings = manage.getSettings();
+			keyValueTable.writeBasicInfo(info); // Save off the settings associated with this first insert
+		}
+	}
+
 	/**
 	 * Entry point for the QueryInfo command
 	 * @param query the query to execute
@@ -118,14 +118,15 @@ public class CallgraphTable extends SQLComplexTable {
 			insertStatement.prepareIfNeeded(() -> db.prepareStatement(INSERT_STMT));
 		long srcid = func.getId().getLong();
 		List<CallgraphEntry> callvec = func.getCallgraphRecord();
-		if (callvec != null) {
+		if (callvec != null && !callvec.isEmpty()) {
 			for (CallgraphEntry element : callvec) {
 				FunctionDescription destFunc = element.getFunctionDescription();
 				long destid = destFunc.getId().getLong();
 				s.setLong(1, srcid);
 				s.setLong(2, destid);
-				s.executeUpdate();
+				s.addBatch();
 			}
+			s.executeBatch();
 		}
 
 		return 0;
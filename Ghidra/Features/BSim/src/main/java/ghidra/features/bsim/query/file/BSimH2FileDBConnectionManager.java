@@ -145,6 +145,7 @@ public class BSimH2FileDBConnectionManager {
 			}
 
 			DeleteDbFiles.execute(dbf.getParent(), name, true);
+			VectorSegment.getSegmentFile(serverInfo).delete();
 		}
 
 		/**
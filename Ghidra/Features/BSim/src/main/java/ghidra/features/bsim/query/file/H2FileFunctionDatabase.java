@@ -21,13 +21,13 @@ import java.util.*;
 
 import generic.concurrent.*;
 import generic.lsh.vector.LSHVector;
-import generic.lsh.vector.VectorCompare;
 import ghidra.features.bsim.query.BSimServerInfo;
 import ghidra.features.bsim.query.LSHException;
 import ghidra.features.bsim.query.client.*;
 import ghidra.features.bsim.query.description.*;
 import ghidra.features.bsim.query.elastic.Base64VectorFactory;
 import ghidra.features.bsim.query.file.BSimH2FileDBConnectionManager.BSimH2FileDataSource;
+import ghidra.features.bsim.query.file.H2VectorTable.VectorHeaderConsumer;
 import ghidra.features.bsim.query.protocol.*;
 import ghidra.util.task.TaskMonitor;
 
@@ -85,6 +85,19 @@ public class H2FileFunctionDatabase extends AbstractSQLFunctionDatabase<Base64Ve
 		super.setConnectionOnTables(db);
 	}
 
+	@Override
+	protected void endTransaction(boolean commit) throws SQLException {
+		try {
+			super.endTransaction(commit);
+		}
+		finally {
+			if (!commit) {
+				// The vector store already reflects vectors stored by the rolled back transaction
+				vectorStore.invalidate();
+			}
+		}
+	}
+
 	@Override
 	protected Connection initConnection() throws SQLException {
 		if (getStatus() != Status.Ready && !fileDs.exists()) {
@@ -129,6 +142,26 @@ public class H2FileFunctionDatabase extends AbstractSQLFunctionDatabase<Base64Ve
 		return vectorTable.readVectors();
 	}
 
+	/**
+	 * Create vector map which maps vector ID to {@link VectorStoreEntry} for those vectors
+	 * whose ID is greater than {@code afterId}
+	 * @param afterId vectors with this ID or less are skipped
+	 * @return vector map
+	 * @throws SQLException if error occurs while reading map data
+	 */
+	public Map<Long, VectorStoreEntry> readVectorMap(long afterId) throws SQLException {
+		return vectorTable.readVectors(afterId);
+	}
+
+	/**
+	 * Read the ID, count and hash of all vectors without decoding the vectors
+	 * @param consumer receives each vector
+	 * @throws SQLException if error occurs while reading vector data
+	 */
+	public void readVectorHeaders(VectorHeaderConsumer consumer) throws SQLException {
+		vectorTable.readVectorHeaders(consumer);
+	}
+
 	@Override
 	protected int deleteVectors(long id, int countdiff) throws SQLException {
 		return vectorTable.deleteVector(id, countdiff);
@@ -173,32 +206,26 @@ public class H2FileFunctionDatabase extends AbstractSQLFunctionDatabase<Base64Ve
 		return vectorTable.updateVector(sigrec.getLSHVector(), 1);
 	}
 
+	@Override
+	protected long[] storeSignatureRecords(List<SignatureRecord> sigrecs) throws SQLException {
+		// NOTE: ignore sigrec count - assume only one (1)
+		List<LSHVector> vecs = new ArrayList<>(sigrecs.size());
+		for (SignatureRecord sigrec : sigrecs) {
+			vecs.add(sigrec.getLSHVector());
+		}
+		return vectorTable.updateVectors(vecs);
+	}
+
 	@Override
 	protected int queryNearestVector(List<VectorResult> resultset, LSHVector vec,
 		double simthresh, double sigthresh, int max) throws SQLException {
-		VectorCompare comp;
-		List<VectorResult> resultsToSort = new ArrayList<>();
-		for (VectorStoreEntry entry : vectorStore) {
-			if (entry.selfSig() < sigthresh) {
-				continue;
-			}
-			vec.compare(entry.vec(), comp = new VectorCompare());
-			double cosine = comp.dotproduct / (vec.getLength() * entry.vec().getLength());
-			if (cosine <= simthresh) {
-				continue;
-			}
-			double sig = vectorFactory.calculateSignificance(comp);
-			if (sig <= sigthresh) {
-				continue;
-			}
-			resultsToSort
-				.add(new VectorResult(entry.id(), entry.count(), cosine, sig, entry.vec()));
-		}
-		resultsToSort.sort((r1, r2) -> Double.compare(r2.sim, r1.sim));
-		int maxResults = Math.min(max, resultsToSort.size());
-		for (int i = 0; i < maxResults; ++i) {
-			resultset.add(resultsToSort.get(i));
-		}
+		return queryNearestVector(resultset, vec, simthresh, sigthresh, max, true);
+	}
+
+	private int queryNearestVector(List<VectorResult> resultset, LSHVector vec, double simthresh,
+		double sigthresh, int max, boolean partitionScan) throws SQLException {
+		resultset.addAll(
+			vectorStore.querySimilar(vec, simthresh, sigthresh, vectorFactory, max, partitionScan));
 		return resultset.size();
 	}
 
@@ -216,6 +243,9 @@ public class H2FileFunctionDatabase extends AbstractSQLFunctionDatabase<Base64Ve
 		response.totalvec = toQuery.size();
 
 		GThreadPool threadPool = GThreadPool.getSharedThreadPool(H2_THREADPOOL_NAME);
+		// a single query's comparisons are only spread across threads when there are too few
+		// queries to keep the pool busy
+		boolean partitionScan = toQuery.size() < threadPool.getMaxThreadCount();
 		ConcurrentQBuilder<FunctionDescription, SimilarityVectorResult> evalBuilder =
 			new ConcurrentQBuilder<>();
 		ConcurrentQ<FunctionDescription, SimilarityVectorResult> evalQ =
@@ -225,7 +255,7 @@ public class H2FileFunctionDatabase extends AbstractSQLFunctionDatabase<Base64Ve
 				.build((fd, m) -> {
 					List<VectorResult> resultset = new ArrayList<>();
 					queryNearestVector(resultset, fd.getSignatureRecord().getLSHVector(),
-							query.thresh, query.signifthresh, vectormax);
+							query.thresh, query.signifthresh, vectormax, partitionScan);
 					if (resultset.isEmpty()) {
 						return null;
 					}
@@ -17,8 +17,7 @@ package ghidra.features.bsim.query.file;
 
 import java.io.*;
 import java.sql.*;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 
 import generic.lsh.vector.LSHVector;
 import ghidra.features.bsim.query.client.tables.CachedStatement;
@@ -33,6 +32,8 @@ public class H2VectorTable extends SQLComplexTable {
 
 	public static final String TABLE_NAME = "h2_vectable";
 
+	private static final int HASH_QUERY_SIZE = 64; // number of hashes looked up per query
+
 	private final Base64VectorFactory vectorFactory;
 	private final VectorStore vectorStore; // in-memory cache
 
@@ -44,6 +45,10 @@ public class H2VectorTable extends SQLComplexTable {
 	private final CachedStatement<PreparedStatement> select_count_by_rowid_stmt =
 		new CachedStatement<>();
 	private final CachedStatement<PreparedStatement> update_by_rowid_stmt = new CachedStatement<>();
+	private final CachedStatement<PreparedStatement> batch_insert_stmt = new CachedStatement<>();
+	private final CachedStatement<PreparedStatement> batch_update_stmt = new CachedStatement<>();
+	private final CachedStatement<PreparedStatement> select_ids_by_hashes_stmt =
+		new CachedStatement<>();
 
 	public H2VectorTable(Base64VectorFactory vectorFactory, VectorStore vectorStore) {
 		super(TABLE_NAME, "id");
@@ -59,6 +64,9 @@ public class H2VectorTable extends SQLComplexTable {
 		update_by_hash_stmt.close();
 		select_count_by_rowid_stmt.close();
 		update_by_rowid_stmt.close();
+		batch_insert_stmt.close();
+		batch_update_stmt.close();
+		select_ids_by_hashes_stmt.close();
 		super.close();
 	}
 
@@ -112,24 +120,66 @@ public class H2VectorTable extends SQLComplexTable {
 		return id;
 	}
 
+	/**
+	 * Consumer of the vector table columns which may be read without decoding vectors
+	 */
+	@FunctionalInterface
+	public interface VectorHeaderConsumer {
+		/**
+		 * Accept a vector table row
+		 * @param id vector ID
+		 * @param count vector count
+		 * @param vecHash unique hash of vector, see {@link LSHVector#calcUniqueHash()}
+		 */
+		void accept(long id, int count, long vecHash);
+	}
+
+	/**
+	 * Read the ID, count and hash of all vectors in table
+	 * @param consumer receives each vector table row
+	 * @throws SQLException if error occurs
+	 */
+	public void readVectorHeaders(VectorHeaderConsumer consumer) throws SQLException {
+		try (Statement st = db.createStatement();
+				ResultSet rs = st.executeQuery("SELECT id,count,vec_hash FROM " + TABLE_NAME)) {
+			while (rs.next()) {
+				consumer.accept(rs.getLong(1), rs.getInt(2), rs.getLong(3));
+			}
+		}
+	}
+
 	/**
 	 * Read all vectors from table and generate an ID-based vector map
 	 * @return vector map (ID->VectorStoreEntry)
 	 * @throws SQLException if error occurs
 	 */
 	public Map<Long, VectorStoreEntry> readVectors() throws SQLException {
+		return readVectors(Long.MIN_VALUE);
+	}
+
+	/**
+	 * Read the vectors from table whose ID is greater than {@code afterId} and generate
+	 * an ID-based vector map
+	 * @param afterId vectors with this ID or less are skipped
+	 * @return vector map (ID->VectorStoreEntry)
+	 * @throws SQLException if error occurs
+	 */
+	public Map<Long, VectorStoreEntry> readVectors(long afterId) throws SQLException {
 		char[] vectorDecodeBuffer = Base64VectorFactory.allocateBuffer();
 		HashMap<Long, VectorStoreEntry> map = new HashMap<>();
-		try (Statement st = db.createStatement();
-				ResultSet rs = st.executeQuery("SELECT id,count,vec FROM " + TABLE_NAME)) {
-			while (rs.next()) {
-				long id = rs.getLong(1);
-				int count = rs.getInt(2);
-				Reader r = new StringReader(rs.getString(3));
-				LSHVector vec = vectorFactory.restoreVectorFromBase64(r, vectorDecodeBuffer);
-				VectorStoreEntry entry =
-					new VectorStoreEntry(id, vec, count, vectorFactory.getSelfSignificance(vec));
-				map.put(id, entry);
+		try (PreparedStatement st = db.prepareStatement(
+			"SELECT id,count,vec FROM " + TABLE_NAME + " WHERE id > ?")) {
+			st.setLong(1, afterId);
+			try (ResultSet rs = st.executeQuery()) {
+				while (rs.next()) {
+					long id = rs.getLong(1);
+					int count = rs.getInt(2);
+					Reader r = new StringReader(rs.getString(3));
+					LSHVector vec = vectorFactory.restoreVectorFromBase64(r, vectorDecodeBuffer);
+					VectorStoreEntry entry = new VectorStoreEntry(id, vec, count,
+						vectorFactory.getSelfSignificance(vec));
+					map.put(id, entry);
+				}
 			}
 		}
 		catch (IOException e) {
@@ -238,6 +288,138 @@ public class H2VectorTable extends SQLComplexTable {
 		return id;
 	}
 
+	/**
+	 * Update or insert the vector table entries for a list of vectors, each with a vector
+	 * count change of one.  This produces the same result as calling
+	 * {@link #updateVector(LSHVector, int)} for each vector, but existing rows are located,
+	 * updated and inserted in batches rather than with several statements per vector.
+	 * @param vecs vectors, which may contain duplicates
+	 * @return vector IDs which were updated or created, in the same order as {@code vecs}
+	 * @throws SQLException if an error occurs
+	 */
+	public long[] updateVectors(List<LSHVector> vecs) throws SQLException {
+
+		long[] vecHashes = new long[vecs.size()];
+		Map<Long, PendingUpdate> updates = new LinkedHashMap<>();
+		for (int i = 0; i < vecHashes.length; i++) {
+			LSHVector vec = vecs.get(i);
+			vecHashes[i] = vec.calcUniqueHash();
+			updates.computeIfAbsent(vecHashes[i], h -> new PendingUpdate(vec)).countDiff++;
+		}
+
+		queryIdsByHash(updates);
+
+		List<Long> insertHashes = new ArrayList<>();
+		PreparedStatement update = null;
+		PreparedStatement insert = null;
+		StringBuilder vecBuf = new StringBuilder();
+		for (Map.Entry<Long, PendingUpdate> entry : updates.entrySet()) {
+			PendingUpdate u = entry.getValue();
+			if (u.id != null) {
+				update = batch_update_stmt.prepareIfNeeded(() -> db.prepareStatement(
+					"UPDATE " + TABLE_NAME + " SET count = count + ? WHERE id = ?"));
+				update.setInt(1, u.countDiff);
+				update.setLong(2, u.id);
+				update.addBatch();
+			}
+			else {
+				insert = batch_insert_stmt.prepareIfNeeded(() -> db.prepareStatement(
+					"INSERT INTO " + TABLE_NAME + " (count,vec_hash,vec) VALUES(?,?,?)"));
+				vecBuf.setLength(0);
+				u.vec.saveBase64(vecBuf, Base64Lite.encode);
+				insert.setInt(1, u.countDiff);
+				insert.setLong(2, entry.getKey());
+				insert.setString(3, vecBuf.toString());
+				insert.addBatch();
+				insertHashes.add(entry.getKey());
+			}
+		}
+		if (update != null) {
+			for (int rc : update.executeBatch()) {
+				if (rc != 1 && rc != Statement.SUCCESS_NO_INFO) {
+					throw new SQLException("Unexpected updated row count: " + rc);
+				}
+			}
+		}
+		if (insert != null) {
+			insert.executeBatch();
+			Map<Long, PendingUpdate> inserted = new LinkedHashMap<>();
+			for (Long vecHash : insertHashes) {
+				inserted.put(vecHash, updates.get(vecHash));
+			}
+			queryIdsByHash(inserted);
+			for (PendingUpdate u : inserted.values()) {
+				u.count = 0; // queried count already includes countDiff
+			}
+		}
+
+		for (PendingUpdate u : updates.values()) {
+			if (u.id == null) {
+				throw new SQLException("Unable to obtain vector id for insert");
+			}
+			vectorStore.update(new VectorStoreEntry(u.id, u.vec, u.count + u.countDiff,
+				vectorFactory.getSelfSignificance(u.vec)));
+		}
+
+		long[] ids = new long[vecHashes.length];
+		for (int i = 0; i < ids.length; i++) {
+			ids[i] = updates.get(vecHashes[i]).id;
+		}
+		return ids;
+	}
+
+	/**
+	 * Fill in the ID and current count of any pending update whose vector already has
+	 * a row in the table
+	 * @param updates pending updates keyed by vector hash
+	 * @throws SQLException if an error occurs
+	 */
+	private void queryIdsByHash(Map<Long, PendingUpdate> updates) throws SQLException {
+		PreparedStatement s = select_ids_by_hashes_stmt.prepareIfNeeded(() -> {
+			StringBuilder buf = new StringBuilder();
+			buf.append("SELECT id,count,vec_hash FROM ").append(TABLE_NAME);
+			buf.append(" WHERE vec_hash IN (?");
+			for (int i = 1; i < HASH_QUERY_SIZE; i++) {
+				buf.append(",?");
+			}
+			buf.append(')');
+			return db.prepareStatement(buf.toString());
+		});
+		Iterator<Long> iter = updates.keySet().iterator();
+		while (iter.hasNext()) {
+			long vecHash = 0;
+			for (int i = 1; i <= HASH_QUERY_SIZE; i++) {
+				if (iter.hasNext()) {
+					vecHash = iter.next();
+				}
+				s.setLong(i, vecHash); // unused parameters repeat the last hash
+			}
+			try (ResultSet rs = s.executeQuery()) {
+				while (rs.next()) {
+					PendingUpdate u = updates.get(rs.getLong(3));
+					if (u != null) {
+						u.id = rs.getLong(1);
+						u.count = rs.getInt(2);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Accumulated count change for a distinct vector within {@link #updateVectors(List)}
+	 */
+	private static class PendingUpdate {
+		final LSHVector vec;
+		int countDiff;
+		Long id;	// null until the vector's row is known
+		int count;	// vector count before the update
+
+		PendingUpdate(LSHVector vec) {
+			this.vec = vec;
+		}
+	}
+
 	/**
 	 * Update vector table entry with the specified countDiff.  Record will be removed
 	 * if reduced vector count less-than-or-equal zero. 
@@ -0,0 +1,179 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.features.bsim.query.file;
+
+import java.util.*;
+
+import generic.lsh.vector.HashEntry;
+import generic.lsh.vector.LSHVector;
+
+/**
+ * Inverted index from vector feature hash to the stored vectors containing that feature.  It
+ * is used to find the stored vectors whose cosine similarity with a query vector may exceed a
+ * threshold without comparing the query against every stored vector.
+ * <p>
+ * The postings of the vectors within a {@link VectorSegment} are read from the segment itself,
+ * as segment indices, so they occupy no heap and need not be built when the segment is opened.
+ * Those postings are never updated: vectors deleted from the segment remain candidates and
+ * must be filtered by the caller.  Vectors held outside of the segment are indexed on the heap
+ * by ID with {@link #add(long, LSHVector)} and {@link #remove(long, LSHVector)}.
+ * <p>
+ * The dot product of two vectors only accumulates over the features they share, so by
+ * Cauchy-Schwarz a stored vector which shares none of a set of query features has a cosine
+ * similarity of at most {@code |q'| / |q|}, where {@code q'} is the query restricted to its
+ * remaining features.  Taking the heaviest query features until the remainder falls below the
+ * threshold therefore yields every vector which can match, so candidates are exact rather than
+ * approximate.  This relies on feature weights not decreasing with term frequency, as produced
+ * by {@link generic.lsh.vector.WeightFactory}.
+ */
+class VectorFeatureIndex {
+
+	// guards against rounding when comparing the remaining query norm with the threshold
+	private static final double BOUND_TOLERANCE = 1.0e-9;
+
+	private final VectorSegment segment;
+	private final Map<Integer, Set<Long>> postings = new HashMap<>();
+
+	/**
+	 * Create an index of vectors held outside of any segment
+	 */
+	VectorFeatureIndex() {
+		this(VectorSegment.EMPTY);
+	}
+
+	/**
+	 * Create an index of the vectors of a segment, to which other vectors may be added
+	 * @param segment segment
+	 */
+	VectorFeatureIndex(VectorSegment segment) {
+		this.segment = segment;
+	}
+
+	/**
+	 * Index the features of a vector which is not within the segment.
+	 * @param id vector ID
+	 * @param vec vector
+	 */
+	void add(long id, LSHVector vec) {
+		for (HashEntry entry : vec.getEntries()) {
+			postings.computeIfAbsent(entry.getHash(), h -> new HashSet<>()).add(id);
+		}
+	}
+
+	/**
+	 * Remove the features of a previously added vector.
+	 * @param id vector ID
+	 * @param vec vector as it was added
+	 */
+	void remove(long id, LSHVector vec) {
+		for (HashEntry entry : vec.getEntries()) {
+			Set<Long> posting = postings.get(entry.getHash());
+			if (posting != null && posting.remove(id) && posting.isEmpty()) {
+				postings.remove(entry.getHash());
+			}
+		}
+	}
+
+	/**
+	 * Get all indexed vectors which may have a cosine similarity greater than
+	 * {@code simthresh} with the given vector.
+	 * @param vec query vector
+	 * @param simthresh similarity threshold
+	 * @param maxCandidates the largest number of candidates worth returning
+	 * @return the candidates, or null if they could not be narrowed to {@code maxCandidates}
+	 * and every vector should be compared
+	 */
+	Candidates getCandidates(LSHVector vec, double simthresh, int maxCandidates) {
+		if (simthresh <= 0) {
+			return null;
+		}
+		HashEntry[] entries = vec.getEntries().clone();
+		Arrays.sort(entries,
+			(e1, e2) -> Double.compare(Math.abs(e2.getCoeff()), Math.abs(e1.getCoeff())));
+
+		// remaining[i] is the squared norm of the query restricted to entries i and beyond
+		double[] remaining = new double[entries.length + 1];
+		for (int i = entries.length - 1; i >= 0; --i) {
+			double coeff = entries[i].getCoeff();
+			remaining[i] = remaining[i + 1] + coeff * coeff;
+		}
+		double bound = simthresh * vec.getLength();
+		bound = bound * bound * (1.0 - BOUND_TOLERANCE);
+
+		int[] features = new int[entries.length];
+		int featureCount = 0;
+		List<Set<Long>> selected = new ArrayList<>();
+		long segmentTotal = 0;
+		long total = 0;
+		for (int i = 0; i < entries.length && remaining[i] > bound; ++i) {
+			int hash = entries[i].getHash();
+			int feature = segment.findFeature(hash);
+			if (feature >= 0) {
+				features[featureCount++] = feature;
+				segmentTotal += segment.getPostingCount(feature);
+				total += segment.getPostingCount(feature);
+			}
+			Set<Long> posting = postings.get(hash);
+			if (posting != null) {
+				selected.add(posting);
+				total += posting.size();
+			}
+			if (total > maxCandidates) {
+				return null;
+			}
+		}
+
+		int[] indices = new int[(int) segmentTotal];
+		int n = 0;
+		for (int i = 0; i < featureCount; ++i) {
+			segment.getPostings(features[i], indices, n);
+			n += segment.getPostingCount(features[i]);
+		}
+		Arrays.sort(indices);
+		int distinct = 0;
+		for (int i = 0; i < indices.length; ++i) {
+			if (i == 0 || indices[i] != indices[i - 1]) {
+				indices[distinct++] = indices[i];
+			}
+		}
+		indices = Arrays.copyOf(indices, distinct);
+
+		long[] ids = new long[(int) (total - segmentTotal)];
+		n = 0;
+		for (Set<Long> posting : selected) {
+			for (long id : posting) {
+				ids[n++] = id;
+			}
+		}
+		Arrays.sort(ids);
+		distinct = 0;
+		for (int i = 0; i < ids.length; ++i) {
+			if (i == 0 || ids[i] != ids[i - 1]) {
+				ids[distinct++] = ids[i];
+			}
+		}
+		return new Candidates(indices, Arrays.copyOf(ids, distinct));
+	}
+
+	/**
+	 * The candidates of a query
+	 * @param segmentIndices sorted indices of candidate segment vectors, which may include
+	 * deleted vectors
+	 * @param ids sorted IDs of candidate vectors held outside of the segment
+	 */
+	record Candidates(int[] segmentIndices, long[] ids) {
+	}
+}
@@ -0,0 +1,602 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.features.bsim.query.file;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.List;
+
+import generic.lsh.vector.*;
+import ghidra.features.bsim.query.BSimServerInfo;
+
+/**
+ * A read-only, memory-mapped file containing the vectors of a BSim H2 file database.
+ * <p>
+ * Vectors are stored column-wise in primitive arrays (IDs, hashes, term frequencies,
+ * coefficients, ...) sorted by vector ID, so that a vector may be located with a binary search
+ * and compared without first being decoded into {@link LSHVector} and {@link HashEntry}
+ * objects.  The pages backing the segment belong to the operating system's file cache rather
+ * than the Java heap.
+ * <p>
+ * The segment also contains the inverted index used by {@link VectorFeatureIndex}: the
+ * distinct feature hashes of its vectors, sorted, and for each feature the ascending indices
+ * of the vectors containing it.
+ * <p>
+ * The H2 vector table remains the authoritative copy of every vector.  Since the content of a
+ * vector never changes for a given vector ID, a segment remains valid for each vector whose
+ * unique hash still agrees with the table, and is only extended as vectors are added.  Vector
+ * counts change frequently and are not stored in the segment.
+ */
+class VectorSegment {
+
+	static final String FILE_EXTENSION = ".vectors";
+
+	private static final int MAGIC = 0x42535653; // "BSVS"
+	private static final int VERSION = 2;
+	private static final int HEADER_SIZE = 20;
+	private static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	// every column must fit within a single mapped buffer
+	private static final int MAX_ENTRIES = Integer.MAX_VALUE / Double.BYTES;
+
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	static final VectorSegment EMPTY = new VectorSegment();
+
+	private final int size;
+	private final LongBuffer ids;
+	private final LongBuffer vecHashes;
+	private final DoubleBuffer selfSigs;
+	private final DoubleBuffer lengths;
+	private final DoubleBuffer coeffs;
+	private final IntBuffer hashCounts;
+	private final IntBuffer offsets;	// first entry of each vector, plus the total entry count
+	private final IntBuffer hashes;
+	private final ShortBuffer tfs;
+	private final ShortBuffer idfs;
+	private final IntBuffer featureHashes;	// distinct feature hashes, sorted
+	private final IntBuffer featureOffsets;	// first posting of each feature, plus the total
+	private final IntBuffer postings;		// vector indices containing each feature
+
+	private VectorSegment() {
+		size = 0;
+		ids = LongBuffer.allocate(0);
+		vecHashes = LongBuffer.allocate(0);
+		selfSigs = DoubleBuffer.allocate(0);
+		lengths = DoubleBuffer.allocate(0);
+		coeffs = DoubleBuffer.allocate(0);
+		hashCounts = IntBuffer.allocate(0);
+		offsets = IntBuffer.wrap(new int[1]);
+		hashes = IntBuffer.allocate(0);
+		tfs = ShortBuffer.allocate(0);
+		idfs = ShortBuffer.allocate(0);
+		featureHashes = IntBuffer.allocate(0);
+		featureOffsets = IntBuffer.wrap(new int[1]);
+		postings = IntBuffer.allocate(0);
+	}
+
+	private VectorSegment(FileChannel channel, int size, int entryCount, int featureCount)
+			throws IOException {
+		this.size = size;
+		long pos = HEADER_SIZE;
+		ids = map(channel, pos, size * (long) Long.BYTES).asLongBuffer();
+		pos += size * (long) Long.BYTES;
+		vecHashes = map(channel, pos, size * (long) Long.BYTES).asLongBuffer();
+		pos += size * (long) Long.BYTES;
+		selfSigs = map(channel, pos, size * (long) Double.BYTES).asDoubleBuffer();
+		pos += size * (long) Double.BYTES;
+		lengths = map(channel, pos, size * (long) Double.BYTES).asDoubleBuffer();
+		pos += size * (long) Double.BYTES;
+		coeffs = map(channel, pos, entryCount * (long) Double.BYTES).asDoubleBuffer();
+		pos += entryCount * (long) Double.BYTES;
+		hashCounts = map(channel, pos, size * (long) Integer.BYTES).asIntBuffer();
+		pos += size * (long) Integer.BYTES;
+		offsets = map(channel, pos, (size + 1) * (long) Integer.BYTES).asIntBuffer();
+		pos += (size + 1) * (long) Integer.BYTES;
+		hashes = map(channel, pos, entryCount * (long) Integer.BYTES).asIntBuffer();
+		pos += entryCount * (long) Integer.BYTES;
+		tfs = map(channel, pos, entryCount * (long) Short.BYTES).asShortBuffer();
+		pos += entryCount * (long) Short.BYTES;
+		idfs = map(channel, pos, entryCount * (long) Short.BYTES).asShortBuffer();
+		pos += entryCount * (long) Short.BYTES;
+		featureHashes = map(channel, pos, featureCount * (long) Integer.BYTES).asIntBuffer();
+		pos += featureCount * (long) Integer.BYTES;
+		featureOffsets =
+			map(channel, pos, (featureCount + 1) * (long) Integer.BYTES).asIntBuffer();
+		pos += (featureCount + 1) * (long) Integer.BYTES;
+		postings = map(channel, pos, entryCount * (long) Integer.BYTES).asIntBuffer();
+	}
+
+	private static ByteBuffer map(FileChannel channel, long pos, long length) throws IOException {
+		return channel.map(FileChannel.MapMode.READ_ONLY, pos, length).order(BYTE_ORDER);
+	}
+
+	private static long getFileSize(int size, int entryCount, int featureCount) {
+		return HEADER_SIZE + size * (4L * Long.BYTES + 2L * Integer.BYTES) + Integer.BYTES +
+			entryCount * (long) (Double.BYTES + 2 * Integer.BYTES + 2 * Short.BYTES) +
+			featureCount * 2L * Integer.BYTES + Integer.BYTES;
+	}
+
+	/**
+	 * Get the segment file which accompanies the specified H2 file database
+	 * @param serverInfo H2 file database info
+	 * @return segment file
+	 */
+	static File getSegmentFile(BSimServerInfo serverInfo) {
+		String name = serverInfo.getDBName();
+		if (name.endsWith(BSimServerInfo.H2_FILE_EXTENSION)) {
+			name = name.substring(0, name.length() - BSimServerInfo.H2_FILE_EXTENSION.length());
+		}
+		return new File(name + FILE_EXTENSION);
+	}
+
+	/**
+	 * Open an existing segment file
+	 * @param file segment file
+	 * @return segment
+	 * @throws IOException if the file cannot be read or is not a valid segment
+	 */
+	static VectorSegment open(File file) throws IOException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(BYTE_ORDER);
+			while (header.hasRemaining()) {
+				if (channel.read(header) < 0) {
+					throw new IOException("Truncated vector segment: " + file);
+				}
+			}
+			header.flip();
+			if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException("Unsupported vector segment: " + file);
+			}
+			int size = header.getInt();
+			int entryCount = header.getInt();
+			int featureCount = header.getInt();
+			if (size < 0 || entryCount < 0 || entryCount > MAX_ENTRIES || featureCount < 0 ||
+				featureCount > entryCount ||
+				channel.size() != getFileSize(size, entryCount, featureCount)) {
+				throw new IOException("Corrupt vector segment: " + file);
+			}
+			// mapped buffers remain valid once the channel is closed
+			return new VectorSegment(channel, size, entryCount, featureCount);
+		}
+	}
+
+	/**
+	 * Write a new segment file containing selected vectors of an existing segment followed by
+	 * additional vectors, replacing any existing file.  The postings of the new segment are
+	 * sorted on the heap while it is written, using 8 bytes per vector entry.
+	 * @param file segment file
+	 * @param base existing segment (may be the segment currently mapped from {@code file})
+	 * @param retained ascending indices of the {@code base} vectors to retain
+	 * @param added vectors to add, sorted by ID, whose IDs all follow the retained IDs
+	 * @return the new segment
+	 * @throws IOException if the segment cannot be written
+	 */
+	static VectorSegment write(File file, VectorSegment base, int[] retained,
+			List<VectorStoreEntry> added) throws IOException {
+		int size = retained.length + added.size();
+		long entryCount = 0;
+		for (int index : retained) {
+			entryCount += base.getEntryCount(index);
+		}
+		for (VectorStoreEntry entry : added) {
+			entryCount += entry.vec().getEntries().length;
+		}
+		if (entryCount > MAX_ENTRIES) {
+			throw new IOException("Too many vector entries for segment: " + entryCount);
+		}
+		long[] featurePostings = getFeaturePostings(base, retained, added, (int) entryCount);
+		int featureCount = 0;
+		for (int i = 0; i < featurePostings.length; ++i) {
+			if (i == 0 || getFeatureHash(featurePostings[i]) !=
+				getFeatureHash(featurePostings[i - 1])) {
+				++featureCount;
+			}
+		}
+
+		File tmpFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		try {
+			try (ColumnWriter out = new ColumnWriter(tmpFile)) {
+				out.putInt(MAGIC);
+				out.putInt(VERSION);
+				out.putInt(size);
+				out.putInt((int) entryCount);
+				out.putInt(featureCount);
+				for (int index : retained) {
+					out.putLong(base.getId(index));
+				}
+				for (VectorStoreEntry entry : added) {
+					out.putLong(entry.id());
+				}
+				for (int index : retained) {
+					out.putLong(base.getVectorHash(index));
+				}
+				for (VectorStoreEntry entry : added) {
+					out.putLong(entry.vec().calcUniqueHash());
+				}
+				for (int index : retained) {
+					out.putDouble(base.getSelfSignificance(index));
+				}
+				for (VectorStoreEntry entry : added) {
+					out.putDouble(entry.selfSig());
+				}
+				for (int index : retained) {
+					out.putDouble(base.getLength(index));
+				}
+				for (VectorStoreEntry entry : added) {
+					out.putDouble(entry.vec().getLength());
+				}
+				for (int index : retained) {
+					for (int i = base.offsets.get(index); i < base.offsets.get(index + 1); ++i) {
+						out.putDouble(base.coeffs.get(i));
+					}
+				}
+				for (VectorStoreEntry entry : added) {
+					for (HashEntry hashEntry : entry.vec().getEntries()) {
+						out.putDouble(hashEntry.getCoeff());
+					}
+				}
+				for (int index : retained) {
+					out.putInt(base.hashCounts.get(index));
+				}
+				for (VectorStoreEntry entry : added) {
+					int hashCount = 0;
+					for (HashEntry hashEntry : entry.vec().getEntries()) {
+						hashCount += hashEntry.getTF();
+					}
+					out.putInt(hashCount);
+				}
+				int offset = 0;
+				for (int index : retained) {
+					out.putInt(offset);
+					offset += base.getEntryCount(index);
+				}
+				for (VectorStoreEntry entry : added) {
+					out.putInt(offset);
+					offset += entry.vec().getEntries().length;
+				}
+				out.putInt(offset);
+				for (int index : retained) {
+					for (int i = base.offsets.get(index); i < base.offsets.get(index + 1); ++i) {
+						out.putInt(base.hashes.get(i));
+					}
+				}
+				for (VectorStoreEntry entry : added) {
+					for (HashEntry hashEntry : entry.vec().getEntries()) {
+						out.putInt(hashEntry.getHash());
+					}
+				}
+				for (int index : retained) {
+					for (int i = base.offsets.get(index); i < base.offsets.get(index + 1); ++i) {
+						out.putShort(base.tfs.get(i));
+					}
+				}
+				for (VectorStoreEntry entry : added) {
+					for (HashEntry hashEntry : entry.vec().getEntries()) {
+						out.putShort(hashEntry.getTF());
+					}
+				}
+				for (int index : retained) {
+					for (int i = base.offsets.get(index); i < base.offsets.get(index + 1); ++i) {
+						out.putShort(base.idfs.get(i));
+					}
+				}
+				for (VectorStoreEntry entry : added) {
+					for (HashEntry hashEntry : entry.vec().getEntries()) {
+						out.putShort(hashEntry.getIDF());
+					}
+				}
+				for (int i = 0; i < featurePostings.length; ++i) {
+					int hash = getFeatureHash(featurePostings[i]);
+					if (i == 0 || hash != getFeatureHash(featurePostings[i - 1])) {
+						out.putInt(hash);
+					}
+				}
+				for (int i = 0; i < featurePostings.length; ++i) {
+					if (i == 0 || getFeatureHash(featurePostings[i]) !=
+						getFeatureHash(featurePostings[i - 1])) {
+						out.putInt(i);
+					}
+				}
+				out.putInt(featurePostings.length);
+				for (long posting : featurePostings) {
+					out.putInt((int) posting);
+				}
+			}
+			Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+				StandardCopyOption.ATOMIC_MOVE);
+		}
+		finally {
+			tmpFile.delete();
+		}
+		return open(file);
+	}
+
+	/**
+	 * Get every (feature hash, vector index) pair of the new segment, each packed into a long
+	 * with the hash in the upper half, sorted by hash and then by vector index
+	 */
+	private static long[] getFeaturePostings(VectorSegment base, int[] retained,
+			List<VectorStoreEntry> added, int entryCount) {
+		long[] featurePostings = new long[entryCount];
+		int n = 0;
+		int index = 0;
+		for (int baseIndex : retained) {
+			for (int i = base.offsets.get(baseIndex); i < base.offsets.get(baseIndex + 1); ++i) {
+				featurePostings[n++] = ((long) base.hashes.get(i) << 32) | index;
+			}
+			++index;
+		}
+		for (VectorStoreEntry entry : added) {
+			for (HashEntry hashEntry : entry.vec().getEntries()) {
+				featurePostings[n++] = ((long) hashEntry.getHash() << 32) | index;
+			}
+			++index;
+		}
+		Arrays.sort(featurePostings);
+		return featurePostings;
+	}
+
+	private static int getFeatureHash(long featurePosting) {
+		return (int) (featurePosting >> 32);
+	}
+
+	/**
+	 * @return number of vectors in this segment
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Find the index of a vector
+	 * @param id vector ID
+	 * @return vector index, or a negative value if this segment does not contain the vector
+	 */
+	int indexOf(long id) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			long midId = ids.get(mid);
+			if (midId < id) {
+				low = mid + 1;
+			}
+			else if (midId > id) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @return largest vector ID within this segment, or {@link Long#MIN_VALUE} if empty
+	 */
+	long getMaxId() {
+		return size == 0 ? Long.MIN_VALUE : ids.get(size - 1);
+	}
+
+	long getId(int index) {
+		return ids.get(index);
+	}
+
+	/**
+	 * @param index vector index
+	 * @return unique hash of vector, see {@link LSHVector#calcUniqueHash()}
+	 */
+	long getVectorHash(int index) {
+		return vecHashes.get(index);
+	}
+
+	double getSelfSignificance(int index) {
+		return selfSigs.get(index);
+	}
+
+	double getLength(int index) {
+		return lengths.get(index);
+	}
+
+	private int getEntryCount(int index) {
+		return offsets.get(index + 1) - offsets.get(index);
+	}
+
+	/**
+	 * Get the feature hashes of a vector
+	 * @param index vector index
+	 * @return hashes
+	 */
+	int[] getHashes(int index) {
+		int start = offsets.get(index);
+		int[] result = new int[offsets.get(index + 1) - start];
+		hashes.get(start, result);
+		return result;
+	}
+
+	/**
+	 * Find a feature within the inverted index of this segment
+	 * @param hash feature hash
+	 * @return feature index, or a negative value if no vector in this segment has the feature
+	 */
+	int findFeature(int hash) {
+		int low = 0;
+		int high = featureHashes.limit() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			int midHash = featureHashes.get(mid);
+			if (midHash < hash) {
+				low = mid + 1;
+			}
+			else if (midHash > hash) {
+				high = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * @param feature feature index, see {@link #findFeature(int)}
+	 * @return number of vectors in this segment which have the feature
+	 */
+	int getPostingCount(int feature) {
+		return featureOffsets.get(feature + 1) - featureOffsets.get(feature);
+	}
+
+	/**
+	 * Copy the ascending indices of the vectors which have a feature
+	 * @param feature feature index, see {@link #findFeature(int)}
+	 * @param dest destination array
+	 * @param destPos position in the destination array
+	 */
+	void getPostings(int feature, int[] dest, int destPos) {
+		postings.get(featureOffsets.get(feature), dest, destPos, getPostingCount(feature));
+	}
+
+	/**
+	 * Decode a vector
+	 * @param index vector index
+	 * @return vector
+	 */
+	LSHVector getVector(int index) {
+		int start = offsets.get(index);
+		HashEntry[] entries = new HashEntry[offsets.get(index + 1) - start];
+		for (int i = 0; i < entries.length; ++i) {
+			int n = start + i;
+			entries[i] = new HashEntry(hashes.get(n), tfs.get(n), idfs.get(n), coeffs.get(n));
+		}
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+
+	/**
+	 * Compare a query vector with a vector in this segment.  This produces the same results
+	 * as {@code query.compare(getVector(index), data)} without decoding the segment vector.
+	 * @param query query vector
+	 * @param index segment vector index
+	 * @param data receives the comparison data
+	 * @return the dot product of the two vectors
+	 */
+	double compare(PackedCosineVector query, int index, VectorCompare data) {
+		int[] qhash = query.getHashes();
+		short[] qtf = query.getTFs();
+		double[] qcoeff = query.getCoeffs();
+		int i = 0;
+		int end = qhash.length;
+		int j = offsets.get(index);
+		int end2 = offsets.get(index + 1);
+		double res = 0.0;
+		int intersectcount = 0;
+		while (i < end && j < end2) {
+			int hash1 = qhash[i];
+			int hash2 = hashes.get(j);
+			if (hash1 == hash2) {
+				int t1 = qtf[i];
+				int t2 = tfs.get(j);
+				if (t1 < t2) {
+					double w1 = qcoeff[i];
+					res += w1 * w1;
+					intersectcount += t1;
+				}
+				else {
+					double w2 = coeffs.get(j);
+					res += w2 * w2;
+					intersectcount += t2;
+				}
+				++i;
+				++j;
+			}
+			else if (Integer.compareUnsigned(hash1, hash2) < 0) {
+				++i;
+			}
+			else {
+				++j;
+			}
+		}
+		data.dotproduct = res;
+		data.intersectcount = intersectcount;
+		data.acount = query.getHashCount();
+		data.bcount = hashCounts.get(index);
+		return res;
+	}
+
+	/**
+	 * Buffered writer of primitive column values
+	 */
+	private static class ColumnWriter implements Closeable {
+		private final FileChannel channel;
+		private final ByteBuffer buffer =
+			ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(BYTE_ORDER);
+
+		ColumnWriter(File file) throws IOException {
+			channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		}
+
+		private void ensure(int length) throws IOException {
+			if (buffer.remaining() < length) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		void putLong(long value) throws IOException {
+			ensure(Long.BYTES);
+			buffer.putLong(value);
+		}
+
+		void putDouble(double value) throws IOException {
+			ensure(Double.BYTES);
+			buffer.putDouble(value);
+		}
+
+		void putInt(int value) throws IOException {
+			ensure(Integer.BYTES);
+			buffer.putInt(value);
+		}
+
+		void putShort(short value) throws IOException {
+			ensure(Short.BYTES);
+			buffer.putShort(value);
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				flush();
+				channel.force(false);
+			}
+			finally {
+				channel.close();
+			}
+		}
+	}
+}
@@ -4,9 +4,9 @@
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
  * You may obtain a copy of the License at
- * 
+ *
  *      http://www.apache.org/licenses/LICENSE-2.0
- * 
+ *
  * Unless required by applicable law or agreed to in writing, software
  * distributed under the License is distributed on an "AS IS" BASIS,
  * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
@@ -15,20 +15,43 @@
  */
 package ghidra.features.bsim.query.file;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.Iterator;
-import java.util.Map;
-
-import org.apache.commons.collections4.iterators.EmptyIterator;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
+import generic.concurrent.GThreadPool;
+import generic.lsh.vector.*;
 import ghidra.features.bsim.query.BSimServerInfo;
 import ghidra.features.bsim.query.BSimServerInfo.DBType;
+import ghidra.features.bsim.query.description.VectorResult;
+import ghidra.features.bsim.query.file.H2VectorTable.VectorHeaderConsumer;
 import ghidra.util.Msg;
 
+/**
+ * In-memory view of the vectors within a BSim H2 file database.
+ * <p>
+ * Vectors are held within a memory-mapped {@link VectorSegment} file which accompanies the
+ * database, along with the postings of its feature index, so only vector counts, and any
+ * vectors added since the segment was written, are held on the heap.  When loaded, the segment is reconciled with the vector table, which is
+ * the authoritative copy, and rewritten if vectors have been added to the table.  If the
+ * segment cannot be written, vectors missing from it are held on the heap instead.
+ */
 public class VectorStore implements Iterable<VectorStoreEntry> {
 
+	private static final String SCAN_THREADPOOL_NAME = "H2_BSIM_SCAN_THREADPOOL";
+
+	// fewest vectors worth comparing on a separate thread
+	private static final int MIN_PARTITION_SIZE = 16 * 1024;
+
 	private BSimServerInfo serverInfo;
-	private Map<Long, VectorStoreEntry> vectors = null;
+	private VectorSegment segment = null;	// null if vectors have not been loaded
+	private int[] counts;					// count of each segment vector, 0 once deleted
+	private Map<Long, VectorStoreEntry> overlay;	// vectors not contained within segment
+	private VectorFeatureIndex index;
+	private int size;
 
 	public VectorStore(BSimServerInfo serverInfo) {
 		if (serverInfo.getDBType() != DBType.file) {
@@ -38,7 +61,7 @@ public class VectorStore implements Iterable<VectorStoreEntry> {
 	}
 
 	private void init() {
-		if (vectors == null) {
+		if (segment == null) {
 			try {
 				loadVectors();
 			}
@@ -49,61 +72,445 @@ public class VectorStore implements Iterable<VectorStoreEntry> {
 		}
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public synchronized Iterator<VectorStoreEntry> iterator() {
 		init();
-		if (vectors == null) {
-			return EmptyIterator.INSTANCE;
+		if (segment == null) {
+			return Collections.emptyIterator();
 		}
-		return vectors.values().iterator();
+		VectorSegment seg = segment;
+		int[] segCounts = counts;
+		Iterator<VectorStoreEntry> overlayIterator = new ArrayList<>(overlay.values()).iterator();
+		return new Iterator<>() {
+			private int nextIndex = findLive(0);
+
+			private int findLive(int start) {
+				int i = start;
+				while (i < segCounts.length && segCounts[i] == 0) {
+					++i;
+				}
+				return i;
+			}
+
+			@Override
+			public boolean hasNext() {
+				return nextIndex < segCounts.length || overlayIterator.hasNext();
+			}
+
+			@Override
+			public VectorStoreEntry next() {
+				if (nextIndex < segCounts.length) {
+					VectorStoreEntry entry = getEntry(seg, segCounts, nextIndex);
+					nextIndex = findLive(nextIndex + 1);
+					return entry;
+				}
+				return overlayIterator.next();
+			}
+		};
+	}
+
+	private static VectorStoreEntry getEntry(VectorSegment seg, int[] segCounts, int i) {
+		return new VectorStoreEntry(seg.getId(i), seg.getVector(i), segCounts[i],
+			seg.getSelfSignificance(i));
 	}
 
 	public synchronized VectorStoreEntry getVectorById(long id) {
 		init();
-		if (vectors == null) {
+		if (segment == null) {
 			return null;
 		}
-		return vectors.get(id);
+		int i = segment.indexOf(id);
+		if (i >= 0 && counts[i] != 0) {
+			return getEntry(segment, counts, i);
+		}
+		return overlay.get(id);
+	}
+
+	/**
+	 * Compare a vector with the stored vectors and collect the most similar of those whose
+	 * cosine similarity and significance both exceed the specified thresholds.  Only the
+	 * returned vectors are decoded.
+	 * <p>
+	 * If {@code partitionScan} is true and there are enough vectors to compare, the comparisons
+	 * are partitioned across multiple threads, each retaining its own best {@code max} results
+	 * which are merged once all partitions are complete.  Callers which already perform many
+	 * queries concurrently should not partition their scans.
+	 * @param vec query vector
+	 * @param simthresh similarity threshold
+	 * @param sigthresh significance threshold
+	 * @param vectorFactory factory used to calculate significance
+	 * @param max maximum number of results to return
+	 * @param partitionScan true if comparisons may be spread across multiple threads
+	 * @return matching vectors sorted by decreasing similarity
+	 * @throws SQLException if the scan was interrupted or failed
+	 */
+	public List<VectorResult> querySimilar(LSHVector vec, double simthresh, double sigthresh,
+			LSHVectorFactory vectorFactory, int max, boolean partitionScan) throws SQLException {
+		VectorSegment seg;
+		int[] segCounts;
+		int[] segIndices = null;
+		List<VectorStoreEntry> others;
+		synchronized (this) {
+			init();
+			if (segment == null || max <= 0) {
+				return new ArrayList<>();
+			}
+			seg = segment;
+			segCounts = counts;
+			VectorFeatureIndex.Candidates candidates =
+				index.getCandidates(vec, simthresh, size / 2);
+			if (candidates == null) {
+				others = new ArrayList<>(overlay.values());
+			}
+			else {
+				segIndices = candidates.segmentIndices();
+				others = new ArrayList<>(candidates.ids().length);
+				for (long id : candidates.ids()) {
+					others.add(overlay.get(id));
+				}
+			}
+		}
+
+		// Compare outside the lock; the segment is immutable and a concurrently updated
+		// count is at worst slightly stale
+		SegmentScan scan = new SegmentScan(seg, segCounts, segIndices, vec, simthresh, sigthresh,
+			vectorFactory, max);
+		int end = segIndices != null ? segIndices.length : seg.size();
+		GThreadPool threadPool = GThreadPool.getSharedThreadPool(SCAN_THREADPOOL_NAME);
+		int partitions = 1;
+		if (partitionScan) {
+			partitions = Math.min(threadPool.getMaxThreadCount(), end / MIN_PARTITION_SIZE);
+		}
+
+		TopMatches top;
+		if (partitions <= 1) {
+			top = scan.scan(0, end);
+		}
+		else {
+			List<Future<TopMatches>> futures = new ArrayList<>();
+			for (int p = 1; p < partitions; ++p) {
+				int start = (int) ((long) end * p / partitions);
+				int stop = (int) ((long) end * (p + 1) / partitions);
+				futures.add(threadPool.submit(() -> scan.scan(start, stop)));
+			}
+			top = scan.scan(0, end / partitions);
+			try {
+				for (Future<TopMatches> future : futures) {
+					top.addAll(future.get());
+				}
+			}
+			catch (InterruptedException e) {
+				futures.forEach(f -> f.cancel(true));
+				throw new SQLException("Interrupted while comparing vectors", e);
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof RuntimeException rte) {
+					throw rte;
+				}
+				throw new SQLException("Failed to compare vectors", e.getCause());
+			}
+		}
+
+		VectorCompare comp = new VectorCompare();
+		for (VectorStoreEntry entry : others) {
+			if (entry.selfSig() < sigthresh) {
+				continue;
+			}
+			vec.compare(entry.vec(), comp);
+			double cosine = comp.dotproduct / (vec.getLength() * entry.vec().getLength());
+			if (cosine <= simthresh) {
+				continue;
+			}
+			double sig = vectorFactory.calculateSignificance(comp);
+			if (sig <= sigthresh) {
+				continue;
+			}
+			top.add(new Match(entry.id(), cosine, sig, -1, entry));
+		}
+		return top.getResults(seg, segCounts);
 	}
 
 	private void loadVectors() throws SQLException {
+		File file = VectorSegment.getSegmentFile(serverInfo);
+		VectorSegment seg = VectorSegment.EMPTY;
+		if (file.isFile()) {
+			try {
+				seg = VectorSegment.open(file);
+			}
+			catch (IOException e) {
+				Msg.warn(this, "Ignoring vector segment: " + e.getMessage());
+			}
+		}
+
 		// NOTE: assume file DB (see constructor above)
 		try (H2FileFunctionDatabase fnDb = new H2FileFunctionDatabase(serverInfo)) {
 			if (!fnDb.initialize()) {
 				throw new SQLException(fnDb.getLastError().message);
 			}
-			vectors = fnDb.readVectorMap();
+			SegmentReconciler reconciler = new SegmentReconciler(seg);
+			fnDb.readVectorHeaders(reconciler);
+
+			Map<Long, VectorStoreEntry> added = new HashMap<>();
+			int[] segCounts = reconciler.counts;
+			if (reconciler.stale) {
+				seg = VectorSegment.EMPTY;
+				segCounts = new int[0];
+				added = fnDb.readVectorMap();
+			}
+			else if (reconciler.newerCount != 0) {
+				added = fnDb.readVectorMap(seg.getMaxId());
+			}
+
+			if (reconciler.stale || !added.isEmpty()) {
+				try {
+					List<VectorStoreEntry> sorted = new ArrayList<>(added.values());
+					sorted.sort((e1, e2) -> Long.compare(e1.id(), e2.id()));
+					int[] retained = new int[segCounts.length];
+					int n = 0;
+					for (int i = 0; i < segCounts.length; ++i) {
+						if (segCounts[i] != 0) {
+							retained[n++] = i;
+						}
+					}
+					retained = Arrays.copyOf(retained, n);
+					VectorSegment newSeg = VectorSegment.write(file, seg, retained, sorted);
+					int[] newCounts = new int[newSeg.size()];
+					for (int i = 0; i < n; ++i) {
+						newCounts[i] = segCounts[retained[i]];
+					}
+					for (VectorStoreEntry entry : sorted) {
+						newCounts[n++] = entry.count();
+					}
+					seg = newSeg;
+					segCounts = newCounts;
+					added = new HashMap<>();
+				}
+				catch (IOException e) {
+					Msg.warn(this, "Failed to write vector segment " + file + ": " + e.getMessage());
+				}
+			}
+
+			index = new VectorFeatureIndex(seg);
+			size = 0;
+			for (int segCount : segCounts) {
+				if (segCount != 0) {
+					++size;
+				}
+			}
+			for (VectorStoreEntry entry : added.values()) {
+				index.add(entry.id(), entry.vec());
+				++size;
+			}
+			overlay = added;
+			counts = segCounts;
+			segment = seg;
 		}
 	}
 
 	public synchronized void invalidate() {
-		vectors = null;
+		segment = null;
+		counts = null;
+		overlay = null;
+		index = null;
+		size = 0;
 	}
 
 	public synchronized void update(VectorStoreEntry entry) {
-		if (vectors != null) {
-			vectors.put(entry.id(), entry);
+		if (segment == null) {
+			return;
+		}
+		int i = segment.indexOf(entry.id());
+		if (i >= 0) {
+			if (counts[i] == 0) {
+				++size;	// still within the segment's index
+			}
+			counts[i] = entry.count();
+			return;
 		}
+		VectorStoreEntry old = overlay.put(entry.id(), entry);
+		if (old != null) {
+			index.remove(old.id(), old.vec());
+		}
+		else {
+			++size;
+		}
+		index.add(entry.id(), entry.vec());
 	}
 
 	public synchronized void update(long id, int count) {
-		if (vectors == null) {
+		if (segment == null) {
 			return;
 		}
-		VectorStoreEntry entry = vectors.get(id);
+		int i = segment.indexOf(id);
+		if (i >= 0 && counts[i] != 0) {
+			counts[i] = count;
+			return;
+		}
+		VectorStoreEntry entry = overlay.get(id);
 		if (entry == null) {
 			invalidate();
 		}
 		else {
-			vectors.put(id, new VectorStoreEntry(id, entry.vec(), count, entry.selfSig()));
+			overlay.put(id, new VectorStoreEntry(id, entry.vec(), count, entry.selfSig()));
 		}
 	}
 
 	public synchronized void delete(long id) {
-		if (vectors != null) {
-			vectors.remove(id);
+		if (segment == null) {
+			return;
+		}
+		int i = segment.indexOf(id);
+		if (i >= 0 && counts[i] != 0) {
+			counts[i] = 0;	// remains within the segment's index, skipped by scans
+			--size;
+			return;
+		}
+		VectorStoreEntry old = overlay.remove(id);
+		if (old != null) {
+			index.remove(old.id(), old.vec());
+			--size;
+		}
+	}
+
+	/**
+	 * Assigns vector table counts to segment vectors, and determines whether the segment is
+	 * missing vectors or is stale (i.e., does not correspond to the vector table)
+	 */
+	private static class SegmentReconciler implements VectorHeaderConsumer {
+		private final VectorSegment seg;
+		private final int[] counts;
+		private boolean stale;
+		private int newerCount;
+
+		SegmentReconciler(VectorSegment seg) {
+			this.seg = seg;
+			this.counts = new int[seg.size()];
+		}
+
+		@Override
+		public void accept(long id, int count, long vecHash) {
+			int i = seg.indexOf(id);
+			if (i >= 0) {
+				if (seg.getVectorHash(i) != vecHash) {
+					stale = true;
+				}
+				counts[i] = count;
+			}
+			else if (id < seg.getMaxId()) {
+				// IDs are assigned in ascending order so the segment should have contained it
+				stale = true;
+			}
+			else {
+				++newerCount;
+			}
 		}
 	}
 
+	/**
+	 * Comparison of a query vector with a range of segment vectors
+	 */
+	private static class SegmentScan {
+		private final VectorSegment seg;
+		private final int[] segCounts;
+		private final int[] segIndices;	// vectors to compare, or null for all vectors
+		private final LSHVector vec;
+		private final PackedCosineVector query;
+		private final double simthresh;
+		private final double sigthresh;
+		private final LSHVectorFactory vectorFactory;
+		private final int max;
+
+		SegmentScan(VectorSegment seg, int[] segCounts, int[] segIndices, LSHVector vec,
+				double simthresh, double sigthresh, LSHVectorFactory vectorFactory, int max) {
+			this.seg = seg;
+			this.segCounts = segCounts;
+			this.segIndices = segIndices;
+			this.vec = vec;
+			this.query = new PackedCosineVector(vec);
+			this.simthresh = simthresh;
+			this.sigthresh = sigthresh;
+			this.vectorFactory = vectorFactory;
+			this.max = max;
+		}
+
+		TopMatches scan(int start, int end) {
+			TopMatches top = new TopMatches(max);
+			VectorCompare comp = new VectorCompare();
+			for (int n = start; n < end; ++n) {
+				int i = segIndices != null ? segIndices[n] : n;
+				if (segCounts[i] == 0 || seg.getSelfSignificance(i) < sigthresh) {
+					continue;
+				}
+				seg.compare(query, i, comp);
+				double cosine = comp.dotproduct / (vec.getLength() * seg.getLength(i));
+				if (cosine <= simthresh) {
+					continue;
+				}
+				double sig = vectorFactory.calculateSignificance(comp);
+				if (sig <= sigthresh) {
+					continue;
+				}
+				top.add(new Match(seg.getId(i), cosine, sig, i, null));
+			}
+			return top;
+		}
+	}
+
+	/**
+	 * A matching vector, identified by its segment index or its overlay entry
+	 */
+	private record Match(long id, double sim, double sig, int index, VectorStoreEntry entry) {
+	}
+
+	/**
+	 * Bounded collection of the most similar matches
+	 */
+	private static class TopMatches {
+		// least similar match first, with higher IDs ordered first among equal similarities
+		private static final Comparator<Match> LEAST_SIMILAR_FIRST =
+			Comparator.comparingDouble(Match::sim)
+					.thenComparing(Comparator.comparingLong(Match::id).reversed());
+
+		private final int max;
+		private final PriorityQueue<Match> heap = new PriorityQueue<>(LEAST_SIMILAR_FIRST);
+
+		TopMatches(int max) {
+			this.max = max;
+		}
+
+		void add(Match match) {
+			if (heap.size() < max) {
+				heap.add(match);
+			}
+			else if (LEAST_SIMILAR_FIRST.compare(match, heap.peek()) > 0) {
+				heap.poll();
+				heap.add(match);
+			}
+		}
+
+		void addAll(TopMatches other) {
+			for (Match match : other.heap) {
+				add(match);
+			}
+		}
+
+		List<VectorResult> getResults(VectorSegment seg, int[] segCounts) {
+			List<Match> matches = new ArrayList<>(heap);
+			matches.sort(LEAST_SIMILAR_FIRST.reversed());
+			List<VectorResult> results = new ArrayList<>(matches.size());
+			for (Match match : matches) {
+				if (match.entry() != null) {
+					VectorStoreEntry entry = match.entry();
+					results.add(new VectorResult(entry.id(), entry.count(), match.sim(),
+						match.sig(), entry.vec()));
+				}
+				else {
+					int i = match.index();
+					results.add(new VectorResult(match.id(), segCounts[i], match.sim(),
+						match.sig(), seg.getVector(i)));
+				}
+			}
+			return results;
+		}
+	}
 }
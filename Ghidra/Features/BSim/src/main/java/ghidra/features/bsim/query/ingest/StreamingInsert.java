@@ -0,0 +1,262 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.features.bsim.query.ingest;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.*;
+
+import generic.concurrent.GThreadPool;
+import ghidra.app.decompiler.DecompileException;
+import ghidra.features.bsim.query.FunctionDatabase;
+import ghidra.features.bsim.query.GenSignatures;
+import ghidra.features.bsim.query.client.AbstractSQLFunctionDatabase;
+import ghidra.features.bsim.query.description.DescriptionManager;
+import ghidra.features.bsim.query.description.FunctionDescription;
+import ghidra.features.bsim.query.protocol.InsertRequest;
+import ghidra.features.bsim.query.protocol.ResponseInsert;
+import ghidra.program.model.listing.Function;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import ghidra.util.task.TaskMonitorAdapter;
+
+/**
+ * Inserts the signatures of a program's functions into a BSim database while they are being
+ * generated.  Decompiler workers pass each function to a bounded queue as soon as its
+ * signature is ready, and the calling thread drains the queue into the database in batches.
+ * Signatures are released once they are stored, so memory use does not grow with the number
+ * of functions, and database work overlaps with decompilation instead of following it.
+ * <p>
+ * Only {@link AbstractSQLFunctionDatabase} connections support streaming.  For any other
+ * database all signatures are generated first and inserted with a single {@link InsertRequest}.
+ */
+public class StreamingInsert {
+
+	public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+	private static final String SCAN_THREADPOOL_NAME = "BSIM_STREAMING_INSERT_THREADPOOL";
+	private static final long POLL_TIMEOUT_MS = 100;
+
+	private final GenSignatures gensig;
+	private final FunctionDatabase database;
+	private int queueSize = DEFAULT_QUEUE_SIZE;
+
+	/**
+	 * Constructor
+	 * @param gensig signature generator, with the program whose functions are to be inserted
+	 * already open (see {@link GenSignatures#openProgram})
+	 * @param database initialized database to insert into
+	 */
+	public StreamingInsert(GenSignatures gensig, FunctionDatabase database) {
+		this.gensig = gensig;
+		this.database = database;
+	}
+
+	/**
+	 * Set the maximum number of functions which may be waiting to be inserted before
+	 * signature generation is paused
+	 * @param queueSize maximum number of waiting functions
+	 */
+	public void setQueueSize(int queueSize) {
+		if (queueSize <= 0) {
+			throw new IllegalArgumentException("Invalid queue size: " + queueSize);
+		}
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * Generate signatures for a set of functions from the open program and insert them
+	 * into the database.  The signatures of inserted functions are released from the
+	 * {@link GenSignatures} description manager.  Nothing is inserted if signature generation
+	 * fails or is cancelled.
+	 * @param functions the set of functions to insert
+	 * @param countestimate estimated number of functions (to initialize the monitor)
+	 * @param monitor controls interruptions and progress reports, may be null.  The monitor
+	 * is cancelled if the insert fails before all signatures have been generated.
+	 * @return the insert response, or null if the insert failed (see
+	 * {@link FunctionDatabase#getLastError()})
+	 * @throws DecompileException if the functions cannot be decompiled
+	 * @throws CancelledException if the monitor is cancelled
+	 */
+	public ResponseInsert insert(Iterator<Function> functions, int countestimate,
+			TaskMonitor monitor) throws DecompileException, CancelledException {
+
+		InsertRequest insertreq = new InsertRequest();
+		insertreq.manage = gensig.getDescriptionManager();
+
+		if (!(database instanceof AbstractSQLFunctionDatabase<?> sqlDatabase)) {
+			gensig.scanFunctions(functions, countestimate, monitor);
+			if (monitor != null) {
+				monitor.checkCancelled();
+			}
+			sortCallgraphs(insertreq.manage);
+			return insertreq.execute(database);
+		}
+
+		if (monitor == null) {
+			monitor = new TaskMonitorAdapter(true);
+		}
+		FunctionStream stream = new FunctionStream(functions, countestimate, monitor);
+		gensig.setSignatureConsumer(stream::put);
+		try {
+			return sqlDatabase.insertStream(insertreq, stream);
+		}
+		catch (ScanFailedException e) {
+			// The stream fails before it is exhausted, so the insert has been rolled back
+			if (e.getCause() instanceof DecompileException de) {
+				throw de;
+			}
+			if (e.getCause() instanceof CancelledException ce) {
+				throw ce;
+			}
+			throw e;
+		}
+		finally {
+			gensig.setSignatureConsumer(null);
+			stream.finish();
+		}
+	}
+
+	private static void sortCallgraphs(DescriptionManager manager) {
+		// De-dupe the list of callees for each function, otherwise duplicate entries may
+		// be inserted into the callgraph table
+		manager.listAllFunctions().forEachRemaining(fd -> fd.sortCallgraph());
+	}
+
+	/**
+	 * Functions passed from the decompiler workers to the thread performing the insert.
+	 * Signature generation is started when the stream is first queried.
+	 */
+	private class FunctionStream implements Iterator<FunctionDescription> {
+
+		private final Iterator<Function> functions;
+		private final int countestimate;
+		private final TaskMonitor monitor;
+		private final BlockingQueue<FunctionDescription> queue;
+		private volatile boolean aborted;
+		private CompletableFuture<Void> scan;
+		private FunctionDescription next;
+
+		FunctionStream(Iterator<Function> functions, int countestimate, TaskMonitor monitor) {
+			this.functions = functions;
+			this.countestimate = countestimate;
+			this.monitor = monitor;
+			queue = new ArrayBlockingQueue<>(queueSize);
+		}
+
+		/**
+		 * Called from a decompiler worker with each function whose signature has been
+		 * generated.  Blocks while the queue is full.
+		 * @param fdesc the function
+		 */
+		void put(FunctionDescription fdesc) {
+			fdesc.sortCallgraph(); // Only this worker modifies the function's callgraph
+			try {
+				while (!aborted) {
+					if (queue.offer(fdesc, POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+						return;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next != null) {
+				return true;
+			}
+			if (scan == null) {
+				scan = GThreadPool.runAsync(SCAN_THREADPOOL_NAME, () -> {
+					try {
+						gensig.scanFunctions(functions, countestimate, monitor);
+					}
+					catch (DecompileException e) {
+						throw new CompletionException(e);
+					}
+				});
+			}
+			try {
+				while (true) {
+					// All functions have been queued once the scan is done
+					boolean done = scan.isDone();
+					next = done ? queue.poll() : queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+					if (next != null) {
+						return true;
+					}
+					if (done) {
+						checkScan();
+						return false;
+					}
+				}
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ScanFailedException(new CancelledException());
+			}
+		}
+
+		@Override
+		public FunctionDescription next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			FunctionDescription fdesc = next;
+			next = null;
+			return fdesc;
+		}
+
+		private void checkScan() {
+			try {
+				scan.join();
+			}
+			catch (CompletionException e) {
+				throw new ScanFailedException(e.getCause());
+			}
+			if (monitor.isCancelled()) {
+				throw new ScanFailedException(new CancelledException());
+			}
+		}
+
+		/**
+		 * Stop signature generation if it is still running, and wait for it to finish
+		 */
+		void finish() {
+			if (scan == null) {
+				return;
+			}
+			if (!scan.isDone()) {
+				aborted = true;
+				monitor.cancel();
+			}
+			queue.clear();
+			try {
+				scan.join();
+			}
+			catch (CompletionException e) {
+				// already reported by the stream, or irrelevant once the insert has failed
+			}
+		}
+	}
+
+	private static class ScanFailedException extends RuntimeException {
+		ScanFailedException(Throwable cause) {
+			super(cause.getMessage(), cause);
+		}
+	}
+}
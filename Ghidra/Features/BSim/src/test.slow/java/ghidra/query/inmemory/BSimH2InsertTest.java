@@ -0,0 +1,341 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.query.inmemory;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+import org.junit.*;
+
+import generic.lsh.vector.*;
+import ghidra.app.decompiler.DecompileException;
+import ghidra.features.bsim.query.*;
+import ghidra.features.bsim.query.BSimServerInfo.DBType;
+import ghidra.features.bsim.query.description.DatabaseInformation;
+import ghidra.features.bsim.query.description.SignatureRecord;
+import ghidra.features.bsim.query.elastic.Base64VectorFactory;
+import ghidra.features.bsim.query.file.*;
+import ghidra.features.bsim.query.file.BSimH2FileDBConnectionManager.BSimH2FileDataSource;
+import ghidra.features.bsim.query.ingest.StreamingInsert;
+import ghidra.features.bsim.query.protocol.*;
+import ghidra.framework.Application;
+import ghidra.program.database.ProgramBuilder;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.listing.Program;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import ghidra.util.task.TaskMonitorAdapter;
+import utilities.util.FileUtilities;
+
+/**
+ * Tests the batched vector table update and the streaming insert of an H2 file database
+ */
+public class BSimH2InsertTest extends AbstractGhidraHeadlessIntegrationTest {
+
+	// More functions than are stored in a single insert batch
+	private static final int FUNCTION_COUNT = 600;
+
+	private ProgramBuilder builder;
+
+	@Before
+	public void setUp() {
+		cleanup();
+		getTempDbDir().mkdir();
+	}
+
+	@After
+	public void tearDown() {
+		if (builder != null) {
+			builder.dispose();
+		}
+		cleanup();
+	}
+
+	private File getTempDbDir() {
+		return new File(Application.getUserTempDirectory(), "BSimH2InsertTest");
+	}
+
+	private void cleanup() {
+		for (BSimH2FileDataSource ds : BSimH2FileDBConnectionManager.getAllDataSources()) {
+			ds.delete();
+		}
+		FileUtilities.deleteDir(getTempDbDir());
+	}
+
+	private BSimServerInfo createDatabase(String databaseName) {
+		BSimServerInfo serverInfo = new BSimServerInfo(DBType.file, null, -1,
+			new File(getTempDbDir(), databaseName).getAbsolutePath());
+		try (FunctionDatabase h2Database = BSimClientFactory.buildClient(serverInfo, false)) {
+			CreateDatabase command = new CreateDatabase();
+			command.info = new DatabaseInformation();
+			command.info.databasename = databaseName;
+			command.config_template = BSimH2DatabaseManagerTest.MEDIUM_NOSIZE;
+			command.info.trackcallgraph = true;
+			assertNotNull(command.execute(h2Database));
+		}
+		return serverInfo;
+	}
+
+	private H2VectorTable openVectorTable(H2FileFunctionDatabase fdb, Connection c) {
+		H2VectorTable table = new H2VectorTable((Base64VectorFactory) fdb.getLSHVectorFactory(),
+			BSimVectorStoreManager.getVectorStore(fdb.getServerInfo()));
+		table.setConnection(c);
+		return table;
+	}
+
+	private static LSHVector createVector(Random random) {
+		Map<Integer, Integer> counts = new HashMap<>();
+		int size = 1 + random.nextInt(40);
+		for (int i = 0; i < size; i++) {
+			counts.merge(random.nextInt(200), 1, Integer::sum);
+		}
+		HashEntry[] entries = new HashEntry[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			int feature = entry.getKey();
+			entries[n++] = new HashEntry(feature * 0x9E3779B1, entry.getValue(),
+				1 + feature % 500, 0.5 + random.nextDouble());
+		}
+		// entries must be sorted on the unsigned hash
+		Arrays.sort(entries, (e1, e2) -> Integer.compareUnsigned(e1.getHash(), e2.getHash()));
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+
+	/**
+	 * Read the vector table rows of a database
+	 * @return map of row ID to row count and hash
+	 */
+	private static Map<Long, long[]> readRows(H2FileFunctionDatabase fdb) throws SQLException {
+		Map<Long, long[]> rows = new HashMap<>();
+		fdb.readVectorHeaders((id, count, vecHash) -> rows.put(id, new long[] { count, vecHash }));
+		return rows;
+	}
+
+	private static Map<Long, Long> countsByHash(Map<Long, long[]> rows) {
+		Map<Long, Long> counts = new HashMap<>();
+		for (long[] row : rows.values()) {
+			counts.put(row[1], row[0]);
+		}
+		return counts;
+	}
+
+	private static void assertStoreMatchesRows(Map<Long, long[]> rows, VectorStore store) {
+		int size = 0;
+		for (VectorStoreEntry entry : store) {
+			long[] row = rows.get(entry.id());
+			assertNotNull("Vector store contains deleted vector " + entry.id(), row);
+			assertEquals(row[0], entry.count());
+			assertEquals(row[1], entry.vec().calcUniqueHash());
+			++size;
+		}
+		assertEquals(rows.size(), size);
+	}
+
+	@Test
+	public void testUpdateVectorsMatchesUpdateVector() throws Exception {
+		Random random = new Random(3);
+		List<LSHVector> vecs = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			vecs.add(createVector(random));
+		}
+
+		List<List<LSHVector>> batches = new ArrayList<>();
+		// New vectors, some repeated within the batch
+		batches.add(List.of(vecs.get(0), vecs.get(1), vecs.get(0), vecs.get(2), vecs.get(0)));
+		// Vectors which already have rows, mixed with new and repeated vectors
+		batches.add(List.of(vecs.get(1), vecs.get(3), vecs.get(0), vecs.get(3), vecs.get(4)));
+		// More distinct vectors than are looked up by a single query
+		List<LSHVector> large = new ArrayList<>();
+		for (int i = 0; i < 500; i++) {
+			large.add(vecs.get(random.nextInt(vecs.size())));
+		}
+		batches.add(large);
+
+		BSimServerInfo singleInfo = createDatabase("single");
+		BSimServerInfo batchInfo = createDatabase("batch");
+		try (H2FileFunctionDatabase singleDb = new H2FileFunctionDatabase(singleInfo);
+				H2FileFunctionDatabase batchDb = new H2FileFunctionDatabase(batchInfo);
+				Connection singleConnection =
+					BSimH2FileDBConnectionManager.getDataSource(singleInfo).getConnection();
+				Connection batchConnection =
+					BSimH2FileDBConnectionManager.getDataSource(batchInfo).getConnection()) {
+			assertTrue(singleDb.initialize());
+			assertTrue(batchDb.initialize());
+			H2VectorTable singleTable = openVectorTable(singleDb, singleConnection);
+			H2VectorTable batchTable = openVectorTable(batchDb, batchConnection);
+
+			// Load the vector store so that it must be kept up to date by the batched updates
+			VectorStore batchStore = BSimVectorStoreManager.getVectorStore(batchInfo);
+			assertFalse(batchStore.iterator().hasNext());
+
+			try {
+				for (List<LSHVector> batch : batches) {
+					long[] singleIds = new long[batch.size()];
+					for (int i = 0; i < batch.size(); i++) {
+						singleIds[i] = singleTable.updateVector(batch.get(i), 1);
+					}
+					long[] batchIds = batchTable.updateVectors(batch);
+					assertEquals(batch.size(), batchIds.length);
+
+					Map<Long, long[]> singleRows = readRows(singleDb);
+					Map<Long, long[]> batchRows = readRows(batchDb);
+					assertEquals(countsByHash(singleRows), countsByHash(batchRows));
+					for (int i = 0; i < batch.size(); i++) {
+						long vecHash = batch.get(i).calcUniqueHash();
+						assertEquals(vecHash, singleRows.get(singleIds[i])[1]);
+						assertEquals(vecHash, batchRows.get(batchIds[i])[1]);
+					}
+					assertStoreMatchesRows(batchRows, batchStore);
+				}
+			}
+			finally {
+				singleTable.close();
+				batchTable.close();
+			}
+		}
+	}
+
+	/**
+	 * Database which cancels or fails a streamed insert once its first batch of signatures
+	 * has been stored, while later signatures are still being generated
+	 */
+	private static class InterruptedInsertDatabase extends H2FileFunctionDatabase {
+		private final TaskMonitor monitor;
+		private boolean interrupted;
+
+		/**
+		 * @param serverInfo database
+		 * @param monitor is cancelled after the first batch, or null to fail the insert instead
+		 */
+		InterruptedInsertDatabase(BSimServerInfo serverInfo, TaskMonitor monitor) {
+			super(serverInfo);
+			this.monitor = monitor;
+		}
+
+		@Override
+		protected long[] storeSignatureRecords(List<SignatureRecord> sigrecs)
+				throws SQLException {
+			long[] ids = super.storeSignatureRecords(sigrecs);
+			if (!interrupted) {
+				interrupted = true;
+				if (monitor == null) {
+					throw new SQLException("Simulated insert failure");
+				}
+				monitor.cancel();
+			}
+			return ids;
+		}
+	}
+
+	private Program buildProgram() throws Exception {
+		builder = new ProgramBuilder("stream", ProgramBuilder._X86, this);
+		builder.createMemory(".text", "0x401000", FUNCTION_COUNT * 16);
+		byte[] bytes = new byte[FUNCTION_COUNT * 16];
+		for (int i = 0; i < FUNCTION_COUNT; i++) {
+			// PUSH EBP; MOV EBP,ESP; MOV EAX,i; ADD EAX,ECX; POP EBP; RET; NOP...
+			byte[] function = { 0x55, (byte) 0x89, (byte) 0xe5, (byte) 0xb8, (byte) i,
+				(byte) (i >> 8), 0, 0, 0x01, (byte) 0xc8, 0x5d, (byte) 0xc3, (byte) 0x90,
+				(byte) 0x90, (byte) 0x90, (byte) 0x90 };
+			System.arraycopy(function, 0, bytes, i * 16, 16);
+		}
+		builder.setBytes("0x401000", bytes, true);
+		for (int i = 0; i < FUNCTION_COUNT; i++) {
+			builder.createEmptyFunction("f" + i, "0x" + Integer.toHexString(0x401000 + i * 16), 12,
+				DataType.DEFAULT);
+		}
+		return builder.getProgram();
+	}
+
+	private ResponseInsert streamInsert(Program program, FunctionDatabase fdb, TaskMonitor monitor)
+			throws Exception {
+		assertTrue(fdb.initialize());
+		GenSignatures gensig = new GenSignatures(fdb.getInfo().trackcallgraph);
+		try {
+			gensig.setVectorFactory(fdb.getLSHVectorFactory());
+			gensig.openProgram(program, null, null, null, "ghidra://localhost/repo", "/");
+			return new StreamingInsert(gensig, fdb).insert(
+				program.getFunctionManager().getFunctions(true), FUNCTION_COUNT, monitor);
+		}
+		finally {
+			gensig.dispose();
+		}
+	}
+
+	/**
+	 * Verify that an interrupted insert left no trace in the database, and that the program
+	 * can then be inserted
+	 */
+	private void assertRolledBack(Program program, BSimServerInfo serverInfo) throws Exception {
+		try (H2FileFunctionDatabase fdb = new H2FileFunctionDatabase(serverInfo)) {
+			assertTrue(fdb.initialize());
+			ResponseExe exeCount = new QueryExeCount().execute(fdb);
+			assertNotNull(exeCount);
+			assertEquals(0, exeCount.recordCount);
+			Map<Long, long[]> rows = readRows(fdb);
+			assertTrue(rows.isEmpty());
+			assertStoreMatchesRows(rows, BSimVectorStoreManager.getVectorStore(serverInfo));
+
+			ResponseInsert response = streamInsert(program, fdb, new TaskMonitorAdapter(true));
+			assertNotNull(fdb.getLastError() + "", response);
+			assertEquals(1, response.numexe);
+			assertEquals(FUNCTION_COUNT, response.numfunc);
+			exeCount = new QueryExeCount().execute(fdb);
+			assertEquals(1, exeCount.recordCount);
+			assertStoreMatchesRows(readRows(fdb), BSimVectorStoreManager.getVectorStore(serverInfo));
+		}
+	}
+
+	@Test
+	public void testStreamingInsertCancelledMidScan() throws Exception {
+		Program program = buildProgram();
+		BSimServerInfo serverInfo = createDatabase("cancelled");
+		// Load the vector store so that rolled back vectors must be removed from it
+		assertFalse(BSimVectorStoreManager.getVectorStore(serverInfo).iterator().hasNext());
+
+		TaskMonitor monitor = new TaskMonitorAdapter(true);
+		try (H2FileFunctionDatabase fdb = new InterruptedInsertDatabase(serverInfo, monitor)) {
+			streamInsert(program, fdb, monitor);
+			fail("Expected insert to be cancelled");
+		}
+		catch (CancelledException | DecompileException e) {
+			// expected - the scan may report cancellation as a decompiler failure
+			assertTrue(monitor.isCancelled());
+		}
+
+		assertRolledBack(program, serverInfo);
+	}
+
+	@Test
+	public void testStreamingInsertFailsMidScan() throws Exception {
+		Program program = buildProgram();
+		BSimServerInfo serverInfo = createDatabase("failed");
+		assertFalse(BSimVectorStoreManager.getVectorStore(serverInfo).iterator().hasNext());
+
+		try (H2FileFunctionDatabase fdb = new InterruptedInsertDatabase(serverInfo, null)) {
+			assertNull(streamInsert(program, fdb, new TaskMonitorAdapter(true)));
+			assertTrue(fdb.getLastError().message.contains("Simulated insert failure"));
+		}
+
+		assertRolledBack(program, serverInfo);
+	}
+}
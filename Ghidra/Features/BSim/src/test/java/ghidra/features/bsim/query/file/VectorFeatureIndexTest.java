@@ -0,0 +1,181 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.features.bsim.query.file;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import org.junit.Test;
+
+import generic.lsh.vector.*;
+import generic.test.AbstractGenericTest;
+
+public class VectorFeatureIndexTest extends AbstractGenericTest {
+
+	private static final int NUM_FEATURES = 400;
+
+	private Random random = new Random(7);
+	private double[] featureWeights = new double[NUM_FEATURES];
+
+	public VectorFeatureIndexTest() {
+		for (int i = 0; i < NUM_FEATURES; i++) {
+			featureWeights[i] = 0.1 + random.nextDouble() * 3;
+		}
+	}
+
+	@Test
+	public void testCandidatesIncludeAllSimilarVectors() {
+		VectorFeatureIndex index = new VectorFeatureIndex();
+		Map<Long, LSHVector> vectors = new HashMap<>();
+		for (long id = 1; id <= 2000; id++) {
+			LSHVector vec = createVector();
+			vectors.put(id, vec);
+			index.add(id, vec);
+		}
+		for (long id = 1; id <= 2000; id += 3) {
+			index.remove(id, vectors.remove(id));
+		}
+
+		for (int i = 0; i < 50; i++) {
+			LSHVector query = createVector();
+			for (double thresh : new double[] { 0.3, 0.5, 0.7, 0.9 }) {
+				VectorFeatureIndex.Candidates candidates =
+					index.getCandidates(query, thresh, Integer.MAX_VALUE);
+				assertNotNull(candidates);
+				assertEquals(0, candidates.segmentIndices().length);
+				Set<Long> candidateSet = new HashSet<>();
+				for (long id : candidates.ids()) {
+					assertTrue(vectors.containsKey(id));
+					candidateSet.add(id);
+				}
+				for (Map.Entry<Long, LSHVector> entry : vectors.entrySet()) {
+					double sim = query.compare(entry.getValue(), new VectorCompare());
+					if (sim > thresh) {
+						assertTrue("Missing candidate with similarity " + sim,
+							candidateSet.contains(entry.getKey()));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCandidateLimit() {
+		VectorFeatureIndex index = new VectorFeatureIndex();
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(new HashEntry[] { new HashEntry(17, 1, 1.0) });
+		for (long id = 1; id <= 10; id++) {
+			index.add(id, vec);
+		}
+		assertArrayEquals(new long[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 },
+			index.getCandidates(vec, 0.9, 10).ids());
+		assertNull(index.getCandidates(vec, 0.9, 9));
+		assertNull(index.getCandidates(vec, 0.0, 10));
+	}
+
+	@Test
+	public void testSegmentCandidates() throws IOException {
+		File file = new File(createTempDirectory("VectorFeatureIndexTest"),
+			"test" + VectorSegment.FILE_EXTENSION);
+		List<VectorStoreEntry> entries = new ArrayList<>();
+		for (long id = 1; id <= 1000; id++) {
+			entries.add(new VectorStoreEntry(id, createVector(), 1, 1.0));
+		}
+		VectorSegment seg = VectorSegment.write(file, VectorSegment.EMPTY, new int[0], entries);
+		VectorFeatureIndex index = new VectorFeatureIndex(seg);
+		Map<Long, LSHVector> others = new HashMap<>();
+		for (long id = 1001; id <= 1200; id++) {
+			LSHVector vec = createVector();
+			others.put(id, vec);
+			index.add(id, vec);
+		}
+
+		for (int i = 0; i < 50; i++) {
+			LSHVector query = createVector();
+			for (double thresh : new double[] { 0.3, 0.5, 0.7, 0.9 }) {
+				VectorFeatureIndex.Candidates candidates =
+					index.getCandidates(query, thresh, Integer.MAX_VALUE);
+				assertNotNull(candidates);
+				Set<Integer> indexSet = new HashSet<>();
+				for (int n : candidates.segmentIndices()) {
+					assertTrue(indexSet.add(n));
+				}
+				for (int n = 0; n < entries.size(); n++) {
+					double sim = query.compare(entries.get(n).vec(), new VectorCompare());
+					if (sim > thresh) {
+						assertTrue("Missing segment candidate with similarity " + sim,
+							indexSet.contains(n));
+					}
+				}
+				Set<Long> idSet = new HashSet<>();
+				for (long id : candidates.ids()) {
+					assertTrue(others.containsKey(id));
+					idSet.add(id);
+				}
+				for (Map.Entry<Long, LSHVector> entry : others.entrySet()) {
+					double sim = query.compare(entry.getValue(), new VectorCompare());
+					if (sim > thresh) {
+						assertTrue("Missing candidate with similarity " + sim,
+							idSet.contains(entry.getKey()));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRemoveFromCommonFeature() {
+		VectorFeatureIndex index = new VectorFeatureIndex();
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(new HashEntry[] { new HashEntry(17, 1, 1.0) });
+		for (long id = 1; id <= 100000; id++) {
+			index.add(id, vec);
+		}
+		for (long id = 1; id <= 100000; id++) {
+			if (id != 500) {
+				index.remove(id, vec);
+			}
+		}
+		assertArrayEquals(new long[] { 500 }, index.getCandidates(vec, 0.9, 10).ids());
+		index.remove(500, vec);
+		assertEquals(0, index.getCandidates(vec, 0.9, 10).ids().length);
+	}
+
+	private LSHVector createVector() {
+		// features are drawn from a skewed distribution so vectors overlap
+		Map<Integer, Integer> counts = new HashMap<>();
+		int size = 5 + random.nextInt(30);
+		for (int i = 0; i < size; i++) {
+			counts.merge((int) (NUM_FEATURES * Math.pow(random.nextDouble(), 2)), 1, Integer::sum);
+		}
+		HashEntry[] entries = new HashEntry[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			int feature = entry.getKey();
+			int tf = entry.getValue();
+			double weight = featureWeights[feature] * Math.sqrt(1.0 + Math.log(tf) / Math.log(2));
+			entries[n++] = new HashEntry(feature * 0x9E3779B1, tf, weight);
+		}
+		// entries must be sorted on the unsigned hash
+		Arrays.sort(entries, (e1, e2) -> Integer.compareUnsigned(e1.getHash(), e2.getHash()));
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+}
@@ -0,0 +1,174 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.features.bsim.query.file;
+
+import static org.junit.Assert.*;
+
+import java.io.*;
+import java.util.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generic.lsh.vector.*;
+import generic.test.AbstractGenericTest;
+
+public class VectorSegmentTest extends AbstractGenericTest {
+
+	private Random random = new Random(11);
+	private File file;
+
+	@Before
+	public void setUp() throws IOException {
+		file = new File(createTempDirectory("VectorSegmentTest"), "test" +
+			VectorSegment.FILE_EXTENSION);
+		file.delete();
+	}
+
+	@Test
+	public void testWriteAndOpen() throws IOException {
+		List<VectorStoreEntry> entries = createEntries(1, 300);
+		VectorSegment seg = VectorSegment.write(file, VectorSegment.EMPTY, new int[0], entries);
+		assertEntries(entries, seg);
+
+		seg = VectorSegment.open(file);
+		assertEntries(entries, seg);
+		assertEquals(300, seg.getMaxId());
+		assertTrue(seg.indexOf(0) < 0);
+		assertTrue(seg.indexOf(301) < 0);
+	}
+
+	@Test
+	public void testCompare() throws IOException {
+		List<VectorStoreEntry> entries = createEntries(1, 300);
+		VectorSegment seg = VectorSegment.write(file, VectorSegment.EMPTY, new int[0], entries);
+		for (int n = 0; n < 20; n++) {
+			LSHVector query = createVector();
+			PackedCosineVector packedQuery = new PackedCosineVector(query);
+			for (int i = 0; i < entries.size(); i++) {
+				VectorCompare expected = new VectorCompare();
+				query.compare(entries.get(i).vec(), expected);
+				VectorCompare actual = new VectorCompare();
+				assertEquals(expected.dotproduct, seg.compare(packedQuery, i, actual), 0.0);
+				assertEquals(expected.dotproduct, actual.dotproduct, 0.0);
+				assertEquals(expected.intersectcount, actual.intersectcount);
+				assertEquals(expected.acount, actual.acount);
+				assertEquals(expected.bcount, actual.bcount);
+			}
+		}
+	}
+
+	@Test
+	public void testRewrite() throws IOException {
+		List<VectorStoreEntry> entries = createEntries(1, 100);
+		VectorSegment seg = VectorSegment.write(file, VectorSegment.EMPTY, new int[0], entries);
+
+		List<VectorStoreEntry> expected = new ArrayList<>();
+		int[] retained = new int[50];
+		for (int i = 0; i < retained.length; i++) {
+			retained[i] = i * 2;
+			expected.add(entries.get(i * 2));
+		}
+		List<VectorStoreEntry> added = createEntries(101, 150);
+		expected.addAll(added);
+
+		File rewriteFile = new File(file.getParentFile(), "rewrite" + VectorSegment.FILE_EXTENSION);
+		seg = VectorSegment.write(rewriteFile, seg, retained, added);
+		assertEntries(expected, seg);
+		assertTrue(seg.indexOf(2) < 0);
+		assertEntries(expected, VectorSegment.open(rewriteFile));
+	}
+
+	@Test(expected = IOException.class)
+	public void testOpenCorrupt() throws IOException {
+		VectorSegment.write(file, VectorSegment.EMPTY, new int[0], createEntries(1, 10));
+		try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+			raf.setLength(raf.length() - 1);
+		}
+		VectorSegment.open(file);
+	}
+
+	private void assertEntries(List<VectorStoreEntry> expected, VectorSegment seg) {
+		assertEquals(expected.size(), seg.size());
+		Map<Integer, List<Integer>> expectedPostings = new HashMap<>();
+		for (int i = 0; i < expected.size(); i++) {
+			for (HashEntry hashEntry : expected.get(i).vec().getEntries()) {
+				expectedPostings.computeIfAbsent(hashEntry.getHash(), h -> new ArrayList<>())
+						.add(i);
+			}
+		}
+		for (Map.Entry<Integer, List<Integer>> entry : expectedPostings.entrySet()) {
+			int feature = seg.findFeature(entry.getKey());
+			assertTrue(feature >= 0);
+			int[] postings = new int[seg.getPostingCount(feature)];
+			seg.getPostings(feature, postings, 0);
+			assertEquals(entry.getValue(), Arrays.stream(postings).boxed().toList());
+		}
+		assertTrue(seg.findFeature(12345) < 0);
+		for (int i = 0; i < expected.size(); i++) {
+			VectorStoreEntry entry = expected.get(i);
+			assertEquals(i, seg.indexOf(entry.id()));
+			assertEquals(entry.id(), seg.getId(i));
+			assertEquals(entry.vec().calcUniqueHash(), seg.getVectorHash(i));
+			assertEquals(entry.selfSig(), seg.getSelfSignificance(i), 0.0);
+			assertEquals(entry.vec().getLength(), seg.getLength(i), 0.0);
+
+			LSHVector vec = seg.getVector(i);
+			assertEquals(entry.vec().getLength(), vec.getLength(), 0.0);
+			HashEntry[] expectedEntries = entry.vec().getEntries();
+			HashEntry[] actualEntries = vec.getEntries();
+			assertEquals(expectedEntries.length, actualEntries.length);
+			int[] hashes = seg.getHashes(i);
+			for (int j = 0; j < expectedEntries.length; j++) {
+				assertEquals(expectedEntries[j].getHash(), hashes[j]);
+				assertEquals(expectedEntries[j].getHash(), actualEntries[j].getHash());
+				assertEquals(expectedEntries[j].getTF(), actualEntries[j].getTF());
+				assertEquals(expectedEntries[j].getIDF(), actualEntries[j].getIDF());
+				assertEquals(expectedEntries[j].getCoeff(), actualEntries[j].getCoeff(), 0.0);
+			}
+		}
+	}
+
+	private List<VectorStoreEntry> createEntries(long firstId, long lastId) {
+		List<VectorStoreEntry> entries = new ArrayList<>();
+		for (long id = firstId; id <= lastId; id++) {
+			LSHVector vec = createVector();
+			entries.add(new VectorStoreEntry(id, vec, 1 + random.nextInt(5),
+				vec.getLength() * vec.getLength() + 1.0));
+		}
+		return entries;
+	}
+
+	private LSHVector createVector() {
+		Map<Integer, Integer> counts = new HashMap<>();
+		int size = random.nextInt(40);
+		for (int i = 0; i < size; i++) {
+			counts.merge((int) (200 * Math.pow(random.nextDouble(), 2)), 1, Integer::sum);
+		}
+		HashEntry[] entries = new HashEntry[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			int feature = entry.getKey();
+			entries[n++] = new HashEntry(feature * 0x9E3779B1, entry.getValue(),
+				1 + feature % 500, 0.5 + random.nextDouble());
+		}
+		// entries must be sorted on the unsigned hash
+		Arrays.sort(entries, (e1, e2) -> Integer.compareUnsigned(e1.getHash(), e2.getHash()));
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+}
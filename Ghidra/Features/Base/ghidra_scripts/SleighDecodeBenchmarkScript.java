@@ -0,0 +1,106 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+// Measure the time taken to decode the instructions of the current program with and without
+// the flattened decision tree dispatch tables.  The prototype cache is bypassed so that every
+// instruction walks the decision tree.  Decoding is repeated for each mode and the fastest pass
+// is reported.
+// @category sleigh
+import java.util.ArrayList;
+import java.util.List;
+
+import ghidra.app.plugin.processors.sleigh.*;
+import ghidra.app.script.GhidraScript;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.mem.MemoryBufferImpl;
+
+public class SleighDecodeBenchmarkScript extends GhidraScript {
+
+	private static final int MAX_INSTRUCTIONS = 200000;
+	private static final int PASSES = 5;
+
+	@Override
+	public void run() throws Exception {
+		if (currentProgram == null) {
+			return;
+		}
+		Language lang = currentProgram.getLanguage();
+		if (!(lang instanceof SleighLanguage)) {
+			println("Not a sleigh language: " + lang.getLanguageID());
+			return;
+		}
+		SleighLanguage language = (SleighLanguage) lang;
+
+		ContextCache contextCache = new ContextCache();
+		Register contextReg = language.getContextBaseRegister();
+		if (contextReg != Register.NO_CONTEXT) {
+			contextCache.registerVariable(contextReg);
+		}
+
+		List<MemoryBufferImpl> buffers = new ArrayList<>();
+		List<ProcessorContextView> contexts = new ArrayList<>();
+		for (Instruction instr : currentProgram.getListing().getInstructions(true)) {
+			if (buffers.size() == MAX_INSTRUCTIONS || monitor.isCancelled()) {
+				break;
+			}
+			buffers.add(new MemoryBufferImpl(currentProgram.getMemory(), instr.getAddress()));
+			contexts.add(instr);
+		}
+		if (buffers.isEmpty()) {
+			println("No instructions to decode");
+			return;
+		}
+
+		boolean wasEnabled = DecisionNode.isDispatchTablesEnabled();
+		try {
+			long treeTime = Long.MAX_VALUE;
+			long tableTime = Long.MAX_VALUE;
+			for (int pass = 0; pass < PASSES; pass++) {
+				monitor.checkCancelled();
+				monitor.setMessage("Decoding pass " + (pass + 1) + " of " + PASSES);
+				DecisionNode.setDispatchTablesEnabled(false);
+				treeTime = Math.min(treeTime, decode(language, contextCache, buffers, contexts));
+				DecisionNode.setDispatchTablesEnabled(true);
+				tableTime = Math.min(tableTime, decode(language, contextCache, buffers, contexts));
+			}
+
+			int count = buffers.size();
+			println(String.format("%s: %d instructions", language.getLanguageID(), count));
+			println(String.format("  decision tree:   %8.1f ns/instruction",
+				(double) treeTime / count));
+			println(String.format("  dispatch tables: %8.1f ns/instruction (%.2fx)",
+				(double) tableTime / count, (double) treeTime / tableTime));
+		}
+		finally {
+			DecisionNode.setDispatchTablesEnabled(wasEnabled);
+		}
+	}
+
+	private long decode(SleighLanguage language, ContextCache contextCache,
+			List<MemoryBufferImpl> buffers, List<ProcessorContextView> contexts) {
+		long start = System.nanoTime();
+		for (int i = 0; i < buffers.size(); i++) {
+			try {
+				new SleighInstructionPrototype(language, buffers.get(i), contexts.get(i),
+					contextCache, false, null);
+			}
+			catch (Exception e) {
+				// instruction no longer decodes, e.g. memory has changed; time it anyway
+			}
+		}
+		return System.nanoTime() - start;
+	}
+}
@@ -42,6 +42,8 @@ public class DisassembleCommand extends BackgroundCommand<Program> {
 	private boolean enableAnalysis = true;
 	private DisassemblerContextImpl seedContext;
 	private RegisterValue initialContextValue;
+	private int threadCount = 1;
+	private ParallelDisassembler parallelDisassembler;
 
 	private int alignment; // required instruction alignment for the last doDisassembly
 	protected boolean disassemblyPerformed; // if true don't report start problems
@@ -123,6 +125,17 @@ public class DisassembleCommand extends BackgroundCommand<Program> {
 		this.initialContextValue = initialContextValue;
 	}
 
+	/**
+	 * Set the number of threads used to parse instruction blocks.  By default disassembly is
+	 * performed on the command's thread.  A value greater than one, or zero for the size of the
+	 * shared thread pool, selects the {@link ParallelDisassembler}.
+	 * 
+	 * @param threadCount the maximum number of disassembly threads
+	 */
+	public void setThreadCount(int threadCount) {
+		this.threadCount = threadCount;
+	}
+
 	/**
 	 * Set code analysis enablement. By default new instructions will be submitted for
 	 * auto-analysis.
@@ -187,6 +200,13 @@ public class DisassembleCommand extends BackgroundCommand<Program> {
 			Disassembler.getDisassembler(program, monitor, new MyListener(monitor));
 		disassembler.setSeedContext(seedContext);
 
+		parallelDisassembler = null;
+		if (threadCount != 1) {
+			parallelDisassembler =
+				new ParallelDisassembler(program, threadCount, monitor, new MyListener(monitor));
+			parallelDisassembler.setSeedContext(seedContext);
+		}
+
 		// if no start set, then create one from the start address
 		if (startSet == null || startSet.isEmpty()) {
 			return true;
@@ -195,10 +215,16 @@ public class DisassembleCommand extends BackgroundCommand<Program> {
 		if (!useDefaultRepeatPatternBehavior) {
 			if (startSet != restrictedSet && !startSet.equals(restrictedSet)) {
 				disassembler.setRepeatPatternLimitIgnored(startSet);
+				if (parallelDisassembler != null) {
+					parallelDisassembler.setRepeatPatternLimitIgnored(startSet);
+				}
 			}
 			else {
 				// If disassembling an exactly specified set, don't truncate zero runs
 				disassembler.setRepeatPatternLimit(-1);
+				if (parallelDisassembler != null) {
+					parallelDisassembler.setRepeatPatternLimit(-1);
+				}
 			}
 		}
 		AutoAnalysisManager mgr = null;
@@ -324,8 +350,10 @@ public class DisassembleCommand extends BackgroundCommand<Program> {
 	 */
 	protected AddressSet doDisassemblySeeds(Disassembler disassembler, AddressSet seedSet,
 			AutoAnalysisManager mgr) {
-		AddressSet newDisassembledAddrs =
-			disassembler.disassemble(seedSet, restrictedSet, initialContextValue, followFlow);
+		AddressSet newDisassembledAddrs = parallelDisassembler != null
+				? parallelDisassembler.disassemble(seedSet, restrictedSet, initialContextValue,
+					followFlow)
+				: disassembler.disassemble(seedSet, restrictedSet, initialContextValue, followFlow);
 
 		if (!newDisassembledAddrs.isEmpty()) {
 			disassemblyPerformed = true;
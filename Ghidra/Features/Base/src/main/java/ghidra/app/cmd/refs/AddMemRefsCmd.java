@@ -15,6 +15,9 @@
  */
 package ghidra.app.cmd.refs;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import ghidra.framework.cmd.BackgroundCommand;
 import ghidra.program.model.address.*;
 import ghidra.program.model.listing.*;
@@ -24,7 +27,8 @@ import ghidra.util.task.TaskMonitor;
 /**
  * <code>AddMemRefsCmd</code> adds a set of memory references from a
  * specified address and opIndex to all code units identified by a 
- * set of addresses.
+ * set of addresses.  The references are added as a single batch with
+ * {@link ReferenceManager#addMemoryReferences}.
  */
 public class AddMemRefsCmd extends BackgroundCommand<Program> {
 
@@ -62,6 +66,7 @@ public class AddMemRefsCmd extends BackgroundCommand<Program> {
 		monitor.initialize(toSet.getNumAddresses());
 		monitor.setMessage("Adding memory references...");
 
+		List<Reference> refs = new ArrayList<>();
 		int cnt = 0;
 		AddressIterator iter = toSet.getAddresses(true);
 		CodeUnit prevCodeUnit = null;
@@ -71,11 +76,13 @@ public class AddMemRefsCmd extends BackgroundCommand<Program> {
 				CodeUnit cu = getSmallestCodeUnitAt(listing, toAddr);
 				if (cu != null) {
 					prevCodeUnit = cu;
-					refMgr.addMemoryReference(fromAddr, toAddr, refType, source, opIndex);
+					refs.add(new MemReferenceImpl(fromAddr, toAddr, refType, source, opIndex,
+						false));
 				}
 			}
 			monitor.setProgress(++cnt);
 		}
+		refMgr.addMemoryReferences(refs);
 		return true;
 	}
 
@@ -28,8 +28,8 @@ import ghidra.util.task.TaskMonitor;
 public class AnalysisScheduler {
 	private AutoAnalysisManager analysisMgr;
 	private Analyzer analyzer;
-	private AddressSet removeSet;
-	private AddressSet addSet;
+	private CompactAddressSet removeSet;
+	private CompactAddressSet addSet;
 
 	private boolean defaultEnablement;
 	private boolean enabled;
@@ -45,8 +45,8 @@ public class AnalysisScheduler {
 		}
 		defaultEnablement = getDefaultEnablement();
 		enabled = defaultEnablement;
-		removeSet = new AddressSet();
-		addSet = new AddressSet();
+		removeSet = new CompactAddressSet();
+		addSet = new CompactAddressSet();
 	}
 
 	private boolean getDefaultEnablement() {
@@ -115,15 +115,15 @@ public class AnalysisScheduler {
 		return analyzer;
 	}
 
-	private AddressSet getAddedAddressSet() {
-		AddressSet oldSet = addSet;
-		addSet = new AddressSet();
+	private CompactAddressSet getAddedAddressSet() {
+		CompactAddressSet oldSet = addSet;
+		addSet = new CompactAddressSet();
 		return oldSet;
 	}
 
-	private AddressSet getRemovedAddressSet() {
-		AddressSet oldSet = removeSet;
-		removeSet = new AddressSet();
+	private CompactAddressSet getRemovedAddressSet() {
+		CompactAddressSet oldSet = removeSet;
+		removeSet = new CompactAddressSet();
 		return oldSet;
 	}
 
@@ -182,7 +182,11 @@ public class AnalysisScheduler {
 		monitor.setMessage(analyzer.getName());
 		monitor.setProgress(0);
 		boolean result = false;
-		if (!saveAddSet.isEmpty()) {
+		if (usePartitionedAnalysis(saveAddSet)) {
+			result |= AutoAnalysisManager.runPartitioned(analyzer, program, saveAddSet, monitor,
+				log);
+		}
+		else if (!saveAddSet.isEmpty()) {
 			result |= analyzer.added(program, saveAddSet, monitor, log);
 		}
 
@@ -193,6 +197,12 @@ public class AnalysisScheduler {
 		return result;
 	}
 
+	private boolean usePartitionedAnalysis(AddressSetView set) {
+		return analyzer.supportsPartitionedAnalysis() &&
+			set.getNumAddresses() > AutoAnalysisManager.PARTITION_CHUNK_SIZE &&
+			AutoAnalysisManager.isPartitionedAnalysisEnabled();
+	}
+
 	/**
 	 * Notify this analyzer that a run has been canceled.
 	 */
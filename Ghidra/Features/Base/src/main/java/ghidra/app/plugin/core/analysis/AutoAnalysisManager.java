@@ -31,7 +31,7 @@ import org.apache.commons.collections4.Factory;
 import org.apache.commons.collections4.map.LazyMap;
 
 import docking.widgets.OptionDialog;
-import generic.concurrent.GThreadPool;
+import generic.concurrent.*;
 import ghidra.app.cmd.disassemble.DisassembleCommand;
 import ghidra.app.cmd.function.CreateFunctionCmd;
 import ghidra.app.services.*;
@@ -69,6 +69,26 @@ public class AutoAnalysisManager {
 	private static final String OPTION_NAME_THREAD_USE = "Max Threads";
 	private static final String OPTION_DESCRIPTION_THREAD_USE =
 		"Maximum number of threads to use at once for tasks that run in parallel";
+	private static final String OPTION_NAME_PARTITIONED_ANALYSIS = "Partitioned Analysis";
+	private static final String OPTION_DESCRIPTION_PARTITIONED_ANALYSIS =
+		"Run analyzers which support partitioned analysis over address chunks in parallel, " +
+			"using the shared analysis thread pool";
+
+	/**
+	 * System property which enables partitioned analysis when no tool option is available
+	 * (e.g., headless analysis)
+	 */
+	public static final String PARTITIONED_ANALYSIS_PROPERTY = "ghidra.analysis.partitioned";
+
+	/**
+	 * The maximum number of addresses within each chunk of a partitioned analyzer run.  This is
+	 * intentionally independent of the thread pool size so that the same chunks are produced
+	 * regardless of the number of threads used.
+	 */
+	static final long PARTITION_CHUNK_SIZE = 0x10000;
+
+	private static boolean partitionedAnalysisEnabled =
+		Boolean.getBoolean(PARTITIONED_ANALYSIS_PROPERTY);
 
 	/**
 	 * The size of the statically shared analysis thread pool.
@@ -1006,6 +1026,10 @@ public class AutoAnalysisManager {
 		options.registerOption(OPTION_NAME_THREAD_USE, analysisSharedThreadPoolSize, null,
 			OPTION_DESCRIPTION_THREAD_USE);
 		analysisSharedThreadPoolSize = getSharedThreadPoolSizeOption(tool);
+		options.registerOption(OPTION_NAME_PARTITIONED_ANALYSIS, partitionedAnalysisEnabled,
+			null, OPTION_DESCRIPTION_PARTITIONED_ANALYSIS);
+		partitionedAnalysisEnabled =
+			options.getBoolean(OPTION_NAME_PARTITIONED_ANALYSIS, partitionedAnalysisEnabled);
 	}
 
 	private static int getSharedThreadPoolSizeOption(PluginTool tool) {
@@ -1419,6 +1443,178 @@ public class AutoAnalysisManager {
 		return pool;
 	}
 
+	/**
+	 * Returns true if analyzers which support partitioned analysis
+	 * (see {@link Analyzer#supportsPartitionedAnalysis()}) should have large address sets split
+	 * into chunks which are analyzed in parallel.
+	 *
+	 * @return true if partitioned analysis is enabled
+	 */
+	public static boolean isPartitionedAnalysisEnabled() {
+		PluginTool tool = getAnyTool();
+		if (tool != null) {
+			Options options = tool.getOptions("Auto Analysis");
+			return options.getBoolean(OPTION_NAME_PARTITIONED_ANALYSIS,
+				partitionedAnalysisEnabled);
+		}
+		return partitionedAnalysisEnabled;
+	}
+
+	/**
+	 * Enable or disable partitioned analysis.  When a tool is active this updates the
+	 * corresponding tool option.
+	 *
+	 * @param enabled true to enable partitioned analysis
+	 * @see #isPartitionedAnalysisEnabled()
+	 */
+	public static void setPartitionedAnalysisEnabled(boolean enabled) {
+		partitionedAnalysisEnabled = enabled;
+		PluginTool tool = getAnyTool();
+		if (tool != null) {
+			Options options = tool.getOptions("Auto Analysis");
+			options.setBoolean(OPTION_NAME_PARTITIONED_ANALYSIS, enabled);
+		}
+	}
+
+	/**
+	 * Split an address set into chunks of at most <code>chunkSize</code> addresses each.
+	 * Chunks are returned in ascending address order and only depend upon the specified set
+	 * and chunk size.
+	 *
+	 * @param set the address set to partition
+	 * @param chunkSize maximum number of addresses per chunk
+	 * @return list of disjoint chunks whose union is the specified set
+	 */
+	static List<AddressSetView> partition(AddressSetView set, long chunkSize) {
+		if (chunkSize <= 0) {
+			throw new IllegalArgumentException("chunkSize must be positive");
+		}
+		List<AddressSetView> chunks = new ArrayList<>();
+		CompactAddressSet chunk = new CompactAddressSet();
+		long chunkCount = 0;
+		for (AddressRange range : set) {
+			Address start = range.getMinAddress();
+			Address max = range.getMaxAddress();
+			while (start != null) {
+				long available = chunkSize - chunkCount;
+				long remaining = max.subtract(start); // addresses remaining - 1 (unsigned)
+				Address end;
+				if (Long.compareUnsigned(remaining, available - 1) <= 0) {
+					end = max;
+					chunkCount += remaining + 1;
+				}
+				else {
+					end = start.add(available - 1);
+					chunkCount = chunkSize;
+				}
+				chunk.add(start, end);
+				start = end.equals(max) ? null : end.next();
+				if (chunkCount == chunkSize) {
+					chunks.add(chunk);
+					chunk = new CompactAddressSet();
+					chunkCount = 0;
+				}
+			}
+		}
+		if (!chunk.isEmpty()) {
+			chunks.add(chunk);
+		}
+		return chunks;
+	}
+
+	/**
+	 * Run the {@link Analyzer#added(Program, AddressSetView, TaskMonitor, MessageLog) added}
+	 * method of an analyzer which supports partitioned analysis concurrently over chunks of
+	 * the specified set using the shared analysis thread pool.  Each chunk is logged to its own
+	 * message log and the logs are merged into the specified log in address order, so the
+	 * resulting log does not depend upon thread scheduling.  Program changes made by the
+	 * analyzer are serialized by the program's own locking within the caller's transaction.
+	 *
+	 * @param analyzer analyzer which supports partitioned analysis
+	 * @param program program to analyze
+	 * @param set the address set to be analyzed
+	 * @param monitor task monitor
+	 * @param log message log which receives all chunk messages
+	 * @return true if the analyzer returned true for any chunk
+	 * @throws CancelledException if the analysis is cancelled
+	 */
+	static boolean runPartitioned(Analyzer analyzer, Program program, AddressSetView set,
+			TaskMonitor monitor, MessageLog log) throws CancelledException {
+
+		List<AddressSetView> chunks = partition(set, PARTITION_CHUNK_SIZE);
+		MessageLog[] chunkLogs = new MessageLog[chunks.size()];
+		boolean[] chunkResults = new boolean[chunks.size()];
+
+		QCallback<Integer, Boolean> callback = (index, chunkMonitor) -> {
+			MessageLog chunkLog = new MessageLog();
+			chunkLogs[index] = chunkLog;
+			chunkResults[index] =
+				analyzer.added(program, chunks.get(index), chunkMonitor, chunkLog);
+			return chunkResults[index];
+		};
+
+		GThreadPool pool = getSharedAnalsysThreadPool();
+		monitor.initialize(chunks.size());
+
+		// @formatter:off
+		ConcurrentQ<Integer, Boolean> queue = new ConcurrentQBuilder<Integer, Boolean>()
+			.setThreadPool(pool)
+			.setMaxInProgress(pool.getMaxThreadCount())
+			.setCollectResults(true)
+			.setMonitor(monitor)
+			.build(callback);
+		// @formatter:on
+
+		Collection<QResult<Integer, Boolean>> results;
+		try {
+			List<Integer> indexes = new ArrayList<>(chunks.size());
+			for (int i = 0; i < chunks.size(); i++) {
+				indexes.add(i);
+			}
+			queue.add(indexes);
+			results = queue.waitForResults();
+		}
+		catch (InterruptedException e) {
+			queue.cancelAllTasks(true);
+			throw new CancelledException();
+		}
+		finally {
+			queue.dispose();
+		}
+
+		// report the failure of the lowest chunk so the outcome is deterministic
+		QResult<Integer, Boolean> failure = null;
+		for (QResult<Integer, Boolean> result : results) {
+			if (result.hasError() && (failure == null || result.getItem() < failure.getItem())) {
+				failure = result;
+			}
+		}
+
+		for (MessageLog chunkLog : chunkLogs) {
+			if (chunkLog != null) {
+				log.copyFrom(chunkLog);
+			}
+		}
+
+		monitor.checkCancelled();
+		if (failure != null) {
+			Exception e = failure.getError();
+			if (e instanceof CancelledException) {
+				throw (CancelledException) e;
+			}
+			if (e instanceof RuntimeException) {
+				throw (RuntimeException) e;
+			}
+			throw new AssertException("Unexpected exception from " + analyzer.getName(), e);
+		}
+
+		boolean result = false;
+		for (boolean chunkResult : chunkResults) {
+			result |= chunkResult;
+		}
+		return result;
+	}
+
 	private static void updateSharedThreadPoolSize() {
 		PluginTool tool = getAnyTool();
 		if (tool == null) {
@@ -22,6 +22,7 @@ import ghidra.program.model.listing.Instruction;
 import ghidra.program.model.listing.Program;
 import ghidra.program.model.mem.MemoryBlock;
 import ghidra.program.model.scalar.Scalar;
+import ghidra.util.task.TaskMonitor;
 
 public class ElfScalarOperandAnalyzer extends ScalarOperandAnalyzer {
 	private static final String NAME = "ELF Scalar Operand References";
@@ -60,7 +61,7 @@ public class ElfScalarOperandAnalyzer extends ScalarOperandAnalyzer {
 	 */
 	@Override
 	protected boolean addReference(Program program, Instruction instr, int opIndex,
-			AddressSpace space, Scalar scalar) {
+			AddressSpace space, Scalar scalar, TaskMonitor monitor) {
 		if (program.getExecutableFormat().equals(ElfLoader.ELF_NAME)) {
 			if (instr.getMnemonicString().equalsIgnoreCase("add")) {
 				try {
@@ -82,6 +83,6 @@ public class ElfScalarOperandAnalyzer extends ScalarOperandAnalyzer {
 				}
 			}
 		}
-		return super.addReference(program, instr, opIndex, space, scalar);
+		return super.addReference(program, instr, opIndex, space, scalar, monitor);
 	}
 }
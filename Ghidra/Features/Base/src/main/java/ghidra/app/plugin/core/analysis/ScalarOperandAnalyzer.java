@@ -56,8 +56,6 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 
 	private int alignment = 4;
 
-	private TaskMonitor monitor;
-
 	public ScalarOperandAnalyzer() {
 		this(NAME, DESCRIPTION);
 	}
@@ -77,33 +75,34 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 	}
 
 	@Override
-	public boolean added(Program program, AddressSetView set, TaskMonitor taskMonitor,
+	public boolean supportsPartitionedAnalysis() {
+		// each instruction is evaluated independently and only its own operand references
+		// are added
+		return true;
+	}
+
+	@Override
+	public boolean added(Program program, AddressSetView set, TaskMonitor monitor,
 			MessageLog log) {
 		int count = 0;
 
-		monitor = taskMonitor;
-		try {
-			monitor.initialize(set.getNumAddresses());
-			// Iterate over all new instructions
-			//   Evaluate each operand
-			//
-			Listing listing = program.getListing();
-
-			InstructionIterator iter = listing.getInstructions(set, true);
-			while (iter.hasNext() && !monitor.isCancelled()) {
-				Instruction instr = iter.next();
-				monitor.setProgress(++count);
-				checkOperands(program, instr);
-			}
-		}
-		finally {
-			monitor = null; // get rid of the reference to it
+		monitor.initialize(set.getNumAddresses());
+		// Iterate over all new instructions
+		//   Evaluate each operand
+		//
+		Listing listing = program.getListing();
+
+		InstructionIterator iter = listing.getInstructions(set, true);
+		while (iter.hasNext() && !monitor.isCancelled()) {
+			Instruction instr = iter.next();
+			monitor.setProgress(++count);
+			checkOperands(program, instr, monitor);
 		}
 
 		return true;
 	}
 
-	void checkOperands(Program program, Instruction instr) {
+	void checkOperands(Program program, Instruction instr, TaskMonitor monitor) {
 		// Check for scalar operands that are a valid address
 		//
 		for (int i = 0; i < instr.getNumOperands(); i++) {
@@ -167,14 +166,14 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 
 				// check the address in this space first
 				if (addReference(program, instr, i, instr.getMinAddress().getAddressSpace(),
-					scalar)) {
+					scalar, monitor)) {
 					continue;
 				}
 
 				// then check all spaces
 				AddressSpace[] spaces = program.getAddressFactory().getAddressSpaces();
 				for (int as = 0; as < spaces.length; as++) {
-					if (addReference(program, instr, i, spaces[as], scalar)) {
+					if (addReference(program, instr, i, spaces[as], scalar, monitor)) {
 						break;
 					}
 				}
@@ -202,7 +201,7 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 	}
 
 	boolean addReference(Program program, Instruction instr, int opIndex, AddressSpace space,
-			Scalar scalar) {
+			Scalar scalar, TaskMonitor monitor) {
 		Address addr = null;
 		if (space.isOverlaySpace()) {   // don't do this into overlay spaces.
 			return false;
@@ -226,7 +225,7 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 		//check that the target does not fall inside a defined function
 		if (checkOffcutFuncRef(program, addr)) {
 			Object objs[] = instr.getOpObjects(opIndex);
-			checkForJumpTable(program, instr, opIndex, objs, addr);
+			checkForJumpTable(program, instr, opIndex, objs, addr, monitor);
 			return false;
 		}
 
@@ -245,7 +244,7 @@ public class ScalarOperandAnalyzer extends AbstractAnalyzer {
 	}
 
 	void checkForJumpTable(Program program, Instruction refInstr, int opIndex, Object opObjects[],
-			Address addr) {
+			Address addr, TaskMonitor monitor) {
 		Instruction instr = program.getListing().getInstructionContaining(addr);
 
 		if (instr == null) {
@@ -1055,7 +1055,7 @@ public class CallTreeProvider extends ComponentProviderAdapter {
 			.ignoreWhen(() -> !isVisible() || isEmpty())
 			.any(RESTORED).terminate(() -> setStale(true))
 			.any(MEMORY_BLOCK_MOVED, MEMORY_BLOCK_REMOVED, SYMBOL_ADDED, SYMBOL_REMOVED,
-				 REFERENCE_ADDED, REFERENCE_REMOVED)
+				 REFERENCE_ADDED, REFERENCES_ADDED, REFERENCE_REMOVED)
 				.call(() -> setStale(true))
 			.with(ProgramChangeRecord.class)
 				.each(SYMBOL_RENAMED).call(r -> handleSymbolRenamed(r))
@@ -167,6 +167,7 @@ abstract class DataTypeLocationDescriptor extends LocationDescriptor {
 					case MEMORY_BLOCK_ADDED:
 					case SYMBOL_ADDED:
 					case REFERENCE_ADDED:
+					case REFERENCES_ADDED:
 					case FUNCTION_ADDED:
 					case VARIABLE_REFERENCE_ADDED:
 					case DATA_TYPE_RENAMED:
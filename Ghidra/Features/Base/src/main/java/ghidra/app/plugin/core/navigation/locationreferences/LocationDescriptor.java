@@ -125,6 +125,7 @@ public abstract class LocationDescriptor {
 					case SYMBOL_ADDED:
 					case SYMBOL_RENAMED:
 					case SYMBOL_REMOVED:
+					case REFERENCES_ADDED:
 						checkForAddressChange(domainObjectRecord);
 						return true;
 					case REFERENCE_ADDED:
@@ -212,7 +212,7 @@ public class SymbolTablePlugin extends Plugin {
 		// @formatter:off
 		return new DomainObjectListenerBuilder(this)
 			.ignoreWhen(() -> !symProvider.isVisible() && !refProvider.isVisible())
-			.any(RESTORED, MEMORY_BLOCK_ADDED, MEMORY_BLOCK_REMOVED)
+			.any(RESTORED, MEMORY_BLOCK_ADDED, MEMORY_BLOCK_REMOVED, REFERENCES_ADDED)
 				.terminate(this::reload)
 			.with(ProgramChangeRecord.class)
 				.each(CODE_ADDED, CODE_REMOVED)
@@ -16,6 +16,7 @@
 package ghidra.app.services;
 
 import ghidra.app.plugin.core.analysis.AnalysisOptionsUpdater;
+import ghidra.app.plugin.core.analysis.AutoAnalysisManager;
 import ghidra.app.util.importer.MessageLog;
 import ghidra.framework.options.Options;
 import ghidra.program.model.address.AddressSetView;
@@ -109,6 +110,24 @@ public interface Analyzer extends ExtensionPoint {
 	public boolean removed(Program program, AddressSetView set, TaskMonitor monitor, MessageLog log)
 			throws CancelledException;
 
+	/**
+	 * Returns true if this analyzer may be run concurrently over disjoint partitions of an
+	 * added address set when partitioned analysis is enabled
+	 * (see {@link AutoAnalysisManager#isPartitionedAnalysisEnabled()}).
+	 * <p>
+	 * An analyzer returning true must allow
+	 * {@link #added(Program, AddressSetView, TaskMonitor, MessageLog)} to be invoked by
+	 * multiple threads at once, must not retain per-invocation state in its fields, and the
+	 * changes it makes for one partition must not depend upon changes made for another
+	 * partition.  This ensures that the analysis result is the same regardless of the order in
+	 * which partitions are processed.
+	 *
+	 * @return true if this analyzer supports partitioned analysis
+	 */
+	public default boolean supportsPartitionedAnalysis() {
+		return false;
+	}
+
 	/**
 	 * Analyzers should register their options with associated default value, help content and
 	 * description
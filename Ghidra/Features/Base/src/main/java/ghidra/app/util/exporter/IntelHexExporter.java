@@ -53,6 +53,7 @@ public class IntelHexExporter extends Exporter {
 	protected RecordSizeOption recordSizeOption;
 
 	private static final int DEFAULT_RECORD_SIZE = 0x10;
+	private static final int READ_BUFFER_SIZE = 64 * 1024;
 
 	/**
 	 * Constructs a new Intel Hex exporter. This will use a record size of 16 (the default)
@@ -208,11 +209,21 @@ public class IntelHexExporter extends Exporter {
 			}
 		}
 
-		AddressIterator addresses = set.getAddresses(true);
-		while (addresses.hasNext()) {
-			Address address = addresses.next();
-			byte b = memory.getByte(address);
-			writer.addByte(address, b);
+		byte[] buffer = new byte[READ_BUFFER_SIZE];
+		for (AddressRange range : set) {
+			Address address = range.getMinAddress();
+			long remaining = range.getLength();
+			while (remaining > 0) {
+				int n = memory.getBytes(address, buffer, 0,
+					(int) Math.min(buffer.length, remaining));
+				for (int i = 0; i < n; i++) {
+					writer.addByte(address.add(i), buffer[i]);
+				}
+				remaining -= n;
+				if (remaining > 0) {
+					address = address.add(n);
+				}
+			}
 		}
 
 		Address entryPoint = null;
@@ -17,7 +17,7 @@ package ghidra.program.database.references;
 
 import static org.junit.Assert.*;
 
-import java.util.Iterator;
+import java.util.*;
 
 import org.junit.*;
 
@@ -27,6 +27,7 @@ import ghidra.program.model.address.*;
 import ghidra.program.model.listing.CodeUnit;
 import ghidra.program.model.listing.Listing;
 import ghidra.program.model.symbol.*;
+import ghidra.program.util.ProgramEvent;
 import ghidra.test.AbstractGhidraHeadedIntegrationTest;
 import ghidra.util.task.TaskMonitor;
 
@@ -1229,6 +1230,120 @@ public class ReferenceManagerTest extends AbstractGhidraHeadedIntegrationTest {
 
 	}
 
+@Test
+	public void testAddMemoryReferences() throws Exception {
+		refMgr.addMemoryReference(addr(100), addr(500), RefType.READ, SourceType.USER_DEFINED, 0);
+		refMgr.addOffsetMemReference(addr(100), addr(700), false, 4, RefType.DATA,
+			SourceType.USER_DEFINED, 1);
+
+		List<Reference> refs = new ArrayList<>();
+		refs.add(new MemReferenceImpl(addr(300), addr(900), RefType.DATA, SourceType.ANALYSIS, 0,
+			false));
+		refs.add(new MemReferenceImpl(addr(100), addr(500), RefType.WRITE, SourceType.ANALYSIS, 0,
+			false));
+		refs.add(new MemReferenceImpl(addr(100), addr(600), RefType.DATA, SourceType.ANALYSIS, 0,
+			true));
+		refs.add(new MemReferenceImpl(addr(100), addr(700), RefType.DATA, SourceType.ANALYSIS, 1,
+			false));
+		refs.add(new MemReferenceImpl(addr(300), addr(800), RefType.READ, SourceType.ANALYSIS, 0,
+			false));
+		refs.add(new MemReferenceImpl(addr(300), addr(800), RefType.WRITE, SourceType.ANALYSIS, 0,
+			false));
+		refMgr.addMemoryReferences(refs);
+
+		Reference ref = refMgr.getReference(addr(100), addr(500), 0);
+		assertEquals(RefType.READ_WRITE, ref.getReferenceType());
+		assertTrue(ref.isPrimary());
+		assertFalse(refMgr.getReference(addr(100), addr(600), 0).isPrimary());
+
+		// plain reference replaces the offset reference and keeps it primary
+		ref = refMgr.getReference(addr(100), addr(700), 1);
+		assertFalse(ref.isOffsetReference());
+		assertTrue(ref.isPrimary());
+
+		ref = refMgr.getReference(addr(300), addr(900), 0);
+		assertTrue(ref.isPrimary());
+		assertEquals(SourceType.ANALYSIS, ref.getSource());
+		ref = refMgr.getReference(addr(300), addr(800), 0);
+		assertEquals(RefType.READ_WRITE, ref.getReferenceType());
+		assertFalse(ref.isPrimary());
+
+		assertEquals(3, refMgr.getReferenceCountFrom(addr(100)));
+		assertEquals(2, refMgr.getReferenceCountFrom(addr(300)));
+		assertEquals(1, refMgr.getReferenceCountTo(addr(800)));
+		ReferenceIterator iter = refMgr.getReferencesTo(addr(800));
+		assertEquals(RefType.READ_WRITE, iter.next().getReferenceType());
+		assertFalse(iter.hasNext());
+		assertEquals(SymbolUtilities.DAT_LEVEL, refMgr.getReferenceLevel(addr(800)));
+	}
+
+@Test
+	public void testAddMemoryReferencesKeepsOrder() throws Exception {
+		List<Reference> refs = new ArrayList<>();
+		// plain reference before an offset reference on the same operand: plain is primary
+		refs.add(new MemReferenceImpl(addr(100), addr(500), RefType.DATA, SourceType.ANALYSIS, 0,
+			false));
+		refs.add(new OffsetReferenceDB(program, addr(100), addr(704), RefType.DATA, (byte) 0,
+			SourceType.ANALYSIS, false, -1, 4));
+		// offset reference after a plain reference to the same address replaces it
+		refs.add(new MemReferenceImpl(addr(100), addr(804), RefType.DATA, SourceType.ANALYSIS, 1,
+			false));
+		refs.add(new OffsetReferenceDB(program, addr(100), addr(804), RefType.DATA, (byte) 1,
+			SourceType.ANALYSIS, false, -1, 4));
+		// a later plain reference from a lower address is still added after the offset reference
+		refs.add(new MemReferenceImpl(addr(50), addr(900), RefType.READ, SourceType.ANALYSIS, 0,
+			false));
+		refMgr.addMemoryReferences(refs);
+
+		Reference ref = refMgr.getPrimaryReferenceFrom(addr(100), 0);
+		assertEquals(addr(500), ref.getToAddress());
+		assertFalse(ref.isOffsetReference());
+		ref = refMgr.getReference(addr(100), addr(704), 0);
+		assertTrue(ref.isOffsetReference());
+		assertFalse(ref.isPrimary());
+
+		ref = refMgr.getReference(addr(100), addr(804), 1);
+		assertTrue(ref.isOffsetReference());
+		assertTrue(ref.isPrimary());
+		assertEquals(1, refMgr.getReferencesFrom(addr(100), 1).length);
+
+		assertTrue(refMgr.getPrimaryReferenceFrom(addr(50), 0).isPrimary());
+	}
+
+@Test
+	public void testAddMemoryReferencesLargeBatch() throws Exception {
+		int count = RefList.BIG_REFLIST_THRESHOLD + 100;
+		List<Reference> refs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			refs.add(new MemReferenceImpl(addr(i * 4), addr(9000), RefType.UNCONDITIONAL_CALL,
+				SourceType.ANALYSIS, Reference.MNEMONIC, false));
+		}
+		Collections.shuffle(refs, new Random(1));
+
+		List<ProgramEvent> events = new ArrayList<>();
+		program.flushEvents();
+		waitForSwing();
+		program.addListener(ev -> {
+			for (int i = 0; i < ev.numRecords(); i++) {
+				if (ev.getChangeRecord(i).getEventType() instanceof ProgramEvent type) {
+					events.add(type);
+				}
+			}
+		});
+		refMgr.addMemoryReferences(refs);
+		program.flushEvents();
+		waitForSwing();
+
+		assertTrue(count > ReferenceDBManager.MAX_BATCH_CHANGE_RECORDS);
+		assertEquals(List.of(ProgramEvent.REFERENCES_ADDED), events);
+		assertEquals(count, refMgr.getReferenceCountTo(addr(9000)));
+		assertEquals(SymbolUtilities.SUB_LEVEL, refMgr.getReferenceLevel(addr(9000)));
+		for (int i = 0; i < count; i++) {
+			Reference ref = refMgr.getPrimaryReferenceFrom(addr(i * 4), Reference.MNEMONIC);
+			assertEquals(addr(9000), ref.getToAddress());
+		}
+	}
+
 	private Address addr(long l) {
 		return space.getAddress(l);
 	}
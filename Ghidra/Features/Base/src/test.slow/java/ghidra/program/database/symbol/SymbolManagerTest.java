@@ -18,6 +18,7 @@ package ghidra.program.database.symbol;
 import static org.junit.Assert.*;
 
 import java.util.*;
+import java.util.regex.Pattern;
 
 import org.junit.*;
 
@@ -27,6 +28,7 @@ import ghidra.app.cmd.function.CreateFunctionCmd;
 import ghidra.program.database.ProgramBuilder;
 import ghidra.program.database.ProgramDB;
 import ghidra.program.database.function.OverlappingFunctionException;
+import ghidra.program.database.symbol.SymbolNameIndex.NameLiterals;
 import ghidra.program.model.address.*;
 import ghidra.program.model.data.*;
 import ghidra.program.model.listing.*;
@@ -1397,6 +1399,77 @@ public class SymbolManagerTest extends AbstractGhidraHeadedIntegrationTest {
 		assertEquals("4", s.getName());
 	}
 
+	@Test
+	public void testSymbolIteratorBySearchString() throws Exception {
+		createLabel(addr(100), "alpha_handler");
+		createLabel(addr(200), "beta_handler");
+		Symbol gamma = createLabel(addr(300), "gamma");
+		createLabel(addr(400), "AlphaBeta");
+		listing.createFunction(null, addr(500), new AddressSet(addr(500), addr(510)),
+			SourceType.DEFAULT);
+
+		assertEquals(List.of("alpha_handler", "beta_handler"),
+			getNames(st.getSymbolIterator("*_handler", true)));
+		assertEquals(List.of("alpha_handler", "AlphaBeta"),
+			getNames(st.getSymbolIterator("alpha*", false)));
+		assertEquals(List.of("AlphaBeta"), getNames(st.getSymbolIterator("Al*", true)));
+		assertEquals(List.of("FUN_000001f4"), getNames(st.getSymbolIterator("FUN_*", true)));
+
+		gamma.setName("gamma_handler", SourceType.USER_DEFINED);
+		assertEquals(List.of("alpha_handler", "beta_handler", "gamma_handler"),
+			getNames(st.getSymbolIterator("*_handler", true)));
+
+		st.removeSymbolSpecial(gamma);
+		assertEquals(List.of("alpha_handler", "beta_handler"),
+			getNames(st.getSymbolIterator("*_handler", true)));
+	}
+
+	@Test
+	public void testSymbolIteratorByPattern() throws Exception {
+		createLabel(addr(100), "parse_header");
+		createLabel(addr(200), "parse_body");
+		createLabel(addr(300), "write_header");
+
+		assertEquals(List.of("parse_header", "parse_body"),
+			getNames(st.getSymbolIterator(Pattern.compile("parse_(header|body)"))));
+		assertEquals(List.of("parse_header", "write_header"),
+			getNames(st.getSymbolIterator(
+				Pattern.compile("\\w+_HEAD.r", Pattern.CASE_INSENSITIVE))));
+		assertEquals(List.of("parse_header", "write_header"),
+			getNames(st.getSymbolIterator(Pattern.compile("(parse|write)_header|x"))));
+	}
+
+	@Test
+	public void testNameLiterals() {
+		NameLiterals literals = SymbolNameIndex.getLiterals(Pattern.compile("abc.*?def"));
+		assertEquals("abc", literals.prefix());
+		assertEquals(List.of("abc", "def"), literals.substrings());
+
+		literals = SymbolNameIndex.getLiterals(Pattern.compile("abc.*", Pattern.CASE_INSENSITIVE));
+		assertNull(literals.prefix());
+		assertEquals(List.of("abc"), literals.substrings());
+
+		literals = SymbolNameIndex.getLiterals(Pattern.compile("x?abcd*e+fgh(ij)klm\\.n\\Qo*p\\E"));
+		assertNull(literals.prefix());
+		assertEquals(List.of("abc", "e", "fgh", "klm.no*p"), literals.substrings());
+
+		literals = SymbolNameIndex.getLiterals(Pattern.compile("[a-z]\\d{2}FUN_"));
+		assertNull(literals.prefix());
+		assertEquals(List.of("FUN_"), literals.substrings());
+
+		assertNull(SymbolNameIndex.getLiterals(Pattern.compile("abc|def")));
+		assertNull(SymbolNameIndex.getLiterals(Pattern.compile(".*")));
+		assertNull(SymbolNameIndex.getLiterals(Pattern.compile("abc", Pattern.COMMENTS)));
+	}
+
+	private List<String> getNames(SymbolIterator it) {
+		List<String> names = new ArrayList<>();
+		for (Symbol s : it) {
+			names.add(s.getName());
+		}
+		return names;
+	}
+
 	@Test
 	public void testPrimarySymbolIterator() throws Exception {
 		createLabel(addr(100), "1");
@@ -0,0 +1,87 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.core.analysis;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import generic.test.AbstractGenericTest;
+import ghidra.program.model.address.*;
+
+public class AnalysisPartitionTest extends AbstractGenericTest {
+
+	private AddressSpace space = new GenericAddressSpace("ram", 32, AddressSpace.TYPE_RAM, 0);
+
+	private Address addr(long offset) {
+		return space.getAddress(offset);
+	}
+
+	@Test
+	public void testPartition() {
+		AddressSet set = new AddressSet();
+		set.add(addr(0x100), addr(0x134));
+		set.add(addr(0x200), addr(0x203));
+		set.add(addr(0x300), addr(0x30f));
+
+		List<AddressSetView> chunks = AutoAnalysisManager.partition(set, 0x10);
+
+		AddressSet union = new AddressSet();
+		Address lastMax = null;
+		for (int i = 0; i < chunks.size(); i++) {
+			AddressSetView chunk = chunks.get(i);
+			assertFalse(union.intersects(chunk));
+			if (lastMax != null) {
+				assertTrue(lastMax.compareTo(chunk.getMinAddress()) < 0);
+			}
+			lastMax = chunk.getMaxAddress();
+			if (i < chunks.size() - 1) {
+				assertEquals(0x10, chunk.getNumAddresses());
+			}
+			union.add(chunk);
+		}
+		assertEquals(set, union);
+		assertEquals(5, chunks.size());
+
+		// chunk 3 ends range 1 and begins range 2
+		assertEquals(new AddressSet(addr(0x130), addr(0x134)).union(
+			new AddressSet(addr(0x200), addr(0x203))).union(
+				new AddressSet(addr(0x300), addr(0x306))),
+			chunks.get(3));
+
+		assertEquals(chunks, AutoAnalysisManager.partition(set, 0x10));
+	}
+
+	@Test
+	public void testPartitionFullSpace() {
+		AddressSpace space64 = new GenericAddressSpace("ram64", 64, AddressSpace.TYPE_RAM, 1);
+		AddressSet set =
+			new AddressSet(space64.getMinAddress(), space64.getMaxAddress());
+
+		List<AddressSetView> chunks = AutoAnalysisManager.partition(set, 1L << 62);
+
+		assertEquals(4, chunks.size());
+		assertEquals(space64.getAddress(0xc000000000000000L), chunks.get(3).getMinAddress());
+		assertEquals(space64.getMaxAddress(), chunks.get(3).getMaxAddress());
+	}
+
+	@Test
+	public void testPartitionEmpty() {
+		assertTrue(AutoAnalysisManager.partition(new AddressSet(), 0x10).isEmpty());
+	}
+}
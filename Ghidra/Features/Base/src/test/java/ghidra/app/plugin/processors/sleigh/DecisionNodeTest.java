@@ -0,0 +1,104 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.processors.sleigh;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import generic.test.AbstractGenericTest;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.mem.ByteMemBufferImpl;
+import ghidra.test.ToyProgramBuilder;
+
+public class DecisionNodeTest extends AbstractGenericTest {
+
+	private ToyProgramBuilder builder;
+	private SleighLanguage language;
+	private ContextCache contextCache;
+	private ProcessorContextView context;
+	private Address addr;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new ToyProgramBuilder("Test", true, this);
+		builder.createMemory("B1", "1000", 0x100);
+		Program program = builder.getProgram();
+		language = (SleighLanguage) program.getLanguage();
+		addr = builder.addr(0x1000);
+		context = new ProgramProcessorContext(program.getProgramContext(), addr);
+
+		contextCache = new ContextCache();
+		Register contextReg = language.getContextBaseRegister();
+		if (contextReg != Register.NO_CONTEXT) {
+			contextCache.registerVariable(contextReg);
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		DecisionNode.setDispatchTablesEnabled(true);
+		builder.dispose();
+	}
+
+	private String decode(byte[] bytes) {
+		try {
+			SleighInstructionPrototype proto = new SleighInstructionPrototype(language,
+				new ByteMemBufferImpl(addr, bytes, language.isBigEndian()), context, contextCache,
+				false, null);
+			return proto.getLength() + ":" + proto.hashCode();
+		}
+		catch (Exception e) {
+			return e.getClass().getSimpleName();
+		}
+	}
+
+	@Test
+	public void testDispatchTablesMatchDecisionTree() {
+		byte[] bytes = new byte[4];
+		int decoded = 0;
+		for (int i = 0; i < 0x10000; i++) {
+			bytes[0] = (byte) (i >> 8);
+			bytes[1] = (byte) i;
+			bytes[2] = (byte) (i * 31);
+			bytes[3] = (byte) (i * 17);
+
+			DecisionNode.setDispatchTablesEnabled(false);
+			String tree = decode(bytes);
+			DecisionNode.setDispatchTablesEnabled(true);
+			String table = decode(bytes);
+
+			assertEquals("bytes 0x" + Integer.toHexString(i), tree, table);
+			if (Character.isDigit(tree.charAt(0))) {
+				++decoded;
+			}
+		}
+		assertTrue(decoded > 0);
+	}
+
+	@Test
+	public void testTruncatedBytes() {
+		for (int length = 0; length < 2; length++) {
+			byte[] bytes = new byte[length];
+			DecisionNode.setDispatchTablesEnabled(false);
+			String tree = decode(bytes);
+			DecisionNode.setDispatchTablesEnabled(true);
+			assertEquals(tree, decode(bytes));
+		}
+	}
+}
@@ -0,0 +1,154 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.processors.sleigh;
+
+import static org.junit.Assert.*;
+
+import org.junit.*;
+
+import generic.test.AbstractGenericTest;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.lang.*;
+import ghidra.program.database.ProgramBuilder;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.mem.DumbMemBufferImpl;
+import ghidra.test.ToyProgramBuilder;
+
+public class SleighPrototypeCacheTest extends AbstractGenericTest {
+
+	private ToyProgramBuilder builder;
+	private Program program;
+	private SleighPrototypeCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new ToyProgramBuilder("Test", true, this);
+		builder.createMemory("B1", "1000", 0x100);
+		builder.addBytesFallthrough(0x1000);
+		builder.addBytesFallthrough(0x1010);
+		builder.addBytesReturn(0x1020);
+		builder.addBytesReturn(0x1030);
+		program = builder.getProgram();
+
+		cache = SleighPrototypeCache.getInstance();
+		cache.clear();
+		cache.resetStatistics();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		builder.dispose();
+	}
+
+	private InstructionPrototype parse(long offset) throws Exception {
+		Address addr = builder.addr(offset);
+		return program.getLanguage()
+				.parse(new DumbMemBufferImpl(program.getMemory(), addr),
+					new ProgramProcessorContext(program.getProgramContext(), addr), false);
+	}
+
+	@Test
+	public void testRepeatedBytesHitCache() throws Exception {
+		InstructionPrototype or1 = parse(0x1000);
+		InstructionPrototype ret1 = parse(0x1020);
+		long hits = cache.getHitCount();
+
+		InstructionPrototype or2 = parse(0x1010);
+		InstructionPrototype ret2 = parse(0x1030);
+
+		assertSame(or1, or2);
+		assertSame(ret1, ret2);
+		assertNotSame(or1, ret1);
+		assertEquals(hits + 2, cache.getHitCount());
+		assertTrue(cache.getHitRate() > 0);
+	}
+
+	@Test
+	public void testClearForcesFullParse() throws Exception {
+		InstructionPrototype or1 = parse(0x1000);
+		cache.clear();
+		assertEquals(0, cache.size());
+		long misses = cache.getMissCount();
+
+		InstructionPrototype or2 = parse(0x1010);
+
+		// prototypes are still shared through the language
+		assertEquals(or1, or2);
+		assertEquals(misses + 1, cache.getMissCount());
+		assertTrue(cache.size() > 0);
+	}
+
+	@Test
+	public void testBoundedSize() throws Exception {
+		SleighPrototypeCache small = new SleighPrototypeCache(16);
+		SleighLanguage language = (SleighLanguage) program.getLanguage();
+		SleighInstructionPrototype proto = (SleighInstructionPrototype) parse(0x1000);
+		int[] context = new int[0];
+		byte[] bytes = new byte[proto.getLength()];
+		for (int i = 0; i < 1000; i++) {
+			bytes[0] = (byte) i;
+			bytes[bytes.length - 1] = (byte) (i >> 8);
+			small.put(language, context, false, bytes, bytes.length, proto);
+		}
+		assertTrue(small.size() <= small.getMaxSize());
+		assertTrue(small.getEvictionCount() > 0);
+	}
+
+	@Test
+	public void testShorterCachedPrototypeDoesNotMatchLongerInstruction() throws Exception {
+		// x86 WAIT (9B) is a prefix of FINIT, FCLEX, FSTSW, FSTCW, FSTENV and FSAVE
+		ProgramBuilder x86Builder = new ProgramBuilder("x86", ProgramBuilder._X86, this);
+		try {
+			x86Builder.createMemory("B1", "1000", 0x100);
+			x86Builder.setBytes("1000", "9b 90");
+			x86Builder.setBytes("1010", "9b db e3");
+			x86Builder.setBytes("1020", "9b db e2");
+			x86Builder.setBytes("1030", "9b df e0");
+			x86Builder.setBytes("1040", "9b dd 7d 00");
+			x86Builder.setBytes("1050", "9b d9 7d 00");
+			x86Builder.setBytes("1060", "9b d9 75 00");
+			x86Builder.setBytes("1070", "9b dd 75 00");
+			x86Builder.setBytes("1080", "9b 90");
+
+			assertInstruction(x86Builder, "1000", "WAIT", 1);
+			assertInstruction(x86Builder, "1010", "FINIT", 3);
+			assertInstruction(x86Builder, "1020", "FCLEX", 3);
+			assertInstruction(x86Builder, "1030", "FSTSW", 3);
+			assertInstruction(x86Builder, "1040", "FSTSW", 4);
+			assertInstruction(x86Builder, "1050", "FSTCW", 4);
+			assertInstruction(x86Builder, "1060", "FSTENV", 4);
+			assertInstruction(x86Builder, "1070", "FSAVE", 4);
+
+			long hits = cache.getHitCount();
+			assertInstruction(x86Builder, "1080", "WAIT", 1);
+			assertTrue(cache.getHitCount() > hits);
+		}
+		finally {
+			x86Builder.dispose();
+		}
+	}
+
+	private void assertInstruction(ProgramBuilder x86Builder, String addr, String mnemonic,
+			int length) throws Exception {
+		x86Builder.disassemble(addr, 1, false);
+		Instruction instr =
+			x86Builder.getProgram().getListing().getInstructionAt(x86Builder.addr(addr));
+		assertNotNull(instr);
+		assertEquals(mnemonic, instr.getMnemonicString());
+		assertEquals(length, instr.getLength());
+	}
+}
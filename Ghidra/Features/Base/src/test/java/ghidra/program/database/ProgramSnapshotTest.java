@@ -0,0 +1,147 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import generic.test.AbstractGenericTest;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.symbol.*;
+import ghidra.util.task.TaskMonitor;
+
+public class ProgramSnapshotTest extends AbstractGenericTest {
+
+	private ProgramDB program;
+
+	@Before
+	public void setUp() throws Exception {
+		ProgramBuilder builder = new ProgramBuilder("Test", ProgramBuilder._TOY);
+		builder.createMemory("test", "0x1000", 0x1000);
+		for (int i = 0; i < 100; i++) {
+			builder.createLabel(Integer.toHexString(0x1000 + i * 4), "label_" + i);
+		}
+		program = builder.getProgram();
+		program.addConsumer(this);
+		builder.dispose();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		program.release(this);
+	}
+
+	private Address addr(Program p, long offset) {
+		return p.getAddressFactory().getDefaultAddressSpace().getAddress(offset);
+	}
+
+	@Test
+	public void testSnapshotIsIsolatedFromLaterChanges() throws Exception {
+		try (ProgramSnapshot snapshot = program.createSnapshot(TaskMonitor.DUMMY)) {
+			assertTrue(snapshot.isCurrent());
+
+			int id = program.startTransaction("Test");
+			program.getSymbolTable()
+					.createLabel(addr(program, 0x1800), "after", SourceType.USER_DEFINED);
+			program.endTransaction(id, true);
+			assertFalse(snapshot.isCurrent());
+
+			ProgramDB view = snapshot.getProgram();
+			assertFalse(view.isChangeable());
+			assertSame(view, snapshot.getProgram());
+			SymbolTable symbols = view.getSymbolTable();
+			assertNotNull(getSymbol(symbols, "label_0"));
+			assertNull(getSymbol(symbols, "after"));
+		}
+	}
+
+	@Test
+	public void testGetProgramAfterClose() throws Exception {
+		ProgramSnapshot snapshot = program.createSnapshot(TaskMonitor.DUMMY);
+		ProgramDB view = snapshot.getProgram();
+		snapshot.close();
+		assertTrue(view.isClosed());
+		try {
+			snapshot.getProgram();
+			fail("Expected IllegalStateException");
+		}
+		catch (IllegalStateException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testCreateSnapshotFailsDuringTransaction() throws Exception {
+		int id = program.startTransaction("Test");
+		try {
+			program.createSnapshot(TaskMonitor.DUMMY);
+			fail("Expected IOException");
+		}
+		catch (IOException e) {
+			// expected
+		}
+		finally {
+			program.endTransaction(id, true);
+		}
+	}
+
+	@Test
+	public void testConcurrentReaders() throws Exception {
+		int threadCount = 4;
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+		try (ProgramSnapshot snapshot = program.createSnapshot(TaskMonitor.DUMMY)) {
+			List<Future<Integer>> results = new ArrayList<>();
+			for (int t = 0; t < threadCount; t++) {
+				results.add(executor.submit(() -> {
+					ProgramDB view = snapshot.getProgram();
+					int count = 0;
+					for (int i = 0; i < 100; i++) {
+						Address a = addr(view, 0x1000 + i * 4);
+						Symbol s = view.getSymbolTable().getPrimarySymbol(a);
+						if (s != null && s.getName().equals("label_" + i)) {
+							count++;
+						}
+					}
+					return count;
+				}));
+			}
+			// Writes continue on the live program while the snapshot is read
+			int id = program.startTransaction("Test");
+			program.getSymbolTable()
+					.createLabel(addr(program, 0x1000), "renamed", SourceType.USER_DEFINED)
+					.setPrimary();
+			program.endTransaction(id, true);
+
+			for (Future<Integer> result : results) {
+				assertEquals(100, result.get(30, TimeUnit.SECONDS).intValue());
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	private Symbol getSymbol(SymbolTable symbols, String name) {
+		List<Symbol> list = symbols.getGlobalSymbols(name);
+		return list.isEmpty() ? null : list.get(0);
+	}
+}
@@ -18,6 +18,7 @@ package ghidra.program.database.code;
 import static org.junit.Assert.*;
 
 import java.math.BigInteger;
+import java.util.Arrays;
 import java.util.Iterator;
 
 import org.junit.*;
@@ -1043,6 +1044,80 @@ public class CodeManagerTest extends AbstractGenericTest {
 		}
 	}
 
+	@Test
+	public void testInstructionCursor() throws Exception {
+		for (int i = 0; i < 0x40; i++) {
+			builder.addBytesFallthrough(0x1000 + 2 * i);
+		}
+		builder.addBytesBranch(0x1080, 0x1000);
+		parseStatic(addr(0x1000), addr(0x1081));
+
+		AddressSet set = new AddressSet(addr(0x1010), addr(0x1fff));
+		InstructionCursor cursor = ((ProgramDB) program).getCodeManager().getInstructionCursor(set);
+		InstructionIterator it = listing.getInstructions(set, true);
+		byte[] buf = new byte[16];
+		int count = 0;
+		while (cursor.next()) {
+			assertTrue(it.hasNext());
+			Instruction inst = it.next();
+			assertEquals(inst.getMinAddress(), cursor.getAddress());
+			assertSame(inst.getPrototype(), cursor.getPrototype());
+			assertEquals(inst.getLength(), cursor.getLength());
+			assertEquals(inst.getFlowOverride(), cursor.getFlowOverride());
+			assertEquals(inst.getLength(), cursor.getBytes(buf, 0));
+			assertArrayEquals(inst.getBytes(), Arrays.copyOf(buf, inst.getLength()));
+			assertSame(inst, cursor.getInstruction());
+			count++;
+		}
+		assertFalse(it.hasNext());
+		assertEquals(0x39, count);
+	}
+
+	@Test
+	public void testDefinedDataCursor() throws Exception {
+		listing.createData(addr(0x1100), ByteDataType.dataType);
+		listing.createData(addr(0x1104), WordDataType.dataType);
+		listing.createData(addr(0x1108), new StringDataType(), 5);
+
+		DefinedDataCursor cursor = ((ProgramDB) program).getCodeManager().getDefinedDataCursor(null);
+		DataIterator it = listing.getDefinedData(true);
+		while (cursor.next()) {
+			assertTrue(it.hasNext());
+			Data data = it.next();
+			assertEquals(data.getMinAddress(), cursor.getAddress());
+			assertTrue(data.getDataType().isEquivalent(cursor.getDataType()));
+			assertEquals(data.getLength(), cursor.getLength());
+		}
+		assertFalse(it.hasNext());
+	}
+
+	@Test
+	public void testDefinedDataCursorTruncatedData() throws Exception {
+		StructureDataType struct = new StructureDataType("S", 0);
+		struct.add(DWordDataType.dataType);
+		Structure s = (Structure) listing.createData(addr(0x2ffc), struct).getDataType();
+		listing.createData(addr(0x1100), s);
+		listing.createData(addr(0x1104), ByteDataType.dataType);
+
+		// growing the structure truncates the data at the end of the block and the data
+		// followed by another code unit
+		s.add(DWordDataType.dataType);
+		assertEquals(8, s.getLength());
+
+		DefinedDataCursor cursor = ((ProgramDB) program).getCodeManager().getDefinedDataCursor(null);
+		DataIterator it = listing.getDefinedData(true);
+		while (cursor.next()) {
+			assertTrue(it.hasNext());
+			Data data = it.next();
+			assertEquals(data.getMinAddress(), cursor.getAddress());
+			assertEquals(data.getLength(), cursor.getLength());
+			if (data.getDataType() instanceof Structure) {
+				assertEquals(4, cursor.getLength());
+			}
+		}
+		assertFalse(it.hasNext());
+	}
+
 	private Address addr(long l) {
 		return space.getAddress(l);
 	}
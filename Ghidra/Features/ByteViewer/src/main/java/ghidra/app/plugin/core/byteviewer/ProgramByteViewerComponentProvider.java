@@ -559,7 +559,7 @@ public class ProgramByteViewerComponentProvider extends ByteViewerComponentProvi
 			// changeManager, so get out now.
 		}
 
-		if (event.contains(MEMORY_BYTES_CHANGED, CODE_ADDED, REFERENCE_ADDED)) {
+		if (event.contains(MEMORY_BYTES_CHANGED, CODE_ADDED, REFERENCE_ADDED, REFERENCES_ADDED)) {
 			updateManager.update();
 		}
 	}
@@ -157,6 +157,8 @@ public class DecompInterface {
 	private short major;				// Major decompiler version
 	private short minor;				// Minor decompiler version
 	private int sigSettings;			// Settings for signature generation (0=not configured)
+	private DecompileResultsCache resultsCache;	// Cache of completed results or null
+	private DecompileCallbackStatistics callbackStatistics = new DecompileCallbackStatistics();
 
 	public DecompInterface() {
 		program = null;
@@ -399,6 +401,7 @@ public class DecompInterface {
 		try {
 			decompCallback =
 				new DecompileCallback(prog, pcodelanguage, program.getCompilerSpec(), dtmanage);
+			decompCallback.setStatistics(callbackStatistics);
 			initializeProcess();
 			if (!decompProcess.isReady()) {
 				throw new IOException("Unable to start decompiler process");
@@ -781,6 +784,15 @@ public class DecompInterface {
 			return null;
 		}
 
+		String cacheKey = null;
+		if (resultsCache != null && program != null && debug == null) {
+			cacheKey = resultsCache.computeKey(this, func);
+			DecompileResults cachedResults = resultsCache.getResults(func, cacheKey);
+			if (cachedResults != null) {
+				return cachedResults;
+			}
+		}
+
 		if (monitor != null) {
 			monitor.addCancelledListener(monitorListener);
 		}
@@ -799,6 +811,7 @@ public class DecompInterface {
 				debug.setFunction(func);
 			}
 			decompCallback.setFunction(func, funcEntry, debug);
+			callbackStatistics.recordFunction();
 			EncodeDecodeSet activeSet = setupEncodeDecode(funcEntry);
 			decoder = activeSet.mainResponse;
 			verifyProcess();
@@ -840,8 +853,65 @@ public class DecompInterface {
 			processState = DecompileProcess.DisposeState.DISPOSED_ON_CANCEL;
 		}
 
-		return new DecompileResults(func, pcodelanguage, compilerSpec, dtmanage, decompileMessage,
-			decoder, processState);
+		DecompileResults results = new DecompileResults(func, pcodelanguage, compilerSpec,
+			dtmanage, decompileMessage, decoder, processState);
+		if (cacheKey != null && results.decompileCompleted()) {
+			resultsCache.putResults(func, cacheKey, results);
+		}
+		return results;
+	}
+
+	/**
+	 * Set a cache which is used by {@link #decompileFunction(Function, int, TaskMonitor)} to
+	 * return the results of an earlier decompilation of unchanged functions.  The cache is
+	 * bypassed while debugging is enabled.
+	 * @param cache the results cache or null to always decompile
+	 */
+	public synchronized void setResultsCache(DecompileResultsCache cache) {
+		this.resultsCache = cache;
+	}
+
+	/**
+	 * @return the results cache used by this decompiler or null
+	 */
+	public synchronized DecompileResultsCache getResultsCache() {
+		return resultsCache;
+	}
+
+	/**
+	 * Get the counts and times of the queries the decompiler process has made back into
+	 * Java, accumulated over all functions decompiled by this interface.
+	 * @return the callback statistics
+	 */
+	public DecompileCallbackStatistics getCallbackStatistics() {
+		return callbackStatistics;
+	}
+
+	/**
+	 * Describe the configuration of this interface that affects decompiler output, for use in
+	 * results cache keys.
+	 * @return the configuration description
+	 */
+	synchronized String getConfigurationKey() {
+		StringBuilder buf = new StringBuilder();
+		buf.append(actionname).append(';');
+		buf.append(printSyntaxTree).append(';');
+		buf.append(printCCode).append(';');
+		buf.append(sendParamMeasures).append(';');
+		buf.append(jumpLoad).append(';');
+		buf.append(sigSettings).append(';');
+		if (options != null) {
+			try {
+				XmlEncode encoder = new XmlEncode(false);
+				options.encode(encoder, this);
+				buf.append(encoder.toString());
+				buf.append(options.getNameTransformer().getClass().getName());
+			}
+			catch (IOException e) {
+				buf.append(System.identityHashCode(options));	// never shared
+			}
+		}
+		return buf.toString();
 	}
 
 	/**
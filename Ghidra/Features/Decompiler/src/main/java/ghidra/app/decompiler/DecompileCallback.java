@@ -18,9 +18,11 @@ package ghidra.app.decompiler;
 import static ghidra.program.model.pcode.AttributeId.*;
 import static ghidra.program.model.pcode.ElementId.*;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
+import java.util.*;
 
 import ghidra.app.cmd.function.CallDepthChangeInfo;
 import ghidra.docking.settings.SettingsImpl;
@@ -49,6 +51,12 @@ public class DecompileCallback {
 
 	public final static int MAX_SYMBOL_COUNT = 16;
 
+	/**
+	 * Number of bytes read ahead of a getBytes query, so that subsequent queries for nearby
+	 * bytes (such as the entries of a jump table) do not each access program memory
+	 */
+	private final static int READ_AHEAD_SIZE = 256;
+
 	/**
 	 * Data returned for a query about strings
 	 */
@@ -83,6 +91,11 @@ public class DecompileCallback {
 	private InstructionBlock lastPseudoInstructionBlock;
 	private Disassembler pseudoDisassembler;
 
+	private DecompileCallbackStatistics statistics;
+	private Address readAheadStart;		// Start of bytes read ahead, or null
+	private byte[] readAheadBytes;
+	private Map<Address, byte[]> pcodeResponses = new HashMap<>();	// Encoded p-code by address
+
 	public DecompileCallback(Program prog, Language language, CompilerSpec compilerSpec,
 			PcodeDataTypeManager dt) {
 		program = prog;
@@ -117,11 +130,59 @@ public class DecompileCallback {
 		}
 		nativeMessage = null; // Clear last message
 		lastPseudoInstructionBlock = null;
+		readAheadStart = null;
+		readAheadBytes = null;
+		pcodeResponses.clear();
 		if (pseudoDisassembler != null) {
 			pseudoDisassembler.resetDisassemblerContext();
 		}
 	}
 
+	/**
+	 * Set the object that accumulates statistics about the queries made by the decompiler
+	 * @param statistics the statistics or null
+	 */
+	void setStatistics(DecompileCallbackStatistics statistics) {
+		this.statistics = statistics;
+	}
+
+	/**
+	 * @return the object accumulating statistics about queries, or null
+	 */
+	DecompileCallbackStatistics getStatistics() {
+		return statistics;
+	}
+
+	/**
+	 * Get the encoded response to a getPcode query for the instruction at the given address.
+	 * The decompiler asks for the p-code of an instruction again whenever it restarts its
+	 * analysis of a function, so the response to an earlier query for the same address while
+	 * decompiling the current function is replayed verbatim.  Responses are not reused when
+	 * debugging, so that every query is recorded.
+	 * @param addr is the address of the instruction
+	 * @param resultEncoder is the encoder used to generate a response that has not been saved
+	 * @return the encoded response, which is empty if no p-code could be generated
+	 * @throws IOException for errors writing the encoded response
+	 */
+	byte[] getPcodeResponse(Address addr, PatchEncoder resultEncoder) throws IOException {
+		byte[] response = debug == null ? pcodeResponses.get(addr) : null;
+		if (response != null) {
+			if (statistics != null) {
+				statistics.recordReusedPcode();
+			}
+			return response;
+		}
+		resultEncoder.clear();
+		getPcode(addr, resultEncoder);
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		resultEncoder.writeTo(encoded);
+		response = encoded.toByteArray();
+		if (debug == null && response.length > 0) {
+			pcodeResponses.put(addr, response);
+		}
+		return response;
+	}
+
 	/**
 	 * @return the last message from the decompiler
 	 */
@@ -154,6 +215,12 @@ public class DecompileCallback {
 		if (addr.isRegisterAddress()) {
 			return null;
 		}
+		if (debug == null && size <= READ_AHEAD_SIZE) {
+			byte[] resbytes = getReadAheadBytes(addr, size);
+			if (resbytes != null) {
+				return resbytes;
+			}
+		}
 		try {
 			byte[] resbytes = new byte[size];
 			int bytesRead = program.getMemory().getBytes(addr, resbytes, 0, size);
@@ -179,6 +246,40 @@ public class DecompileCallback {
 		return null;
 	}
 
+	private byte[] getReadAheadBytes(Address addr, int size) {
+		if (!isReadAhead(addr, size)) {
+			readAheadStart = null;
+			readAheadBytes = null;
+			byte[] buf = new byte[READ_AHEAD_SIZE];
+			int bytesRead;
+			try {
+				bytesRead = program.getMemory().getBytes(addr, buf, 0, READ_AHEAD_SIZE);
+			}
+			catch (MemoryAccessException e) {
+				return null;	// Let the direct read report the problem
+			}
+			if (bytesRead < size) {
+				return null;
+			}
+			readAheadStart = addr;
+			readAheadBytes = bytesRead == READ_AHEAD_SIZE ? buf : Arrays.copyOf(buf, bytesRead);
+		}
+		else if (statistics != null) {
+			statistics.recordReadAheadHit();
+		}
+		int offset = (int) addr.subtract(readAheadStart);
+		return Arrays.copyOfRange(readAheadBytes, offset, offset + size);
+	}
+
+	private boolean isReadAhead(Address addr, int size) {
+		if (readAheadStart == null ||
+			addr.getAddressSpace() != readAheadStart.getAddressSpace()) {
+			return false;
+		}
+		long offset = addr.getOffset() - readAheadStart.getOffset();
+		return offset >= 0 && offset + size <= readAheadBytes.length;
+	}
+
 	/**
 	 * Collect any/all comments for the function starting at the indicated
 	 * address.  Filter based on selected comment types.
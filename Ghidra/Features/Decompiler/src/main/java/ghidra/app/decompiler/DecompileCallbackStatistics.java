@@ -0,0 +1,195 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler;
+
+import static ghidra.program.model.pcode.ElementId.*;
+
+import ghidra.program.model.pcode.ElementId;
+
+/**
+ * Counts of the queries the decompiler process makes back into Java while decompiling, and the
+ * time spent answering them.
+ * <p>
+ * Each query is a synchronous round trip over the pipe to the decompiler process.  These
+ * statistics show which queries dominate for a given workload, for example
+ * {@code command_getpcode} and {@code command_getmappedsymbols} for small functions.  Times
+ * are measured from the arrival of a query until its response is flushed, so they include
+ * encoding and writing the response but not the time the decompiler spends between queries.
+ * <p>
+ * An instance is kept by each {@link DecompInterface}; see
+ * {@link DecompInterface#getCallbackStatistics()}.
+ */
+public class DecompileCallbackStatistics {
+
+	private static final ElementId[] QUERIES = { ELEM_COMMAND_ISNAMEUSED, ELEM_COMMAND_GETBYTES,
+		ELEM_COMMAND_GETCALLFIXUP, ELEM_COMMAND_GETCALLMECH, ELEM_COMMAND_GETCALLOTHERFIXUP,
+		ELEM_COMMAND_GETCODELABEL, ELEM_COMMAND_GETCOMMENTS, ELEM_COMMAND_GETCPOOLREF,
+		ELEM_COMMAND_GETDATATYPE, ELEM_COMMAND_GETEXTERNALREF, ELEM_COMMAND_GETMAPPEDSYMBOLS,
+		ELEM_COMMAND_GETNAMESPACEPATH, ELEM_COMMAND_GETPCODE, ELEM_COMMAND_GETPCODEEXECUTABLE,
+		ELEM_COMMAND_GETREGISTER, ELEM_COMMAND_GETREGISTERNAME, ELEM_COMMAND_GETSTRINGDATA,
+		ELEM_COMMAND_GETTRACKEDREGISTERS, ELEM_COMMAND_GETUSEROPNAME };
+
+	private static final int FIRST_ID = COMMAND_ISNAMEUSED;
+	private static final int NUM_IDS = COMMAND_GETUSEROPNAME - COMMAND_ISNAMEUSED + 1;
+
+	private final long[] counts = new long[NUM_IDS];
+	private final long[] nanos = new long[NUM_IDS];
+	private long functionCount;
+	private long readAheadHits;
+	private long reusedPcodeQueries;
+
+	/**
+	 * Record a query answered for the decompiler
+	 * @param commandId is the id of the query command (e.g. {@link ElementId#COMMAND_GETBYTES})
+	 * @param elapsedNanos is the time spent answering the query
+	 */
+	synchronized void recordQuery(int commandId, long elapsedNanos) {
+		int index = commandId - FIRST_ID;
+		if (index < 0 || index >= NUM_IDS) {
+			return;
+		}
+		counts[index]++;
+		nanos[index] += elapsedNanos;
+	}
+
+	/**
+	 * Record that a function has been sent to the decompiler
+	 */
+	synchronized void recordFunction() {
+		functionCount++;
+	}
+
+	/**
+	 * Record a getBytes query answered from bytes read ahead by an earlier query
+	 */
+	synchronized void recordReadAheadHit() {
+		readAheadHits++;
+	}
+
+	/**
+	 * Record a getPcode query answered with the response to an earlier query
+	 */
+	synchronized void recordReusedPcode() {
+		reusedPcodeQueries++;
+	}
+
+	/**
+	 * @param commandId is the id of a query command
+	 * @return the number of times the decompiler made the given query
+	 */
+	public synchronized long getCount(int commandId) {
+		int index = commandId - FIRST_ID;
+		return (index < 0 || index >= NUM_IDS) ? 0 : counts[index];
+	}
+
+	/**
+	 * @param commandId is the id of a query command
+	 * @return the total nanoseconds spent answering the given query
+	 */
+	public synchronized long getNanos(int commandId) {
+		int index = commandId - FIRST_ID;
+		return (index < 0 || index >= NUM_IDS) ? 0 : nanos[index];
+	}
+
+	/**
+	 * @return the total number of queries of all kinds
+	 */
+	public synchronized long getTotalCount() {
+		long total = 0;
+		for (long count : counts) {
+			total += count;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the total nanoseconds spent answering queries of all kinds
+	 */
+	public synchronized long getTotalNanos() {
+		long total = 0;
+		for (long n : nanos) {
+			total += n;
+		}
+		return total;
+	}
+
+	/**
+	 * @return the number of functions sent to the decompiler
+	 */
+	public synchronized long getFunctionCount() {
+		return functionCount;
+	}
+
+	/**
+	 * @return the number of getBytes queries answered from bytes read ahead by earlier queries
+	 */
+	public synchronized long getReadAheadHits() {
+		return readAheadHits;
+	}
+
+	/**
+	 * @return the number of getPcode queries answered with the response to an earlier query
+	 */
+	public synchronized long getReusedPcodeQueries() {
+		return reusedPcodeQueries;
+	}
+
+	/**
+	 * Reset all counts and times to zero
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < NUM_IDS; i++) {
+			counts[i] = 0;
+			nanos[i] = 0;
+		}
+		functionCount = 0;
+		readAheadHits = 0;
+		reusedPcodeQueries = 0;
+	}
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder buf = new StringBuilder();
+		long total = getTotalCount();
+		buf.append("Decompiler callbacks: ")
+				.append(total)
+				.append(" queries for ")
+				.append(functionCount)
+				.append(" functions, ")
+				.append(getTotalNanos() / 1000)
+				.append(" us\n");
+		for (ElementId query : QUERIES) {
+			int index = query.id() - FIRST_ID;
+			if (counts[index] == 0) {
+				continue;
+			}
+			buf.append("  ")
+					.append(query.name())
+					.append(": ")
+					.append(counts[index])
+					.append(" queries, ")
+					.append(nanos[index] / 1000)
+					.append(" us (avg ")
+					.append(nanos[index] / counts[index])
+					.append(" ns)\n");
+		}
+		buf.append("  getbytes answered from read-ahead: ").append(readAheadHits).append('\n');
+		buf.append("  getpcode answered from earlier response: ")
+				.append(reusedPcodeQueries)
+				.append('\n');
+		return buf.toString();
+	}
+}
@@ -271,6 +271,8 @@ public class DecompileProcess {
 			switch (type) {
 				case 4:
 					readQueryParam(paramDecoder);
+					long queryStart = System.nanoTime();
+					commandId = 0;
 					try {
 						commandId = paramDecoder.openElement();
 						switch (commandId) {
@@ -352,6 +354,11 @@ public class DecompileProcess {
 						}
 					}
 					nativeOut.flush(); // Make sure decompiler receives response
+					DecompileCallbackStatistics statistics =
+						callback == null ? null : callback.getStatistics();
+					if (statistics != null) {
+						statistics.recordQuery(commandId, System.nanoTime() - queryStart);
+					}
 					readToBurst(); // Read query terminator
 					break;
 				case 6:
@@ -701,12 +708,13 @@ public class DecompileProcess {
 	}
 
 	private void getPcode() throws IOException, DecoderException {
-		resultEncoder.clear();
 		Address addr = AddressXML.decode(paramDecoder);
-		callback.getPcode(addr, resultEncoder);
+		byte[] response = callback.getPcodeResponse(addr, resultEncoder);
 		write(query_response_start);
-		if (!resultEncoder.isEmpty()) {
-			writeString(resultEncoder);
+		if (response.length > 0) {
+			write(string_start);
+			write(response);
+			write(string_end);
 		}
 		write(query_response_end);
 	}
@@ -0,0 +1,484 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import ghidra.framework.model.*;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.Program;
+import ghidra.program.util.ProgramEvent;
+import ghidra.util.Msg;
+
+/**
+ * A cache of {@link DecompileResults} keyed by the content of the decompiled function.
+ * <p>
+ * The key of a function is a digest of the bytes and code units of the function body and of
+ * the instructions reached by flow from its entry point, the context and tracked register
+ * values, the function's signature and variables, the signatures of referenced functions, the
+ * data types used, the symbols, data and bytes at referenced locations, all read-only memory
+ * and the configuration of the {@link DecompInterface} (options, simplification style, etc.).
+ * Most edits elsewhere in the program therefore do not invalidate the cached results of a
+ * function, while any edit that could change its decompilation produces a new key.  Keys are
+ * recomputed lazily, only when the program's modification number has changed since the key was
+ * last computed.  The read-only memory digest of a program is computed once and recomputed
+ * after memory change events.
+ * <p>
+ * Results are held in memory with least-recently-used eviction.  Optionally, the
+ * {@link DecompiledFunction} text of each result is also written to a store directory, so that
+ * later sessions (e.g., headless exporters) can reuse it via
+ * {@link #getDecompiledFunction(String)}.  The store is bounded by
+ * {@link #setMaxStoreSize(long)}: when a new entry takes it over the limit, the least recently
+ * used entries (by file modification time, which is updated when an entry is read) are deleted
+ * until the store is back to three quarters of the limit.
+ * <p>
+ * Install a cache on a decompiler with {@link DecompInterface#setResultsCache}.  A cache may be
+ * shared by several decompilers with the same configuration.
+ */
+public class DecompileResultsCache {
+
+	/**
+	 * The name of the store directory created within a project directory
+	 */
+	public static final String STORE_DIRECTORY_NAME = "decompcache";
+
+	/**
+	 * The default maximum total size, in bytes, of the files in the store directory
+	 */
+	public static final long DEFAULT_MAX_STORE_SIZE = 256L * 1024 * 1024;
+
+	private static final int STORE_VERSION = 1;
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final Cache<String, DecompileResults> memoryCache;
+	private final Cache<Function, KeyEntry> keyCache;
+	private final Cache<Program, MemoryDigest> memoryDigests;
+	private volatile File storeDirectory;
+	private volatile long maxStoreSize = DEFAULT_MAX_STORE_SIZE;
+	private long storeSize = -1; // guarded by this; -1 until the store directory is scanned
+
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong storeHitCount = new AtomicLong();
+
+	/**
+	 * Creates a cache which holds up to the given number of results in memory
+	 * @param maxSize the maximum number of results held in memory
+	 */
+	public DecompileResultsCache(int maxSize) {
+		//@formatter:off
+		memoryCache = CacheBuilder.newBuilder()
+		                          .softValues()
+		                          .maximumSize(maxSize)
+		                          .build();
+		keyCache = CacheBuilder.newBuilder()
+		                       .weakKeys()
+		                       .maximumSize(maxSize)
+		                       .build();
+		memoryDigests = CacheBuilder.newBuilder()
+		                            .weakKeys()
+		                            .build();
+		//@formatter:on
+	}
+
+	/**
+	 * Returns the default store directory for the given program, which is located within the
+	 * directory of the project containing the program.
+	 *
+	 * @param program the program
+	 * @return the store directory or null if the program is not part of a persistent project
+	 */
+	public static File getDefaultStoreDirectory(Program program) {
+		DomainFile domainFile = program.getDomainFile();
+		ProjectLocator locator = domainFile == null ? null : domainFile.getProjectLocator();
+		if (locator == null || locator.isTransient()) {
+			return null;
+		}
+		return new File(locator.getProjectDir(), STORE_DIRECTORY_NAME);
+	}
+
+	/**
+	 * Sets the directory used to store the decompiled text of cached results.  The directory
+	 * is created when the first result is stored.
+	 *
+	 * @param directory the store directory, or null to only cache results in memory
+	 */
+	public synchronized void setStoreDirectory(File directory) {
+		this.storeDirectory = directory;
+		this.storeSize = -1;
+	}
+
+	/**
+	 * @return the store directory, or null if results are only cached in memory
+	 */
+	public File getStoreDirectory() {
+		return storeDirectory;
+	}
+
+	/**
+	 * Sets the maximum total size of the files in the store directory.  The limit is applied
+	 * when the next result is stored.
+	 *
+	 * @param maxSize the maximum size in bytes
+	 */
+	public void setMaxStoreSize(long maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxStoreSize = maxSize;
+	}
+
+	/**
+	 * @return the maximum total size, in bytes, of the files in the store directory
+	 */
+	public long getMaxStoreSize() {
+		return maxStoreSize;
+	}
+
+	/**
+	 * Computes the cache key of a function as decompiled by the given decompiler.
+	 *
+	 * @param decompiler the decompiler which is configured as it will be used to decompile
+	 * @param function the function
+	 * @return the cache key
+	 */
+	public String computeKey(DecompInterface decompiler, Function function) {
+		String configuration = decompiler.getConfigurationKey();
+		String memoryDigest = getMemoryDigest(function.getProgram());
+		long modificationNumber = function.getProgram().getModificationNumber();
+		KeyEntry entry = keyCache.getIfPresent(function);
+		if (entry != null && entry.modificationNumber == modificationNumber &&
+			entry.configuration.equals(configuration) &&
+			entry.memoryDigest.equals(memoryDigest)) {
+			return entry.key;
+		}
+		String key = FunctionContentHasher.hash(function, configuration, memoryDigest);
+		keyCache.put(function, new KeyEntry(modificationNumber, configuration, memoryDigest, key));
+		return key;
+	}
+
+	private String getMemoryDigest(Program program) {
+		MemoryDigest memoryDigest;
+		synchronized (memoryDigests) {
+			memoryDigest = memoryDigests.getIfPresent(program);
+			if (memoryDigest == null) {
+				memoryDigest = new MemoryDigest();
+				program.addListener(memoryDigest);
+				memoryDigests.put(program, memoryDigest);
+			}
+		}
+		return memoryDigest.get(program);
+	}
+
+	/**
+	 * Returns the cached results for the given function and key.
+	 *
+	 * @param function the function
+	 * @param key the key from {@link #computeKey(DecompInterface, Function)}
+	 * @return the cached results or null
+	 */
+	public DecompileResults getResults(Function function, String key) {
+		DecompileResults results = memoryCache.getIfPresent(key);
+		if (results != null) {
+			Function cachedFunction = results.getFunction();
+			if (cachedFunction.getProgram() == function.getProgram() &&
+				!cachedFunction.isDeleted()) {
+				hitCount.incrementAndGet();
+				return results;
+			}
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Adds results to this cache.  Only completed results should be cached.
+	 *
+	 * @param function the function
+	 * @param key the key from {@link #computeKey(DecompInterface, Function)}
+	 * @param results the decompile results
+	 */
+	public void putResults(Function function, String key, DecompileResults results) {
+		memoryCache.put(key, results);
+		File dir = storeDirectory;
+		if (dir != null) {
+			DecompiledFunction decompiledFunction = results.getDecompiledFunction();
+			if (decompiledFunction != null) {
+				store(dir, key, decompiledFunction);
+			}
+		}
+	}
+
+	/**
+	 * Returns the decompiled text for the given key, either from results held in memory or from
+	 * the store directory.
+	 *
+	 * @param key the key from {@link #computeKey(DecompInterface, Function)}
+	 * @return the decompiled function or null if not cached
+	 */
+	public DecompiledFunction getDecompiledFunction(String key) {
+		DecompileResults results = memoryCache.getIfPresent(key);
+		if (results != null) {
+			DecompiledFunction decompiledFunction = results.getDecompiledFunction();
+			if (decompiledFunction != null) {
+				hitCount.incrementAndGet();
+				return decompiledFunction;
+			}
+		}
+		File dir = storeDirectory;
+		if (dir != null) {
+			DecompiledFunction decompiledFunction = load(dir, key);
+			if (decompiledFunction != null) {
+				storeHitCount.incrementAndGet();
+				return decompiledFunction;
+			}
+		}
+		missCount.incrementAndGet();
+		return null;
+	}
+
+	/**
+	 * Stores decompiled text for the given key without in-memory results, for clients that
+	 * only use {@link #getDecompiledFunction(String)}.
+	 *
+	 * @param key the key from {@link #computeKey(DecompInterface, Function)}
+	 * @param decompiledFunction the decompiled function
+	 */
+	public void putDecompiledFunction(String key, DecompiledFunction decompiledFunction) {
+		File dir = storeDirectory;
+		if (dir != null) {
+			store(dir, key, decompiledFunction);
+		}
+	}
+
+	/**
+	 * Removes all results held in memory.  The store directory is not affected.
+	 */
+	public void clear() {
+		memoryCache.invalidateAll();
+		keyCache.invalidateAll();
+		synchronized (memoryDigests) {
+			memoryDigests.asMap().forEach((program, digest) -> program.removeListener(digest));
+			memoryDigests.invalidateAll();
+		}
+	}
+
+	/**
+	 * @return the number of lookups satisfied from memory
+	 */
+	public long getHitCount() {
+		return hitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups satisfied from the store directory
+	 */
+	public long getStoreHitCount() {
+		return storeHitCount.get();
+	}
+
+	/**
+	 * @return the number of lookups which were not satisfied
+	 */
+	public long getMissCount() {
+		return missCount.get();
+	}
+
+	@Override
+	public String toString() {
+		return "DecompileResultsCache[size=" + memoryCache.size() + " hits=" + hitCount.get() +
+			" storeHits=" + storeHitCount.get() + " misses=" + missCount.get() + "]";
+	}
+
+	private void store(File dir, String key, DecompiledFunction decompiledFunction) {
+		File file = new File(dir, key);
+		if (file.exists()) {
+			return;
+		}
+		try {
+			Files.createDirectories(dir.toPath());
+			File tmpFile = File.createTempFile(key, TEMP_FILE_SUFFIX, dir);
+			try (DataOutputStream out = new DataOutputStream(
+				new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+				out.writeInt(STORE_VERSION);
+				writeString(out, decompiledFunction.getSignature());
+				writeString(out, decompiledFunction.getC());
+			}
+			try {
+				Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (IOException e) {
+				tmpFile.delete(); // another writer stored the same key
+				return;
+			}
+			stored(dir, file.length());
+		}
+		catch (IOException e) {
+			Msg.warn(DecompileResultsCache.class,
+				"Unable to store decompiled function in " + dir + ": " + e.getMessage());
+		}
+	}
+
+	private synchronized void stored(File dir, long length) {
+		if (dir != storeDirectory) {
+			return;
+		}
+		if (storeSize < 0) {
+			storeSize = 0;
+			for (StoreFile storeFile : listStore(dir)) {
+				storeSize += storeFile.length;
+			}
+		}
+		else {
+			storeSize += length;
+		}
+		long maxSize = maxStoreSize;
+		if (storeSize > maxSize) {
+			trimStore(dir, maxSize - maxSize / 4);
+		}
+	}
+
+	/**
+	 * Deletes the least recently used files of the store until its size is at most the given
+	 * size
+	 */
+	private void trimStore(File dir, long targetSize) {
+		List<StoreFile> storeFiles = listStore(dir);
+		storeFiles.sort(Comparator.comparingLong(storeFile -> storeFile.lastModified));
+		long size = 0;
+		for (StoreFile storeFile : storeFiles) {
+			size += storeFile.length;
+		}
+		for (StoreFile storeFile : storeFiles) {
+			if (size <= targetSize) {
+				break;
+			}
+			if (storeFile.file.delete() || !storeFile.file.exists()) {
+				size -= storeFile.length;
+			}
+		}
+		storeSize = size;
+	}
+
+	private static List<StoreFile> listStore(File dir) {
+		List<StoreFile> storeFiles = new ArrayList<>();
+		File[] files = dir.listFiles();
+		if (files == null) {
+			return storeFiles;
+		}
+		for (File file : files) {
+			// skip files still being written by store()
+			if (file.isFile() && !file.getName().endsWith(TEMP_FILE_SUFFIX)) {
+				storeFiles.add(new StoreFile(file, file.lastModified(), file.length()));
+			}
+		}
+		return storeFiles;
+	}
+
+	private static DecompiledFunction load(File dir, String key) {
+		File file = new File(dir, key);
+		if (!file.isFile()) {
+			return null;
+		}
+		try (DataInputStream in =
+			new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != STORE_VERSION) {
+				return null;
+			}
+			String signature = readString(in);
+			String c = readString(in);
+			file.setLastModified(System.currentTimeMillis()); // mark as recently used
+			return new DecompiledFunction(signature, c);
+		}
+		catch (IOException e) {
+			Msg.warn(DecompileResultsCache.class,
+				"Unable to read cached decompiled function " + file + ": " + e.getMessage());
+			return null;
+		}
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static String readString(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * The read-only memory digest of a program, discarded when a memory change event is
+	 * received.  Like other program listeners, it sees a change once the program's events have
+	 * been delivered.
+	 */
+	private static class MemoryDigest implements DomainObjectListener {
+		private String digest;
+
+		synchronized String get(Program program) {
+			if (digest == null) {
+				digest = FunctionContentHasher.hashReadOnlyMemory(program);
+			}
+			return digest;
+		}
+
+		@Override
+		public synchronized void domainObjectChanged(DomainObjectChangedEvent ev) {
+			if (ev.contains(DomainObjectEvent.RESTORED, ProgramEvent.MEMORY_BYTES_CHANGED,
+				ProgramEvent.MEMORY_BLOCK_ADDED, ProgramEvent.MEMORY_BLOCK_REMOVED,
+				ProgramEvent.MEMORY_BLOCK_CHANGED, ProgramEvent.MEMORY_BLOCK_MOVED,
+				ProgramEvent.MEMORY_BLOCK_SPLIT, ProgramEvent.MEMORY_BLOCKS_JOINED,
+				ProgramEvent.IMAGE_BASE_CHANGED)) {
+				digest = null;
+			}
+		}
+	}
+
+	private static class StoreFile {
+		final File file;
+		final long lastModified;
+		final long length;
+
+		StoreFile(File file, long lastModified, long length) {
+			this.file = file;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+	}
+
+	private static class KeyEntry {
+		final long modificationNumber;
+		final String configuration;
+		final String memoryDigest;
+		final String key;
+
+		KeyEntry(long modificationNumber, String configuration, String memoryDigest, String key) {
+			this.modificationNumber = modificationNumber;
+			this.configuration = configuration;
+			this.memoryDigest = memoryDigest;
+			this.key = key;
+		}
+	}
+}
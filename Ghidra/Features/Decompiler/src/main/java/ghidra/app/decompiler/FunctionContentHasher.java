@@ -0,0 +1,483 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+import ghidra.app.util.PseudoInstruction;
+import ghidra.program.disassemble.Disassembler;
+import ghidra.program.model.address.*;
+import ghidra.program.model.data.*;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.mem.*;
+import ghidra.program.model.symbol.*;
+import ghidra.util.NumericUtilities;
+import ghidra.util.exception.AssertException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Computes a digest of everything within a program that the decompiler reads when it
+ * decompiles a function: the bytes and code units of the function body and of any other
+ * instructions reached by flow from its entry point, the processor context and tracked register
+ * values, the function's signature and variables, the signatures of functions it references,
+ * the data types used and the symbols, data, bytes and memory properties of referenced
+ * locations.  The decompiler may also read constants and strings from any read-only memory,
+ * so the digest of a function is combined with a digest of all read-only memory, see
+ * {@link #hashReadOnlyMemory(Program)}.  Two functions with the same digest and the same
+ * decompiler configuration decompile identically.
+ */
+final class FunctionContentHasher {
+
+	private static final int BYTE_CHUNK = 4096;
+	private static final int PSEUDO_DISASSEMBLY_LIMIT = 64;
+	private static final int[] COMMENT_TYPES = { CodeUnit.PLATE_COMMENT, CodeUnit.PRE_COMMENT,
+		CodeUnit.EOL_COMMENT, CodeUnit.POST_COMMENT, CodeUnit.REPEATABLE_COMMENT };
+
+	private final MessageDigest digest;
+	private final Program program;
+	private final Set<DataType> visitedTypes = Collections.newSetFromMap(new IdentityHashMap<>());
+	private final Set<Function> visitedInlines = new HashSet<>();
+	private Disassembler pseudoDisassembler;
+	private InstructionBlock lastPseudoInstructionBlock;
+
+	private FunctionContentHasher(Program program) {
+		this.program = program;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new AssertException(e);
+		}
+	}
+
+	/**
+	 * Compute the content digest of the given function
+	 * @param function the function
+	 * @param configuration description of the decompiler configuration, included in the digest
+	 * @param memoryDigest the digest of the program's read-only memory, included in the digest
+	 * @return the digest as a hex string
+	 */
+	static String hash(Function function, String configuration, String memoryDigest) {
+		FunctionContentHasher hasher = new FunctionContentHasher(function.getProgram());
+		hasher.add(configuration);
+		hasher.add(memoryDigest);
+		hasher.addFunction(function);
+		return NumericUtilities.convertBytesToString(hasher.digest.digest());
+	}
+
+	/**
+	 * Compute a digest of the layout of a program's memory blocks and the bytes of every
+	 * initialized block that is not writable.  The decompiler may read constants and strings
+	 * from anywhere in read-only memory, even without a reference to the location.
+	 * @param program the program
+	 * @return the digest as a hex string
+	 */
+	static String hashReadOnlyMemory(Program program) {
+		FunctionContentHasher hasher = new FunctionContentHasher(program);
+		for (MemoryBlock block : program.getMemory().getBlocks()) {
+			hasher.add(block.getName());
+			hasher.add(block.getStart());
+			hasher.add(block.getEnd());
+			hasher.add(block.isRead());
+			hasher.add(block.isWrite());
+			hasher.add(block.isExecute());
+			hasher.add(block.isVolatile());
+			hasher.add(block.isInitialized());
+			if (block.isInitialized() && !block.isWrite()) {
+				hasher.addBytes(new AddressRangeImpl(block.getStart(), block.getEnd()));
+			}
+		}
+		return NumericUtilities.convertBytesToString(hasher.digest.digest());
+	}
+
+	private void add(String s) {
+		digest.update(String.valueOf(s).getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private void add(long value) {
+		for (int i = 0; i < 8; i++) {
+			digest.update((byte) (value >>> (i * 8)));
+		}
+	}
+
+	private void add(boolean b) {
+		digest.update((byte) (b ? 1 : 0));
+	}
+
+	private void add(Address addr) {
+		add(addr == null ? "null" : addr.toString(true));
+	}
+
+	private void addFunction(Function function) {
+		add(program.getLanguageID().getIdAsString());
+		add(program.getLanguage().getVersion());
+		add(program.getCompilerSpec().getCompilerSpecID().getIdAsString());
+		add(program.getImageBase());
+
+		addSignature(function);
+		add(function.getComment());
+		add(function.getRepeatableComment());
+		for (Variable var : function.getLocalVariables()) {
+			addVariable(var);
+			add(var.getFirstUseOffset());
+		}
+		Function thunked = function.getThunkedFunction(true);
+		if (thunked != null) {
+			addSignature(thunked);
+		}
+		addContent(function);
+	}
+
+	/**
+	 * Add the code of a function: its body, the instructions reached by flow from its entry
+	 * point and the register values tracked at its entry point
+	 * @param function the function
+	 */
+	private void addContent(Function function) {
+		Address entry = function.getEntryPoint();
+		addTrackedRegisters(entry);
+
+		AddressSetView body = function.getBody();
+		for (AddressRange range : body) {
+			add(range.getMinAddress());
+			add(range.getMaxAddress());
+			addBytes(range);
+		}
+		CodeUnitIterator it = program.getListing().getCodeUnits(body, true);
+		while (it.hasNext()) {
+			addCodeUnit(it.next());
+		}
+		addFlow(entry, body);
+	}
+
+	/**
+	 * Add the values of the registers tracked at the given address, as the decompiler reads
+	 * them for the entry point of a function
+	 * @param addr the address
+	 */
+	private void addTrackedRegisters(Address addr) {
+		ProgramContext context = program.getProgramContext();
+		Register baseContextRegister = context.getBaseContextRegister();
+		if (baseContextRegister != null) {
+			add(String.valueOf(context.getRegisterValue(baseContextRegister, addr)));
+		}
+		for (Register reg : context.getRegisters()) {
+			if (reg.isProcessorContext()) {
+				continue;
+			}
+			BigInteger val = context.getValue(reg, addr, false);
+			if (val != null) {
+				add(reg.getName());
+				add(val.toString(16));
+			}
+		}
+	}
+
+	/**
+	 * Add every instruction outside the function body which the decompiler reaches by
+	 * following flow from the entry point.  Like the decompiler, calls are not followed, nor
+	 * are jumps to the entry point of another function, and locations without an instruction
+	 * are pseudo-disassembled.
+	 * @param entry the function entry point
+	 * @param body the function body, whose code units have already been added
+	 */
+	private void addFlow(Address entry, AddressSetView body) {
+		FunctionManager functionManager = program.getFunctionManager();
+		AddressSet visited = new AddressSet();
+		Deque<Address> pending = new ArrayDeque<>();
+		pending.push(entry);
+		while (!pending.isEmpty()) {
+			Address addr = pending.pop();
+			if (visited.contains(addr)) {
+				continue;
+			}
+			visited.add(addr);
+			Instruction instr = getInstruction(addr);
+			if (instr == null) {
+				if (!body.contains(addr)) {
+					add(addr);
+					add("no instruction");
+				}
+				continue;
+			}
+			if (!body.contains(addr)) {
+				addFlowInstruction(instr);
+			}
+			List<Address> flows = new ArrayList<>();
+			if (!instr.getFlowType().isCall()) {
+				flows.addAll(Arrays.asList(instr.getFlows()));
+			}
+			Address fallThrough = instr.getFallThrough();
+			if (fallThrough != null) {
+				flows.add(fallThrough);
+			}
+			for (Address flow : flows) {
+				if (!flow.isMemoryAddress() || visited.contains(flow)) {
+					continue;
+				}
+				if (!flow.equals(entry) && functionManager.getFunctionAt(flow) != null) {
+					continue;
+				}
+				pending.push(flow);
+			}
+		}
+	}
+
+	private void addFlowInstruction(Instruction instr) {
+		if (instr instanceof PseudoInstruction) {
+			add(instr.getMinAddress());
+			add("pseudo");
+			add(instr.toString());
+			addContext(instr);
+		}
+		else {
+			addCodeUnit(instr);
+		}
+		try {
+			digest.update(instr.getBytes());
+		}
+		catch (MemoryAccessException e) {
+			add("uninitialized");
+		}
+	}
+
+	private void addContext(Instruction instr) {
+		Register baseContextRegister = instr.getBaseContextRegister();
+		if (baseContextRegister != null) {
+			add(String.valueOf(instr.getRegisterValue(baseContextRegister)));
+		}
+	}
+
+	/**
+	 * Get the instruction at the given address the way the decompiler does: from the listing,
+	 * or by pseudo-disassembly if there is none.
+	 * @param addr the address
+	 * @return the instruction or null if there is none and pseudo-disassembly fails
+	 */
+	private Instruction getInstruction(Address addr) {
+		Instruction instr = program.getListing().getInstructionAt(addr);
+		if (instr != null) {
+			return instr;
+		}
+		if (program.getListing().getCodeUnitContaining(addr) instanceof Instruction) {
+			return null; // offcut
+		}
+		if (lastPseudoInstructionBlock != null) {
+			instr = lastPseudoInstructionBlock.getInstructionAt(addr);
+			if (instr != null) {
+				return instr;
+			}
+		}
+		if (pseudoDisassembler == null) {
+			pseudoDisassembler = Disassembler.getDisassembler(program, false, false, false,
+				TaskMonitor.DUMMY, msg -> {
+					// errors result in a null instruction
+				});
+		}
+		ProgramContext programContext = program.getProgramContext();
+		Register baseContextRegister = programContext.getBaseContextRegister();
+		RegisterValue entryContext = baseContextRegister == null ? null
+				: programContext.getRegisterValue(baseContextRegister, addr);
+		lastPseudoInstructionBlock =
+			pseudoDisassembler.pseudoDisassembleBlock(addr, entryContext, PSEUDO_DISASSEMBLY_LIMIT);
+		if (lastPseudoInstructionBlock == null) {
+			return null;
+		}
+		return lastPseudoInstructionBlock.getInstructionAt(addr);
+	}
+
+	private void addSignature(Function function) {
+		add(function.getEntryPoint());
+		add(function.getName(true));
+		add(function.getCallingConventionName());
+		add(function.getCallFixup());
+		add(function.getSignatureSource().toString());
+		add(function.hasVarArgs());
+		add(function.hasNoReturn());
+		add(function.isInline());
+		add(function.hasCustomVariableStorage());
+		add(function.isExternal());
+		addVariable(function.getReturn());
+		for (Parameter param : function.getParameters()) {
+			addVariable(param);
+		}
+	}
+
+	private void addVariable(Variable var) {
+		add(var.getName());
+		add(var.getVariableStorage().toString());
+		addDataType(var.getDataType());
+		add(var.getComment());
+	}
+
+	private void addBytes(AddressRange range) {
+		Memory memory = program.getMemory();
+		byte[] buf = new byte[BYTE_CHUNK];
+		Address addr = range.getMinAddress();
+		long remaining = range.getLength();
+		while (remaining > 0) {
+			int len = (int) Math.min(remaining, buf.length);
+			int n;
+			try {
+				n = memory.getBytes(addr, buf, 0, len);
+			}
+			catch (MemoryAccessException e) {
+				n = 0;
+			}
+			if (n <= 0) {
+				add("uninitialized");
+				return;
+			}
+			digest.update(buf, 0, n);
+			remaining -= n;
+			if (remaining > 0) {
+				addr = addr.add(n);
+			}
+		}
+	}
+
+	private void addReferencedBytes(Address to, Data data, MemoryBlock block) {
+		Address start = to;
+		long length = BYTE_CHUNK;
+		if (data != null && data.isDefined()) {
+			start = data.getMinAddress();
+			length = Math.min(data.getLength(), BYTE_CHUNK);
+		}
+		Address end = start.add(Math.min(length - 1, block.getEnd().subtract(start)));
+		addBytes(new AddressRangeImpl(start, end));
+	}
+
+	private void addCodeUnit(CodeUnit cu) {
+		Address addr = cu.getMinAddress();
+		add(addr);
+		for (int type : COMMENT_TYPES) {
+			add(cu.getComment(type));
+		}
+		for (Symbol symbol : program.getSymbolTable().getSymbols(addr)) {
+			add(symbol.getName(true));
+		}
+		if (cu instanceof Instruction instr) {
+			add(instr.toString());
+			addContext(instr);
+			add(instr.getFlowOverride().toString());
+			if (instr.isFallThroughOverridden()) {
+				add(instr.getFallThrough());
+			}
+		}
+		else if (cu instanceof Data data) {
+			addDataType(data.getDataType());
+		}
+		for (Equate equate : program.getEquateTable().getEquates(addr)) {
+			add(equate.getName());
+			add(equate.getValue());
+		}
+		for (Reference ref : cu.getReferencesFrom()) {
+			addReference(ref);
+		}
+	}
+
+	private void addReference(Reference ref) {
+		Address to = ref.getToAddress();
+		add(to);
+		add(ref.getReferenceType().toString());
+		add(ref.getOperandIndex());
+		add(ref.isPrimary());
+
+		if (ref.isExternalReference()) {
+			ExternalLocation extLoc = ((ExternalReference) ref).getExternalLocation();
+			add(extLoc.getLabel());
+			Function extFunc = extLoc.getFunction();
+			if (extFunc != null) {
+				addSignature(extFunc);
+			}
+			return;
+		}
+		if (!to.isMemoryAddress()) {
+			return;
+		}
+
+		Symbol symbol = program.getSymbolTable().getPrimarySymbol(to);
+		if (symbol != null) {
+			add(symbol.getName(true));
+		}
+		Function callee = program.getFunctionManager().getFunctionAt(to);
+		if (callee != null) {
+			addSignature(callee);
+			Function thunked = callee.getThunkedFunction(true);
+			if (thunked != null) {
+				addSignature(thunked);
+			}
+			if (callee.isInline() && visitedInlines.add(callee)) {
+				addContent(callee); // The decompiler reads the code of inlined functions
+			}
+		}
+		Data data = program.getListing().getDataContaining(to);
+		if (data != null) {
+			add(data.getMinAddress());
+			addDataType(data.getDataType());
+		}
+		MemoryBlock block = program.getMemory().getBlock(to);
+		if (block != null) {
+			add(block.isWrite());
+			add(block.isExecute());
+			add(block.isVolatile());
+			if (block.isWrite() && block.isInitialized()) {
+				// Strings and jump tables may be read from writable memory.  Read-only
+				// memory is covered by the read-only memory digest.
+				addReferencedBytes(to, data, block);
+			}
+		}
+	}
+
+	private void addDataType(DataType dt) {
+		if (dt == null) {
+			add("null");
+			return;
+		}
+		add(dt.getPathName());
+		add(dt.getLength());
+		if (!visitedTypes.add(dt)) {
+			return;
+		}
+		add(dt.getLastChangeTime());
+		if (dt instanceof Pointer ptr) {
+			addDataType(ptr.getDataType());
+		}
+		else if (dt instanceof Array array) {
+			addDataType(array.getDataType());
+		}
+		else if (dt instanceof TypeDef typeDef) {
+			addDataType(typeDef.getDataType());
+		}
+		else if (dt instanceof Composite composite) {
+			for (DataTypeComponent component : composite.getDefinedComponents()) {
+				addDataType(component.getDataType());
+			}
+		}
+		else if (dt instanceof FunctionDefinition funcDef) {
+			addDataType(funcDef.getReturnType());
+			for (ParameterDefinition param : funcDef.getArguments()) {
+				addDataType(param.getDataType());
+			}
+		}
+	}
+}
@@ -25,6 +25,7 @@ import ghidra.util.task.TaskMonitor;
 class Decompiler {
 
 	private DecompInterface cachedDecompInterface;
+	private DecompileResultsCache resultsCache;
 	private DecompileOptions options;
 	private int timeout;
 	private volatile boolean optionsChanged = false;
@@ -32,9 +33,16 @@ class Decompiler {
 	Decompiler(DecompileOptions options, int timeout) {
 		this.options = options;
 		this.timeout = timeout;
+		this.resultsCache = new DecompileResultsCache(options.getCacheSize());
 	}
 
-	void setOptions(DecompileOptions options) {
+	synchronized void setOptions(DecompileOptions options) {
+		if (options.getCacheSize() != this.options.getCacheSize()) {
+			resultsCache = new DecompileResultsCache(options.getCacheSize());
+			if (cachedDecompInterface != null) {
+				cachedDecompInterface.setResultsCache(resultsCache);
+			}
+		}
 		this.options = options;
 
 		// note: we have made the decision for now to allow the GUI decompiler to work for as 
@@ -74,6 +82,7 @@ class Decompiler {
 		}
 		DecompInterface newInterface = new DecompInterface();
 		newInterface.setOptions(options);
+		newInterface.setResultsCache(resultsCache);
 		optionsChanged = false;
 //		newInterface.toggleSyntaxTree(false);
 		if (!newInterface.openProgram(program)) {
@@ -87,6 +96,14 @@ class Decompiler {
 
 	synchronized void dispose() {
 		cancelCurrentAction();
+		resultsCache.clear();
+	}
+
+	/**
+	 * Discards all cached results, forcing the next request for each function to decompile.
+	 */
+	synchronized void clearResultsCache() {
+		resultsCache.clear();
 	}
 
 	/**
@@ -322,7 +322,18 @@ public class DecompilerController {
 		decompilerCache.invalidateAll();
 	}
 
+	/**
+	 * Discards the cached results of unchanged functions kept by the decompiler as well as the
+	 * cache of displayed functions, so that the next display of each function is decompiled
+	 * again.
+	 */
+	public void clearResultsCache() {
+		clearCache();
+		decompilerMgr.clearResultsCache();
+	}
+
 	public void programClosed(Program closedProgram) {
+		decompilerMgr.clearResultsCache();
 		for (Function function : decompilerCache.asMap().keySet()) {
 			Program functionProgram = function.getProgram();
 			if (functionProgram == closedProgram) {
@@ -79,6 +79,13 @@ public class DecompilerManager {
 		decompiler.resetDecompiler();
 	}
 
+	/**
+	 * Discards the decompiler's cache of results for unchanged functions.
+	 */
+	void clearResultsCache() {
+		decompiler.clearResultsCache();
+	}
+
 	/**
 	 * Requests a new decompile be scheduled.  If a current decompile is already in progress,
 	 * the new request is checked to see if represents the same function. If so, only the
@@ -15,13 +15,8 @@
  */
 package ghidra.app.decompiler.parallel;
 
-import java.io.IOException;
-
-import generic.cache.CachingPool;
-import generic.cache.CountingBasicFactory;
 import generic.concurrent.QCallback;
-import ghidra.app.decompiler.DecompInterface;
-import ghidra.app.decompiler.DecompileResults;
+import ghidra.app.decompiler.*;
 import ghidra.program.model.listing.Function;
 import ghidra.program.model.listing.Program;
 import ghidra.util.task.TaskMonitor;
@@ -31,20 +26,36 @@ import ghidra.util.task.TaskMonitor;
  * {@link DecompInterface} instances using a Pool.
  * 
  * <P>Clients will get a chance to configure each newly created decompiler via the passed-in
- * {@link DecompileConfigurer}.
+ * {@link DecompileConfigurer}.  Clients which decompile in repeated batches may instead pass
+ * a long-lived {@link DecompilerPool}, so that decompiler processes are reused across batches.
  * 
  * <P>Clients must implement {@link #process(DecompileResults, TaskMonitor)}, which will be
- * called for each function that is decompiled.
+ * called for each function that is decompiled.  If a decompiler cannot be started, the
+ * results passed to it are not {@link DecompileResults#decompileCompleted() completed} and
+ * carry the reason as their error message.
  *
  * @param <R> the return type
  */
 public abstract class DecompilerCallback<R> implements QCallback<Function, R> {
 
-	private CachingPool<DecompInterface> pool;
+	private DecompilerPool pool;
+	private boolean ownsPool;
 	private int timeout = 60;
 
 	public DecompilerCallback(Program program, DecompileConfigurer configurer) {
-		this.pool = new CachingPool<>(new DecompilerFactory(program, configurer));
+		this.pool = new DecompilerPool(program, configurer, Integer.MAX_VALUE);
+		this.ownsPool = true;
+	}
+
+	/**
+	 * Creates a callback which obtains decompilers from the given pool.  The pool is not
+	 * disposed when this callback is disposed.
+	 *
+	 * @param pool the decompiler pool
+	 */
+	public DecompilerCallback(DecompilerPool pool) {
+		this.pool = pool;
+		this.ownsPool = false;
 	}
 
 	/**
@@ -67,10 +78,17 @@ public abstract class DecompilerCallback<R> implements QCallback<Function, R> {
 		DecompInterface decompiler = null;
 		DecompileResults decompileResults;
 		try {
-			decompiler = pool.get();
+			decompiler = pool.acquire(monitor);
 			monitor.setMessage("Decompiling " + f.getName());
 			decompileResults = decompiler.decompileFunction(f, timeout, monitor);
 		}
+		catch (DecompileException e) {
+			// A decompiler which could not be started produces failed results
+			Program program = f.getProgram();
+			decompileResults = new DecompileResults(f, program.getLanguage(),
+				program.getCompilerSpec(), null, e.getMessage(), null,
+				DecompileProcess.DisposeState.DISPOSED_ON_STARTUP_FAILURE);
+		}
 		finally {
 			if (decompiler != null) {
 				pool.release(decompiler);
@@ -92,36 +110,12 @@ public abstract class DecompilerCallback<R> implements QCallback<Function, R> {
 	}
 
 	/**
-	 * Call this when all work is done so that the pooled decompilers can be disposed
+	 * Call this when all work is done so that the pooled decompilers can be disposed.  A pool
+	 * passed to this callback is left open for use by its other clients.
 	 */
 	public void dispose() {
-		pool.dispose();
-	}
-
-	private static class DecompilerFactory extends CountingBasicFactory<DecompInterface> {
-
-		private Program program;
-		private DecompileConfigurer configurer;
-
-		DecompilerFactory(Program program, DecompileConfigurer configurer) {
-			this.program = program;
-			this.configurer = configurer;
-		}
-
-		@Override
-		public DecompInterface doCreate(int itemNumber) throws IOException {
-
-			DecompInterface decompiler = new DecompInterface();
-
-			configurer.configure(decompiler);
-			decompiler.openProgram(program);
-
-			return decompiler;
-		}
-
-		@Override
-		public void doDispose(DecompInterface decompiler) {
-			decompiler.dispose();
+		if (ownsPool) {
+			pool.dispose();
 		}
 	}
 }
@@ -0,0 +1,364 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler.parallel;
+
+import java.util.*;
+
+import ghidra.app.decompiler.DecompInterface;
+import ghidra.app.decompiler.DecompileException;
+import ghidra.program.model.listing.Program;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import ghidra.util.timer.GTimer;
+import ghidra.util.timer.GTimerMonitor;
+
+/**
+ * A size-bounded pool of {@link DecompInterface}s which have already opened a program.
+ * Opening a program starts a native decompiler process and sends it the program's language,
+ * compiler spec and core data types, which is expensive relative to decompiling a single
+ * function.  Pooled decompilers stay open between uses, so repeated batches of decompilation
+ * (e.g., BSim signature generation or scripts that use {@link ParallelDecompiler}) only pay
+ * that startup cost once per process.
+ *
+ * <P>All decompilers within a pool are configured by the same {@link DecompileConfigurer}, so
+ * clients must not change the configuration of a decompiler obtained from a pool.
+ *
+ * <P>Clients must {@link #release(DecompInterface) release} each decompiler they
+ * {@link #acquire(TaskMonitor) acquire}, and the creator of a pool must {@link #dispose()
+ * dispose} it.
+ */
+public class DecompilerPool {
+
+	private static final long WAIT_INTERVAL_MS = 250;
+
+	private final Program program;
+	private final DecompileConfigurer configurer;
+	private int maxSize;
+	private long idleTimeout = -1;
+	private GTimerMonitor timerMonitor;
+	private boolean isDisposed;
+
+	private Deque<DecompInterface> idle = new ArrayDeque<>();
+	private Map<DecompInterface, Long> checkedOut = new IdentityHashMap<>();
+	private Map<DecompInterface, Long> startTimes = new IdentityHashMap<>();
+	private int pendingCount;	// decompilers being started
+
+	// statistics
+	private long createCount;
+	private long reuseCount;
+	private long waitCount;
+	private int peakActive;
+	private long busyNanos;
+	private long retiredLifetimeNanos;
+
+	/**
+	 * Creates a pool which must be {@link #dispose() disposed} by the caller.
+	 *
+	 * @param program the program opened by each pooled decompiler
+	 * @param configurer configures each new decompiler before the program is opened
+	 * @param maxSize maximum number of decompilers which may exist at once
+	 */
+	public DecompilerPool(Program program, DecompileConfigurer configurer, int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.program = Objects.requireNonNull(program);
+		this.configurer = Objects.requireNonNull(configurer);
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns an idle decompiler, or a newly created one if none are idle.  If the pool is at
+	 * its maximum size, this call waits for another client to release a decompiler.
+	 *
+	 * @param monitor monitor used to cancel waiting for a decompiler
+	 * @return a decompiler which has opened this pool's program
+	 * @throws DecompileException if a new decompiler could not be started, or this pool has
+	 * been disposed
+	 * @throws CancelledException if cancelled or interrupted while waiting for a decompiler
+	 */
+	public DecompInterface acquire(TaskMonitor monitor)
+			throws DecompileException, CancelledException {
+		synchronized (this) {
+			stopCleanupTimer();
+			boolean waited = false;
+			while (!isDisposed && idle.isEmpty() &&
+				startTimes.size() + pendingCount >= maxSize) {
+				if (!waited) {
+					waited = true;
+					++waitCount;
+				}
+				monitor.checkCancelled();
+				try {
+					wait(WAIT_INTERVAL_MS);
+				}
+				catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new CancelledException();
+				}
+			}
+			if (isDisposed) {
+				throw new DecompileException("Decompiler", "Decompiler pool has been disposed");
+			}
+			if (!idle.isEmpty()) {
+				DecompInterface decompiler = idle.pop();
+				++reuseCount;
+				checkOut(decompiler);
+				return decompiler;
+			}
+			// reserve the slot while the process is started outside of the lock
+			++createCount;
+			++pendingCount;
+		}
+
+		DecompInterface decompiler = null;
+		boolean disposed = false;
+		try {
+			decompiler = createDecompiler();
+		}
+		finally {
+			synchronized (this) {
+				--pendingCount;
+				disposed = isDisposed;
+				if (decompiler != null && !disposed) {
+					startTimes.put(decompiler, System.nanoTime());
+					checkOut(decompiler);
+				}
+				notifyAll();
+			}
+		}
+		if (disposed) {
+			// the pool was disposed while the process was starting
+			decompiler.dispose();
+			throw new DecompileException("Decompiler", "Decompiler pool has been disposed");
+		}
+		return decompiler;
+	}
+
+	private DecompInterface createDecompiler() throws DecompileException {
+		DecompInterface decompiler = new DecompInterface();
+		configurer.configure(decompiler);
+		if (!decompiler.openProgram(program)) {
+			String message = decompiler.getLastMessage();
+			decompiler.dispose();
+			throw new DecompileException("Decompiler",
+				"Unable to initialize the DecompilerInterface: " + message);
+		}
+		return decompiler;
+	}
+
+	private void checkOut(DecompInterface decompiler) {
+		checkedOut.put(decompiler, System.nanoTime());
+		peakActive = Math.max(peakActive, checkedOut.size());
+	}
+
+	/**
+	 * Returns a decompiler obtained from {@link #acquire(TaskMonitor)} to this pool.  The
+	 * decompiler is kept open for reuse unless this pool has been disposed or the decompiler
+	 * is no longer usable.
+	 *
+	 * @param decompiler the decompiler
+	 */
+	public void release(DecompInterface decompiler) {
+		boolean keep;
+		synchronized (this) {
+			Long checkOutTime = checkedOut.remove(decompiler);
+			if (checkOutTime == null) {
+				throw new IllegalArgumentException("Decompiler was not acquired from this pool");
+			}
+			busyNanos += System.nanoTime() - checkOutTime;
+			keep = !isDisposed && decompiler.getProgram() != null;
+			if (keep) {
+				idle.push(decompiler);
+				restartCleanupTimer();
+			}
+			else {
+				retire(decompiler);
+			}
+			notifyAll();
+		}
+		if (!keep) {
+			decompiler.dispose();
+		}
+	}
+
+	private void retire(DecompInterface decompiler) {
+		Long start = startTimes.remove(decompiler);
+		if (start != null) {
+			retiredLifetimeNanos += System.nanoTime() - start;
+		}
+	}
+
+	/**
+	 * Sets the maximum number of decompilers which may exist at once.  Idle decompilers in
+	 * excess of the new size are disposed.
+	 *
+	 * @param maxSize the maximum pool size
+	 */
+	public void setMaxSize(int maxSize) {
+		if (maxSize < 1) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		List<DecompInterface> excess = new ArrayList<>();
+		synchronized (this) {
+			this.maxSize = maxSize;
+			while (!idle.isEmpty() && startTimes.size() > maxSize) {
+				DecompInterface decompiler = idle.removeLast();
+				retire(decompiler);
+				excess.add(decompiler);
+			}
+			notifyAll();
+		}
+		excess.forEach(DecompInterface::dispose);
+	}
+
+	/**
+	 * Sets the time after the last release at which idle decompilers are disposed.  A negative
+	 * value, the default, keeps idle decompilers until this pool is disposed.
+	 *
+	 * @param timeoutMillis the idle timeout in milliseconds
+	 */
+	public synchronized void setIdleTimeout(long timeoutMillis) {
+		this.idleTimeout = timeoutMillis;
+		stopCleanupTimer();
+		if (!idle.isEmpty()) {
+			restartCleanupTimer();
+		}
+	}
+
+	/**
+	 * Disposes all idle decompilers and causes decompilers which are released later to be
+	 * disposed.  Clients waiting in {@link #acquire(TaskMonitor)} fail with a
+	 * {@link DecompileException}.
+	 */
+	public void dispose() {
+		synchronized (this) {
+			isDisposed = true;
+			stopCleanupTimer();
+			notifyAll();
+		}
+		disposeIdle();
+	}
+
+	private void disposeIdle() {
+		List<DecompInterface> list;
+		synchronized (this) {
+			list = new ArrayList<>(idle);
+			idle.clear();
+			list.forEach(this::retire);
+		}
+		list.forEach(DecompInterface::dispose);
+	}
+
+	private void stopCleanupTimer() {
+		if (timerMonitor != null) {
+			timerMonitor.cancel();
+			timerMonitor = null;
+		}
+	}
+
+	private void restartCleanupTimer() {
+		stopCleanupTimer();
+		if (idleTimeout >= 0) {
+			timerMonitor = GTimer.scheduleRunnable(idleTimeout, this::disposeIdle);
+		}
+	}
+
+	/**
+	 * @return the program opened by the decompilers in this pool
+	 */
+	public Program getProgram() {
+		return program;
+	}
+
+	/**
+	 * @return the maximum number of decompilers which may exist at once
+	 */
+	public synchronized int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of decompilers currently acquired by clients
+	 */
+	public synchronized int getActiveCount() {
+		return checkedOut.size();
+	}
+
+	/**
+	 * @return the number of open decompilers waiting to be acquired
+	 */
+	public synchronized int getIdleCount() {
+		return idle.size();
+	}
+
+	/**
+	 * @return the largest number of decompilers acquired at the same time
+	 */
+	public synchronized int getPeakActiveCount() {
+		return peakActive;
+	}
+
+	/**
+	 * @return the number of decompiler processes started by this pool
+	 */
+	public synchronized long getCreateCount() {
+		return createCount;
+	}
+
+	/**
+	 * @return the number of acquisitions satisfied by an already open decompiler
+	 */
+	public synchronized long getReuseCount() {
+		return reuseCount;
+	}
+
+	/**
+	 * @return the number of acquisitions which had to wait because the pool was full
+	 */
+	public synchronized long getWaitCount() {
+		return waitCount;
+	}
+
+	/**
+	 * Returns the fraction of the combined lifetime of this pool's decompilers during which
+	 * they were acquired by clients.  Low values indicate that the pool holds more processes
+	 * than its clients use.
+	 *
+	 * @return utilization between 0 and 1
+	 */
+	public synchronized double getUtilization() {
+		long now = System.nanoTime();
+		long lifetime = retiredLifetimeNanos;
+		long busy = busyNanos;
+		for (long startTime : startTimes.values()) {
+			lifetime += now - startTime;
+		}
+		for (long checkOutTime : checkedOut.values()) {
+			busy += now - checkOutTime;
+		}
+		return lifetime == 0 ? 0 : Math.min(1.0, (double) busy / lifetime);
+	}
+
+	@Override
+	public synchronized String toString() {
+		return String.format(
+			"DecompilerPool[%s: active=%d idle=%d peak=%d max=%d created=%d reused=%d " +
+				"waits=%d utilization=%.2f]",
+			program.getName(), checkedOut.size(), idle.size(), peakActive, maxSize, createCount,
+			reuseCount, waitCount, getUtilization());
+	}
+}
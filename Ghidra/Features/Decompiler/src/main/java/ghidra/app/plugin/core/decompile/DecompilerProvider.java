@@ -780,6 +780,7 @@ public class DecompilerProvider extends NavigatableComponentProviderAdapter
 		DockingAction refreshAction = new DockingAction("Refresh", owner) {
 			@Override
 			public void actionPerformed(ActionContext context) {
+				controller.clearResultsCache();
 				refresh();
 			}
 
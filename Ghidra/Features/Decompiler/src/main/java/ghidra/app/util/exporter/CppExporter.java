@@ -51,6 +51,7 @@ public class CppExporter extends Exporter {
 	public static final String EMIT_TYPE_DEFINITONS = "Emit Data-type Definitions";
 	public static final String FUNCTION_TAG_FILTERS = "Function Tags to Filter";
 	public static final String FUNCTION_TAG_EXCLUDE = "Function Tags Excluded";
+	public static final String USE_DECOMPILE_CACHE = "Reuse Cached Decompilations";
 
 	private static String EOL = System.getProperty("line.separator");
 
@@ -62,6 +63,8 @@ public class CppExporter extends Exporter {
 
 	private Set<FunctionTag> functionTagSet = new HashSet<>();
 	private boolean excludeMatchingTags = true;
+	private boolean useDecompileCache = false;
+	private DecompileResultsCache decompileCache;
 
 	private DecompileOptions options;
 	private boolean userSuppliedOptions = false;
@@ -97,6 +100,7 @@ public class CppExporter extends Exporter {
 		Program program = (Program) domainObj;
 
 		configureOptions(program);
+		configureDecompileCache(program);
 		configureFunctionTags(program);
 
 		if (addrSet == null) {
@@ -269,6 +273,21 @@ public class CppExporter extends Exporter {
 		}
 	}
 
+	private void configureDecompileCache(Program program) {
+		decompileCache = null;
+		if (!useDecompileCache) {
+			return;
+		}
+		File storeDirectory = DecompileResultsCache.getDefaultStoreDirectory(program);
+		if (storeDirectory == null) {
+			Msg.info(this, "Program is not in a project; decompilations will not be cached");
+			return;
+		}
+		// only the stored decompiled text is used, so no results are held in memory
+		decompileCache = new DecompileResultsCache(0);
+		decompileCache.setStoreDirectory(storeDirectory);
+	}
+
 	private void configureFunctionTags(Program program) {
 		if (StringUtils.isBlank(tagOptions)) {
 			return;
@@ -359,6 +378,7 @@ public class CppExporter extends Exporter {
 		list.add(new Option(EMIT_TYPE_DEFINITONS, Boolean.valueOf(emitDataTypeDefinitions)));
 		list.add(new Option(FUNCTION_TAG_FILTERS, tagOptions));
 		list.add(new Option(FUNCTION_TAG_EXCLUDE, Boolean.valueOf(excludeMatchingTags)));
+		list.add(new Option(USE_DECOMPILE_CACHE, Boolean.valueOf(useDecompileCache)));
 		return list;
 	}
 
@@ -385,6 +405,9 @@ public class CppExporter extends Exporter {
 				else if (optName.equals(FUNCTION_TAG_EXCLUDE)) {
 					excludeMatchingTags = ((Boolean) option.getValue()).booleanValue();
 				}
+				else if (optName.equals(USE_DECOMPILE_CACHE)) {
+					useDecompileCache = ((Boolean) option.getValue()).booleanValue();
+				}
 				else {
 					throw new OptionException("Unknown option: " + optName);
 				}
@@ -549,6 +572,15 @@ public class CppExporter extends Exporter {
 					null);
 			}
 
+			String cacheKey = null;
+			if (decompileCache != null) {
+				cacheKey = decompileCache.computeKey(decompiler, function);
+				DecompiledFunction cached = decompileCache.getDecompiledFunction(cacheKey);
+				if (cached != null) {
+					return new CPPResult(entryPoint, cached.getSignature(), cached.getC());
+				}
+			}
+
 			monitor.setMessage("Decompiling " + function.getName());
 
 			DecompileResults dr =
@@ -566,6 +598,9 @@ public class CppExporter extends Exporter {
 			}
 
 			DecompiledFunction decompiledFunction = dr.getDecompiledFunction();
+			if (cacheKey != null) {
+				decompileCache.putDecompiledFunction(cacheKey, decompiledFunction);
+			}
 			return new CPPResult(entryPoint, decompiledFunction.getSignature(),
 				decompiledFunction.getC());
 		}
@@ -0,0 +1,193 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+import org.junit.*;
+
+import ghidra.program.database.ProgramBuilder;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.pcode.PatchPackedEncode;
+import ghidra.program.model.pcode.PcodeDataTypeManager;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+
+public class DecompileCallbackTest extends AbstractGhidraHeadlessIntegrationTest {
+
+	private ProgramBuilder builder;
+	private Program program;
+	private Function function;
+	private DecompileCallbackStatistics statistics;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new ProgramBuilder("test", ProgramBuilder._X86, this);
+		builder.createMemory("code", "0x1000", 0x100);
+		builder.createMemory("next", "0x1100", 0x100);
+		builder.createUninitializedMemory("bss", "0x1200", 0x100);
+		// 1000: PUSH EBP; MOV EBP,ESP; CALL 0x1080; MOV EAX,[EBP+8]; POP EBP; RET
+		builder.setBytes("0x1000", "55 89 e5 e8 78 00 00 00 8b 45 08 5d c3", true);
+		// 1080: RET
+		builder.setBytes("0x1080", "c3", true);
+		builder.setBytes("0x10f8", "00 01 02 03 04 05 06 07");
+		builder.setBytes("0x1100", "08 09 0a 0b");
+		builder.setBytes("0x11f8", "10 11 12 13 14 15 16 17");
+		function = builder.createEmptyFunction("f", "0x1000", 13, DataType.DEFAULT);
+		builder.createEmptyFunction("g", "0x1080", 1, DataType.DEFAULT);
+		program = builder.getProgram();
+		statistics = new DecompileCallbackStatistics();
+	}
+
+	@After
+	public void tearDown() {
+		builder.dispose();
+	}
+
+	private DecompileCallback createCallback() {
+		PcodeDataTypeManager dtmanage = new PcodeDataTypeManager(program, null);
+		DecompileCallback callback = new DecompileCallback(program, program.getLanguage(),
+			program.getCompilerSpec(), dtmanage);
+		callback.setStatistics(statistics);
+		callback.setFunction(function, function.getEntryPoint(), null);
+		return callback;
+	}
+
+	private Address addr(long offset) {
+		return program.getAddressFactory().getDefaultAddressSpace().getAddress(offset);
+	}
+
+	private byte[] readDirect(long offset, int size) throws Exception {
+		byte[] bytes = new byte[size];
+		program.getMemory().getBytes(addr(offset), bytes, 0, size);
+		return bytes;
+	}
+
+	private byte[] generatePcode(DecompileCallback callback, Address address) throws Exception {
+		PatchPackedEncode encoder = new PatchPackedEncode();
+		callback.getPcode(address, encoder);
+		ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+		encoder.writeTo(encoded);
+		return encoded.toByteArray();
+	}
+
+	@Test
+	public void testReadAheadHit() throws Exception {
+		DecompileCallback callback = createCallback();
+		assertArrayEquals(readDirect(0x1000, 4), callback.getBytes(addr(0x1000), 4));
+		assertArrayEquals(readDirect(0x1008, 8), callback.getBytes(addr(0x1008), 8));
+		assertArrayEquals(readDirect(0x10fc, 4), callback.getBytes(addr(0x10fc), 4));
+		assertEquals(2, statistics.getReadAheadHits());
+	}
+
+	@Test
+	public void testPartialReadFallsBackToDirectRead() throws Exception {
+		DecompileCallback callback = createCallback();
+
+		// only 8 bytes are readable before the uninitialized block, which covers the query
+		assertArrayEquals(readDirect(0x11f8, 4), callback.getBytes(addr(0x11f8), 4));
+		assertArrayEquals(readDirect(0x11fc, 4), callback.getBytes(addr(0x11fc), 4));
+		assertEquals(1, statistics.getReadAheadHits());
+
+		// only 2 bytes are readable, so the query is answered by a direct read
+		byte[] expected = readDirect(0x11fe, 4);
+		assertArrayEquals(new byte[] { 0x16, 0x17, 0, 0 }, expected);
+		assertArrayEquals(expected, callback.getBytes(addr(0x11fe), 4));
+		assertEquals(1, statistics.getReadAheadHits());
+
+		// nothing is readable
+		assertNull(callback.getBytes(addr(0x1200), 4));
+	}
+
+	@Test
+	public void testReadSpanningBlockBoundary() throws Exception {
+		DecompileCallback callback = createCallback();
+
+		// the read-ahead window ends at the block boundary
+		assertArrayEquals(readDirect(0x1000, 4), callback.getBytes(addr(0x1000), 4));
+
+		// a query past the end of the window reads ahead again, across the boundary
+		byte[] expected = { 0x06, 0x07, 0x08, 0x09 };
+		assertArrayEquals(expected, readDirect(0x10fe, 4));
+		assertArrayEquals(expected, callback.getBytes(addr(0x10fe), 4));
+		assertEquals(0, statistics.getReadAheadHits());
+
+		assertArrayEquals(readDirect(0x1100, 4), callback.getBytes(addr(0x1100), 4));
+		assertEquals(1, statistics.getReadAheadHits());
+	}
+
+	@Test
+	public void testReadAheadResetForNextFunction() throws Exception {
+		DecompileCallback callback = createCallback();
+		callback.getBytes(addr(0x10f8), 4);
+		builder.setBytes("0x10fc", "ff ff ff ff");
+		callback.setFunction(function, function.getEntryPoint(), null);
+		assertArrayEquals(readDirect(0x10fc, 4), callback.getBytes(addr(0x10fc), 4));
+		assertEquals(0, statistics.getReadAheadHits());
+	}
+
+	@Test
+	public void testReplayedPcodeMatchesGenerated() throws Exception {
+		DecompileCallback callback = createCallback();
+		PatchPackedEncode encoder = new PatchPackedEncode();
+		InstructionIterator it = program.getListing().getInstructions(function.getBody(), true);
+		int count = 0;
+		while (it.hasNext()) {
+			Address address = it.next().getAddress();
+			byte[] response = callback.getPcodeResponse(address, encoder);
+			assertTrue(response.length > 0);
+			assertArrayEquals(generatePcode(createCallback(), address), response);
+			count++;
+		}
+		assertEquals(6, count);
+		assertEquals(0, statistics.getReusedPcodeQueries());
+
+		// a restarted analysis asks again and gets the same bytes as freshly generated p-code
+		it = program.getListing().getInstructions(function.getBody(), true);
+		while (it.hasNext()) {
+			Address address = it.next().getAddress();
+			byte[] replayed = callback.getPcodeResponse(address, encoder);
+			assertArrayEquals(generatePcode(createCallback(), address), replayed);
+		}
+		assertEquals(count, statistics.getReusedPcodeQueries());
+	}
+
+	@Test
+	public void testPcodeNotReplayedForNextFunction() throws Exception {
+		DecompileCallback callback = createCallback();
+		PatchPackedEncode encoder = new PatchPackedEncode();
+		Address call = addr(0x1003);
+		byte[] first = callback.getPcodeResponse(call, encoder);
+
+		// overriding the call's flow changes its p-code
+		int tx = program.startTransaction("Override");
+		try {
+			program.getListing().getInstructionAt(call).setFlowOverride(FlowOverride.BRANCH);
+		}
+		finally {
+			program.endTransaction(tx, true);
+		}
+		callback.setFunction(function, function.getEntryPoint(), null);
+		byte[] second = callback.getPcodeResponse(call, encoder);
+		assertFalse(Arrays.equals(first, second));
+		assertArrayEquals(generatePcode(createCallback(), call), second);
+		assertEquals(0, statistics.getReusedPcodeQueries());
+	}
+}
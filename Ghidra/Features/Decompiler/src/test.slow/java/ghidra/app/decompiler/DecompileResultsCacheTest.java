@@ -0,0 +1,185 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.*;
+
+import ghidra.program.database.ProgramBuilder;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.Program;
+import ghidra.program.model.mem.MemoryBlock;
+import ghidra.program.model.symbol.RefType;
+import ghidra.program.model.symbol.SourceType;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+
+public class DecompileResultsCacheTest extends AbstractGhidraHeadlessIntegrationTest {
+
+	private ProgramBuilder builder;
+	private Program program;
+	private Function function;
+	private DecompInterface decompiler;
+	private DecompileResultsCache cache;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new ProgramBuilder("test", ProgramBuilder._X86, this);
+
+		MemoryBlock code = builder.createMemory("code", "0x1000", 0x100);
+		builder.setWrite(code, true);
+		builder.setExecute(code, true);
+		MemoryBlock rodata = builder.createMemory("rodata", "0x2000", 0x100);
+		builder.setWrite(rodata, false);
+		MemoryBlock data = builder.createMemory("data", "0x3000", 0x100);
+		builder.setWrite(data, true);
+
+		// 1000: MOV EAX,[0x2000]
+		// 1005: MOV ECX,[0x3000]
+		// 100b: JMP 0x1010
+		// 1010: RET (outside the function body, not disassembled)
+		builder.setBytes("0x1000", "a1 00 20 00 00 8b 0d 00 30 00 00 eb 03");
+		builder.setBytes("0x1010", "c3");
+		builder.disassemble("0x1000", 13, false);
+		builder.createMemoryReference("0x1005", "0x3000", RefType.READ, SourceType.ANALYSIS, 1);
+		function = builder.createEmptyFunction("f", "0x1000", 13, DataType.DEFAULT);
+
+		program = builder.getProgram();
+		decompiler = new DecompInterface();
+		cache = new DecompileResultsCache(10);
+	}
+
+	@After
+	public void tearDown() {
+		cache.clear();
+		decompiler.dispose();
+		builder.dispose();
+	}
+
+	private String key() {
+		program.flushEvents();
+		return cache.computeKey(decompiler, function);
+	}
+
+	@Test
+	public void testUnrelatedChangeKeepsKey() throws Exception {
+		String key = key();
+		builder.setBytes("0x3080", "11 22");
+		builder.setBytes("0x1080", "90");
+		assertEquals(key, key());
+	}
+
+	@Test
+	public void testUnreferencedReadOnlyMemoryChangesKey() throws Exception {
+		String key = key();
+		builder.setBytes("0x2000", "01 02 03 04");
+		assertNotEquals(key, key());
+	}
+
+	@Test
+	public void testReferencedWritableMemoryChangesKey() throws Exception {
+		String key = key();
+		builder.setBytes("0x3000", "01 02 03 04");
+		assertNotEquals(key, key());
+	}
+
+	@Test
+	public void testTrackedRegisterChangesKey() throws Exception {
+		String key = key();
+		builder.setRegisterValue("EBX", "0x1000", "0x1000", 5);
+		assertNotEquals(key, key());
+	}
+
+	@Test
+	public void testInstructionReachedOutsideBodyChangesKey() throws Exception {
+		String key = key();
+		builder.setBytes("0x1010", "c2 04 00");
+		assertNotEquals(key, key());
+	}
+
+	@Test
+	public void testCodeAddedOutsideBodyChangesKey() throws Exception {
+		String key = key();
+		builder.disassemble("0x1010", 1, false);
+		String disassembledKey = key();
+		assertNotEquals(key, disassembledKey);
+
+		builder.withTransaction(() -> program.getListing()
+				.clearCodeUnits(builder.addr(0x1010), builder.addr(0x1010), false));
+		assertNotEquals(disassembledKey, key());
+	}
+
+	@Test
+	public void testCallFixupChangesKey() throws Exception {
+		String key = key();
+		builder.withTransaction(() -> function.setCallFixup("EH_prolog"));
+		assertNotEquals(key, key());
+	}
+
+	@Test
+	public void testCalleeCallFixupChangesKey() throws Exception {
+		// 10c0: CALL 0x10f0
+		// 10c5: RET
+		// 10f0: RET
+		builder.setBytes("0x10c0", "e8 2b 00 00 00 c3", true);
+		builder.setBytes("0x10f0", "c3", true);
+		Function callee = builder.createEmptyFunction("g", "0x10f0", 1, DataType.DEFAULT);
+		Function caller = builder.createEmptyFunction("h", "0x10c0", 6, DataType.DEFAULT);
+		program.flushEvents();
+		String key = cache.computeKey(decompiler, caller);
+
+		builder.withTransaction(() -> callee.setCallFixup("EH_prolog"));
+		program.flushEvents();
+		String fixupKey = cache.computeKey(decompiler, caller);
+		assertNotEquals(key, fixupKey);
+		assertNull(cache.getResults(caller, fixupKey));
+
+		builder.withTransaction(() -> callee.setCallFixup(null));
+		program.flushEvents();
+		assertEquals(key, cache.computeKey(decompiler, caller));
+	}
+
+	@Test
+	public void testStoreEvictsLeastRecentlyUsed() throws Exception {
+		File dir = createTempDirectory("decompcache");
+		cache.setStoreDirectory(dir);
+		DecompiledFunction decompiledFunction =
+			new DecompiledFunction("void f(void)", "void f(void)\n{\n  return;\n}\n");
+		cache.putDecompiledFunction("a", decompiledFunction);
+		cache.putDecompiledFunction("b", decompiledFunction);
+		cache.putDecompiledFunction("c", decompiledFunction);
+		long entrySize = new File(dir, "a").length();
+		long now = System.currentTimeMillis();
+		assertTrue(new File(dir, "a").setLastModified(now - 30000));
+		assertTrue(new File(dir, "b").setLastModified(now - 20000));
+		assertTrue(new File(dir, "c").setLastModified(now - 10000));
+
+		// reading "a" makes it the most recently used entry
+		assertNotNull(cache.getDecompiledFunction("a"));
+
+		// a fourth entry exceeds the limit; the store is trimmed to 3/4 of it (2.625 entries)
+		cache.setMaxStoreSize(entrySize * 7 / 2);
+		cache.putDecompiledFunction("d", decompiledFunction);
+		assertTrue(new File(dir, "a").exists());
+		assertFalse(new File(dir, "b").exists());
+		assertFalse(new File(dir, "c").exists());
+		assertTrue(new File(dir, "d").exists());
+		assertEquals(1, cache.getStoreHitCount());
+	}
+}
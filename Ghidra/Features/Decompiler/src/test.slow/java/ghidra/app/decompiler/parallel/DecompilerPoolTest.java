@@ -0,0 +1,198 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.decompiler.parallel;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.*;
+
+import org.junit.*;
+
+import ghidra.app.decompiler.*;
+import ghidra.program.database.ProgramBuilder;
+import ghidra.program.model.data.DataType;
+import ghidra.program.model.listing.Function;
+import ghidra.program.model.listing.Program;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+import ghidra.util.task.TaskMonitorAdapter;
+
+public class DecompilerPoolTest extends AbstractGhidraHeadlessIntegrationTest {
+
+	private static final long TIMEOUT_SECONDS = 30;
+
+	private ProgramBuilder builder;
+	private Program program;
+	private Function function;
+	private DecompilerPool pool;
+
+	@Before
+	public void setUp() throws Exception {
+		builder = new ProgramBuilder("test", ProgramBuilder._X86, this);
+		builder.createMemory("code", "0x1000", 0x100);
+		// 1000: MOV EAX,0x1; RET
+		builder.setBytes("0x1000", "b8 01 00 00 00 c3", true);
+		function = builder.createEmptyFunction("f", "0x1000", 6, DataType.DEFAULT);
+		program = builder.getProgram();
+	}
+
+	@After
+	public void tearDown() {
+		if (pool != null) {
+			pool.dispose();
+		}
+		builder.dispose();
+	}
+
+	private DecompilerPool createPool(int maxSize) {
+		pool = new DecompilerPool(program, decompiler -> decompiler.toggleSyntaxTree(false),
+			maxSize);
+		return pool;
+	}
+
+	private CompletableFuture<DecompInterface> acquireInBackground(TaskMonitor monitor) {
+		CompletableFuture<DecompInterface> future = new CompletableFuture<>();
+		Thread thread = new Thread(() -> {
+			try {
+				future.complete(pool.acquire(monitor));
+			}
+			catch (Throwable t) {
+				future.completeExceptionally(t);
+			}
+		}, "DecompilerPoolTest Acquire");
+		thread.start();
+		return future;
+	}
+
+	private Throwable getFailure(CompletableFuture<DecompInterface> future) throws Exception {
+		try {
+			future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			fail("Expected acquire to fail");
+			return null;
+		}
+		catch (ExecutionException e) {
+			return e.getCause();
+		}
+	}
+
+	private void waitForBlockedAcquire(CompletableFuture<DecompInterface> future) {
+		waitForCondition(() -> pool.getWaitCount() == 1, "Acquire did not wait");
+		assertFalse(future.isDone());
+	}
+
+	private void waitForDisposal(DecompInterface decompiler) {
+		// decompilers are disposed asynchronously
+		waitForCondition(() -> decompiler.getProgram() == null, "Decompiler was not disposed");
+	}
+
+	@Test
+	public void testReuse() throws Exception {
+		createPool(2);
+		DecompInterface decompiler = pool.acquire(TaskMonitor.DUMMY);
+		DecompileResults results = decompiler.decompileFunction(function, 30, TaskMonitor.DUMMY);
+		assertTrue(results.getErrorMessage(), results.decompileCompleted());
+		pool.release(decompiler);
+		assertEquals(1, pool.getIdleCount());
+
+		assertSame(decompiler, pool.acquire(TaskMonitor.DUMMY));
+		results = decompiler.decompileFunction(function, 30, TaskMonitor.DUMMY);
+		assertTrue(results.getErrorMessage(), results.decompileCompleted());
+		assertEquals(1, pool.getCreateCount());
+		assertEquals(1, pool.getReuseCount());
+		assertEquals(1, pool.getActiveCount());
+		assertEquals(0, pool.getIdleCount());
+		pool.release(decompiler);
+	}
+
+	@Test
+	public void testAcquireWaitsWhenFull() throws Exception {
+		createPool(1);
+		DecompInterface decompiler = pool.acquire(TaskMonitor.DUMMY);
+		CompletableFuture<DecompInterface> future = acquireInBackground(TaskMonitor.DUMMY);
+		waitForBlockedAcquire(future);
+
+		pool.release(decompiler);
+		assertSame(decompiler, future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertEquals(1, pool.getCreateCount());
+		assertEquals(1, pool.getPeakActiveCount());
+		pool.release(decompiler);
+	}
+
+	@Test
+	public void testCancelWhileWaiting() throws Exception {
+		createPool(1);
+		DecompInterface decompiler = pool.acquire(TaskMonitor.DUMMY);
+		TaskMonitor monitor = new TaskMonitorAdapter(true);
+		CompletableFuture<DecompInterface> future = acquireInBackground(monitor);
+		waitForBlockedAcquire(future);
+
+		monitor.cancel();
+		assertTrue(getFailure(future) instanceof CancelledException);
+
+		// the cancelled acquire must not have taken a slot
+		pool.release(decompiler);
+		assertSame(decompiler, pool.acquire(TaskMonitor.DUMMY));
+		assertEquals(1, pool.getCreateCount());
+		pool.release(decompiler);
+	}
+
+	@Test
+	public void testDisposeWhileWaiting() throws Exception {
+		createPool(1);
+		DecompInterface decompiler = pool.acquire(TaskMonitor.DUMMY);
+		CompletableFuture<DecompInterface> future = acquireInBackground(TaskMonitor.DUMMY);
+		waitForBlockedAcquire(future);
+
+		pool.dispose();
+		assertTrue(getFailure(future) instanceof DecompileException);
+		assertEquals(1, pool.getCreateCount());
+
+		// decompilers released after disposal are not kept
+		pool.release(decompiler);
+		assertEquals(0, pool.getIdleCount());
+		waitForDisposal(decompiler);
+
+		try {
+			pool.acquire(TaskMonitor.DUMMY);
+			fail("Expected acquire from a disposed pool to fail");
+		}
+		catch (DecompileException e) {
+			// expected
+		}
+		assertEquals(1, pool.getCreateCount());
+	}
+
+	@Test
+	public void testIdleTimeoutDisposesReleasedDecompilers() throws Exception {
+		createPool(2);
+		pool.setIdleTimeout(100);
+		DecompInterface decompiler = pool.acquire(TaskMonitor.DUMMY);
+		pool.release(decompiler);
+		waitForCondition(() -> pool.getIdleCount() == 0, "Idle decompiler was not disposed");
+		waitForDisposal(decompiler);
+
+		DecompInterface next = pool.acquire(TaskMonitor.DUMMY);
+		assertNotSame(decompiler, next);
+		assertEquals(2, pool.getCreateCount());
+		assertEquals(0, pool.getReuseCount());
+
+		// an acquired decompiler is not disposed by the timer
+		Thread.sleep(300);
+		assertNotNull(next.getProgram());
+		pool.release(next);
+	}
+}
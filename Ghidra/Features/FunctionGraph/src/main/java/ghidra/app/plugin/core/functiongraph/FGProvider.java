@@ -608,7 +608,7 @@ public class FGProvider extends VisualGraphComponentProvider<FGVertex, FGEdge, F
 		// Note: since we are not looping and we are using 'else if's, order is important!
 		//
 
-		if (ev.contains(RESTORED, FUNCTION_BODY_CHANGED)) {
+		if (ev.contains(RESTORED, FUNCTION_BODY_CHANGED, REFERENCES_ADDED)) {
 			if (graphDataMissing()) {
 				controller.clear();
 				return; // something really destructive has happened--give up!
@@ -0,0 +1,152 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import ghidra.app.plugin.assembler.*;
+import ghidra.pcode.emu.PcodeEmulator;
+import ghidra.pcode.emu.PcodeThread;
+import ghidra.pcode.exec.PcodeExecutorStatePiece.Reason;
+import ghidra.pcode.utils.Utils;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.lang.*;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+import ghidra.util.Msg;
+
+public class BoundPcodeEmulatorTest extends AbstractGhidraHeadlessIntegrationTest {
+	private static final int LOOP_COUNT = 100_000;
+	private static final String[] REGS = { "RAX", "RBX", "RCX", "RIP" };
+
+	private Language language;
+	private AddressSpace space;
+	private Address entry;
+	private Assembler asm;
+
+	@Before
+	public void setUpBoundTest() throws Exception {
+		language = getLanguageService().getLanguage(new LanguageID("x86:LE:64:default"));
+		space = language.getDefaultSpace();
+		entry = space.getAddress(0x00400000);
+		asm = Assemblers.getAssembler(language);
+	}
+
+	protected byte[] assembleLoop() throws Exception {
+		AssemblyBuffer buffer = new AssemblyBuffer(asm, entry);
+		buffer.assemble("MOV RCX," + LOOP_COUNT);
+		buffer.assemble("XOR RAX,RAX");
+		buffer.assemble("MOV RBX,0x1");
+		Address loop = buffer.getNext();
+		buffer.assemble("ADD RAX,RBX");
+		buffer.assemble("IMUL RBX,RBX,0x3");
+		buffer.assemble("XOR RBX,RAX");
+		buffer.assemble("DEC RCX");
+		buffer.assemble("JNZ 0x" + loop.getOffset());
+		return buffer.getBytes();
+	}
+
+	protected PcodeThread<byte[]> launch(PcodeEmulator emulator, byte[] code) {
+		emulator.getSharedState().setVar(space, entry.getOffset(), code.length, true, code);
+		PcodeThread<byte[]> thread = emulator.newThread();
+		thread.overrideCounter(entry);
+		thread.overrideContextWithDefault();
+		return thread;
+	}
+
+	protected long getReg(PcodeThread<byte[]> thread, String name) {
+		Register reg = language.getRegister(name);
+		byte[] val = thread.getState().getVar(reg, Reason.INSPECT);
+		return Utils.bytesToLong(val, reg.getNumBytes(), language.isBigEndian());
+	}
+
+	protected long time(PcodeThread<byte[]> thread, long count) {
+		long start = System.nanoTime();
+		thread.stepInstruction(count);
+		return System.nanoTime() - start;
+	}
+
+	@Test
+	public void testLoopMatchesInterpreter() throws Exception {
+		byte[] code = assembleLoop();
+		long count = 3 + 5L * LOOP_COUNT;
+
+		PcodeEmulator interpEmu = new PcodeEmulator(language);
+		PcodeThread<byte[]> interp = launch(interpEmu, code);
+		long interpNanos = time(interp, count);
+
+		BoundPcodeEmulator boundEmu = new BoundPcodeEmulator(language);
+		PcodeThread<byte[]> bound = launch(boundEmu, code);
+		long boundNanos = time(bound, count);
+
+		for (String name : REGS) {
+			assertEquals(name, getReg(interp, name), getReg(bound, name));
+		}
+		assertEquals(0, getReg(bound, "RCX"));
+
+		BoundCodeCache cache = boundEmu.getCodeCache();
+		assertEquals(8, cache.size());
+		assertEquals(count - cache.size(), cache.getHitCount());
+
+		Msg.info(this, String.format("Interpreted: %,d instructions/s",
+			count * 1_000_000_000L / Math.max(1, interpNanos)));
+		Msg.info(this, String.format("Translated: %,d instructions/s",
+			count * 1_000_000_000L / Math.max(1, boundNanos)));
+		Msg.info(this, cache);
+	}
+
+	@Test
+	public void testSelfModifyingCode() throws Exception {
+		AssemblyBuffer buffer = new AssemblyBuffer(asm, entry);
+		buffer.assemble("MOV EAX,0x1");
+		buffer.assemble("MOV byte ptr [0x" + entry.add(1).getOffset() + "],0x2");
+		buffer.assemble("JMP 0x" + entry.getOffset());
+
+		BoundPcodeEmulator emulator = new BoundPcodeEmulator(language);
+		PcodeThread<byte[]> thread = launch(emulator, buffer.getBytes());
+
+		thread.stepInstruction();
+		assertEquals(1, getReg(thread, "RAX"));
+		thread.stepInstruction(2);
+		assertEquals(entry.getOffset(), getReg(thread, "RIP"));
+		thread.stepInstruction();
+		assertEquals(2, getReg(thread, "RAX"));
+
+		assertTrue(emulator.getCodeCache().getInvalidationCount() > 0);
+	}
+
+	@Test
+	public void testStepPcodeOpMatchesInstruction() throws Exception {
+		AssemblyBuffer buffer = new AssemblyBuffer(asm, entry);
+		buffer.assemble("ADD RAX,RBX");
+
+		BoundPcodeEmulator emulator = new BoundPcodeEmulator(language);
+		PcodeThread<byte[]> thread = launch(emulator, buffer.getBytes());
+		thread.getState()
+				.setVar(language.getRegister("RBX"),
+					Utils.longToBytes(5, 8, language.isBigEndian()));
+
+		thread.stepPcodeOp();
+		while (thread.getFrame() != null) {
+			thread.stepPcodeOp();
+		}
+		assertEquals(5, getReg(thread, "RAX"));
+		assertEquals(entry.getOffset() + buffer.getBytes().length, getReg(thread, "RIP"));
+	}
+}
@@ -262,6 +262,31 @@ public class ChainedBuffer implements Buffer {
 		return (byte) (byteValue ^ maskByte);
 	}
 
+	/**
+	 * Generate the XOR'd values for a run of bytes, equivalent to applying
+	 * {@link #xorMaskByte(int, byte)} to each byte but without a per-byte mask lookup.
+	 * @param bufferOffset offset within a single chained buffer of the first byte
+	 * @param src source byte array
+	 * @param srcOffset offset of the first source byte
+	 * @param dest destination byte array, which may be the same as src
+	 * @param destOffset offset of the first destination byte
+	 * @param len number of bytes
+	 */
+	private static void xorMaskBytes(int bufferOffset, byte[] src, int srcOffset, byte[] dest,
+			int destOffset, int len) {
+		int maskIndex = bufferOffset % XOR_MASK_BYTES.length;
+		while (len > 0) {
+			int n = Math.min(len, XOR_MASK_BYTES.length - maskIndex);
+			for (int i = 0; i < n; i++) {
+				dest[destOffset + i] = (byte) (src[srcOffset + i] ^ XOR_MASK_BYTES[maskIndex + i]);
+			}
+			srcOffset += n;
+			destOffset += n;
+			len -= n;
+			maskIndex = 0;
+		}
+	}
+
 	/**
 	 * Get an XOR obfuscation mask of the specified length in support of the 
 	 * short, int and long get/put methods.
@@ -628,9 +653,7 @@ public class ChainedBuffer implements Buffer {
 				try {
 					dataBuf.get(bufferDataOffset + dataBaseOffset, data, 0, dataSize);
 					if (useXORMask) {
-						for (int i = 0; i < dataSize; i++) {
-							data[i] = xorMaskByte(bufferDataOffset + i, data[i]);
-						}
+						xorMaskBytes(bufferDataOffset, data, 0, data, 0, dataSize);
 					}
 					newDBBuf.put(newOffset, data, 0, dataSize);
 				}
@@ -711,9 +734,7 @@ public class ChainedBuffer implements Buffer {
 				try {
 					otherDataBuf.get(dbBuf.dataBaseOffset, data, 0, dataSize);
 					if (dbBuf.useXORMask) {
-						for (int n = 0; n < dataSize; n++) {
-							data[n] = xorMaskByte(n, data[n]);
-						}
+						xorMaskBytes(0, data, 0, data, 0, dataSize);
 					}
 					put(offset, data, 0, dataSize);
 				}
@@ -920,10 +941,7 @@ public class ChainedBuffer implements Buffer {
 			buffer.get(dataBaseOffset + bufferDataOffset, data, dataOffset, len);
 			bufferMgr.releaseBuffer(buffer);
 			if (useXORMask) {
-				int dataIndex = dataOffset;
-				for (int i = 0; i < len; i++, dataIndex++) {
-					data[dataIndex] = xorMaskByte(bufferDataOffset++, data[dataIndex]);
-				}
+				xorMaskBytes(bufferDataOffset, data, dataOffset, data, dataOffset, len);
 			}
 		}
 		return len;
@@ -1174,11 +1192,7 @@ public class ChainedBuffer implements Buffer {
 		int availableSpace = dataSpace - bufferDataOffset;
 		int len = availableSpace < length ? availableSpace : length;
 		if (xorData != null) {
-			int offset = bufferDataOffset;
-			int dataIndex = dataOffset;
-			for (int i = 0; i < len; i++, dataIndex++, offset++) {
-				xorData[i] = xorMaskByte(offset, data[dataIndex]);
-			}
+			xorMaskBytes(bufferDataOffset, data, dataOffset, xorData, 0, len);
 			data = xorData;
 			dataOffset = 0;
 		}
@@ -1448,9 +1462,7 @@ public class ChainedBuffer implements Buffer {
 			uninitializedDataSource.get(uninitializedDataSourceOffset + offset, data, 0, len);
 		}
 		if (useXORMask) {
-			for (int i = 0; i < len; i++) {
-				data[i] = xorMaskByte(i, data[i]);
-			}
+			xorMaskBytes(0, data, 0, data, 0, len);
 		}
 		buf.put(dataBaseOffset, data);
 	}
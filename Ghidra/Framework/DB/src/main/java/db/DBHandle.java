@@ -53,6 +53,9 @@ public class DBHandle {
 	private long checkpointNum;
 	private long lastRecoverySnapshotId;
 
+	// Odd while buffers are being checkpointed, restored or saved (see getBufferChangeCount)
+	private volatile long bufferChangeCount;
+
 	/**
 	 * Construct a temporary database handle.
 	 * The saveAs method must be used to save the database.
@@ -515,16 +518,28 @@ public class DBHandle {
 			if (bufferMgr != null && !bufferMgr.atCheckpoint()) {
 				if (commit) {
 					masterTable.flush();
-					if (bufferMgr.checkpoint()) {
-						++checkpointNum;
-						return true;
+					startBufferChange();
+					try {
+						if (bufferMgr.checkpoint()) {
+							++checkpointNum;
+							return true;
+						}
+						return false;
+					}
+					finally {
+						endBufferChange();
 					}
-					return false;
 				}
 
 				// rollback transaction
-				bufferMgr.undo(false);
-				reloadTables();
+				startBufferChange();
+				try {
+					bufferMgr.undo(false);
+					reloadTables();
+				}
+				finally {
+					endBufferChange();
+				}
 				throw new DBRollbackException();
 			}
 		}
@@ -589,10 +604,18 @@ public class DBHandle {
 	public boolean undo() throws IOException {
 		boolean success = false;
 		synchronized (this) {
-			if (canUndo() && bufferMgr.undo(true)) {
-				++checkpointNum;
-				reloadTables();
-				success = true;
+			if (canUndo()) {
+				startBufferChange();
+				try {
+					if (bufferMgr.undo(true)) {
+						++checkpointNum;
+						reloadTables();
+						success = true;
+					}
+				}
+				finally {
+					endBufferChange();
+				}
 			}
 		}
 		if (success) {
@@ -634,10 +657,18 @@ public class DBHandle {
 	public boolean redo() throws IOException {
 		boolean success = false;
 		synchronized (this) {
-			if (canRedo() && bufferMgr.redo()) {
-				++checkpointNum;
-				reloadTables();
-				success = true;
+			if (canRedo()) {
+				startBufferChange();
+				try {
+					if (bufferMgr.redo()) {
+						++checkpointNum;
+						reloadTables();
+						success = true;
+					}
+				}
+				finally {
+					endBufferChange();
+				}
 			}
 		}
 		if (success) {
@@ -751,7 +782,13 @@ public class DBHandle {
 			endTransaction(txId, true); // saved file may be corrupt on IOException
 		}
 
-		bufferMgr.save(comment, changeSet, monitor);
+		startBufferChange();
+		try {
+			bufferMgr.save(comment, changeSet, monitor);
+		}
+		finally {
+			endBufferChange();
+		}
 	}
 
 	/**
@@ -785,7 +822,13 @@ public class DBHandle {
 			addedTx = endTransaction(txId, true); // saved file may be corrupt on IOException
 		}
 
-		bufferMgr.saveAs(outFile, associateWithNewFile, monitor);
+		startBufferChange();
+		try {
+			bufferMgr.saveAs(outFile, associateWithNewFile, monitor);
+		}
+		finally {
+			endBufferChange();
+		}
 
 		if (addedTx && !associateWithNewFile) {
 			// Restore state and original databaseId
@@ -832,7 +875,13 @@ public class DBHandle {
 			endTransaction(txId, true); // saved file may be corrupt on IOException
 		}
 
-		bufferMgr.saveAs(outFile, associateWithNewFile, monitor);
+		startBufferChange();
+		try {
+			bufferMgr.saveAs(outFile, associateWithNewFile, monitor);
+		}
+		finally {
+			endBufferChange();
+		}
 	}
 
 	/**
@@ -965,6 +1014,27 @@ public class DBHandle {
 		}
 	}
 
+	/**
+	 * Get a count which is odd while buffers are being checkpointed, restored (undo, redo
+	 * or rollback) or saved, and changes each time such an operation starts or ends.
+	 * Readers which do not synchronize on this handle may read it before and after
+	 * examining buffers to detect an interfering operation, and fall back to synchronized
+	 * access if it is odd or has changed.
+	 * @return buffer change count
+	 */
+	long getBufferChangeCount() {
+		return bufferChangeCount;
+	}
+
+	// Must be invoked while synchronized on this handle, with endBufferChange in a finally
+	private void startBufferChange() {
+		++bufferChangeCount;
+	}
+
+	private void endBufferChange() {
+		++bufferChangeCount;
+	}
+
 	/**
 	 * Reload tables from database following an undo or redo.
 	 * @throws IOException thrown if IO error occurs.
@@ -1139,6 +1209,26 @@ public class DBHandle {
 		return bufferMgr.getCacheMisses();
 	}
 
+	/**
+	 * @return number of buffers evicted from the buffer cache
+	 */
+	public long getCacheEvictions() {
+		if (bufferMgr == null) {
+			throw new IllegalStateException("Database is closed");
+		}
+		return bufferMgr.getCacheEvictions();
+	}
+
+	/**
+	 * @return number of buffers read from the underlying source buffer file
+	 */
+	public long getSourceBufferReads() {
+		if (bufferMgr == null) {
+			throw new IllegalStateException("Database is closed");
+		}
+		return bufferMgr.getSourceBufferReads();
+	}
+
 	/**
 	 * @return low water mark (minimum buffer pool size)
 	 */
@@ -17,6 +17,7 @@ package db;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.NoSuchElementException;
 
 /**
@@ -119,6 +120,28 @@ public class FieldIndexTable extends IndexTable {
 		indexTable.putRecord(rec);
 	}
 
+	/**
+	 * Index keys are collected and sorted before they are added so that the index
+	 * table is populated in key order.
+	 */
+	@Override
+	void addEntries(RecordIterator records) throws IOException {
+		ArrayList<IndexField> indexKeys = new ArrayList<>();
+		while (records.hasNext()) {
+			DBRecord record = records.next();
+			Field indexedField = record.getField(indexColumn);
+			if (isSparseIndex && indexedField.isNull()) {
+				continue;
+			}
+			indexKeys.add(indexKeyType.newIndexField(indexedField, record.getKeyField()));
+		}
+		Collections.sort(indexKeys);
+		Schema indexSchema = indexTable.getSchema();
+		for (IndexField f : indexKeys) {
+			indexTable.putRecord(indexSchema.createRecord(f));
+		}
+	}
+
 	@Override
 	void deleteEntry(DBRecord record) throws IOException {
 		Field indexedField = record.getField(indexColumn);
@@ -87,6 +87,19 @@ class FixedRecNode extends LongKeyRecordNode {
 		return ENTRY_BASE_OFFSET + (index * entrySize);
 	}
 
+	/**
+	 * Copy the key and record data of all entries at and after the specified index.
+	 * Each copied entry consists of the 8-byte key followed by the fixed-length record data.
+	 * @param index first key index to be copied
+	 * @param dest destination array which must be large enough for all copied entries
+	 * @return number of entries copied
+	 */
+	int copyEntries(int index, byte[] dest) {
+		int count = keyCount - index;
+		buffer.get(getKeyOffset(index), dest, 0, count * entrySize);
+		return count;
+	}
+
 	/**
 	 * Get the record offset within the buffer
 	 * @param index key index
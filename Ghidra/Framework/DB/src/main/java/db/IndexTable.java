@@ -195,6 +195,18 @@ abstract class IndexTable {
 	 */
 	abstract void addEntry(DBRecord record) throws IOException;
 
+	/**
+	 * Add an entry to this index for each record returned by the specified iterator.
+	 * Caller is responsible for ensuring that no duplicate entries result.
+	 * @param records primary table record iterator
+	 * @throws IOException if IO error occurs
+	 */
+	void addEntries(RecordIterator records) throws IOException {
+		while (records.hasNext()) {
+			addEntry(records.next());
+		}
+	}
+
 	/**
 	 * Delete an entry from this index.
 	 * @param oldRecord deleted record
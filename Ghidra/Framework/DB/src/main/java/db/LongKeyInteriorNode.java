@@ -19,6 +19,8 @@ import java.io.IOException;
 
 import db.buffers.DataBuffer;
 import ghidra.util.Msg;
+import ghidra.util.datastruct.IntArrayList;
+import ghidra.util.datastruct.LongArrayList;
 import ghidra.util.exception.AssertException;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
@@ -88,6 +90,45 @@ class LongKeyInteriorNode extends LongKeyNode implements InteriorNode {
 		maxKeyCount = (buffer.length() - BASE) / ENTRY_SIZE;
 	}
 
+	/**
+	 * Build the interior levels of a new tree bottom-up from the ordered sequence of
+	 * nodes which make up its lowest level.  Interior nodes are filled to capacity,
+	 * except that the last node at each level retains at least two entries.
+	 * All nodes are released before returning.
+	 * @param nodeMgr table node manager.
+	 * @param keys left-most key of each child node in ascending order
+	 * @param ids buffer ID of each child node
+	 * @return root node buffer ID
+	 * @throws IOException thrown if IO error occurs
+	 */
+	static int buildTree(NodeMgr nodeMgr, LongArrayList keys, IntArrayList ids)
+			throws IOException {
+		while (ids.size() > 1) {
+			LongArrayList parentKeys = new LongArrayList();
+			IntArrayList parentIds = new IntArrayList();
+			int count = ids.size();
+			int index = 0;
+			while (index < count) {
+				LongKeyInteriorNode node = new LongKeyInteriorNode(nodeMgr);
+				int n = Math.min(node.maxKeyCount, count - index);
+				if ((count - index - n) == 1) {
+					--n; // leave two entries for last node
+				}
+				for (int i = 0; i < n; i++) {
+					node.putEntry(i, keys.getLongValue(index + i), ids.get(index + i));
+				}
+				node.setKeyCount(n);
+				parentKeys.add(keys.getLongValue(index));
+				parentIds.add(node.getBufferId());
+				index += n;
+				nodeMgr.releaseNodes();
+			}
+			keys = parentKeys;
+			ids = parentIds;
+		}
+		return ids.get(0);
+	}
+
 	void logConsistencyError(String tableName, String msg, Throwable t) {
 		Msg.debug(this, "Consistency Error (" + tableName + "): " + msg);
 		Msg.debug(this,
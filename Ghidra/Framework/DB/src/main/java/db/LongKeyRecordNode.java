@@ -19,6 +19,7 @@ import java.io.IOException;
 
 import db.buffers.DataBuffer;
 import ghidra.util.Msg;
+import ghidra.util.exception.AssertException;
 import ghidra.util.exception.CancelledException;
 import ghidra.util.task.TaskMonitor;
 
@@ -226,6 +227,27 @@ abstract class LongKeyRecordNode extends LongKeyNode implements RecordNode {
 			newBufId);
 	}
 
+	/**
+	 * Create a new leaf containing the specified record and link it as the right sibling
+	 * of this leaf, which must currently be the right-most leaf.  The tree above this leaf
+	 * is not updated; this method is intended for bottom-up tree construction only.
+	 * @param record first record to be stored within the new leaf
+	 * @return new right sibling leaf
+	 * @throws IOException thrown if an IO error occurs
+	 */
+	LongKeyRecordNode appendBulkLeaf(DBRecord record) throws IOException {
+		if (buffer.getInt(NEXT_LEAF_ID_OFFSET) >= 0) {
+			throw new AssertException();
+		}
+		LongKeyRecordNode newLeaf = createNewLeaf(buffer.getId(), -1);
+		if (!newLeaf.insertRecord(0, record)) {
+			nodeMgr.deleteNode(newLeaf);
+			throw new AssertException("Record does not fit in empty leaf");
+		}
+		buffer.putInt(NEXT_LEAF_ID_OFFSET, newLeaf.getBufferId());
+		return newLeaf;
+	}
+
 	/**
 	 * Append a leaf which contains one or more keys and update tree.  Leaf is inserted
 	 * as the new right sibling of this leaf.
@@ -29,6 +29,11 @@ import ghidra.util.exception.AssertException;
  * buffer allocations, retrievals and releases as required.   The NodeMgr
  * also performs hard caching of all buffers until the releaseNodes
  * method is invoked. 
+ * <p>
+ * A read-only node manager (see {@link #NodeMgr(NodeMgr)}) obtains its buffers
+ * with {@link BufferMgr#getSharedBuffer(int)} so that lookups may proceed without
+ * the {@link DBHandle} lock.  Such an instance is used for a single lookup by a single
+ * thread, and its nodes must never be modified.
  * 
  * Legacy Issues (prior to Ghidra 9.2):
  * <ul>
@@ -121,11 +126,15 @@ class NodeMgr {
 	private BufferMgr bufferMgr;
 	private Schema schema;
 	private String tableName;
+	private boolean readOnly;
 
 	private int leafRecordCnt = 0;
 
 	private HashMap<Integer, BTreeNode> nodeTable = new HashMap<>();
 
+	// True while any node is held (may be read without the DBHandle lock)
+	private volatile boolean inUse;
+
 	/**
 	 * Construct a node manager for a specific table.
 	 * @param table associated table
@@ -137,6 +146,18 @@ class NodeMgr {
 		this.tableName = table.getName();
 	}
 
+	/**
+	 * Construct a read-only node manager for a single lookup within the same table as
+	 * the specified node manager.
+	 * @param tableNodeMgr node manager of the table
+	 */
+	NodeMgr(NodeMgr tableNodeMgr) {
+		this.bufferMgr = tableNodeMgr.bufferMgr;
+		this.schema = tableNodeMgr.schema;
+		this.tableName = tableNodeMgr.tableName;
+		this.readOnly = true;
+	}
+
 	/**
 	 * Get the buffer manager used by this node manager.
 	 * @return BufferMgr
@@ -161,6 +182,28 @@ class NodeMgr {
 		return tableName;
 	}
 
+	/**
+	 * Determine if this node manager currently holds any nodes.  Unlike the other
+	 * methods this may be invoked without the {@link DBHandle} lock.
+	 * @return true if nodes are held
+	 */
+	boolean isInUse() {
+		return inUse;
+	}
+
+	private DataBuffer getBuffer(int bufferId) throws IOException {
+		return readOnly ? bufferMgr.getSharedBuffer(bufferId) : bufferMgr.getBuffer(bufferId);
+	}
+
+	private void releaseBuffer(DataBuffer buf) throws IOException {
+		if (readOnly) {
+			bufferMgr.releaseSharedBuffer(buf);
+		}
+		else {
+			bufferMgr.releaseBuffer(buf);
+		}
+	}
+
 	/**
 	 * Release all nodes held by this node manager.
 	 * This method must be invoked before a database transaction can be committed.
@@ -172,9 +215,10 @@ class NodeMgr {
 			if (node instanceof RecordNode) {
 				leafRecordCnt -= node.getKeyCount();
 			}
-			bufferMgr.releaseBuffer(node.getBuffer());
+			releaseBuffer(node.getBuffer());
 		}
 		nodeTable = new HashMap<>();
+		inUse = false;
 		int result = -leafRecordCnt;
 		leafRecordCnt = 0;
 		return result;
@@ -196,7 +240,7 @@ class NodeMgr {
 		if (node instanceof RecordNode) {
 			leafRecordCnt -= node.getKeyCount();
 		}
-		bufferMgr.releaseBuffer(node.getBuffer());
+		releaseBuffer(node.getBuffer());
 		nodeTable.remove(bufferId);
 	}
 
@@ -206,6 +250,7 @@ class NodeMgr {
 	 * @param node a new node.
 	 */
 	void addNode(BTreeNode node) {
+		inUse = true;
 		nodeTable.put(node.getBufferId(), node);
 	}
 
@@ -215,6 +260,9 @@ class NodeMgr {
 	 * @throws IOException thrown if an IO error occurs
 	 */
 	void deleteNode(BTreeNode node) throws IOException {
+		if (readOnly) {
+			throw new AssertException("Read-only node manager");
+		}
 		int bufferId = node.getBufferId();
 		nodeTable.remove(bufferId);
 		bufferMgr.releaseBuffer(node.getBuffer());
@@ -254,7 +302,7 @@ class NodeMgr {
 			return node;
 		}
 
-		DataBuffer buf = bufferMgr.getBuffer(bufferId);
+		DataBuffer buf = getBuffer(bufferId);
 		int nodeType = getNodeType(buf);
 		switch (nodeType) {
 			case LONGKEY_VAR_REC_NODE:
@@ -269,7 +317,7 @@ class NodeMgr {
 				node = new LongKeyInteriorNode(this, buf);
 				break;
 			default:
-				bufferMgr.releaseBuffer(buf);
+				releaseBuffer(buf);
 				throw new AssertException(
 					"Unexpected Node Type (" + nodeType + ") found, expecting LongKeyNode");
 		}
@@ -289,7 +337,7 @@ class NodeMgr {
 			return node;
 		}
 
-		DataBuffer buf = bufferMgr.getBuffer(bufferId);
+		DataBuffer buf = getBuffer(bufferId);
 		int nodeType = getNodeType(buf);
 		switch (nodeType) {
 			case FIXEDKEY_VAR_REC_NODE:
@@ -304,7 +352,7 @@ class NodeMgr {
 				node = new FixedKeyInteriorNode(this, buf);
 				break;
 			default:
-				bufferMgr.releaseBuffer(buf);
+				releaseBuffer(buf);
 				throw new IOException(
 					"Unexpected Node Type (" + nodeType + ") found, expecting FixedKeyNode");
 		}
@@ -324,7 +372,7 @@ class NodeMgr {
 			return node;
 		}
 
-		DataBuffer buf = bufferMgr.getBuffer(bufferId);
+		DataBuffer buf = getBuffer(bufferId);
 		int nodeType = getNodeType(buf);
 		switch (nodeType) {
 			case VARKEY_REC_NODE:
@@ -335,7 +383,7 @@ class NodeMgr {
 				node = new VarKeyInteriorNode(this, buf);
 				break;
 			default:
-				bufferMgr.releaseBuffer(buf);
+				releaseBuffer(buf);
 				throw new AssertException(
 					"Unexpected Node Type (" + nodeType + ") found, expecting VarKeyNode");
 		}
@@ -0,0 +1,98 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db;
+
+import java.io.IOException;
+
+/**
+ * <code>RecordCursor</code> provides forward iteration over the records within a table
+ * where the column values of the current record are read in place instead of through a
+ * {@link DBRecord}.  When the underlying table has a fixed-length schema, primitive column
+ * values are decoded directly from a copy of the stored record data and no objects are
+ * created per record.
+ * <p>
+ * The current record position is established by {@link #next()}.  Column values and key may
+ * only be read while positioned on a record.
+ */
+public interface RecordCursor {
+
+	/**
+	 * Advance to the next record.
+	 * @return true if positioned on the next record, false if no more records are available
+	 * @throws IOException thrown if an IO error occurs
+	 */
+	public boolean next() throws IOException;
+
+	/**
+	 * Get the primary key of the current record.
+	 * @return current record key
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public long getKey();
+
+	/**
+	 * Get the long value of the specified column for the current record.
+	 * @param columnIndex column index
+	 * @return column value
+	 * @throws IllegalFieldAccessException if column does not support long data access
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public long getLongValue(int columnIndex);
+
+	/**
+	 * Get the integer value of the specified column for the current record.
+	 * @param columnIndex column index
+	 * @return column value
+	 * @throws IllegalFieldAccessException if column does not support integer data access
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public int getIntValue(int columnIndex);
+
+	/**
+	 * Get the short value of the specified column for the current record.
+	 * @param columnIndex column index
+	 * @return column value
+	 * @throws IllegalFieldAccessException if column does not support short data access
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public short getShortValue(int columnIndex);
+
+	/**
+	 * Get the byte value of the specified column for the current record.
+	 * @param columnIndex column index
+	 * @return column value
+	 * @throws IllegalFieldAccessException if column does not support byte data access
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public byte getByteValue(int columnIndex);
+
+	/**
+	 * Get the boolean value of the specified column for the current record.
+	 * @param columnIndex column index
+	 * @return column value
+	 * @throws IllegalFieldAccessException if column does not support boolean data access
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public boolean getBooleanValue(int columnIndex);
+
+	/**
+	 * Materialize the current record.  A new record instance is returned for each invocation.
+	 * @return current record
+	 * @throws IOException thrown if an IO error occurs
+	 * @throws IllegalStateException if not positioned on a record
+	 */
+	public DBRecord getRecord() throws IOException;
+}
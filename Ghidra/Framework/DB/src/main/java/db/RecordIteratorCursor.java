@@ -0,0 +1,86 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db;
+
+import java.io.IOException;
+
+/**
+ * <code>RecordIteratorCursor</code> adapts a {@link RecordIterator} to the
+ * {@link RecordCursor} interface.  Each record is materialized by the underlying
+ * iterator, so this implementation is used where in-place record access is not supported
+ * (e.g., variable-length schemas).
+ */
+public class RecordIteratorCursor implements RecordCursor {
+
+	private final RecordIterator iterator;
+	private DBRecord record;
+
+	/**
+	 * Construct a cursor which returns the remaining records of the specified iterator.
+	 * @param iterator record iterator
+	 */
+	public RecordIteratorCursor(RecordIterator iterator) {
+		this.iterator = iterator;
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		record = iterator.hasNext() ? iterator.next() : null;
+		return record != null;
+	}
+
+	private DBRecord getCurrentRecord() {
+		if (record == null) {
+			throw new IllegalStateException("Cursor not positioned on a record");
+		}
+		return record;
+	}
+
+	@Override
+	public long getKey() {
+		return getCurrentRecord().getKey();
+	}
+
+	@Override
+	public long getLongValue(int columnIndex) {
+		return getCurrentRecord().getLongValue(columnIndex);
+	}
+
+	@Override
+	public int getIntValue(int columnIndex) {
+		return getCurrentRecord().getIntValue(columnIndex);
+	}
+
+	@Override
+	public short getShortValue(int columnIndex) {
+		return getCurrentRecord().getShortValue(columnIndex);
+	}
+
+	@Override
+	public byte getByteValue(int columnIndex) {
+		return getCurrentRecord().getByteValue(columnIndex);
+	}
+
+	@Override
+	public boolean getBooleanValue(int columnIndex) {
+		return getCurrentRecord().getBooleanValue(columnIndex);
+	}
+
+	@Override
+	public DBRecord getRecord() {
+		return getCurrentRecord().copy();
+	}
+}
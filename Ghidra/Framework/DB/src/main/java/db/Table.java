@@ -20,26 +20,33 @@ import java.util.*;
 
 import db.Field.UnsupportedFieldException;
 import ghidra.util.Msg;
-import ghidra.util.datastruct.IntObjectHashtable;
+import ghidra.util.datastruct.*;
 import ghidra.util.exception.*;
 import ghidra.util.task.TaskMonitor;
 
 /**
  * Table implementation class.
  * NOTE: Most public methods are synchronized on the associated DBHandle instance
- * to prevent concurrent modification by multiple threads.
+ * to prevent concurrent modification by multiple threads.  Single record lookups
+ * ({@link #getRecord(long)}, {@link #hasRecord(long)} and their {@link Field} key forms)
+ * first attempt to read shared buffers without the DBHandle lock, so that concurrent
+ * readers do not serialize, and fall back to the synchronized lookup if the table
+ * is being modified or restored.
  */
 public class Table {
 
+	// Result of readShared when the lookup must be repeated while synchronized
+	private static final Object SHARED_READ_FAILED = new Object();
+
 	private DBHandle db;
 
 	private TableRecord tableRecord;
 
 	private Schema schema;
 
-	private NodeMgr nodeMgr;
+	private volatile NodeMgr nodeMgr;
 
-	private int rootBufferId = -1;
+	private volatile int rootBufferId = -1;
 	private int recordCount;
 	private long maximumKey;
 
@@ -146,13 +153,66 @@ public class Table {
 	}
 
 	private BTreeNode getBTreeNode(int bufferId) throws IOException {
+		return getBTreeNode(nodeMgr, bufferId);
+	}
+
+	private BTreeNode getBTreeNode(NodeMgr mgr, int bufferId) throws IOException {
 		if (schema.useLongKeyNodes()) {
-			return nodeMgr.getLongKeyNode(bufferId);
+			return mgr.getLongKeyNode(bufferId);
 		}
 		if (schema.useFixedKeyNodes()) {
-			return nodeMgr.getFixedKeyNode(bufferId);
+			return mgr.getFixedKeyNode(bufferId);
+		}
+		return mgr.getVarKeyNode(bufferId);
+	}
+
+	/**
+	 * Lookup performed by {@link Table#readShared(SharedLookup)} on a root node
+	 * @param <T> lookup result type
+	 */
+	@FunctionalInterface
+	private interface SharedLookup<T> {
+		T lookup(BTreeNode rootNode) throws IOException;
+	}
+
+	/**
+	 * Perform a read-only lookup without the DBHandle lock using shared buffers
+	 * (see {@link db.buffers.BufferMgr#getSharedBuffer(int)}).  The tree cannot be
+	 * modified while its root buffer is pinned, so once the root has been pinned the
+	 * lookup only proceeds if no modification, undo/redo or checkpoint of the table was
+	 * in progress at that time.
+	 * @param lookup lookup to be performed on the root node
+	 * @return lookup result, or {@link #SHARED_READ_FAILED} if the lookup must be
+	 * repeated while synchronized on the DBHandle (any error is also reported that way)
+	 */
+	private Object readShared(SharedLookup<?> lookup) {
+		NodeMgr tableNodeMgr = nodeMgr;
+		int rootId = rootBufferId;
+		long changeCount = db.getBufferChangeCount();
+		if (tableNodeMgr == null || rootId < 0 || (changeCount & 1) != 0 ||
+			Thread.holdsLock(db) || tableNodeMgr.isInUse()) {
+			return SHARED_READ_FAILED;
+		}
+		NodeMgr readNodeMgr = new NodeMgr(tableNodeMgr);
+		try {
+			BTreeNode rootNode = getBTreeNode(readNodeMgr, rootId);
+			if (rootBufferId != rootId || tableNodeMgr.isInUse() ||
+				db.getBufferChangeCount() != changeCount) {
+				return SHARED_READ_FAILED;
+			}
+			return lookup.lookup(rootNode);
+		}
+		catch (IOException | RuntimeException e) {
+			return SHARED_READ_FAILED;
+		}
+		finally {
+			try {
+				readNodeMgr.releaseNodes();
+			}
+			catch (IOException | RuntimeException e) {
+				// buffer manager disposed - reported by synchronized lookup
+			}
 		}
-		return nodeMgr.getVarKeyNode(bufferId);
 	}
 
 	/**
@@ -643,6 +703,11 @@ public class Table {
 	 * @throws IOException thrown if IO error occurs
 	 */
 	public boolean hasRecord(long key) throws IOException {
+		Object shared = readShared(
+			rootNode -> ((LongKeyNode) rootNode).getLeafNode(key).getKeyIndex(key) >= 0);
+		if (shared != SHARED_READ_FAILED) {
+			return (Boolean) shared;
+		}
 		synchronized (db) {
 			if (rootBufferId < 0) {
 				return false;
@@ -666,10 +731,15 @@ public class Table {
 	 * @throws IOException throw if an IO Error occurs
 	 */
 	public boolean hasRecord(Field key) throws IOException {
+		if (schema.useLongKeyNodes()) {
+			return hasRecord(key.getLongValue());
+		}
+		Object shared = readShared(
+			rootNode -> ((FieldKeyNode) rootNode).getLeafNode(key).getKeyIndex(key) >= 0);
+		if (shared != SHARED_READ_FAILED) {
+			return (Boolean) shared;
+		}
 		synchronized (db) {
-			if (schema.useLongKeyNodes()) {
-				return hasRecord(key.getLongValue());
-			}
 			if (rootBufferId < 0) {
 				return false;
 			}
@@ -693,6 +763,11 @@ public class Table {
 	 * @throws IOException throw if an IO Error occurs
 	 */
 	public DBRecord getRecord(long key) throws IOException {
+		Object shared = readShared(
+			rootNode -> ((LongKeyNode) rootNode).getLeafNode(key).getRecord(key, schema));
+		if (shared != SHARED_READ_FAILED) {
+			return (DBRecord) shared;
+		}
 		synchronized (db) {
 			if (rootBufferId < 0) {
 				return null;
@@ -715,13 +790,18 @@ public class Table {
 	 * @throws IOException throw if an IO Error occurs
 	 */
 	public DBRecord getRecord(Field key) throws IOException {
+		if (key instanceof LongField) {
+			return getRecord(key.getLongValue());
+		}
+		Object shared = readShared(
+			rootNode -> ((FieldKeyNode) rootNode).getLeafNode(key).getRecord(key, schema));
+		if (shared != SHARED_READ_FAILED) {
+			return (DBRecord) shared;
+		}
 		synchronized (db) {
 			if (rootBufferId < 0) {
 				return null;
 			}
-			if (key instanceof LongField) {
-				return getRecord(key.getLongValue());
-			}
 			FieldKeyRecordNode leaf;
 			try {
 				if (key instanceof FixedField) {
@@ -951,6 +1031,107 @@ public class Table {
 		}
 	}
 
+	/**
+	 * Load a stream of new records into this table.  If this table is empty and uses
+	 * long keys the underlying BTree is built bottom-up, filling each leaf and interior node
+	 * to capacity and avoiding the repeated node splits incurred by {@link #putRecord(DBRecord)}.
+	 * Secondary indexes are then populated in a single pass over the loaded records.
+	 * Otherwise, each record is simply stored using {@link #putRecord(DBRecord)}.
+	 * <p>
+	 * Records must be supplied in strictly ascending key order.  If an out-of-order record
+	 * is encountered an {@link IllegalArgumentException} is thrown and only those records
+	 * which preceded it will have been added.
+	 * @param records record iterator which returns records in ascending key order
+	 * @throws IOException thrown if an IO error occurs
+	 * @throws IllegalArgumentException if records are not in ascending key order
+	 */
+	public void bulkLoad(Iterator<DBRecord> records) throws IOException {
+		synchronized (db) {
+			db.checkTransaction();
+			if (!schema.useLongKeyNodes() || rootBufferId >= 0) {
+				while (records.hasNext()) {
+					putRecord(records.next());
+				}
+				return;
+			}
+			++modCount;
+			try {
+				bulkLoadLongKeyRecords(records);
+			}
+			finally {
+				if (isIndexed && rootBufferId >= 0) {
+					try {
+						for (int indexedColumn : indexedColumns) {
+							IndexTable indexTable = secondaryIndexes.get(indexedColumn);
+							indexTable.addEntries(iterator());
+						}
+					}
+					finally {
+						nodeMgr.releaseNodes();
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Build a new long-key BTree bottom-up from a sorted record stream (requires DBHandle lock).
+	 * The tree is completed from those records successfully loaded even if an error occurs.
+	 * @param records record iterator which returns records in ascending key order
+	 * @throws IOException throw if an IO Error occurs
+	 */
+	private void bulkLoadLongKeyRecords(Iterator<DBRecord> records) throws IOException {
+		LongArrayList leafKeys = new LongArrayList();
+		IntArrayList leafIds = new IntArrayList();
+		LongKeyRecordNode leaf = null;
+		int loadedCount = 0;
+		long lastKey = 0;
+		try {
+			while (records.hasNext()) {
+				DBRecord record = records.next();
+				long recKey = record.getKey();
+				if (leaf == null) {
+					leaf = LongKeyRecordNode.createRecordNode(nodeMgr, schema);
+					if (!leaf.insertRecord(0, record)) {
+						nodeMgr.deleteNode(leaf);
+						throw new AssertException("Record does not fit in empty leaf");
+					}
+					leafKeys.add(recKey);
+					leafIds.add(leaf.getBufferId());
+				}
+				else if (recKey <= lastKey) {
+					throw new IllegalArgumentException(
+						"Bulk load records must be in ascending key order: " + recKey);
+				}
+				else if (!leaf.insertRecord(leaf.getKeyCount(), record)) {
+					// Leaf is full - start next leaf and release completed leaf
+					int nextLeafId = leaf.appendBulkLeaf(record).getBufferId();
+					leafKeys.add(recKey);
+					leafIds.add(nextLeafId);
+					loadedCount += nodeMgr.releaseNodes();
+					leaf = (LongKeyRecordNode) nodeMgr.getLongKeyNode(nextLeafId);
+				}
+				lastKey = recKey;
+			}
+		}
+		finally {
+			try {
+				loadedCount += nodeMgr.releaseNodes();
+				if (leafIds.size() != 0) {
+					rootBufferId = LongKeyInteriorNode.buildTree(nodeMgr, leafKeys, leafIds);
+					tableRecord.setRootBufferId(rootBufferId);
+					maximumKey = Math.max(maximumKey, lastKey);
+					tableRecord.setMaxKey(maximumKey);
+					recordCount += loadedCount;
+					tableRecord.setRecordCount(recordCount);
+				}
+			}
+			finally {
+				nodeMgr.releaseNodes();
+			}
+		}
+	}
+
 	/**
 	 * Store a record which uses a long key (requires DBHandle lock)
 	 * @param record recore to be inserted or updated
@@ -1869,6 +2050,42 @@ public class Table {
 		}
 	}
 
+	/**
+	 * Get a cursor over all records in ascending key order.
+	 * @return record cursor
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if long keys are not in use
+	 * @see #cursor(long, long)
+	 */
+	public RecordCursor cursor() throws IOException {
+		return cursor(Long.MIN_VALUE, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Get a cursor over the records whose primary key is within the specified range, in
+	 * ascending key order.  If this table has a fixed-length schema, column values are read
+	 * in place and no {@link DBRecord} is created per record; the records of each leaf node are
+	 * copied when the cursor first enters it, so changes to records within that leaf made while
+	 * the cursor is positioned there will not be visible.  Otherwise, the returned cursor
+	 * materializes each record.
+	 * @param minKey the minimum primary key.
+	 * @param maxKey the maximum primary key.
+	 * @return record cursor
+	 * @throws IOException if an I/O error occurs.
+	 * @throws IllegalArgumentException if long keys are not in use
+	 */
+	public RecordCursor cursor(long minKey, long maxKey) throws IOException {
+		synchronized (db) {
+			if (!schema.useLongKeyNodes()) {
+				throw new IllegalArgumentException("Field key required");
+			}
+			if (schema.isVariableLength()) {
+				return new RecordIteratorCursor(new LongKeyRecordIterator(minKey, maxKey, minKey));
+			}
+			return new FixedRecordCursor(minKey, maxKey);
+		}
+	}
+
 	/**
 	 * Iterate over the records in ascending sorted order.  Sorting occurs on the primary key value
 	 * starting at the specified startKey.
@@ -2026,6 +2243,189 @@ public class Table {
 		}
 	}
 
+	/**
+	 * A RecordCursor class for use with fixed-length records contained within
+	 * FixedRecNode leaves.  The entries of one leaf at a time are copied into a reusable
+	 * byte array from which key and column values are decoded.
+	 */
+	private class FixedRecordCursor implements RecordCursor {
+
+		private final int entrySize;
+		private final int[] columnOffsets; // column data offset within entry
+		private final Field[] columnTypes;
+		private final long maxKey;
+		private final byte[] entryData;
+		private final BinaryDataBuffer entryBuffer;
+
+		private int entryCount; // number of entries within entryData
+		private int entryOffset = -1; // offset of current entry, -1 if not positioned
+		private long nextKey; // key at which to resume with next leaf
+		private boolean done;
+
+		/**
+		 * Construct a record cursor over a key range. (requires DBHandle lock)
+		 * @param minKey minimum allowed primary key.
+		 * @param maxKey maximum allowed primary key.
+		 */
+		private FixedRecordCursor(long minKey, long maxKey) {
+			this.maxKey = maxKey;
+			nextKey = minKey;
+			done = minKey > maxKey;
+			columnTypes = schema.getFields();
+			columnOffsets = new int[columnTypes.length];
+			int offset = 8; // long key precedes record data
+			for (int i = 0; i < columnTypes.length; i++) {
+				columnOffsets[i] = offset;
+				offset += columnTypes[i].length();
+			}
+			entrySize = offset;
+			entryData = new byte[nodeMgr.getBufferMgr().getBufferSize()];
+			entryBuffer = new BinaryDataBuffer(entryData);
+		}
+
+		@Override
+		public boolean next() throws IOException {
+			if (entryOffset >= 0) {
+				entryOffset += entrySize;
+			}
+			if (entryOffset < 0 || entryOffset >= entryCount * entrySize) {
+				if (!loadNextLeaf()) {
+					entryOffset = -1;
+					return false;
+				}
+				entryOffset = 0;
+			}
+			if (entryBuffer.getLong(entryOffset) > maxKey) {
+				done = true;
+				entryOffset = -1;
+				return false;
+			}
+			return true;
+		}
+
+		/**
+		 * Copy the entries of the leaf which contains the next key.
+		 * The leaf is always located by key since the table may have changed.
+		 * @return true if one or more entries were loaded
+		 * @throws IOException thrown if IO error occurs
+		 */
+		private boolean loadNextLeaf() throws IOException {
+			if (done) {
+				return false;
+			}
+			synchronized (db) {
+				if (rootBufferId < 0 || nodeMgr == null) {
+					done = true;
+					return false;
+				}
+				try {
+					LongKeyNode rootNode = nodeMgr.getLongKeyNode(rootBufferId);
+					LongKeyRecordNode leaf = rootNode.getLeafNode(nextKey);
+					int index = leaf.getKeyIndex(nextKey);
+					if (index < 0) {
+						index = -index - 1;
+					}
+					if (index == leaf.keyCount) {
+						leaf = leaf.getNextLeaf();
+						index = 0;
+					}
+					if (leaf == null || leaf.keyCount == 0) {
+						done = true;
+						return false;
+					}
+					entryCount = ((FixedRecNode) leaf).copyEntries(index, entryData);
+					long lastKey = leaf.getKey(leaf.keyCount - 1);
+					if (lastKey >= maxKey) {
+						done = true;
+					}
+					else {
+						nextKey = lastKey + 1;
+					}
+					return true;
+				}
+				finally {
+					nodeMgr.releaseNodes();
+				}
+			}
+		}
+
+		private int getEntryOffset() {
+			if (entryOffset < 0) {
+				throw new IllegalStateException("Cursor not positioned on a record");
+			}
+			return entryOffset;
+		}
+
+		private int getColumnOffset(int columnIndex) {
+			return getEntryOffset() + columnOffsets[columnIndex];
+		}
+
+		@Override
+		public long getKey() {
+			return entryBuffer.getLong(getEntryOffset());
+		}
+
+		@Override
+		public long getLongValue(int columnIndex) {
+			int offset = getColumnOffset(columnIndex);
+			switch (columnTypes[columnIndex].getFieldType()) {
+				case Field.LONG_TYPE:
+					return entryBuffer.getLong(offset);
+				case Field.INT_TYPE:
+					return entryBuffer.getInt(offset);
+				case Field.SHORT_TYPE:
+					return entryBuffer.getShort(offset);
+				case Field.BYTE_TYPE:
+				case Field.BOOLEAN_TYPE:
+					return entryBuffer.getByte(offset);
+				default:
+					throw new IllegalFieldAccessException();
+			}
+		}
+
+		@Override
+		public int getIntValue(int columnIndex) {
+			int offset = getColumnOffset(columnIndex);
+			checkFieldType(columnIndex, Field.INT_TYPE);
+			return entryBuffer.getInt(offset);
+		}
+
+		@Override
+		public short getShortValue(int columnIndex) {
+			int offset = getColumnOffset(columnIndex);
+			checkFieldType(columnIndex, Field.SHORT_TYPE);
+			return entryBuffer.getShort(offset);
+		}
+
+		@Override
+		public byte getByteValue(int columnIndex) {
+			int offset = getColumnOffset(columnIndex);
+			checkFieldType(columnIndex, Field.BYTE_TYPE);
+			return entryBuffer.getByte(offset);
+		}
+
+		@Override
+		public boolean getBooleanValue(int columnIndex) {
+			int offset = getColumnOffset(columnIndex);
+			checkFieldType(columnIndex, Field.BOOLEAN_TYPE);
+			return entryBuffer.getByte(offset) != 0;
+		}
+
+		private void checkFieldType(int columnIndex, byte fieldType) {
+			if (columnTypes[columnIndex].getFieldType() != fieldType) {
+				throw new IllegalFieldAccessException();
+			}
+		}
+
+		@Override
+		public DBRecord getRecord() throws IOException {
+			int offset = getEntryOffset();
+			DBRecord record = schema.createRecord(entryBuffer.getLong(offset));
+			record.read(entryBuffer, offset + 8);
+			return record;
+		}
+	}
+
 	/**
 	 * A RecordIterator class for use with table data contained within LeafNode's.
 	 */
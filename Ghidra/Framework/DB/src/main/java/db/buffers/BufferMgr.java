@@ -40,17 +40,56 @@ public class BufferMgr {
 	private static boolean alwaysPreCache =
 		SystemUtilities.getBooleanProperty(ALWAYS_PRECACHE_PROPERTY, false);
 
+	/**
+	 * System property which specifies the default {@link CachePolicy} name
+	 * (e.g., db.cache.policy=SCAN_RESISTANT).
+	 */
+	public static final String CACHE_POLICY_PROPERTY = "db.cache.policy";
+
+	/**
+	 * System property which specifies the global memory cache budget in bytes shared by all
+	 * open buffer managers (see {@link #setGlobalCacheBudget(long)}).
+	 */
+	public static final String GLOBAL_CACHE_BUDGET_PROPERTY = "db.cache.budget";
+
+	/**
+	 * <code>CachePolicy</code> identifies the replacement policy used for the in-memory
+	 * buffer cache.
+	 */
+	public enum CachePolicy {
+		/**
+		 * Least-recently-used buffers are evicted first.
+		 */
+		LRU,
+		/**
+		 * A midpoint-insertion LRU where newly loaded buffers enter the old end of the cache
+		 * and are only moved to the young end when requested again while cached.  A single
+		 * sequential scan of a large table will therefore not flush frequently used buffers.
+		 */
+		SCAN_RESISTANT;
+	}
+
+	private static CachePolicy defaultCachePolicy = getDefaultCachePolicy();
+
+	private static volatile long globalCacheBudget =
+		Long.getLong(GLOBAL_CACHE_BUDGET_PROPERTY, 0);
+	private static volatile int openInstanceCount = 0;
+
 	public static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
 	public static final int DEFAULT_CHECKPOINT_COUNT = 10;
 	public static final int DEFAULT_CACHE_SIZE = 4 * 1024 * 1024;
 	private static final int MINIMUM_CACHE_SIZE = 64 * 1024;
 
+	// Portion (in eighths) of a scan-resistant cache reserved for re-referenced buffers
+	private static final int YOUNG_CACHE_EIGHTHS = 5;
+
 	private static final String CACHE_FILE_PREFIX = "ghidra";
 	private static final String CACHE_FILE_EXT = ".cache";
 
-	// Dummy node id's for Head and Tail nodes
+	// Dummy node id's for Head, Tail and cache Midpoint nodes
 	private static final int HEAD = -1;
 	private static final int TAIL = -2;
+	private static final int MIDPOINT = -3;
 
 	private static HashSet<BufferMgr> openInstances;
 
@@ -78,10 +117,25 @@ public class BufferMgr {
 	 */
 	private BufferNode cacheHead;
 	private BufferNode cacheTail;
+
+	/**
+	 * Separates the young and old portions of the cache list when the
+	 * {@link CachePolicy#SCAN_RESISTANT} policy is in use, otherwise null.
+	 */
+	private BufferNode cacheMidpoint;
+	private int youngCount = 0;
+
 	private int cacheSize = 0;
 	private int buffersOnHand = 0;
 	private int lockCount = 0;
 
+	/**
+	 * Number of outstanding shared buffer locks (see {@link #getSharedBuffer(int)}) and
+	 * the number of threads currently waiting for a buffer lock to be released.
+	 */
+	private int sharedLockCount = 0;
+	private int lockWaitCount = 0;
+
 	/**
 	 * Available memory cache buffers
 	 */
@@ -90,6 +144,10 @@ public class BufferMgr {
 	// Cache statistics data
 	private long cacheHits = 0; // buffer requests satisified by memory cache
 	private long cacheMisses = 0; // buffer requests not satisified by memory cache
+	private long cacheEvictions = 0; // buffers evicted from memory cache
+	private long sourceReads = 0; // buffers read from source file
+	private long preCacheCount = 0; // buffers added to disk cache by pre-cache
+	private long preCacheHits = 0; // buffer requests satisfied by pre-cached buffers
 	private int lowWaterMark = -1; // lowest buffer cache point
 
 	/**
@@ -228,6 +286,7 @@ public class BufferMgr {
 		cacheTail = new BufferNode(TAIL, -1);
 		cacheHead.nextCached = cacheTail;
 		cacheTail.prevCached = cacheHead;
+		setCachePolicy(defaultCachePolicy);
 
 		// Create disk cache file
 		cacheFile = new LocalBufferFile(bufferSize, CACHE_FILE_PREFIX, CACHE_FILE_EXT);
@@ -254,6 +313,77 @@ public class BufferMgr {
 		}
 	}
 
+	private static CachePolicy getDefaultCachePolicy() {
+		String policyName = System.getProperty(CACHE_POLICY_PROPERTY);
+		if (policyName != null) {
+			try {
+				return CachePolicy.valueOf(policyName.trim().toUpperCase());
+			}
+			catch (IllegalArgumentException e) {
+				Msg.warn(BufferMgr.class, "Unsupported " + CACHE_POLICY_PROPERTY + ": " + policyName);
+			}
+		}
+		return CachePolicy.LRU;
+	}
+
+	/**
+	 * Set the global memory cache budget shared by all open buffer managers.  When set,
+	 * each buffer manager will limit its memory cache to the lesser of its own cache size
+	 * and an equal share of the global budget.  Caches which exceed a reduced limit are
+	 * trimmed gradually as buffers are requested.
+	 * @param budget global cache budget in bytes, or 0 for no global limit
+	 */
+	public static void setGlobalCacheBudget(long budget) {
+		globalCacheBudget = Math.max(0, budget);
+	}
+
+	/**
+	 * @return the global memory cache budget in bytes, or 0 if not limited.
+	 */
+	public static long getGlobalCacheBudget() {
+		return globalCacheBudget;
+	}
+
+	/**
+	 * Set the memory cache replacement policy.
+	 * @param policy cache policy
+	 */
+	public synchronized void setCachePolicy(CachePolicy policy) {
+		if (policy == getCachePolicy()) {
+			return;
+		}
+		if (policy == CachePolicy.SCAN_RESISTANT) {
+			// All currently cached nodes start out young
+			youngCount = 0;
+			BufferNode node = cacheHead.nextCached;
+			while (node.id != TAIL) {
+				node.young = true;
+				++youngCount;
+				node = node.nextCached;
+			}
+			cacheMidpoint = new BufferNode(MIDPOINT, -1);
+			cacheMidpoint.addToCache(cacheTail.prevCached);
+			balanceYoungCache();
+		}
+		else {
+			cacheMidpoint.removeFromCache();
+			cacheMidpoint = null;
+			BufferNode node = cacheHead.nextCached;
+			while (node.id != TAIL) {
+				node.young = false;
+				node = node.nextCached;
+			}
+			youngCount = 0;
+		}
+	}
+
+	/**
+	 * @return the memory cache replacement policy
+	 */
+	public synchronized CachePolicy getCachePolicy() {
+		return cacheMidpoint != null ? CachePolicy.SCAN_RESISTANT : CachePolicy.LRU;
+	}
+
 	/**
 	 * Enable and start source buffer file pre-cache if appropriate.
 	 * This may be forced for all use cases by setting the System property
@@ -297,6 +427,7 @@ public class BufferMgr {
 				ShutdownPriority.DISPOSE_FILE_HANDLES);
 		}
 		openInstances.add(bufMgr);
+		openInstanceCount = openInstances.size();
 	}
 
 	/**
@@ -322,6 +453,7 @@ public class BufferMgr {
 	 */
 	private static synchronized void removeInstance(BufferMgr bufMgr) {
 		openInstances.remove(bufMgr);
+		openInstanceCount = openInstances.size();
 	}
 
 	/**
@@ -332,6 +464,14 @@ public class BufferMgr {
 		return lockCount;
 	}
 
+	/**
+	 * Get the current number of shared buffer locks held by readers.
+	 * @return int
+	 */
+	public synchronized int getSharedLockCount() {
+		return sharedLockCount;
+	}
+
 	/**
 	 * @return the size of each buffer in bytes.
 	 */
@@ -552,6 +692,7 @@ public class BufferMgr {
 	public void setMaxUndos(int maxUndos) {
 		synchronized (snapshotLock) {
 			synchronized (this) {
+				awaitSharedLockRelease();
 				maxCheckpoints = maxUndos < 0 ? DEFAULT_CHECKPOINT_COUNT : (maxUndos + 1);
 				while (checkpointHeads.size() > maxCheckpoints) {
 					packCheckpoints();
@@ -592,7 +733,7 @@ public class BufferMgr {
 	private DataBuffer getCacheBuffer() throws IOException {
 
 		// Create new buffer if cache not fully allocated
-		if (cacheSize < maxCacheSize) {
+		if (cacheSize < getCacheLimit()) {
 			++cacheSize;
 			lowWaterMark = cacheSize;
 			return new DataBuffer(cacheFile.getBufferSize());
@@ -607,9 +748,68 @@ public class BufferMgr {
 			return freeBuffers.pop();
 		}
 
+		return evictOldestNode();
+	}
+
+	/**
+	 * Discard a single memory cache buffer if the cache exceeds its current limit
+	 * (see {@link #setGlobalCacheBudget(long)}).  Invoked as buffers are released so
+	 * that an over-sized cache shrinks gradually.
+	 * @throws IOException if a cache file access error occurs
+	 */
+	private void trimCache() throws IOException {
+		if (cacheSize <= getCacheLimit()) {
+			return;
+		}
+		if (!freeBuffers.isEmpty()) {
+			freeBuffers.pop();
+			--buffersOnHand;
+			--cacheSize;
+		}
+		else if (getOldestCachedNode() != null) {
+			evictOldestNode();
+			--cacheSize;
+		}
+		if (buffersOnHand < lowWaterMark) {
+			lowWaterMark = buffersOnHand;
+		}
+	}
+
+	/**
+	 * @return the maximum number of memory cache buffers currently permitted based upon
+	 * the cache size and the global cache budget.
+	 */
+	private int getCacheLimit() {
+		long budget = globalCacheBudget;
+		if (budget <= 0) {
+			return maxCacheSize;
+		}
+		long share = Math.max(MINIMUM_CACHE_SIZE, budget / Math.max(1, openInstanceCount));
+		return (int) Math.min(maxCacheSize, share / bufferSize);
+	}
+
+	/**
+	 * @return the oldest buffer node in memory cache which may be evicted, or null if
+	 * none are cached.
+	 */
+	private BufferNode getOldestCachedNode() {
+		BufferNode node = cacheTail.prevCached;
+		if (node == cacheMidpoint) {
+			node = node.prevCached;
+		}
+		return node.id == HEAD ? null : node;
+	}
+
+	/**
+	 * Evict the oldest buffer node from memory cache.
+	 * @return buffer object released by evicted node
+	 * @throws IOException if cache is empty or a cache file access error occurs
+	 */
+	private DataBuffer evictOldestNode() throws IOException {
+
 		// Get oldest buffer node in cache
-		BufferNode oldNode = cacheTail.prevCached;
-		if (oldNode.id == HEAD) {
+		BufferNode oldNode = getOldestCachedNode();
+		if (oldNode == null) {
 			// cache limit has been exceeded
 			throw new IOException("Out of cache buffer space");
 		}
@@ -618,17 +818,64 @@ public class BufferMgr {
 		DataBuffer buf = oldNode.buffer;
 		unloadCachedNode(oldNode);
 		removeFromCache(oldNode);
+		oldNode.referenced = false;
+		++cacheEvictions;
 
 		return buf;
 	}
 
+	/**
+	 * Link a node into the memory cache list based upon the current cache policy.
+	 * @param node buffer node
+	 */
+	private void linkCachedNode(BufferNode node) {
+		if (cacheMidpoint != null && !node.referenced) {
+			// Buffer has not been re-referenced - add to old end of cache
+			node.addToCache(cacheMidpoint);
+			return;
+		}
+		node.addToCache(cacheHead);
+		if (cacheMidpoint != null) {
+			node.young = true;
+			++youngCount;
+			balanceYoungCache();
+		}
+	}
+
+	/**
+	 * Unlink a node from the memory cache list.
+	 * @param node buffer node
+	 */
+	private void unlinkCachedNode(BufferNode node) {
+		node.removeFromCache();
+		if (node.young) {
+			node.young = false;
+			--youngCount;
+		}
+	}
+
+	/**
+	 * Age the oldest young nodes into the old portion of the cache list when the
+	 * young portion exceeds its share of the cache.
+	 */
+	private void balanceYoungCache() {
+		int maxYoung = Math.max(1, (getCacheLimit() * YOUNG_CACHE_EIGHTHS) / 8);
+		while (youngCount > maxYoung) {
+			BufferNode node = cacheMidpoint.prevCached;
+			cacheMidpoint.removeFromCache();
+			cacheMidpoint.addToCache(node.prevCached);
+			node.young = false;
+			--youngCount;
+		}
+	}
+
 	/**
 	 * Remove a buffer node from memory cache.
 	 * @param node buffer node
 	 */
 	private void removeFromCache(BufferNode node) {
 		if (node.buffer != null) {
-			node.removeFromCache();
+			unlinkCachedNode(node);
 			node.buffer = null;
 
 			--buffersOnHand;
@@ -650,7 +897,7 @@ public class BufferMgr {
 		}
 
 		node.buffer = buf; // TODO: Set buffer ID
-		node.addToCache(cacheHead);
+		linkCachedNode(node);
 		++buffersOnHand;
 	}
 
@@ -774,6 +1021,8 @@ public class BufferMgr {
 		// which does not belong to memory cache
 		unloadCachedNode(node);
 		node.buffer = null;
+		node.preCached = true;
+		++preCacheCount;
 
 		return true;
 	}
@@ -799,6 +1048,7 @@ public class BufferMgr {
 			DataBuffer buf = getCacheBuffer();
 			try {
 				sourceFile.get(buf, id); // use source buffer id as index
+				++sourceReads;
 			}
 			catch (IOException e) {
 				returnFreeBuffer(buf);
@@ -902,12 +1152,17 @@ public class BufferMgr {
 			}
 			returnToCache(node, cacheFile.get(getCacheBuffer(), node.diskCacheIndex));
 			++cacheMisses;
+			if (node.preCached) {
+				node.preCached = false;
+				++preCacheHits;
+			}
 		}
 		else {
+			node.referenced = true;
 			if (node.prevCached.id != HEAD) {
 				// Move to top of cache
-				node.removeFromCache();
-				node.addToCache(cacheHead);
+				unlinkCachedNode(node);
+				linkCachedNode(node);
 			}
 			++cacheHits;
 		}
@@ -952,7 +1207,17 @@ public class BufferMgr {
 			throw new IOException("Corrupted BufferMgr state");
 		}
 
-		BufferNode node = getBufferNode(id, true); // loads buffer into memory cache
+		// Exclusive access must wait for all shared readers of the buffer to finish.
+		// A shared reader may also briefly lock other buffers (e.g., a chained record),
+		// so a locked buffer is only treated as an error once no shared locks remain.
+		BufferNode node = getCachedBufferNode(id);
+		while (node != null &&
+			(node.sharedLockCount != 0 || (node.locked && sharedLockCount != 0))) {
+			awaitLockRelease();
+			node = getCachedBufferNode(id);
+		}
+
+		node = getBufferNode(id, true); // loads buffer into memory cache
 		DataBuffer buf = node.buffer;
 		if (node.empty || buf.isEmpty()) {
 			throw new IOException("Invalid buffer: " + id);
@@ -970,6 +1235,139 @@ public class BufferMgr {
 		return buf;
 	}
 
+	/**
+	 * Get the specified buffer for read-only use.  Unlike {@link #getBuffer(int)}, the same
+	 * buffer may be held concurrently by any number of readers, each of which must return it
+	 * with {@link #releaseSharedBuffer(DataBuffer)}.  The manager lock is only held while
+	 * the buffer is located and pinned, so readers of different (or the same) buffers
+	 * do not serialize on each other while examining buffer content.
+	 * <p>
+	 * The returned buffer must not be modified.  If the buffer is currently locked by
+	 * {@link #getBuffer(int)} this method will block until it has been released, and any
+	 * attempt to obtain the buffer for update, or to checkpoint, undo/redo or save, will
+	 * block until all shared locks have been released.  A thread holding a shared lock must
+	 * therefore only lock buffers which other threads can not reach without first obtaining
+	 * that shared lock (e.g., the chained buffers of a record within a pinned tree node).
+	 * While shared locks are held {@link #getBuffer(int)} waits for such a buffer rather
+	 * than reporting it as locked.
+	 * @param id buffer id
+	 * @return buffer object
+	 * @throws IOException if source or cache file access error occurs
+	 */
+	public synchronized DataBuffer getSharedBuffer(int id) throws IOException {
+
+		if (corruptedState) {
+			throw new IOException("Corrupted BufferMgr state");
+		}
+
+		BufferNode node = getCachedBufferNode(id);
+		while (node != null && node.locked) {
+			awaitLockRelease();
+			node = getCachedBufferNode(id);
+		}
+
+		if (node != null && node.sharedLockCount != 0) {
+			// Buffer already pinned by another reader
+			node.referenced = true;
+			++node.sharedLockCount;
+			++sharedLockCount;
+			++cacheHits;
+			return node.buffer;
+		}
+
+		node = getBufferNode(id, true); // loads buffer into memory cache
+		DataBuffer buf = node.buffer;
+		if (node.empty || buf.isEmpty()) {
+			throw new IOException("Invalid buffer: " + id);
+		}
+
+		// Pin buffer by removing node from cache list while retaining its buffer
+		unlinkCachedNode(node);
+		--buffersOnHand;
+		if (buffersOnHand < lowWaterMark) {
+			lowWaterMark = buffersOnHand;
+		}
+
+		node.sharedLockCount = 1;
+		++sharedLockCount;
+
+		return buf;
+	}
+
+	/**
+	 * Release a buffer previously obtained with {@link #getSharedBuffer(int)}.
+	 * After invoking this method, the buffer object should not be used and all
+	 * references should be dropped.
+	 * @param buf data buffer
+	 * @throws IOException if buffer manager has been closed
+	 */
+	public synchronized void releaseSharedBuffer(DataBuffer buf) throws IOException {
+		BufferNode node = getCachedBufferNode(buf.getId());
+		if (node == null || node.sharedLockCount == 0 || node.buffer != buf) {
+			throw new AssertException("Buffer not shared: " + buf.getId());
+		}
+		--sharedLockCount;
+		if (--node.sharedLockCount == 0) {
+			// reintroduce unpinned buffer node into cache
+			linkCachedNode(node);
+			++buffersOnHand;
+			trimCache();
+			notifyLockWaiters();
+		}
+	}
+
+	/**
+	 * Wait for a buffer lock to be released.  Must be invoked while synchronized on
+	 * this buffer manager.
+	 * @throws IOException if interrupted while waiting
+	 */
+	private void awaitLockRelease() throws IOException {
+		++lockWaitCount;
+		try {
+			wait();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted waiting for buffer release");
+		}
+		finally {
+			--lockWaitCount;
+		}
+	}
+
+	/**
+	 * Wait for all shared buffer locks to be released prior to a structural change
+	 * of buffer versions (e.g., undo, redo, save).  Must be invoked while synchronized
+	 * on this buffer manager.
+	 */
+	private void awaitSharedLockRelease() {
+		boolean interrupted = false;
+		while (sharedLockCount != 0) {
+			++lockWaitCount;
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				interrupted = true;
+			}
+			finally {
+				--lockWaitCount;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Wake any threads waiting for a buffer lock release.
+	 */
+	private void notifyLockWaiters() {
+		if (lockWaitCount != 0) {
+			notifyAll();
+		}
+	}
+
 	/**
 	 * Get a new or recycled buffer.
 	 * New buffer is always returned with update enabled.
@@ -1067,6 +1465,8 @@ public class BufferMgr {
 			node.locked = false;
 			--lockCount;
 			returnToCache(node, buf);
+			trimCache();
+			notifyLockWaiters();
 		}
 	}
 
@@ -1125,6 +1525,8 @@ public class BufferMgr {
 				node.locked = false;
 				--lockCount;
 				returnToCache(node, buf);
+				trimCache();
+				notifyLockWaiters();
 			}
 		}
 	}
@@ -1176,6 +1578,8 @@ public class BufferMgr {
 					return false;
 				}
 
+				// Shared readers may briefly hold exclusive locks while their buffers are pinned
+				awaitSharedLockRelease();
 				if (lockCount != 0) {
 					throw new AssertException(
 						"Can't checkpoint with locked buffers (" + lockCount + " locks found)");
@@ -1262,6 +1666,7 @@ public class BufferMgr {
 		synchronized (snapshotLock) {
 			synchronized (this) {
 
+				awaitSharedLockRelease();
 				if (lockCount != 0) {
 					throw new AssertException(
 						"Can't undo with locked buffers (" + lockCount + " locks found)");
@@ -1352,6 +1757,7 @@ public class BufferMgr {
 		synchronized (snapshotLock) {
 			synchronized (this) {
 
+				awaitSharedLockRelease();
 				if (lockCount != 0) {
 					throw new AssertException(
 						"Can't redo with locked buffers (" + lockCount + " locks found)");
@@ -1632,6 +2038,8 @@ public class BufferMgr {
 			throw new IOException("Corrupted BufferMgr state");
 		}
 
+		awaitSharedLockRelease();
+
 		boolean success = false;
 		try {
 
@@ -1770,6 +2178,7 @@ public class BufferMgr {
 					throw new IOException("Corrupted BufferMgr state");
 				}
 
+				awaitSharedLockRelease();
 				if (lockCount != 0) {
 					throw new IOException("Attempted save while buffers are locked");
 				}
@@ -1855,6 +2264,7 @@ public class BufferMgr {
 					throw new IllegalArgumentException("Empty buffer file must be provided");
 				}
 
+				awaitSharedLockRelease();
 				if (lockCount != 0) {
 					throw new IOException("Attempted saveAs while buffers are locked");
 				}
@@ -2003,6 +2413,34 @@ public class BufferMgr {
 		return cacheMisses;
 	}
 
+	/**
+	 * @return number of buffers evicted from the memory cache
+	 */
+	public long getCacheEvictions() {
+		return cacheEvictions;
+	}
+
+	/**
+	 * @return number of buffers read from the source buffer file
+	 */
+	public long getSourceBufferReads() {
+		return sourceReads;
+	}
+
+	/**
+	 * @return number of source buffers placed into the disk cache by the pre-cache
+	 */
+	public long getPreCacheCount() {
+		return preCacheCount;
+	}
+
+	/**
+	 * @return number of buffer requests satisfied by pre-cached buffers
+	 */
+	public long getPreCacheHits() {
+		return preCacheHits;
+	}
+
 	public int getLowBufferCount() {
 		return lowWaterMark;
 	}
@@ -2010,6 +2448,10 @@ public class BufferMgr {
 	public void resetCacheStatistics() {
 		cacheHits = 0;
 		cacheMisses = 0;
+		cacheEvictions = 0;
+		sourceReads = 0;
+		preCacheCount = 0;
+		preCacheHits = 0;
 		lowWaterMark = cacheSize;
 	}
 
@@ -2034,6 +2476,17 @@ public class BufferMgr {
 		buf.append(cacheHits);
 		buf.append("\n Cache misses: ");
 		buf.append(cacheMisses);
+		buf.append("\n Cache evictions: ");
+		buf.append(cacheEvictions);
+		buf.append("\n Cache policy: ");
+		buf.append(getCachePolicy());
+		buf.append("\n Source buffer reads: ");
+		buf.append(sourceReads);
+		buf.append("\n Pre-cached buffers: ");
+		buf.append(preCacheCount);
+		buf.append(" (");
+		buf.append(preCacheHits);
+		buf.append(" used)");
 		buf.append("\n Locked buffers: ");
 		buf.append(lockCount);
 		buf.append("\n Low water buffer count: ");
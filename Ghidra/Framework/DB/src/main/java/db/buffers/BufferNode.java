@@ -68,6 +68,28 @@ class BufferNode {
 	 * false.
 	 */
 	boolean locked = false;
+
+	/**
+	 * The <code>sharedLockCount</code> is the number of concurrent readers which currently
+	 * hold the associated buffer via {@link BufferMgr#getSharedBuffer(int)}.  While non-zero
+	 * the node retains its buffer but is removed from the memory cache list.
+	 */
+	int sharedLockCount = 0;
+
+	/**
+	 * The <code>referenced</code> flag is set true when the in-memory buffer is requested
+	 * again while still cached, and is cleared when the buffer is evicted from memory.
+	 * The <code>young</code> flag indicates that the node currently resides within the
+	 * young (recently re-referenced) portion of a scan-resistant memory cache list.
+	 */
+	boolean referenced = false;
+	boolean young = false;
+
+	/**
+	 * The <code>preCached</code> flag is set true when the buffer was placed into the
+	 * disk cache by the source file pre-cache and has not yet been requested.
+	 */
+	boolean preCached = false;
 	
 	/**
 	 * The <code>empty</code> flag is set true when a buffer has been deleted and is
@@ -16,11 +16,12 @@
 package db.buffers;
 
 import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel.MapMode;
 import java.util.*;
 
 import ghidra.framework.Application;
-import ghidra.util.BigEndianDataConverter;
-import ghidra.util.Msg;
+import ghidra.util.*;
 import ghidra.util.datastruct.IntSet;
 import ghidra.util.exception.*;
 import ghidra.util.task.CancelledListener;
@@ -33,6 +34,18 @@ import ghidra.util.task.TaskMonitor;
  */
 public class LocalBufferFile implements BufferFile {
 
+	/**
+	 * System property which, when true, causes read-only buffer files to be
+	 * read via memory-mapped I/O by default.
+	 */
+	public static final String MAPPED_READ_PROPERTY = "db.buffers.mapped.read";
+
+	private static boolean defaultMappedReads =
+		SystemUtilities.getBooleanProperty(MAPPED_READ_PROPERTY, false);
+
+	// Maximum size of a single mapped file segment
+	private static final int MAX_MAPPED_SEGMENT_SIZE = Integer.MAX_VALUE;
+
 	static final long MAGIC_NUMBER = 0x2f30312c34292c2aL;
 
 	public static final String BUFFER_FILE_EXTENSION = ".gbf";
@@ -186,6 +199,19 @@ public class LocalBufferFile implements BufferFile {
 	 */
 	private int bufferCount = 0;
 
+	/**
+	 * If <code>mappedReads</code> is true, buffer reads for a read-only file will be
+	 * performed against memory-mapped file segments rather than the random-access file.
+	 */
+	private boolean mappedReads = defaultMappedReads;
+
+	/**
+	 * Memory-mapped file segments, each containing <code>blocksPerSegment</code> whole
+	 * file blocks.  Segments are mapped on first use.  Null if mapped reads are not in use.
+	 */
+	private volatile MappedByteBuffer[] mappedSegments;
+	private int blocksPerSegment;
+
 	/**
 	 * Create a temporary read/write block file.
 	 * @param bufferSize user buffer size
@@ -232,11 +258,25 @@ public class LocalBufferFile implements BufferFile {
 	 * @throws IOException if an error occurs or the incorrect magicNumber was read from the file.
 	 */
 	public LocalBufferFile(File file, boolean readOnly) throws IOException {
+		this(file, readOnly, defaultMappedReads);
+	}
+
+	/**
+	 * Open an existing block file.
+	 * @param file block file
+	 * @param readOnly if true the file will be opened read-only
+	 * @param mappedReads if true and the file is, or later becomes, read-only, buffers will
+	 * be read from a memory-mapping of the file instead of through the random-access file.
+	 * @throws IOException if an error occurs or the incorrect magicNumber was read from the file.
+	 */
+	public LocalBufferFile(File file, boolean readOnly, boolean mappedReads) throws IOException {
 		this.file = file;
 		this.readOnly = readOnly;
+		this.mappedReads = mappedReads;
 		raf = new RandomAccessFile(file, readOnly ? "r" : "rw");
 
 		readHeader();
+		initMappedReads();
 	}
 
 	/**
@@ -429,6 +469,104 @@ public class LocalBufferFile implements BufferFile {
 		raf.seek(offset);
 	}
 
+	/**
+	 * Prepare for memory-mapped reads if enabled and this file is read-only.
+	 * File segments are not mapped until first accessed.
+	 * @throws IOException if an I/O error occurs
+	 */
+	private void initMappedReads() throws IOException {
+		if (!mappedReads || !readOnly) {
+			return;
+		}
+		long segmentSize = (long) (MAX_MAPPED_SEGMENT_SIZE / blockSize) * blockSize;
+		long length = raf.length();
+		blocksPerSegment = MAX_MAPPED_SEGMENT_SIZE / blockSize;
+		mappedSegments = new MappedByteBuffer[(int) ((length + segmentSize - 1) / segmentSize)];
+	}
+
+	/**
+	 * Get the mapped file segment which contains the specified file block.
+	 * @param segments mapped segments array
+	 * @param blockIndex file block index
+	 * @return mapped segment
+	 * @throws IOException if an I/O error occurs while mapping file
+	 */
+	private MappedByteBuffer getMappedSegment(MappedByteBuffer[] segments, int blockIndex)
+			throws IOException {
+		if (blockIndex < 0) {
+			throw new IOException("Invalid buffer block: " + blockIndex);
+		}
+		int segmentIndex = blockIndex / blocksPerSegment;
+		if (segmentIndex >= segments.length) {
+			throw new EOFException("Buffer block beyond end of file: " + blockIndex);
+		}
+		MappedByteBuffer segment = segments[segmentIndex];
+		if (segment == null) {
+			synchronized (this) {
+				if (raf == null) {
+					throw new ClosedException();
+				}
+				segment = segments[segmentIndex];
+				if (segment == null) {
+					long offset = (long) segmentIndex * blocksPerSegment * blockSize;
+					long size = Math.min((long) blocksPerSegment * blockSize,
+						raf.length() - offset);
+					segment = raf.getChannel().map(MapMode.READ_ONLY, offset, size);
+					segments[segmentIndex] = segment;
+				}
+			}
+		}
+		return segment;
+	}
+
+	/**
+	 * Read buffer from a memory-mapped file segment.  Concurrent reads are permitted.
+	 * @param segments mapped segments array
+	 * @param buf buffer object to be filled
+	 * @param index buffer index
+	 * @return buffer object
+	 * @throws IOException if an I/O error occurs
+	 */
+	private DataBuffer getMapped(MappedByteBuffer[] segments, DataBuffer buf, int index)
+			throws IOException {
+		int blockIndex = index + 1; // block#0 contains file header
+		MappedByteBuffer segment = getMappedSegment(segments, blockIndex);
+		int offset = (blockIndex % blocksPerSegment) * blockSize;
+		if (offset + BUFFER_PREFIX_SIZE > segment.limit()) {
+			// block is beyond the end of a truncated file
+			throw new EOFException("Buffer block beyond end of file: " + blockIndex);
+		}
+
+		// Read version 1 buffer prefix
+		byte flags = segment.get(offset);
+
+		// Read buffer ID
+		buf.setId(segment.getInt(offset + 1));
+
+		if ((flags & EMPTY_BUFFER) != 0) {
+			buf.setEmpty(true);
+			buf.setId(-1);
+		}
+		else {
+			buf.setEmpty(false);
+			byte[] data = buf.data;
+			if (data == null) {
+				data = new byte[bufferSize];
+				buf.data = data;
+			}
+			else if (data.length != bufferSize) {
+				throw new IllegalArgumentException("Bad buffer size");
+			}
+			if (offset + BUFFER_PREFIX_SIZE + bufferSize > segment.limit()) {
+				throw new EOFException("unexpected end of file");
+			}
+			// Non-empty Buffer - copy data directly from mapped segment
+			segment.get(offset + BUFFER_PREFIX_SIZE, data);
+		}
+		buf.setDirty(false);
+		return buf;
+	}
+
 	/**
 	 * Read file header and initialize the user parameter and free buffer index lists.
 	 * @throws IOException if an I/O error occurs
@@ -632,7 +770,19 @@ public class LocalBufferFile implements BufferFile {
 	}
 
 	@Override
-	public synchronized DataBuffer get(DataBuffer buf, int index) throws IOException {
+	public DataBuffer get(DataBuffer buf, int index) throws IOException {
+		MappedByteBuffer[] segments = mappedSegments;
+		if (segments != null) {
+			if (index > bufferCount) {
+				throw new EOFException(
+					"Buffer index too large (" + index + " > " + bufferCount + ")");
+			}
+			return getMapped(segments, buf, index);
+		}
+		return getFromFile(buf, index);
+	}
+
+	private synchronized DataBuffer getFromFile(DataBuffer buf, int index) throws IOException {
 
 		if (index > bufferCount) {
 			throw new EOFException("Buffer index too large (" + index + " > " + bufferCount + ")");
@@ -806,6 +956,7 @@ public class LocalBufferFile implements BufferFile {
 		raf.close();
 		raf = new RandomAccessFile(file, "r");
 		readOnly = true;
+		initMappedReads();
 
 		return true;
 	}
@@ -831,6 +982,7 @@ public class LocalBufferFile implements BufferFile {
 		if (raf == null) {
 			return;
 		}
+		mappedSegments = null;
 
 		boolean commit = false;
 		try {
@@ -237,6 +237,111 @@ public class DBIndexedTableTest extends AbstractGenericTest {
 		findRecords(true, 1000, 100, 16);
 	}
 
+	private DBRecord[] bulkLoadTableRecords(int recordCnt, long keyIncrement, int varDataSize)
+			throws IOException {
+		long txId = dbh.startTransaction();
+		Table table =
+			DBTestUtils.createLongKeyTable(dbh, table1Name, DBTestUtils.ALL_TYPES, true, false);
+		long key = 0;
+		DBRecord[] recs = new DBRecord[recordCnt];
+		for (int i = 0; i < recordCnt; i++) {
+			try {
+				recs[i] = DBTestUtils.createRecord(table, key, varDataSize, false);
+			}
+			catch (DuplicateKeyException e) {
+				Assert.fail("Duplicate key error");
+			}
+			key += keyIncrement;
+		}
+		table.bulkLoad(Arrays.asList(recs).iterator());
+		dbh.endTransaction(txId, true);
+		return recs;
+	}
+
+	private void bulkLoad(boolean testStoredDB, int recordCnt, int varDataSize)
+			throws IOException, CancelledException {
+		DBRecord[] recs = bulkLoadTableRecords(recordCnt, 3, varDataSize);
+		if (testStoredDB) {
+			saveAsAndReopen(dbName);
+		}
+		Table table = dbh.getTable(table1Name);
+		assertEquals(recordCnt, table.getRecordCount());
+		assertEquals(recs[recordCnt - 1].getKey(), table.getMaxKey());
+		assertTrue(table.isConsistent(TaskMonitor.DUMMY));
+
+		RecordIterator iter = table.iterator();
+		int recIx = 0;
+		while (iter.hasNext()) {
+			assertEquals(recs[recIx++], iter.next());
+		}
+		assertEquals(recordCnt, recIx);
+		for (int i = 0; i < recordCnt; i += 7) {
+			assertEquals(recs[i], table.getRecord(recs[i].getKey()));
+		}
+
+		int step = recordCnt / 100;
+		for (int indexColumn : table.getIndexedColumns()) {
+			for (int i = 0; i < recordCnt; i += step) {
+				Field[] keys = table.findRecords(recs[i].getField(indexColumn), indexColumn);
+				Arrays.sort(keys);
+				assertTrue(Arrays.equals(matchingKeys(recs, indexColumn, recs[i]), keys));
+			}
+		}
+
+		// Table must remain fully updatable
+		long txId = dbh.startTransaction();
+		for (int i = 0; i < recordCnt; i += 2) {
+			assertTrue(table.deleteRecord(recs[i].getKey()));
+		}
+		try {
+			DBTestUtils.createRecord(table, 1, varDataSize, true);
+		}
+		catch (DuplicateKeyException e) {
+			Assert.fail("Duplicate key error");
+		}
+		dbh.endTransaction(txId, true);
+		assertEquals(recordCnt / 2 + 1, table.getRecordCount());
+		assertTrue(table.isConsistent(TaskMonitor.DUMMY));
+	}
+
+	@Test
+	public void testBulkLoad() throws Exception {
+		bulkLoad(false, ITER_REC_CNT * 10, 8);
+	}
+
+	@Test
+	public void testStoredBulkLoadBigVLR() throws Exception {
+		bulkLoad(true, ITER_REC_CNT * 10, 600);
+	}
+
+	@Test
+	public void testBulkLoadSingleRecord() throws Exception {
+		bulkLoad(false, 1, 8);
+	}
+
+	@Test
+	public void testBulkLoadOutOfOrder() throws Exception {
+		long txId = dbh.startTransaction();
+		Table table =
+			DBTestUtils.createLongKeyTable(dbh, table1Name, DBTestUtils.ALL_TYPES, true, false);
+		DBRecord[] recs = new DBRecord[ITER_REC_CNT];
+		for (int i = 0; i < recs.length; i++) {
+			long key = (i == recs.length / 2) ? 0 : i;
+			recs[i] = DBTestUtils.createRecord(table, key, 8, false);
+		}
+		try {
+			table.bulkLoad(Arrays.asList(recs).iterator());
+			Assert.fail("Expected IllegalArgumentException");
+		}
+		catch (IllegalArgumentException e) {
+			// expected
+		}
+		dbh.endTransaction(txId, true);
+		assertEquals(recs.length / 2, table.getRecordCount());
+		assertEquals(recs.length / 2 - 1, table.getMaxKey());
+		assertTrue(table.isConsistent(TaskMonitor.DUMMY));
+	}
+
 	private void updateRecordsIterator(boolean testStoredDB, int schemaType, int recordCnt,
 			long keyIncrement, int varDataSize) throws IOException {
 		DBRecord[] recs = null;
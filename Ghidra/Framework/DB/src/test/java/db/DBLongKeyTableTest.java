@@ -1249,4 +1249,62 @@ public class DBLongKeyTableTest extends AbstractGenericTest {
 		}
 	}
 
+	private void cursorLongKeyRecords(int schemaType) throws IOException {
+		long txId = dbh.startTransaction();
+		Table table = DBTestUtils.createLongKeyTable(dbh, table1Name, schemaType, false, false);
+		dbh.endTransaction(txId, true);
+		DBRecord[] recs = createRandomLongKeyTableRecords(table, SMALL_ITER_REC_CNT, 1);
+		Arrays.sort(recs);
+
+		// Full cursor
+		RecordCursor cursor = table.cursor();
+		int recIx = 0;
+		while (cursor.next()) {
+			DBRecord rec = recs[recIx++];
+			assertEquals(rec.getKey(), cursor.getKey());
+			assertEquals(rec.getBooleanValue(0), cursor.getBooleanValue(0));
+			assertEquals(rec.getByteValue(1), cursor.getByteValue(1));
+			assertEquals(rec.getIntValue(2), cursor.getIntValue(2));
+			assertEquals(rec.getShortValue(3), cursor.getShortValue(3));
+			assertEquals(rec.getLongValue(4), cursor.getLongValue(4));
+			assertEquals(rec.getLongValue(2), cursor.getLongValue(2));
+			assertEquals(rec, cursor.getRecord());
+		}
+		assertEquals(recs.length, recIx);
+		assertFalse(cursor.next());
+
+		// Range cursor
+		int minIx = 10;
+		int maxIx = recs.length - 10;
+		cursor = table.cursor(recs[minIx].getKey(), recs[maxIx].getKey());
+		recIx = minIx;
+		while (cursor.next()) {
+			assertEquals(recs[recIx++].getKey(), cursor.getKey());
+		}
+		assertEquals(maxIx + 1, recIx);
+
+		// Delete records while positioned
+		txId = dbh.startTransaction();
+		cursor = table.cursor();
+		recIx = 0;
+		while (cursor.next()) {
+			assertEquals(recs[recIx++].getKey(), cursor.getKey());
+			table.deleteRecord(cursor.getKey());
+		}
+		dbh.endTransaction(txId, true);
+		assertEquals(recs.length, recIx);
+		assertEquals(0, table.getRecordCount());
+		assertFalse(table.cursor().next());
+	}
+
+	@Test
+	public void testFixedLongKeyRecordCursor() throws IOException {
+		cursorLongKeyRecords(DBTestUtils.ALL_FIXED);
+	}
+
+	@Test
+	public void testVarLongKeyRecordCursor() throws IOException {
+		cursorLongKeyRecords(DBTestUtils.ALL_TYPES);
+	}
+
 }
@@ -0,0 +1,220 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.*;
+
+import generic.test.AbstractGenericTest;
+
+/**
+ * Test record lookups performed concurrently by multiple threads without the
+ * {@link DBHandle} lock (see {@link db.buffers.BufferMgr#getSharedBuffer(int)}).
+ */
+public class TableSharedReadTest extends AbstractGenericTest {
+
+	private static final int BUFFER_SIZE = 256;
+	private static final int CACHE_SIZE = 4 * 1024 * 1024;
+
+	private static final int RECORD_COUNT = 1000;
+	private static final int CHAINED_RECORD_SIZE = 1000; // stored in chained buffers
+	private static final int READER_COUNT = 4;
+	private static final int WRITER_ITERATIONS = 200;
+
+	private DBHandle dbh;
+	private Table longKeyTable;
+	private Table binaryKeyTable;
+	private Table chainedTable;
+
+	@Before
+	public void setUp() throws Exception {
+		dbh = new DBHandle(BUFFER_SIZE, CACHE_SIZE);
+		long txId = dbh.startTransaction();
+		longKeyTable =
+			DBTestUtils.createLongKeyTable(dbh, "LONG", DBTestUtils.SINGLE_LONG, false, false);
+		binaryKeyTable =
+			DBTestUtils.createBinaryKeyTable(dbh, "BINARY", DBTestUtils.SINGLE_LONG, false);
+		chainedTable =
+			DBTestUtils.createLongKeyTable(dbh, "CHAINED", DBTestUtils.SINGLE_BINARY, false, false);
+		for (int key = 0; key < RECORD_COUNT; key++) {
+			putRecords(key, 0);
+		}
+		dbh.endTransaction(txId, true);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (dbh != null) {
+			dbh.close();
+		}
+	}
+
+	private static BinaryField binaryKey(long key) {
+		byte[] bytes = new byte[8];
+		for (int i = 7; i >= 0; i--) {
+			bytes[i] = (byte) key;
+			key >>= 8;
+		}
+		return new BinaryField(bytes);
+	}
+
+	/**
+	 * Store the records for a key.  Each value stored for a key is congruent to the key
+	 * modulo {@link #RECORD_COUNT}, and each chained record holds a single repeated byte.
+	 */
+	private void putRecords(long key, int iteration) throws IOException {
+		long value = key + (long) iteration * RECORD_COUNT;
+
+		DBRecord rec = longKeyTable.getSchema().createRecord(key);
+		rec.setLongValue(0, value);
+		longKeyTable.putRecord(rec);
+
+		rec = binaryKeyTable.getSchema().createRecord(binaryKey(key));
+		rec.setLongValue(0, value);
+		binaryKeyTable.putRecord(rec);
+
+		if (key % 10 == 0) {
+			byte[] data = new byte[CHAINED_RECORD_SIZE];
+			Arrays.fill(data, (byte) iteration);
+			rec = chainedTable.getSchema().createRecord(key);
+			rec.setBinaryData(0, data);
+			chainedTable.putRecord(rec);
+		}
+	}
+
+	private void checkRecords(long key) throws IOException {
+		assertTrue(longKeyTable.hasRecord(key));
+		DBRecord rec = longKeyTable.getRecord(key);
+		assertNotNull(rec);
+		assertEquals(key, rec.getLongValue(0) % RECORD_COUNT);
+
+		assertTrue(binaryKeyTable.hasRecord(binaryKey(key)));
+		rec = binaryKeyTable.getRecord(binaryKey(key));
+		assertNotNull(rec);
+		assertEquals(key, rec.getLongValue(0) % RECORD_COUNT);
+
+		if (key % 10 == 0) {
+			rec = chainedTable.getRecord(key);
+			assertNotNull(rec);
+			byte[] data = rec.getBinaryData(0);
+			assertEquals(CHAINED_RECORD_SIZE, data.length);
+			for (byte b : data) {
+				assertEquals(data[0], b);
+			}
+		}
+	}
+
+	private void runReaders(Callable<Void> reader) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(READER_COUNT);
+		try {
+			List<Future<Void>> futures = new ArrayList<>();
+			for (int i = 0; i < READER_COUNT; i++) {
+				futures.add(executor.submit(reader));
+			}
+			for (Future<Void> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testReadersDoNotRequireHandleLock() throws Exception {
+		// Readers would time out if lookups still synchronized on the handle
+		synchronized (dbh) {
+			runReaders(() -> {
+				for (long key = 0; key < RECORD_COUNT; key++) {
+					checkRecords(key);
+				}
+				assertFalse(longKeyTable.hasRecord(RECORD_COUNT));
+				assertNull(longKeyTable.getRecord(RECORD_COUNT));
+				assertFalse(binaryKeyTable.hasRecord(binaryKey(RECORD_COUNT)));
+				assertNull(binaryKeyTable.getRecord(binaryKey(RECORD_COUNT)));
+				return null;
+			});
+		}
+		assertEquals(0, dbh.getBufferMgr().getSharedLockCount());
+		assertEquals(0, dbh.getBufferMgr().getLockCount());
+	}
+
+	@Test
+	public void testReadersWithConcurrentUpdates() throws Exception {
+		AtomicBoolean done = new AtomicBoolean();
+		AtomicReference<Throwable> writerError = new AtomicReference<>();
+		Thread writer = new Thread(() -> {
+			try {
+				for (int i = 1; i <= WRITER_ITERATIONS; i++) {
+					long txId = dbh.startTransaction();
+					try {
+						for (long key = i % 7; key < RECORD_COUNT; key += 7) {
+							putRecords(key, i);
+						}
+						// Grow and shrink the trees beyond the checked keys
+						for (long key = 0; key < 50; key++) {
+							putRecords(RECORD_COUNT + (i % 2) * 50 + key, i);
+							longKeyTable.deleteRecord(RECORD_COUNT + ((i + 1) % 2) * 50 + key);
+						}
+					}
+					finally {
+						dbh.endTransaction(txId, true);
+					}
+					if (i % 10 == 0) {
+						dbh.undo();
+					}
+				}
+			}
+			catch (Throwable t) {
+				writerError.set(t);
+			}
+			finally {
+				done.set(true);
+			}
+		}, "TableSharedReadTest Writer");
+
+		writer.start();
+		try {
+			runReaders(() -> {
+				Random random = new Random();
+				do {
+					checkRecords(random.nextInt(RECORD_COUNT));
+				}
+				while (!done.get());
+				return null;
+			});
+		}
+		finally {
+			writer.join();
+		}
+		if (writerError.get() != null) {
+			throw new AssertionError("Writer failed", writerError.get());
+		}
+
+		for (long key = 0; key < RECORD_COUNT; key++) {
+			checkRecords(key);
+		}
+		assertEquals(0, dbh.getBufferMgr().getSharedLockCount());
+		assertEquals(0, dbh.getBufferMgr().getLockCount());
+	}
+}
@@ -0,0 +1,113 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package db.buffers;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Measures multi-reader buffer throughput of {@link BufferMgr} using exclusive
+ * {@link BufferMgr#getBuffer(int)} access (serialized by a single lock as done by the
+ * database layer) versus {@link BufferMgr#getSharedBuffer(int)} access.
+ */
+public class BufferMgrReadBenchMarks {
+	static int BUFFER_SIZE = 16 * 1024;
+	static int CACHE_SIZE = 64 * 1024 * 1024;
+	static int BUFFER_COUNT = 2048;
+	static int READS_PER_THREAD = 200000;
+
+	public static void main(String[] args) throws Exception {
+		BufferMgr mgr = new BufferMgr(BUFFER_SIZE, CACHE_SIZE, 1);
+		try {
+			int[] ids = createBuffers(mgr);
+			int maxThreads = Runtime.getRuntime().availableProcessors();
+			for (int threads = 1; threads <= maxThreads; threads *= 2) {
+				runReaders(mgr, ids, threads, false);
+				runReaders(mgr, ids, threads, true);
+			}
+		}
+		finally {
+			mgr.dispose();
+		}
+	}
+
+	private static int[] createBuffers(BufferMgr mgr) throws IOException {
+		int[] ids = new int[BUFFER_COUNT];
+		for (int i = 0; i < BUFFER_COUNT; i++) {
+			DataBuffer buf = mgr.createBuffer();
+			buf.putInt(0, i);
+			ids[i] = buf.getId();
+			mgr.releaseBuffer(buf);
+		}
+		mgr.checkpoint();
+		return ids;
+	}
+
+	private static void runReaders(BufferMgr mgr, int[] ids, int threadCount, boolean shared)
+			throws InterruptedException {
+		Object dbLock = new Object();
+		Thread[] threads = new Thread[threadCount];
+		for (int t = 0; t < threadCount; t++) {
+			long seed = t;
+			threads[t] = new Thread(() -> {
+				Random random = new Random(seed);
+				long sum = 0;
+				try {
+					for (int i = 0; i < READS_PER_THREAD; i++) {
+						int id = ids[random.nextInt(ids.length)];
+						if (shared) {
+							DataBuffer buf = mgr.getSharedBuffer(id);
+							sum += scan(buf);
+							mgr.releaseSharedBuffer(buf);
+						}
+						else {
+							synchronized (dbLock) {
+								DataBuffer buf = mgr.getBuffer(id);
+								sum += scan(buf);
+								mgr.releaseBuffer(buf);
+							}
+						}
+					}
+				}
+				catch (IOException e) {
+					e.printStackTrace();
+				}
+				if (sum == 42) {
+					System.out.print(""); // prevent dead-code elimination
+				}
+			});
+		}
+		long start = System.nanoTime();
+		for (Thread thread : threads) {
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join();
+		}
+		long elapsed = System.nanoTime() - start;
+		long reads = (long) threadCount * READS_PER_THREAD;
+		System.out.println((shared ? "Shared   " : "Exclusive") + " readers=" + threadCount +
+			": " + (reads * 1000000000L / elapsed) + " buffer reads/sec");
+	}
+
+	private static long scan(DataBuffer buf) {
+		long sum = 0;
+		for (int offset = 0; offset < 1024; offset += 8) {
+			sum += buf.getLong(offset);
+		}
+		return sum;
+	}
+}
@@ -22,6 +22,7 @@ import java.io.File;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.*;
 
@@ -234,6 +235,142 @@ public class BufferMgrTest extends AbstractGenericTest {
 		assertEquals(0, mgr.getLockCount());
 	}
 
+	@Test
+	public void testSharedBuffer() throws Exception {
+
+		initNewFile();
+
+		DataBuffer buf = mgr.createBuffer();
+		int id = buf.getId();
+		buf.put(0, fillPattern1);
+		mgr.releaseBuffer(buf);
+		mgr.checkpoint();
+
+		// Multiple readers share the same buffer
+		DataBuffer buf1 = mgr.getSharedBuffer(id);
+		DataBuffer buf2 = mgr.getSharedBuffer(id);
+		assertTrue(buf1 == buf2);
+		assertEquals(0, mgr.getLockCount());
+		assertEquals(2, mgr.getSharedLockCount());
+		assertTrue(Arrays.equals(fillPattern1, buf1.get(0, buf1.length())));
+
+		// Update must wait for all shared readers
+		AtomicBoolean updated = new AtomicBoolean();
+		Thread writer = new Thread(() -> {
+			try {
+				DataBuffer b = mgr.getBuffer(id);
+				b.put(0, fillPattern2);
+				mgr.releaseBuffer(b);
+				updated.set(true);
+			}
+			catch (IOException e) {
+				Msg.error(this, "Unexpected exception", e);
+			}
+		});
+		writer.start();
+
+		mgr.releaseSharedBuffer(buf1);
+		Thread.sleep(100);
+		assertTrue(!updated.get());
+		assertEquals(1, mgr.getSharedLockCount());
+
+		mgr.releaseSharedBuffer(buf2);
+		writer.join(2000);
+		assertTrue(updated.get());
+		assertEquals(0, mgr.getSharedLockCount());
+		assertEquals(0, mgr.getLockCount());
+
+		buf = mgr.getSharedBuffer(id);
+		assertTrue(Arrays.equals(fillPattern2, buf.get(0, buf.length())));
+		mgr.releaseSharedBuffer(buf);
+
+		// Release shared buffer a second time
+		try {
+			mgr.releaseSharedBuffer(buf);
+			Assert.fail();
+		}
+		catch (Exception e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testScanResistantCache() throws IOException {
+
+		initNewFile();
+		mgr.setCachePolicy(BufferMgr.CachePolicy.SCAN_RESISTANT);
+
+		int[] ids = new int[1000];
+		for (int i = 0; i < ids.length; i++) {
+			DataBuffer buf = mgr.createBuffer();
+			ids[i] = buf.getId();
+			buf.put(0, fillPattern1);
+			mgr.releaseBuffer(buf);
+		}
+		mgr.checkpoint();
+
+		// Establish frequently used buffer
+		int hotId = ids[ids.length - 1];
+		for (int i = 0; i < 2; i++) {
+			mgr.releaseBuffer(mgr.getBuffer(hotId));
+		}
+
+		// Scan all buffers once
+		for (int id : ids) {
+			if (id != hotId) {
+				DataBuffer buf = mgr.getBuffer(id);
+				assertTrue(Arrays.equals(fillPattern1, buf.get(0, buf.length())));
+				mgr.releaseBuffer(buf);
+			}
+		}
+		assertTrue(mgr.getCacheEvictions() > 0);
+
+		// Frequently used buffer must survive scan
+		mgr.resetCacheStatistics();
+		mgr.releaseBuffer(mgr.getBuffer(hotId));
+		assertEquals(1, mgr.getCacheHits());
+		assertEquals(0, mgr.getCacheMisses());
+
+		// Switch back to LRU policy
+		mgr.setCachePolicy(BufferMgr.CachePolicy.LRU);
+		for (int id : ids) {
+			mgr.releaseBuffer(mgr.getBuffer(id));
+		}
+		assertEquals(0, mgr.getLockCount());
+	}
+
+	@Test
+	public void testGlobalCacheBudget() throws IOException {
+
+		mgr = new BufferMgr(BUFFER_SIZE, 1024 * 1024, 10);
+
+		long oldBudget = BufferMgr.getGlobalCacheBudget();
+		try {
+			int[] ids = new int[1000];
+			for (int i = 0; i < ids.length; i++) {
+				DataBuffer buf = mgr.createBuffer();
+				ids[i] = buf.getId();
+				mgr.releaseBuffer(buf);
+			}
+			mgr.checkpoint();
+			for (int id : ids) {
+				mgr.releaseBuffer(mgr.getBuffer(id));
+			}
+			assertEquals(0, mgr.getCacheEvictions());
+
+			// Reduced budget forces cache to shrink while buffers are requested
+			BufferMgr.setGlobalCacheBudget(64 * 1024);
+			for (int id : ids) {
+				mgr.releaseBuffer(mgr.getBuffer(id));
+			}
+			assertTrue(mgr.getCacheEvictions() > 0);
+			assertEquals(0, mgr.getLockCount());
+		}
+		finally {
+			BufferMgr.setGlobalCacheBudget(oldBudget);
+		}
+	}
+
 	@Test
 	public void testUndo() throws IOException {
 
@@ -138,6 +138,110 @@ public class LocalBufferFileTest extends AbstractGenericTest {
 		}
 	}
 
+	@Test
+	public void testMappedRead() throws Exception {
+		File file = new File(testDir, "test.bf");
+		LocalBufferFile bf = null;
+		try {
+			bf = new LocalBufferFile(file, BUFFER_SIZE);
+			int[] freeList = doWriteReadTest(bf);
+			int indexCnt = bf.getIndexCount();
+			bf.setFreeIndexes(freeList);
+			bf.close();
+			bf = null;
+
+			// Reopen buffer file for memory-mapped reading
+			bf = new LocalBufferFile(file, true, true);
+			assertEquals(indexCnt, bf.getIndexCount());
+			assertTrue(Arrays.equals(freeList, bf.getFreeIndexes()));
+
+			doReadTest2(bf);
+
+			DataBuffer buf = new DataBuffer();
+			bf.get(buf, 1);
+			byte[] expected = new byte[BUFFER_SIZE];
+			Arrays.fill(expected, (byte) 0xf1);
+			assertTrue(Arrays.equals(expected, buf.data));
+
+			try {
+				bf.get(buf, indexCnt);
+				Assert.fail("Expected EOFException getting non-existing buffer");
+			}
+			catch (EOFException e) {
+				// expected
+			}
+
+			bf.close();
+			bf = null;
+
+			try {
+				LocalBufferFile closedBf = new LocalBufferFile(file, true, true);
+				closedBf.close();
+				closedBf.get(buf, 0);
+				Assert.fail("Expected ClosedException");
+			}
+			catch (IOException e) {
+				// expected
+			}
+		}
+		finally {
+			if (bf != null) {
+				try {
+					bf.close();
+				}
+				catch (IOException e) {
+				}
+			}
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testMappedReadTruncatedFile() throws Exception {
+		File file = new File(testDir, "test.bf");
+		LocalBufferFile bf = null;
+		try {
+			bf = new LocalBufferFile(file, BUFFER_SIZE);
+			byte[] data = new byte[BUFFER_SIZE];
+			DataBuffer buf = new DataBuffer(data);
+			for (int i = 0; i < 3; i++) {
+				Arrays.fill(data, (byte) (0xf0 + i));
+				buf.setId(10 + i);
+				bf.put(buf, i);
+			}
+			bf.close();
+
+			// Truncate the data of the last buffer block after the file is opened, but before
+			// it is mapped
+			bf = new LocalBufferFile(file, true, true);
+			assertEquals(3, bf.getIndexCount());
+			try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+				raf.setLength(raf.length() - BUFFER_SIZE / 2);
+			}
+
+			buf = new DataBuffer();
+			bf.get(buf, 1);
+			assertEquals(11, buf.getId());
+			try {
+				bf.get(buf, 2);
+				Assert.fail("Expected EOFException getting truncated buffer");
+			}
+			catch (EOFException e) {
+				// expected
+			}
+		}
+		finally {
+			if (bf != null) {
+				try {
+					bf.close();
+				}
+				catch (IOException e) {
+				}
+			}
+			file.delete();
+		}
+	}
+
 	@Test
 	public void testFileModify() throws Exception {
 		File file = new File(testDir, "test.bf");
@@ -25,6 +25,7 @@ import ghidra.program.disassemble.DisassemblerMessageListener;
 import ghidra.program.model.address.*;
 import ghidra.program.model.lang.*;
 import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.mem.MemBuffer;
 import ghidra.util.Msg;
 import ghidra.util.task.TaskMonitor;
 
@@ -85,8 +86,7 @@ public class SleighInstructionDecoder implements InstructionDecoder {
 		 * parallel instruction group. In that case, I should not have to worry self-modifying code
 		 * within that group, so no need to re-disassemble after each is executed.
 		 */
-		block = disassembler.pseudoDisassembleBlock(
-			state.getConcreteBuffer(address, Purpose.DECODE), context, 1);
+		block = disassembler.pseudoDisassembleBlock(getDecodeBuffer(address), context, 1);
 		if (block == null || block.isEmpty()) {
 			throw new DecodePcodeExecutionException(lastMsg, address);
 		}
@@ -95,6 +95,16 @@ public class SleighInstructionDecoder implements InstructionDecoder {
 		return instruction;
 	}
 
+	/**
+	 * Get the buffer from which to decode the instructions starting at the given address
+	 * 
+	 * @param address the address of the first instruction
+	 * @return the buffer
+	 */
+	protected MemBuffer getDecodeBuffer(Address address) {
+		return state.getConcreteBuffer(address, Purpose.DECODE);
+	}
+
 	@Override
 	public void branched(Address address) {
 		/*
@@ -0,0 +1,64 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import ghidra.pcode.exec.BytesPcodeExecutorState;
+import ghidra.pcode.exec.PcodeArithmetic.Purpose;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.lang.Language;
+
+/**
+ * The shared (memory) state of a {@link BoundPcodeEmulator}
+ *
+ * <p>
+ * Every write to a memory space evicts the cached instructions whose bytes it may overlap, so
+ * that self-modifying code and patches applied by clients are re-decoded.
+ */
+public class BoundBytesPcodeExecutorState extends BytesPcodeExecutorState {
+	protected final BoundCodeCache cache;
+
+	/**
+	 * Create the state
+	 *
+	 * @param language the language (processor model)
+	 * @param cache the emulator's code cache
+	 */
+	public BoundBytesPcodeExecutorState(Language language, BoundCodeCache cache) {
+		super(language);
+		this.cache = cache;
+	}
+
+	@Override
+	public void setVar(AddressSpace space, byte[] offset, int size, boolean quantize,
+			byte[] val) {
+		setVar(space, arithmetic.toLong(offset, Purpose.STORE), size, quantize, val);
+	}
+
+	@Override
+	public void setVar(AddressSpace space, long offset, int size, boolean quantize,
+			byte[] val) {
+		if (space.isMemorySpace()) {
+			cache.invalidate(space, offset, size);
+		}
+		super.setVar(space, offset, size, quantize, val);
+	}
+
+	@Override
+	public void clear() {
+		cache.clear();
+		super.clear();
+	}
+}
@@ -0,0 +1,294 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import java.util.*;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.lang.RegisterValue;
+
+/**
+ * A cache of decoded and translated instructions for a {@link BoundPcodeEmulator}
+ *
+ * <p>
+ * Entries are keyed by address and decode context. Each entry is also indexed by the pages of
+ * memory holding the bytes read to decode it, so that a write to memory, e.g., by self-modifying
+ * code, can evict exactly the entries it may have changed. The cache holds a bounded number of
+ * entries, evicting the least recently used. It is shared by all threads of the emulator.
+ */
+public class BoundCodeCache {
+	/**
+	 * The default maximum number of entries
+	 */
+	public static final int DEFAULT_MAX_SIZE = 64 * 1024;
+
+	private static final int PAGE_BITS = 12;
+
+	/**
+	 * The key of a cached entry
+	 *
+	 * @param address the address of the instruction
+	 * @param context the decode context, or null
+	 */
+	record Key(Address address, RegisterValue context) {
+	}
+
+	private final int maxSize;
+	private final Map<Key, BoundCodeEntry> entries;
+	// the entries overlapping each page, without affecting the access order of entries
+	private final Map<AddressSpace, Map<Long, Map<Key, BoundCodeEntry>>> pages = new HashMap<>();
+
+	private long hits;
+	private long misses;
+	private long translated;
+	private long interpreted;
+	private long invalidations;
+	private long evictions;
+
+	/**
+	 * Construct a cache holding up to {@link #DEFAULT_MAX_SIZE} entries
+	 */
+	public BoundCodeCache() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	/**
+	 * Construct a cache
+	 *
+	 * @param maxSize the maximum number of entries
+	 */
+	public BoundCodeCache(int maxSize) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("maxSize must be positive");
+		}
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, BoundCodeEntry> eldest) {
+				if (size() <= BoundCodeCache.this.maxSize) {
+					return false;
+				}
+				removePages(eldest.getKey(), eldest.getValue());
+				evictions++;
+				return true;
+			}
+		};
+	}
+
+	/**
+	 * Get the cached entry for the instruction at the given address and context
+	 *
+	 * @param address the address
+	 * @param context the decode context, or null
+	 * @return the entry, or null
+	 */
+	public synchronized BoundCodeEntry get(Address address, RegisterValue context) {
+		BoundCodeEntry entry = entries.get(new Key(address, context));
+		if (entry == null) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+		return entry;
+	}
+
+	/**
+	 * Cache the entry for the instruction at the given address and context
+	 *
+	 * @param address the address
+	 * @param context the decode context, or null
+	 * @param entry the entry
+	 */
+	public synchronized void put(Address address, RegisterValue context, BoundCodeEntry entry) {
+		Key key = new Key(address, context);
+		BoundCodeEntry old = entries.remove(key);
+		if (old != null) {
+			removePages(key, old);
+		}
+		if (entry.isInterpreted()) {
+			interpreted++;
+		}
+		else {
+			translated++;
+		}
+		Map<Long, Map<Key, BoundCodeEntry>> spacePages =
+			pages.computeIfAbsent(address.getAddressSpace(), s -> new HashMap<>());
+		long first = address.getOffset() >>> PAGE_BITS;
+		long last = getEnd(address.getOffset(), entry) >>> PAGE_BITS;
+		for (long page = first; Long.compareUnsigned(page, last) <= 0; page++) {
+			spacePages.computeIfAbsent(page, p -> new HashMap<>()).put(key, entry);
+		}
+		entries.put(key, entry);
+	}
+
+	private static long getEnd(long start, BoundCodeEntry entry) {
+		return start + Math.max(1, entry.decodeLength()) - 1;
+	}
+
+	private void removePages(Key key, BoundCodeEntry entry) {
+		Map<Long, Map<Key, BoundCodeEntry>> spacePages =
+			pages.get(key.address().getAddressSpace());
+		if (spacePages == null) {
+			return;
+		}
+		long first = key.address().getOffset() >>> PAGE_BITS;
+		long last = getEnd(key.address().getOffset(), entry) >>> PAGE_BITS;
+		for (long page = first; Long.compareUnsigned(page, last) <= 0; page++) {
+			Map<Key, BoundCodeEntry> pageEntries = spacePages.get(page);
+			if (pageEntries != null && pageEntries.remove(key) != null &&
+				pageEntries.isEmpty()) {
+				spacePages.remove(page);
+			}
+		}
+	}
+
+	/**
+	 * Evict all entries whose bytes may overlap the given range
+	 *
+	 * <p>
+	 * If the range cannot be mapped to pages exactly, i.e., it wraps or the space is not
+	 * byte-addressable, the whole cache is cleared.
+	 *
+	 * @param space the address space being written
+	 * @param offset the offset of the write
+	 * @param size the number of bytes written
+	 */
+	public synchronized void invalidate(AddressSpace space, long offset, int size) {
+		if (entries.isEmpty() || size <= 0) {
+			return;
+		}
+		Map<Long, Map<Key, BoundCodeEntry>> spacePages = pages.get(space);
+		if (spacePages == null) {
+			return;
+		}
+		long end = offset + size - 1;
+		if (space.getAddressableUnitSize() != 1 || Long.compareUnsigned(end, offset) < 0) {
+			clear();
+			return;
+		}
+		Map<Key, BoundCodeEntry> overlapping = new HashMap<>();
+		long first = offset >>> PAGE_BITS;
+		long last = end >>> PAGE_BITS;
+		for (long page = first; Long.compareUnsigned(page, last) <= 0; page++) {
+			Map<Key, BoundCodeEntry> pageEntries = spacePages.get(page);
+			if (pageEntries == null) {
+				continue;
+			}
+			for (Map.Entry<Key, BoundCodeEntry> pageEntry : pageEntries.entrySet()) {
+				long start = pageEntry.getKey().address().getOffset();
+				if (Long.compareUnsigned(start, end) <= 0 &&
+					Long.compareUnsigned(offset, getEnd(start, pageEntry.getValue())) <= 0) {
+					overlapping.put(pageEntry.getKey(), pageEntry.getValue());
+				}
+			}
+		}
+		for (Map.Entry<Key, BoundCodeEntry> entry : overlapping.entrySet()) {
+			entries.remove(entry.getKey());
+			removePages(entry.getKey(), entry.getValue());
+			invalidations++;
+		}
+	}
+
+	/**
+	 * Evict all entries
+	 */
+	public synchronized void clear() {
+		invalidations += entries.size();
+		entries.clear();
+		pages.clear();
+	}
+
+	/**
+	 * Get the number of entries in the cache
+	 *
+	 * @return the size
+	 */
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the number of lookups that found an entry
+	 *
+	 * @return the number of hits
+	 */
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * Get the number of lookups that found no entry
+	 *
+	 * @return the number of misses
+	 */
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * Get the number of cached instructions whose p-code was translated
+	 *
+	 * @return the number of translated instructions
+	 */
+	public synchronized long getTranslatedCount() {
+		return translated;
+	}
+
+	/**
+	 * Get the number of cached instructions whose p-code must be interpreted
+	 *
+	 * @return the number of interpreted instructions
+	 */
+	public synchronized long getInterpretedCount() {
+		return interpreted;
+	}
+
+	/**
+	 * Get the maximum number of entries
+	 *
+	 * @return the maximum size
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Get the number of least recently used entries evicted to bound the size of the cache
+	 *
+	 * @return the number of evicted entries
+	 */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Get the number of entries evicted because their bytes were written
+	 *
+	 * @return the number of invalidated entries
+	 */
+	public synchronized long getInvalidationCount() {
+		return invalidations;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "BoundCodeCache[size=" + entries.size() + " hits=" + hits + " misses=" + misses +
+			" translated=" + translated + " interpreted=" + interpreted + " invalidations=" +
+			invalidations + " evictions=" + evictions + "]";
+	}
+}
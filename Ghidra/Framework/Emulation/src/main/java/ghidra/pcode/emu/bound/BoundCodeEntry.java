@@ -0,0 +1,43 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import ghidra.pcode.exec.BoundPcodeProgram;
+import ghidra.pcode.exec.PcodeProgram;
+import ghidra.program.model.listing.Instruction;
+
+/**
+ * A decoded instruction and its p-code, as cached by a {@link BoundCodeCache}
+ *
+ * @param instruction the decoded instruction
+ * @param lengthWithDelays the length of the instruction, including delay-slotted instructions
+ * @param decodeLength the number of bytes, from the address of the instruction, covering every
+ *            byte read to decode it, including lookahead past the end of the instruction
+ * @param program the p-code of the instruction
+ * @param bound the translated p-code, or null if it must be interpreted
+ */
+public record BoundCodeEntry(Instruction instruction, int lengthWithDelays, int decodeLength,
+		PcodeProgram program, BoundPcodeProgram bound) {
+
+	/**
+	 * Check if the p-code of this entry must be interpreted
+	 *
+	 * @return true if interpreted, false if translated
+	 */
+	public boolean isInterpreted() {
+		return bound == null;
+	}
+}
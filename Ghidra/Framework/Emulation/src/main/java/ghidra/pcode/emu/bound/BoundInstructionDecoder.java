@@ -0,0 +1,186 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import java.math.BigInteger;
+
+import ghidra.app.plugin.processors.sleigh.SleighLanguage;
+import ghidra.pcode.emu.SleighInstructionDecoder;
+import ghidra.pcode.exec.*;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.lang.RegisterValue;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.mem.*;
+
+/**
+ * An instruction decoder which caches each decoded instruction along with its translated p-code
+ *
+ * <p>
+ * On a miss, the instruction is decoded as by {@link SleighInstructionDecoder}, and its p-code is
+ * generated and translated once. Subsequent executions of the same instruction, in the same
+ * context, reuse the cached entry until any byte read to decode it is written. The bytes read are
+ * recorded while decoding, since the parser may read past the end of the instruction.
+ */
+public class BoundInstructionDecoder extends SleighInstructionDecoder {
+	protected final BoundCodeCache cache;
+
+	private BoundCodeEntry lastEntry;
+	private ReadTracker tracker;
+
+	/**
+	 * Construct a caching decoder
+	 *
+	 * @param language the language to decode
+	 * @param state the state containing the target program
+	 * @param cache the cache, usually shared by all threads of the emulator
+	 */
+	public BoundInstructionDecoder(SleighLanguage language, PcodeExecutorState<?> state,
+			BoundCodeCache cache) {
+		super(language, state);
+		this.cache = cache;
+	}
+
+	@Override
+	public Instruction decodeInstruction(Address address, RegisterValue context) {
+		BoundCodeEntry entry = cache.get(address, context);
+		if (entry == null) {
+			Instruction instruction = super.decodeInstruction(address, context);
+			PcodeProgram program = PcodeProgram.fromInstruction(instruction);
+			BoundPcodeProgram bound =
+				BoundPcodeProgram.translate((SleighLanguage) language, program);
+			// the instruction may come from a block decoded at an earlier address
+			int decodeLength = tracker.getReadLength(address);
+			entry = new BoundCodeEntry(instruction, lengthWithDelays,
+				Math.max(decodeLength, lengthWithDelays), program, bound);
+			if (decodeLength >= 0) {
+				cache.put(address, context, entry);
+			}
+		}
+		lengthWithDelays = entry.lengthWithDelays();
+		lastEntry = entry;
+		return entry.instruction();
+	}
+
+	@Override
+	protected MemBuffer getDecodeBuffer(Address address) {
+		tracker = new ReadTracker(super.getDecodeBuffer(address));
+		return tracker;
+	}
+
+	@Override
+	public Instruction getLastInstruction() {
+		return lastEntry == null ? null : lastEntry.instruction();
+	}
+
+	/**
+	 * Get the cache entry of the last instruction decoded
+	 *
+	 * @return the entry
+	 */
+	public BoundCodeEntry getLastEntry() {
+		return lastEntry;
+	}
+
+	/**
+	 * Wraps the buffer being decoded to record the range of bytes read. An instruction may only be
+	 * cached if every read was satisfied, since bytes past the end of the buffer read as zero.
+	 */
+	private static class ReadTracker implements MemBuffer {
+		private final MemBuffer buf;
+		private int readLength;		// One past the last byte offset read
+		private boolean complete = true;	// False if a read was short or out of range
+
+		ReadTracker(MemBuffer buf) {
+			this.buf = buf;
+		}
+
+		/**
+		 * Get the number of bytes, from the given address, which covers every byte read
+		 * 
+		 * @param address an address at or after the start of the buffer
+		 * @return the length, or -1 if the reads cannot be described that way
+		 */
+		int getReadLength(Address address) {
+			if (!complete) {
+				return -1;
+			}
+			return readLength - (int) address.subtract(buf.getAddress());
+		}
+
+		private void record(int offset, int size) {
+			if (offset < 0) {
+				complete = false;
+			}
+			readLength = Math.max(readLength, offset + size);
+		}
+
+		@Override
+		public int getBytes(byte[] b, int offset) {
+			int readSize = buf.getBytes(b, offset);
+			if (readSize != b.length) {
+				complete = false;
+			}
+			record(offset, b.length);
+			return readSize;
+		}
+
+		@Override
+		public byte getByte(int offset) throws MemoryAccessException {
+			record(offset, 1);
+			return buf.getByte(offset);
+		}
+
+		@Override
+		public short getShort(int offset) throws MemoryAccessException {
+			record(offset, 2);
+			return buf.getShort(offset);
+		}
+
+		@Override
+		public int getInt(int offset) throws MemoryAccessException {
+			record(offset, 4);
+			return buf.getInt(offset);
+		}
+
+		@Override
+		public long getLong(int offset) throws MemoryAccessException {
+			record(offset, 8);
+			return buf.getLong(offset);
+		}
+
+		@Override
+		public BigInteger getBigInteger(int offset, int size, boolean signed)
+				throws MemoryAccessException {
+			record(offset, size);
+			return buf.getBigInteger(offset, size, signed);
+		}
+
+		@Override
+		public Address getAddress() {
+			return buf.getAddress();
+		}
+
+		@Override
+		public Memory getMemory() {
+			return buf.getMemory();
+		}
+
+		@Override
+		public boolean isBigEndian() {
+			return buf.isBigEndian();
+		}
+	}
+}
@@ -0,0 +1,68 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import ghidra.pcode.emu.PcodeEmulator;
+import ghidra.pcode.exec.BoundPcodeProgram;
+import ghidra.pcode.exec.PcodeExecutorState;
+import ghidra.program.model.lang.Language;
+
+/**
+ * A p-code emulator which translates the p-code of each decoded instruction once, and caches it
+ *
+ * <p>
+ * This emulator behaves exactly as {@link PcodeEmulator}, but decodes each instruction only once,
+ * and executes its p-code as a {@link BoundPcodeProgram}, which is considerably faster than
+ * interpretation for long-running emulation, e.g., fuzzing. Instructions whose p-code cannot be
+ * translated, e.g., because they invoke userops, as well as injects, are interpreted. Writes to
+ * memory evict the affected instructions from the {@link BoundCodeCache}, so self-modifying code is
+ * supported.
+ *
+ * <p>
+ * Extensions that require a different arithmetic or state cannot use this emulator, since
+ * translated programs operate on concrete bytes.
+ */
+public class BoundPcodeEmulator extends PcodeEmulator {
+	protected final BoundCodeCache codeCache = new BoundCodeCache();
+
+	/**
+	 * Construct a new concrete emulator which translates instructions
+	 *
+	 * @param language the language of the target processor
+	 */
+	public BoundPcodeEmulator(Language language) {
+		super(language);
+	}
+
+	/**
+	 * Get the cache of decoded and translated instructions
+	 *
+	 * @return the cache
+	 */
+	public BoundCodeCache getCodeCache() {
+		return codeCache;
+	}
+
+	@Override
+	protected BoundPcodeThread createThread(String name) {
+		return new BoundPcodeThread(name, this);
+	}
+
+	@Override
+	protected PcodeExecutorState<byte[]> createSharedState() {
+		return new BoundBytesPcodeExecutorState(language, codeCache);
+	}
+}
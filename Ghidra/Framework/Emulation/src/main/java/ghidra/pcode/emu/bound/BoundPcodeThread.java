@@ -0,0 +1,112 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import ghidra.pcode.emu.BytesPcodeThread;
+import ghidra.pcode.emu.SleighInstructionDecoder;
+import ghidra.pcode.exec.*;
+import ghidra.program.model.address.Address;
+
+/**
+ * A thread of a {@link BoundPcodeEmulator}
+ *
+ * <p>
+ * Whole instructions, i.e., {@link #stepInstruction()} and {@link #run()}, execute the cached
+ * translated p-code, if available. Stepping individual p-code ops, injects, and instructions that
+ * could not be translated all use the interpreter.
+ */
+public class BoundPcodeThread extends BytesPcodeThread {
+
+	private final BoundPcodeProgram.StepListener listener = new BoundPcodeProgram.StepListener() {
+		@Override
+		public void beforeOp(PcodeFrame frame) {
+			if (isSuspended() || getMachine().isSuspended()) {
+				throw new SuspendedPcodeExecutionException(frame, null);
+			}
+		}
+
+		@Override
+		public void afterOp(PcodeFrame frame) {
+			stepped();
+		}
+	};
+
+	/**
+	 * Construct a new thread
+	 *
+	 * @param name the thread's name
+	 * @param machine the machine to which the thread belongs
+	 */
+	public BoundPcodeThread(String name, BoundPcodeEmulator machine) {
+		super(name, machine);
+	}
+
+	@Override
+	public BoundPcodeEmulator getMachine() {
+		return (BoundPcodeEmulator) super.getMachine();
+	}
+
+	@Override
+	protected SleighInstructionDecoder createInstructionDecoder(
+			PcodeExecutorState<byte[]> sharedState) {
+		return new BoundInstructionDecoder(language, sharedState, getMachine().getCodeCache());
+	}
+
+	/**
+	 * Get the cache entry for the instruction at the counter
+	 *
+	 * @return the entry
+	 */
+	protected BoundCodeEntry decodeEntry() {
+		BoundInstructionDecoder boundDecoder = (BoundInstructionDecoder) decoder;
+		instruction = boundDecoder.decodeInstruction(getCounter(), getContext());
+		return boundDecoder.getLastEntry();
+	}
+
+	@Override
+	public void executeInstruction() {
+		assertCompletedInstruction();
+		BoundCodeEntry entry = decodeEntry();
+		preExecuteInstruction();
+		try {
+			if (entry.isInterpreted()) {
+				frame = executor.execute(entry.program(), library);
+			}
+			else {
+				frame = executor.begin(entry.program());
+				entry.bound().execute(executor, frame, library, listener);
+			}
+		}
+		catch (PcodeExecutionException e) {
+			frame = e.getFrame();
+			throw e;
+		}
+		advanceAfterFinished();
+	}
+
+	@Override
+	protected void beginInstructionOrInject() {
+		Address counter = getCounter();
+		PcodeProgram inj = getInject(counter);
+		if (inj != null) {
+			instruction = null;
+			frame = executor.begin(inj);
+		}
+		else {
+			frame = executor.begin(decodeEntry().program());
+		}
+	}
+}
@@ -0,0 +1,520 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.exec;
+
+import java.util.*;
+
+import ghidra.app.plugin.processors.sleigh.SleighLanguage;
+import ghidra.pcode.opbehavior.*;
+import ghidra.pcode.utils.Utils;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.pcode.PcodeOp;
+import ghidra.program.model.pcode.Varnode;
+
+/**
+ * A p-code program whose ops are bound ahead of time for fast execution on concrete bytes
+ *
+ * <p>
+ * The {@link PcodeExecutor} interprets each op anew every time it is executed: it looks up the
+ * op's behavior, reads each input varnode from the state as a byte array, converts the arrays to
+ * values and the result back to an array, and writes it to the state. Translation does all the
+ * per-op work that does not depend on the machine state once, ahead of execution. Each op becomes
+ * an object bound to its behavior, its input and output locations, and its sizes. Values are
+ * passed between ops as {@code long}s, constants are decoded during translation, and unique
+ * (temporary) variables are held in an array local to the execution rather than in the state.
+ *
+ * <p>
+ * Register and memory variables, as well as loads and stores, still go through the executor's
+ * state and its load/store checks, so clients and state modifiers observe exactly the values the
+ * interpreter would produce. Branches are delegated to the executor. A program is only translated
+ * if all its varnodes fit in 8 bytes and it does not invoke any userop;
+ * {@link #translate(SleighLanguage, PcodeProgram)} returns null for any other program, which
+ * must then be interpreted.
+ *
+ * <p>
+ * Execution advances the given {@link PcodeFrame} exactly as the interpreter would. If an op
+ * throws, the unique variables are written to the state and the exception carries the frame, so
+ * that execution can be resumed by the interpreter.
+ */
+public class BoundPcodeProgram {
+	private static final int MAX_VALUE_SIZE = 8;
+
+	/**
+	 * A callback invoked around each op executed by a translated program
+	 */
+	public interface StepListener {
+		/**
+		 * The frame has advanced, and the op is about to execute
+		 *
+		 * @param frame the frame
+		 */
+		void beforeOp(PcodeFrame frame);
+
+		/**
+		 * The op has executed
+		 *
+		 * @param frame the frame
+		 */
+		void afterOp(PcodeFrame frame);
+	}
+
+	private static final StepListener NO_LISTENER = new StepListener() {
+		@Override
+		public void beforeOp(PcodeFrame frame) {
+		}
+
+		@Override
+		public void afterOp(PcodeFrame frame) {
+		}
+	};
+
+	/**
+	 * The state of one execution of a translated program
+	 */
+	private static final class Execution {
+		final BoundPcodeProgram program;
+		final PcodeExecutor<byte[]> executor;
+		final PcodeExecutorState<byte[]> state;
+		final PcodeUseropLibrary<byte[]> library;
+		final long[] uniques;
+		final boolean[] written;
+
+		Execution(BoundPcodeProgram program, PcodeExecutor<byte[]> executor,
+				PcodeUseropLibrary<byte[]> library) {
+			this.program = program;
+			this.executor = executor;
+			this.state = executor.state;
+			this.library = library;
+			this.uniques = new long[program.slotOffsets.length];
+			this.written = new boolean[program.slotOffsets.length];
+		}
+
+		/**
+		 * Write the value of a unique variable held by this execution to the state
+		 *
+		 * @param slot the variable's slot
+		 */
+		void spill(int slot) {
+			int size = program.slotSizes[slot];
+			state.setVar(program.uniqueSpace, program.slotOffsets[slot], size, true,
+				Utils.longToBytes(uniques[slot], size, program.bigEndian));
+		}
+
+		/**
+		 * Write the values of all unique variables assigned so far to the state
+		 */
+		void spillAll() {
+			for (int slot = 0; slot < uniques.length; slot++) {
+				if (written[slot]) {
+					spill(slot);
+				}
+			}
+		}
+	}
+
+	private interface Input {
+		long read(Execution x);
+	}
+
+	private interface Output {
+		void write(Execution x, long value);
+	}
+
+	private interface Op {
+		void run(Execution x, PcodeFrame frame);
+	}
+
+	private record ConstInput(long value) implements Input {
+		@Override
+		public long read(Execution x) {
+			return value;
+		}
+	}
+
+	private record UniqueInput(int slot) implements Input {
+		@Override
+		public long read(Execution x) {
+			return x.uniques[slot];
+		}
+	}
+
+	private record StateInput(AddressSpace space, long offset, int size, boolean bigEndian)
+			implements Input {
+		@Override
+		public long read(Execution x) {
+			byte[] bytes = x.state.getVar(space, offset, size, true, x.executor.reason);
+			return Utils.bytesToLong(bytes, size, bigEndian);
+		}
+	}
+
+	private record UniqueOutput(int slot, long mask) implements Output {
+		@Override
+		public void write(Execution x, long value) {
+			x.uniques[slot] = value & mask;
+			x.written[slot] = true;
+		}
+	}
+
+	private record StateOutput(AddressSpace space, long offset, int size, boolean bigEndian)
+			implements Output {
+		@Override
+		public void write(Execution x, long value) {
+			x.state.setVar(space, offset, size, true, Utils.longToBytes(value, size, bigEndian));
+		}
+	}
+
+	private record UnaryOp(UnaryOpBehavior behavior, int sizeout, int sizein, Input in,
+			Output out) implements Op {
+		@Override
+		public void run(Execution x, PcodeFrame frame) {
+			out.write(x, behavior.evaluateUnary(sizeout, sizein, in.read(x)));
+		}
+	}
+
+	private record BinaryOp(BinaryOpBehavior behavior, int sizeout, int sizein, Input in1,
+			Input in2, Output out) implements Op {
+		@Override
+		public void run(Execution x, PcodeFrame frame) {
+			long in1Val = in1.read(x);
+			long in2Val = in2.read(x);
+			out.write(x, behavior.evaluateBinary(sizeout, sizein, in1Val, in2Val));
+		}
+	}
+
+	private record LoadOp(AddressSpace space, Input offset, int offsetSize, int size, Output out,
+			boolean bigEndian) implements Op {
+		@Override
+		public void run(Execution x, PcodeFrame frame) {
+			byte[] off = Utils.longToBytes(offset.read(x), offsetSize, bigEndian);
+			x.executor.checkLoad(space, off, size);
+			byte[] val = x.state.getVar(space, off, size, true, x.executor.reason);
+			byte[] mod = x.executor.arithmetic.modAfterLoad(size, offsetSize, off, size, val);
+			out.write(x, Utils.bytesToLong(mod, size, bigEndian));
+		}
+	}
+
+	private record StoreOp(AddressSpace space, Input offset, int offsetSize, Input value, int size,
+			boolean bigEndian) implements Op {
+		@Override
+		public void run(Execution x, PcodeFrame frame) {
+			byte[] off = Utils.longToBytes(offset.read(x), offsetSize, bigEndian);
+			x.executor.checkStore(space, off, size);
+			byte[] val = Utils.longToBytes(value.read(x), size, bigEndian);
+			byte[] mod = x.executor.arithmetic.modBeforeStore(size, offsetSize, off, size, val);
+			x.state.setVar(space, off, size, true, mod);
+		}
+	}
+
+	/**
+	 * A control-flow op, delegated to the executor after writing its unique inputs to the state
+	 */
+	private record BranchOp(PcodeOp op, int[] uniqueSlots) implements Op {
+		@Override
+		public void run(Execution x, PcodeFrame frame) {
+			for (int slot : uniqueSlots) {
+				x.spill(slot);
+			}
+			switch (op.getOpcode()) {
+				case PcodeOp.BRANCH:
+					x.executor.executeBranch(op, frame);
+					return;
+				case PcodeOp.CBRANCH:
+					x.executor.executeConditionalBranch(op, frame);
+					return;
+				case PcodeOp.BRANCHIND:
+					x.executor.executeIndirectBranch(op, frame);
+					return;
+				case PcodeOp.CALL:
+					x.executor.executeCall(op, frame, x.library);
+					return;
+				case PcodeOp.CALLIND:
+					x.executor.executeIndirectCall(op, frame);
+					return;
+				case PcodeOp.RETURN:
+					x.executor.executeReturn(op, frame);
+					return;
+				default:
+					throw new AssertionError("Not a branch: " + op);
+			}
+		}
+	}
+
+	/**
+	 * Assigns unique variables to slots of an execution, if their use permits
+	 */
+	private static class UniqueAllocator {
+		final Map<Long, Integer> slotsByOffset = new HashMap<>();
+		final List<Long> offsets = new ArrayList<>();
+		final List<Integer> sizes = new ArrayList<>();
+
+		/**
+		 * Assign slots to all unique variables of the given ops
+		 *
+		 * <p>
+		 * Unique variables are held in slots only when each is always accessed with the same
+		 * size, none overlap, and each is written before it is read (in program order).
+		 * Otherwise, the state holds them as it would for the interpreter.
+		 *
+		 * @param code the ops
+		 * @return true if slots were assigned, false if the state must hold the unique variables
+		 */
+		boolean allocate(List<PcodeOp> code) {
+			Map<Long, Integer> sizeByOffset = new TreeMap<>(Long::compareUnsigned);
+			Set<Long> assigned = new HashSet<>();
+			for (PcodeOp op : code) {
+				for (Varnode in : op.getInputs()) {
+					if (in.isUnique()) {
+						if (!assigned.contains(in.getOffset()) ||
+							sizeByOffset.get(in.getOffset()) != in.getSize()) {
+							return false;
+						}
+					}
+				}
+				Varnode out = op.getOutput();
+				if (out != null && out.isUnique()) {
+					Integer prev = sizeByOffset.putIfAbsent(out.getOffset(), out.getSize());
+					if (prev != null && prev != out.getSize()) {
+						return false;
+					}
+					assigned.add(out.getOffset());
+				}
+			}
+			long end = 0;
+			boolean first = true;
+			for (Map.Entry<Long, Integer> ent : sizeByOffset.entrySet()) {
+				long offset = ent.getKey();
+				if (!first && Long.compareUnsigned(offset, end) < 0) {
+					return false;
+				}
+				first = false;
+				end = offset + ent.getValue();
+				slotsByOffset.put(offset, offsets.size());
+				offsets.add(offset);
+				sizes.add(ent.getValue());
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * Translate the given program, if possible
+	 *
+	 * @param language the language of the program
+	 * @param program the program, e.g., decoded from an instruction
+	 * @return the translated program, or null if the program must be interpreted
+	 */
+	public static BoundPcodeProgram translate(SleighLanguage language, PcodeProgram program) {
+		boolean bigEndian = language.isBigEndian();
+		List<PcodeOp> code = program.getCode();
+		for (PcodeOp op : code) {
+			if (!isTranslatable(op)) {
+				return null;
+			}
+		}
+
+		UniqueAllocator allocator = new UniqueAllocator();
+		boolean useSlots = allocator.allocate(code);
+		Map<Long, Integer> slots = useSlots ? allocator.slotsByOffset : Map.of();
+
+		Op[] ops = new Op[code.size()];
+		for (int i = 0; i < ops.length; i++) {
+			ops[i] = translateOp(language, code.get(i), slots, bigEndian);
+		}
+		long[] slotOffsets = new long[slots.size()];
+		int[] slotSizes = new int[slots.size()];
+		for (int i = 0; i < slotOffsets.length; i++) {
+			slotOffsets[i] = allocator.offsets.get(i);
+			slotSizes[i] = allocator.sizes.get(i);
+		}
+		return new BoundPcodeProgram(program, ops, slotOffsets, slotSizes,
+			language.getAddressFactory().getUniqueSpace(), bigEndian);
+	}
+
+	private static boolean isTranslatable(PcodeOp op) {
+		Varnode out = op.getOutput();
+		if (out != null && out.getSize() > MAX_VALUE_SIZE) {
+			return false;
+		}
+		for (Varnode in : op.getInputs()) {
+			if (in.getSize() > MAX_VALUE_SIZE) {
+				return false;
+			}
+		}
+		switch (op.getOpcode()) {
+			case PcodeOp.LOAD:
+			case PcodeOp.STORE:
+			case PcodeOp.BRANCH:
+			case PcodeOp.CBRANCH:
+			case PcodeOp.BRANCHIND:
+			case PcodeOp.CALL:
+			case PcodeOp.CALLIND:
+			case PcodeOp.RETURN:
+				return true;
+			case PcodeOp.CALLOTHER:
+				return false; // userops receive varnodes and access the state themselves
+			default:
+				OpBehavior b = OpBehaviorFactory.getOpBehavior(op.getOpcode());
+				return out != null &&
+					(b instanceof UnaryOpBehavior || b instanceof BinaryOpBehavior);
+		}
+	}
+
+	private static Input translateInput(Varnode vn, Map<Long, Integer> slots, boolean bigEndian) {
+		if (vn.isConstant()) {
+			return new ConstInput(vn.getOffset() & Utils.calc_mask(vn.getSize()));
+		}
+		Integer slot = vn.isUnique() ? slots.get(vn.getOffset()) : null;
+		if (slot != null) {
+			return new UniqueInput(slot);
+		}
+		return new StateInput(vn.getAddress().getAddressSpace(), vn.getOffset(), vn.getSize(),
+			bigEndian);
+	}
+
+	private static Output translateOutput(Varnode vn, Map<Long, Integer> slots,
+			boolean bigEndian) {
+		Integer slot = vn.isUnique() ? slots.get(vn.getOffset()) : null;
+		if (slot != null) {
+			return new UniqueOutput(slot, Utils.calc_mask(vn.getSize()));
+		}
+		return new StateOutput(vn.getAddress().getAddressSpace(), vn.getOffset(), vn.getSize(),
+			bigEndian);
+	}
+
+	private static Op translateOp(SleighLanguage language, PcodeOp op, Map<Long, Integer> slots,
+			boolean bigEndian) {
+		switch (op.getOpcode()) {
+			case PcodeOp.LOAD: {
+				AddressSpace space = getSpace(language, op.getInput(0));
+				Varnode offset = op.getInput(1);
+				Varnode out = op.getOutput();
+				return new LoadOp(space, translateInput(offset, slots, bigEndian),
+					offset.getSize(), out.getSize(), translateOutput(out, slots, bigEndian),
+					bigEndian);
+			}
+			case PcodeOp.STORE: {
+				AddressSpace space = getSpace(language, op.getInput(0));
+				Varnode offset = op.getInput(1);
+				Varnode value = op.getInput(2);
+				return new StoreOp(space, translateInput(offset, slots, bigEndian),
+					offset.getSize(), translateInput(value, slots, bigEndian), value.getSize(),
+					bigEndian);
+			}
+			case PcodeOp.BRANCH:
+			case PcodeOp.CBRANCH:
+			case PcodeOp.BRANCHIND:
+			case PcodeOp.CALL:
+			case PcodeOp.CALLIND:
+			case PcodeOp.RETURN: {
+				int[] uniqueSlots = Arrays.stream(op.getInputs())
+						.filter(Varnode::isUnique)
+						.mapToInt(vn -> slots.getOrDefault(vn.getOffset(), -1))
+						.filter(slot -> slot >= 0)
+						.toArray();
+				return new BranchOp(op, uniqueSlots);
+			}
+			default:
+				break;
+		}
+		OpBehavior b = OpBehaviorFactory.getOpBehavior(op.getOpcode());
+		Varnode out = op.getOutput();
+		Varnode in1 = op.getInput(0);
+		if (b instanceof UnaryOpBehavior unOp) {
+			return new UnaryOp(unOp, out.getSize(), in1.getSize(),
+				translateInput(in1, slots, bigEndian), translateOutput(out, slots, bigEndian));
+		}
+		BinaryOpBehavior binOp = (BinaryOpBehavior) b;
+		return new BinaryOp(binOp, out.getSize(), in1.getSize(),
+			translateInput(in1, slots, bigEndian),
+			translateInput(op.getInput(1), slots, bigEndian),
+			translateOutput(out, slots, bigEndian));
+	}
+
+	private static AddressSpace getSpace(SleighLanguage language, Varnode spaceId) {
+		return language.getAddressFactory().getAddressSpace((int) spaceId.getOffset());
+	}
+
+	private final PcodeProgram program;
+	private final Op[] ops;
+	private final long[] slotOffsets;
+	private final int[] slotSizes;
+	private final AddressSpace uniqueSpace;
+	private final boolean bigEndian;
+
+	private BoundPcodeProgram(PcodeProgram program, Op[] ops, long[] slotOffsets, int[] slotSizes,
+			AddressSpace uniqueSpace, boolean bigEndian) {
+		this.program = program;
+		this.ops = ops;
+		this.slotOffsets = slotOffsets;
+		this.slotSizes = slotSizes;
+		this.uniqueSpace = uniqueSpace;
+		this.bigEndian = bigEndian;
+	}
+
+	/**
+	 * Get the program from which this was translated
+	 *
+	 * @return the program
+	 */
+	public PcodeProgram getProgram() {
+		return program;
+	}
+
+	/**
+	 * Get the number of unique variables held outside the state during execution
+	 *
+	 * @return the number of unique variables
+	 */
+	public int getUniqueSlotCount() {
+		return slotOffsets.length;
+	}
+
+	/**
+	 * Execute this program to completion
+	 *
+	 * @param executor the executor, whose state, arithmetic, and branch logic are used
+	 * @param frame a frame for this program's code, as from
+	 *            {@link PcodeExecutor#begin(PcodeProgram)}
+	 * @param library the userop library, passed to the executor for calls
+	 * @param listener a callback around each op, or null
+	 */
+	public void execute(PcodeExecutor<byte[]> executor, PcodeFrame frame,
+			PcodeUseropLibrary<byte[]> library, StepListener listener) {
+		if (listener == null) {
+			listener = NO_LISTENER;
+		}
+		Execution x = new Execution(this, executor, library);
+		try {
+			while (!frame.isFinished()) {
+				int index = frame.advance();
+				listener.beforeOp(frame);
+				ops[index].run(x, frame);
+				listener.afterOp(frame);
+			}
+		}
+		catch (PcodeExecutionException e) {
+			x.spillAll();
+			if (e.frame == null) {
+				e.frame = frame;
+			}
+			throw e;
+		}
+		catch (Exception e) {
+			x.spillAll();
+			throw new PcodeExecutionException(e.getMessage(), frame, e);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.emu.bound;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import generic.test.AbstractGTest;
+import ghidra.program.model.address.*;
+
+public class BoundCodeCacheTest extends AbstractGTest {
+	private final AddressSpace space =
+		new GenericAddressSpace("ram", 64, AddressSpace.TYPE_RAM, 0);
+
+	protected Address addr(long offset) {
+		return space.getAddress(offset);
+	}
+
+	protected BoundCodeEntry entry(int length, int decodeLength) {
+		return new BoundCodeEntry(null, length, decodeLength, null, null);
+	}
+
+	@Test
+	public void testInvalidateLookahead() {
+		BoundCodeCache cache = new BoundCodeCache();
+		// a 2-byte instruction whose decoding read 8 bytes
+		cache.put(addr(0x1000), null, entry(2, 8));
+
+		cache.invalidate(space, 0x1008, 4);
+		cache.invalidate(space, 0x0ff0, 0x10);
+		assertNotNull(cache.get(addr(0x1000), null));
+
+		cache.invalidate(space, 0x1006, 1);
+		assertNull(cache.get(addr(0x1000), null));
+		assertEquals(1, cache.getInvalidationCount());
+	}
+
+	@Test
+	public void testInvalidateAcrossPages() {
+		BoundCodeCache cache = new BoundCodeCache();
+		cache.put(addr(0x1ffe), null, entry(4, 4));
+		cache.put(addr(0x2004), null, entry(4, 4));
+
+		cache.invalidate(space, 0x2001, 1);
+		assertNull(cache.get(addr(0x1ffe), null));
+		assertNotNull(cache.get(addr(0x2004), null));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() {
+		BoundCodeCache cache = new BoundCodeCache(2);
+		cache.put(addr(0x1000), null, entry(4, 4));
+		cache.put(addr(0x1004), null, entry(4, 4));
+		assertNotNull(cache.get(addr(0x1000), null));
+
+		cache.put(addr(0x1008), null, entry(4, 4));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.getEvictionCount());
+		assertNull(cache.get(addr(0x1004), null));
+		assertNotNull(cache.get(addr(0x1000), null));
+		assertNotNull(cache.get(addr(0x1008), null));
+
+		// the evicted entry no longer counts as invalidated
+		cache.invalidate(space, 0x1004, 4);
+		assertEquals(0, cache.getInvalidationCount());
+		assertEquals(2, cache.size());
+	}
+}
@@ -0,0 +1,213 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.pcode.exec;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generic.test.AbstractGTest;
+import ghidra.GhidraTestApplicationLayout;
+import ghidra.app.plugin.processors.sleigh.SleighLanguage;
+import ghidra.app.plugin.processors.sleigh.SleighLanguageHelper;
+import ghidra.framework.Application;
+import ghidra.framework.ApplicationConfiguration;
+import ghidra.pcode.exec.PcodeExecutorStatePiece.Reason;
+import ghidra.pcode.utils.Utils;
+import ghidra.program.model.address.AddressSpace;
+import ghidra.program.model.lang.Register;
+import ghidra.program.model.pcode.Varnode;
+
+public class BoundPcodeProgramTest extends AbstractGTest {
+	private SleighLanguage language;
+
+	@Before
+	public void setUp() throws Exception {
+		if (!Application.isInitialized()) {
+			Application.initializeApplication(
+				new GhidraTestApplicationLayout(new File(getTestDirectoryPath())),
+				new ApplicationConfiguration());
+		}
+		language = SleighLanguageHelper.getMockBE64Language();
+	}
+
+	protected PcodeProgram compile(String source) {
+		return SleighProgramCompiler.compileProgram(language, "test", source,
+			PcodeUseropLibrary.nil());
+	}
+
+	protected BytesPcodeExecutorState createState(long... regs) {
+		BytesPcodeExecutorState state = new BytesPcodeExecutorState(language);
+		for (int i = 0; i < regs.length; i++) {
+			setReg(state, "r" + i, regs[i]);
+		}
+		return state;
+	}
+
+	protected void setReg(PcodeExecutorState<byte[]> state, String name, long value) {
+		Register reg = language.getRegister(name);
+		state.setVar(reg, Utils.longToBytes(value, reg.getNumBytes(), true));
+	}
+
+	protected long getReg(PcodeExecutorState<byte[]> state, String name) {
+		Register reg = language.getRegister(name);
+		return Utils.bytesToLong(state.getVar(reg, Reason.INSPECT), reg.getNumBytes(), true);
+	}
+
+	protected PcodeExecutor<byte[]> createExecutor(PcodeExecutorState<byte[]> state) {
+		return new PcodeExecutor<>(language, BytesPcodeArithmetic.forLanguage(language), state,
+			Reason.EXECUTE_READ);
+	}
+
+	protected void interpret(PcodeProgram program, PcodeExecutorState<byte[]> state) {
+		createExecutor(state).execute(program, PcodeUseropLibrary.nil());
+	}
+
+	protected void executeTranslated(BoundPcodeProgram bound,
+			PcodeExecutorState<byte[]> state) {
+		PcodeExecutor<byte[]> executor = createExecutor(state);
+		PcodeFrame frame = executor.begin(bound.getProgram());
+		bound.execute(executor, frame, PcodeUseropLibrary.nil(), null);
+		assertTrue(frame.isFinished());
+	}
+
+	protected void assertSameResults(String source, long... regs) {
+		PcodeProgram program = compile(source);
+		BoundPcodeProgram bound = BoundPcodeProgram.translate(language, program);
+		assertNotNull(bound);
+
+		BytesPcodeExecutorState expected = createState(regs);
+		interpret(program, expected);
+		BytesPcodeExecutorState actual = createState(regs);
+		executeTranslated(bound, actual);
+
+		for (int i = 0; i < 8; i++) {
+			assertEquals("r" + i, getReg(expected, "r" + i), getReg(actual, "r" + i));
+		}
+	}
+
+	@Test
+	public void testArithmetic() {
+		String source = """
+				local t:8 = r0 + r1;
+				r2 = t * 3;
+				r3 = t >> 4;
+				r4 = zext(r0:4 s< r1:4);
+				r5 = sext(r1:2);
+				r6 = ~r0 ^ (r1 & 0xff00);
+				""";
+		assertSameResults(source, 5, 7);
+		assertSameResults(source, -1, 0x8001);
+		assertSameResults(source, 0x7fffffff_ffffffffL, 1);
+	}
+
+	@Test
+	public void testLoadStore() {
+		String source = """
+				*[ram]:8 r3 = r0 + r1;
+				*[ram]:2 (r3 + 8) = r1:2;
+				r4 = *[ram]:8 r3;
+				r5 = zext(*[ram]:2 (r3 + 8));
+				r6 = *[ram]:8 (r3 + 4);
+				""";
+		assertSameResults(source, 0x1122334455667788L, 0x99, 0, 0x1000);
+	}
+
+	@Test
+	public void testInternalBranches() {
+		String source = """
+				r2 = 0;
+				<loop>
+				if (r0 == 0) goto <done>;
+				r2 = r2 + r1;
+				r0 = r0 - 1;
+				goto <loop>;
+				<done>
+				""";
+		assertSameResults(source, 10, 3);
+		assertSameResults(source, 0, 3);
+	}
+
+	@Test
+	public void testUniqueSlots() {
+		PcodeProgram program = compile("""
+				local a:8 = r0 * 2;
+				local b:8 = a + 1;
+				r1 = b >> 32;
+				""");
+		BoundPcodeProgram bound = BoundPcodeProgram.translate(language, program);
+		assertNotNull(bound);
+		assertTrue(bound.getUniqueSlotCount() > 0);
+
+		BytesPcodeExecutorState state = createState(0x80000000L);
+		executeTranslated(bound, state);
+		assertEquals(1, getReg(state, "r1"));
+		// Uniques held in slots never reach the state
+		Varnode a = program.getCode().get(0).getOutput();
+		byte[] inState = state.getVar(a.getAddress().getAddressSpace(), a.getOffset(),
+			a.getSize(), true, Reason.INSPECT);
+		assertEquals(0, Utils.bytesToLong(inState, a.getSize(), true));
+	}
+
+	@Test
+	public void testWideVarnodeNotTranslated() {
+		PcodeProgram program = compile("""
+				local big:16 = zext(r0);
+				r1 = big:8;
+				""");
+		assertNull(BoundPcodeProgram.translate(language, program));
+	}
+
+	@Test
+	public void testExceptionSpillsUniquesAndCarriesFrame() {
+		PcodeProgram program = compile("""
+				local t:8 = r0 + 1;
+				r1 = t;
+				r2 = *[ram]:8 r3;
+				""");
+		BoundPcodeProgram bound = BoundPcodeProgram.translate(language, program);
+		assertNotNull(bound);
+
+		BytesPcodeExecutorState state = createState(1, 0, 0, 0);
+		PcodeExecutor<byte[]> executor =
+			new PcodeExecutor<>(language, BytesPcodeArithmetic.forLanguage(language), state,
+				Reason.EXECUTE_READ) {
+				@Override
+				protected void checkLoad(AddressSpace space, byte[] offset, int size) {
+					throw new PcodeExecutionException("fault");
+				}
+			};
+		PcodeFrame frame = executor.begin(program);
+		PcodeExecutionException exc = null;
+		try {
+			bound.execute(executor, frame, PcodeUseropLibrary.nil(), null);
+		}
+		catch (PcodeExecutionException e) {
+			exc = e;
+		}
+		assertNotNull("The load should have faulted", exc);
+		assertSame(frame, exc.getFrame());
+		assertEquals(2, getReg(state, "r1"));
+
+		Varnode t = program.getCode().get(0).getOutput();
+		byte[] spilled = state.getVar(t.getAddress().getAddressSpace(), t.getOffset(),
+			t.getSize(), true, Reason.INSPECT);
+		assertEquals(2, Utils.bytesToLong(spilled, t.getSize(), true));
+	}
+}
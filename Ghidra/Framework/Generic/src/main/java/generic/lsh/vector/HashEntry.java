@@ -60,6 +60,21 @@ public class HashEntry {
 		coeff = w.getCoeff(idf, tf);
 	}
 
+	/**
+	 * Create a hash entry with an explicit idf frequency and weight, as when restoring
+	 * an entry whose weight was previously calculated
+	 * @param h      is the 32-bit hash
+	 * @param tcnt   is the term frequency count
+	 * @param dcnt   is the (normalized) idf frequency
+	 * @param weight is the weight associated with the hash
+	 */
+	public HashEntry(int h, int tcnt, int dcnt, double weight) {
+		hash = h;
+		tf = (short) ((tcnt > 63) ? 63 : tcnt - 1);
+		idf = (short) ((dcnt > 511) ? 511 : dcnt);
+		coeff = weight;
+	}
+
 	/**
 	 * Eclipse-generated hash function.
 	 * 
@@ -0,0 +1,155 @@
+/* ###
+ * IP: GHIDRA
+ * NOTE: Locality Sensitive Hashing
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package generic.lsh.vector;
+
+/**
+ * An immutable copy of an {@link LSHCosineVector} held in primitive arrays rather than
+ * {@link HashEntry} objects.  Comparing two packed vectors produces exactly the same results
+ * as {@link LSHCosineVector#compare(LSHVector, VectorCompare)}, but walks contiguous arrays
+ * instead of dereferencing an object per entry, which makes it suitable for comparing one
+ * query vector against a large number of vectors.
+ */
+public class PackedCosineVector {
+
+	// Entries of a sorted block are skipped at once if the last one is below the other hash
+	private static final int SKIP_BLOCK = 4;
+
+	private final int[] hash;		// Hashes, sorted as unsigned values
+	private final short[] tf;		// Term frequency of each hash
+	private final double[] coeff;	// Weight of each hash
+	private final double length;	// Length of the vector
+	private final int hashCount;	// Total number of hashes (counting multiplicity)
+
+	/**
+	 * Pack the entries of a vector
+	 * @param vec is the vector to pack
+	 */
+	public PackedCosineVector(LSHVector vec) {
+		HashEntry[] entries = vec.getEntries();
+		hash = new int[entries.length];
+		tf = new short[entries.length];
+		coeff = new double[entries.length];
+		int count = 0;
+		for (int i = 0; i < entries.length; ++i) {
+			hash[i] = entries[i].getHash();
+			tf[i] = entries[i].getTF();
+			coeff[i] = entries[i].getCoeff();
+			count += tf[i];
+		}
+		hashCount = count;
+		length = vec.getLength();
+	}
+
+	/**
+	 * @return the number of distinct hashes in this vector
+	 */
+	public int numEntries() {
+		return hash.length;
+	}
+
+	/**
+	 * @return the hashes of this vector, sorted as unsigned values.  The array is not
+	 * copied and must not be modified.
+	 */
+	public int[] getHashes() {
+		return hash;
+	}
+
+	/**
+	 * @return the term frequency of each hash.  The array is not copied and must not be
+	 * modified.
+	 */
+	public short[] getTFs() {
+		return tf;
+	}
+
+	/**
+	 * @return the weight of each hash.  The array is not copied and must not be modified.
+	 */
+	public double[] getCoeffs() {
+		return coeff;
+	}
+
+	/**
+	 * @return the length of this vector, as given by {@link LSHVector#getLength()}
+	 */
+	public double getLength() {
+		return length;
+	}
+
+	/**
+	 * @return the total number of hashes, counting multiplicity
+	 */
+	public int getHashCount() {
+		return hashCount;
+	}
+
+	/**
+	 * Compare with another packed vector, producing the same results as
+	 * {@link LSHCosineVector#compare(LSHVector, VectorCompare)}
+	 * @param op is the other vector
+	 * @param data receives the dot product and the hash counts
+	 * @return the cosine similarity of the two vectors
+	 */
+	public double compare(PackedCosineVector op, VectorCompare data) {
+		int[] hash2 = op.hash;
+		short[] tf2 = op.tf;
+		double[] coeff2 = op.coeff;
+		int end1 = hash.length;
+		int end2 = hash2.length;
+		int i = 0;
+		int j = 0;
+		double res = 0.0;
+		int intersectcount = 0;
+		while (i < end1 && j < end2) {
+			// Flipping the sign bit turns the unsigned comparison into a signed one
+			int h1 = hash[i] ^ Integer.MIN_VALUE;
+			int h2 = hash2[j] ^ Integer.MIN_VALUE;
+			if (h1 == h2) {
+				int t1 = tf[i];
+				int t2 = tf2[j];
+				double w = (t1 < t2) ? coeff[i] : coeff2[j];
+				res += w * w;
+				intersectcount += (t1 < t2) ? t1 : t2;
+				++i;
+				++j;
+			}
+			else if (h1 < h2) {
+				++i;
+				while (i + SKIP_BLOCK <= end1 &&
+					(hash[i + SKIP_BLOCK - 1] ^ Integer.MIN_VALUE) < h2) {
+					i += SKIP_BLOCK;
+				}
+			}
+			else {
+				++j;
+				while (j + SKIP_BLOCK <= end2 &&
+					(hash2[j + SKIP_BLOCK - 1] ^ Integer.MIN_VALUE) < h1) {
+					j += SKIP_BLOCK;
+				}
+			}
+		}
+		data.dotproduct = res;
+		data.intersectcount = intersectcount;
+		data.acount = hashCount;
+		data.bcount = op.hashCount;
+		if (end1 != 0 && end2 != 0) {
+			res /= (length * op.length);
+		}
+		return res;
+	}
+}
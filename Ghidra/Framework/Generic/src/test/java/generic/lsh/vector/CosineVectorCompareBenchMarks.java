@@ -0,0 +1,104 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package generic.lsh.vector;
+
+import java.util.*;
+
+/**
+ * Measures the throughput of comparing one query vector against a set of vectors using
+ * {@link LSHCosineVector#compare(LSHVector, VectorCompare)} versus
+ * {@link PackedCosineVector#compare(PackedCosineVector, VectorCompare)}.
+ */
+public class CosineVectorCompareBenchMarks {
+	static int VECTOR_COUNT = 100000;
+	static int QUERY_COUNT = 50;
+	static int ROUNDS = 5;
+	static int[] VECTOR_SIZES = { 10, 50, 200 };
+
+	public static void main(String[] args) {
+		Random random = new Random(1);
+		for (int size : VECTOR_SIZES) {
+			LSHCosineVector[] vectors = new LSHCosineVector[VECTOR_COUNT];
+			PackedCosineVector[] packed = new PackedCosineVector[VECTOR_COUNT];
+			for (int i = 0; i < VECTOR_COUNT; i++) {
+				vectors[i] = createVector(random, size);
+				packed[i] = new PackedCosineVector(vectors[i]);
+			}
+			LSHCosineVector[] queries = new LSHCosineVector[QUERY_COUNT];
+			for (int i = 0; i < QUERY_COUNT; i++) {
+				queries[i] = createVector(random, size);
+			}
+			for (int round = 0; round < ROUNDS; round++) { // early rounds are warm-up
+				runObjects(queries, vectors, size);
+				runPacked(queries, packed, size);
+			}
+		}
+	}
+
+	private static void runObjects(LSHCosineVector[] queries, LSHCosineVector[] vectors,
+			int size) {
+		VectorCompare data = new VectorCompare();
+		double sum = 0;
+		long start = System.nanoTime();
+		for (LSHCosineVector query : queries) {
+			for (LSHCosineVector vec : vectors) {
+				sum += query.compare(vec, data);
+			}
+		}
+		report("LSHCosineVector   ", size, queries.length, vectors.length, start, sum);
+	}
+
+	private static void runPacked(LSHCosineVector[] queries, PackedCosineVector[] vectors,
+			int size) {
+		VectorCompare data = new VectorCompare();
+		double sum = 0;
+		long start = System.nanoTime();
+		for (LSHCosineVector query : queries) {
+			PackedCosineVector packedQuery = new PackedCosineVector(query);
+			for (PackedCosineVector vec : vectors) {
+				sum += packedQuery.compare(vec, data);
+			}
+		}
+		report("PackedCosineVector", size, queries.length, vectors.length, start, sum);
+	}
+
+	private static void report(String name, int size, int queryCount, int vectorCount,
+			long start, double sum) {
+		long elapsed = System.nanoTime() - start;
+		long compares = (long) queryCount * vectorCount;
+		System.out.println(name + " size=" + size + ": " +
+			(compares * 1000000000L / elapsed) + " compares/sec" +
+			(sum == 42 ? " " : "")); // prevent dead-code elimination
+	}
+
+	private static LSHCosineVector createVector(Random random, int size) {
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			int feature = (int) (5000 * Math.pow(random.nextDouble(), 2));
+			counts.merge(feature * 0x9E3779B1, 1, Integer::sum);
+		}
+		HashEntry[] entries = new HashEntry[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			entries[n++] =
+				new HashEntry(entry.getKey(), entry.getValue(), 0.5 + random.nextDouble());
+		}
+		Arrays.sort(entries, (e1, e2) -> Integer.compareUnsigned(e1.getHash(), e2.getHash()));
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+}
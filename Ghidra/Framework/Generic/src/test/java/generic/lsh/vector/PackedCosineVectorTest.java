@@ -0,0 +1,93 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package generic.lsh.vector;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+/**
+ * Tests that {@link PackedCosineVector} comparisons match those of {@link LSHCosineVector}
+ */
+public class PackedCosineVectorTest {
+
+	private Random random = new Random(3);
+
+	@Test
+	public void testCompareMatchesCosineVector() {
+		for (int n = 0; n < 500; n++) {
+			LSHCosineVector vec1 = createVector(random.nextInt(50));
+			LSHCosineVector vec2 = createVector(random.nextInt(50));
+			assertSameComparison(vec1, vec2);
+		}
+	}
+
+	@Test
+	public void testCompareDifferentSizes() {
+		// large size differences exercise skipping blocks of entries
+		for (int n = 0; n < 100; n++) {
+			LSHCosineVector vec1 = createVector(1 + random.nextInt(5));
+			LSHCosineVector vec2 = createVector(500 + random.nextInt(500));
+			assertSameComparison(vec1, vec2);
+			assertSameComparison(vec2, vec1);
+		}
+	}
+
+	@Test
+	public void testCompareEmpty() {
+		LSHCosineVector empty = new LSHCosineVector();
+		LSHCosineVector vec = createVector(10);
+		assertSameComparison(empty, vec);
+		assertSameComparison(vec, empty);
+		assertSameComparison(empty, empty);
+	}
+
+	private void assertSameComparison(LSHCosineVector vec1, LSHCosineVector vec2) {
+		VectorCompare expected = new VectorCompare();
+		double expectedSim = vec1.compare(vec2, expected);
+		VectorCompare actual = new VectorCompare();
+		double actualSim = new PackedCosineVector(vec1).compare(new PackedCosineVector(vec2),
+			actual);
+		assertEquals(expectedSim, actualSim, 0.0);
+		assertEquals(expected.dotproduct, actual.dotproduct, 0.0);
+		assertEquals(expected.intersectcount, actual.intersectcount);
+		assertEquals(expected.acount, actual.acount);
+		assertEquals(expected.bcount, actual.bcount);
+	}
+
+	private LSHCosineVector createVector(int size) {
+		// features are drawn from a skewed distribution so vectors overlap, and hashes
+		// cover the whole unsigned range
+		Map<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < size; i++) {
+			int feature = (int) (2000 * Math.pow(random.nextDouble(), 2));
+			counts.merge(feature * 0x9E3779B1, 1, Integer::sum);
+		}
+		HashEntry[] entries = new HashEntry[counts.size()];
+		int n = 0;
+		for (Map.Entry<Integer, Integer> entry : counts.entrySet()) {
+			entries[n++] = new HashEntry(entry.getKey(), entry.getValue(),
+				0.5 + random.nextDouble());
+		}
+		// entries must be sorted on the unsigned hash
+		Arrays.sort(entries, (e1, e2) -> Integer.compareUnsigned(e1.getHash(), e2.getHash()));
+		LSHCosineVector vec = new LSHCosineVector();
+		vec.setHashEntries(entries);
+		return vec;
+	}
+}
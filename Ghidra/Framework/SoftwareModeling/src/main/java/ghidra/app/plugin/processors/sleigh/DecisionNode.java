@@ -37,6 +37,22 @@ import ghidra.program.model.pcode.DecoderException;
  * a SubtableSymbol based on the InstructionContext
  */
 public class DecisionNode {
+
+	/**
+	 * System property which, if set to false, disables the flattened dispatch tables
+	 */
+	public static final String DISPATCH_TABLES_PROPERTY = "ghidra.sleigh.dispatch.tables";
+
+	/**
+	 * The maximum number of instruction bits which index a dispatch table
+	 */
+	static final int MAX_DISPATCH_BITS = 8;
+
+	private static volatile boolean dispatchTablesEnabled =
+		!"false".equalsIgnoreCase(System.getProperty(DISPATCH_TABLES_PROPERTY));
+
+	private static final DispatchTable NO_DISPATCH_TABLE = new DispatchTable(0, 0, null);
+
 	private DisjointPattern[] patternlist; // patternlist and constructlist
 	private Constructor[] constructlist; // go together as a pair
 	private DecisionNode[] children;
@@ -50,6 +66,8 @@ public class DecisionNode {
 	private List<Constructor> unmodifiableConstructorList;
 	private List<DecisionNode> unmodifiableChildren;
 
+	private volatile DispatchTable dispatchTable;
+
 	public List<DisjointPattern> getPatterns() {
 		return unmodifiablePatternList;
 	}
@@ -62,8 +80,32 @@ public class DecisionNode {
 		return unmodifiableChildren;
 	}
 
+	/**
+	 * Enable or disable the use of flattened dispatch tables when resolving constructors
+	 * without a debug logger.  Resolution is the same either way; this is intended for
+	 * benchmarking.
+	 * @param enabled true to use dispatch tables
+	 */
+	public static void setDispatchTablesEnabled(boolean enabled) {
+		dispatchTablesEnabled = enabled;
+	}
+
+	/**
+	 * @return true if flattened dispatch tables are used when resolving constructors
+	 */
+	public static boolean isDispatchTablesEnabled() {
+		return dispatchTablesEnabled;
+	}
+
 	public Constructor resolve(ParserWalker walker, SleighDebugLogger debug)
 			throws MemoryAccessException, UnknownInstructionException {
+		if (debug == null && dispatchTablesEnabled && bitsize != 0 && !contextdecision) {
+			DispatchTable table = getDispatchTable();
+			if (table != NO_DISPATCH_TABLE) {
+				int val = walker.getInstructionBits(table.startbit, table.bitsize);
+				return table.nodes[val].resolve(walker, null);
+			}
+		}
 		if (bitsize == 0) { // The node is terminal
 			for (int i = 0; i < patternlist.length; ++i) {
 				if (debug != null) {
@@ -99,6 +141,71 @@ public class DecisionNode {
 		return c;
 	}
 
+	private DispatchTable getDispatchTable() {
+		DispatchTable table = dispatchTable;
+		if (table == null) {
+			// benign race: concurrent builds produce equivalent tables
+			table = buildDispatchTable();
+			dispatchTable = table;
+		}
+		return table;
+	}
+
+	/**
+	 * Flatten the instruction bit decisions below this node into a single table.  The table is
+	 * indexed by a window of at most {@link #MAX_DISPATCH_BITS} instruction bits covering the
+	 * bits of this node and of as many descendant decisions as fit, and maps each value of the
+	 * window to the node at which the walk of the tree would leave the window: a terminal node,
+	 * a context decision, or a decision on bits outside the window.  The window starts in the
+	 * same byte as the bits of this node, so reading it can fail only when reading the bits of
+	 * this node would.
+	 * @return the table, or {@link #NO_DISPATCH_TABLE} if it would skip no decisions
+	 */
+	private DispatchTable buildDispatchTable() {
+		if (bitsize > MAX_DISPATCH_BITS) {
+			return NO_DISPATCH_TABLE;
+		}
+		int minStart = startbit & ~7;
+		int lo = startbit;
+		int hi = startbit + bitsize;
+		ArrayDeque<DecisionNode> queue = new ArrayDeque<>();
+		queue.add(this);
+		boolean skipsDecisions = false;
+		while (!queue.isEmpty()) {
+			DecisionNode node = queue.remove();
+			for (DecisionNode child : node.children) {
+				if (child.bitsize == 0 || child.contextdecision || child.startbit < minStart) {
+					continue;
+				}
+				int newLo = Math.min(lo, child.startbit);
+				int newHi = Math.max(hi, child.startbit + child.bitsize);
+				if (newHi - newLo > MAX_DISPATCH_BITS) {
+					continue;
+				}
+				lo = newLo;
+				hi = newHi;
+				skipsDecisions = true;
+				queue.add(child);
+			}
+		}
+		if (!skipsDecisions) {
+			return NO_DISPATCH_TABLE;
+		}
+
+		int size = hi - lo;
+		DecisionNode[] nodes = new DecisionNode[1 << size];
+		for (int val = 0; val < nodes.length; val++) {
+			DecisionNode node = this;
+			while (node.bitsize != 0 && !node.contextdecision && node.startbit >= lo &&
+				node.startbit + node.bitsize <= hi) {
+				int shift = hi - (node.startbit + node.bitsize);
+				node = node.children[(val >>> shift) & ((1 << node.bitsize) - 1)];
+			}
+			nodes[val] = node;
+		}
+		return new DispatchTable(lo, size, nodes);
+	}
+
 	private void debugContextBitsDecision(SleighDebugLogger debug, ParserWalker walker, int val) {
 		if (debug == null || !debug.isVerboseEnabled()) {
 			return;
@@ -259,4 +366,19 @@ public class DecisionNode {
 		unmodifiableConstructorList = Collections.unmodifiableList(Arrays.asList(constructlist));
 		unmodifiableChildren = Collections.unmodifiableList(Arrays.asList(children));
 	}
+
+	/**
+	 * The flattened instruction bit decisions below a node
+	 */
+	private static class DispatchTable {
+		final int startbit;
+		final int bitsize;
+		final DecisionNode[] nodes; // indexed by the value of the instruction bits
+
+		DispatchTable(int startbit, int bitsize, DecisionNode[] nodes) {
+			this.startbit = startbit;
+			this.bitsize = bitsize;
+			this.nodes = nodes;
+		}
+	}
 }
@@ -89,6 +89,11 @@ public class SleighLanguage implements Language {
 	 * Cached instruction prototypes
 	 */
 	private LinkedHashMap<Integer, SleighInstructionPrototype> instructProtoMap;
+	/**
+	 * Bit i is set if a prototype whose resolution read i bytes has been added to the
+	 * {@link SleighPrototypeCache}
+	 */
+	private volatile long cachedPrototypeLengths;
 	private DecisionNode root = null;
 	/**
 	 * table of AddressSpaces
@@ -149,6 +154,8 @@ public class SleighLanguage implements Language {
 		xrefRegisters();
 
 		instructProtoMap = new LinkedHashMap<>();
+		cachedPrototypeLengths = 0;
+		SleighPrototypeCache.getInstance().invalidate(this);
 
 		initParallelHelper();
 	}
@@ -367,11 +374,28 @@ public class SleighLanguage implements Language {
 			}
 		}
 
+		SleighPrototypeCache protoCache = SleighPrototypeCache.getInstance();
+		int[] contextWords = null;
+		if (protoCache.isEnabled()) {
+			contextWords = new int[contextcache.getContextSize()];
+			contextcache.getContext(context, contextWords);
+			SleighInstructionPrototype res = getCachedPrototype(protoCache, buf, contextWords,
+				inDelaySlot);
+			if (res != null) {
+				if (inDelaySlot && res.hasDelaySlots()) {
+					throw new NestedDelaySlotException();
+				}
+				return applyCommits(res, buf, context);
+			}
+		}
+
 		SleighInstructionPrototype res = null;
+		SleighPrototypeCache.ReadTracker tracker =
+			contextWords != null ? new SleighPrototypeCache.ReadTracker(buf) : null;
 
 		try {
-			SleighInstructionPrototype newProto =
-				new SleighInstructionPrototype(this, buf, context, contextcache, inDelaySlot, null);
+			SleighInstructionPrototype newProto = new SleighInstructionPrototype(this,
+				tracker != null ? tracker : buf, context, contextcache, inDelaySlot, null);
 			Integer hashcode = newProto.hashCode();
 
 			if (!instructProtoMap.containsKey(hashcode)) {
@@ -394,14 +418,50 @@ public class SleighLanguage implements Language {
 			throw new InsufficientBytesException(e.getMessage());
 		}
 
+		if (tracker != null) {
+			addCachedPrototype(protoCache, buf, contextWords, inDelaySlot, tracker.getReadLength(),
+				res);
+		}
+		return applyCommits(res, buf, context);
+	}
+
+	private SleighInstructionPrototype applyCommits(SleighInstructionPrototype proto,
+			MemBuffer buf, ProcessorContext context) throws UnknownInstructionException {
 		try {
-			SleighParserContext protoContext = res.getParserContext(buf, context);
+			SleighParserContext protoContext = proto.getParserContext(buf, context);
 			protoContext.applyCommits(context);
 		}
 		catch (Exception e) {
 			throw new UnknownInstructionException();
 		}
-		return res;
+		return proto;
+	}
+
+	private SleighInstructionPrototype getCachedPrototype(SleighPrototypeCache protoCache,
+			MemBuffer buf, int[] contextWords, boolean inDelaySlot) {
+		long lengths = cachedPrototypeLengths;
+		if (lengths == 0) {
+			return null;
+		}
+		byte[] bytes = new byte[64 - Long.numberOfLeadingZeros(lengths)];
+		int byteCount = buf.getBytes(bytes, 0);
+		return protoCache.get(this, lengths, contextWords, inDelaySlot, bytes, byteCount);
+	}
+
+	private void addCachedPrototype(SleighPrototypeCache protoCache, MemBuffer buf,
+			int[] contextWords, boolean inDelaySlot, int length, SleighInstructionPrototype proto) {
+		// Key on every byte read by resolution, which may extend past the end of the instruction
+		if (length <= 0 || length > SleighPrototypeCache.MAX_INSTRUCTION_LENGTH) {
+			return;
+		}
+		byte[] bytes = new byte[length];
+		if (buf.getBytes(bytes, 0) != length) {
+			return;
+		}
+		protoCache.put(this, contextWords, inDelaySlot, bytes, length, proto);
+		synchronized (instructProtoMap) {
+			cachedPrototypeLengths |= 1L << length;
+		}
 	}
 
 	public DecisionNode getRootDecisionNode() {
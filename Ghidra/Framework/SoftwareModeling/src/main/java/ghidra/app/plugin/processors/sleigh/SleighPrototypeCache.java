@@ -0,0 +1,402 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.app.plugin.processors.sleigh;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+import ghidra.program.model.address.Address;
+import ghidra.program.model.mem.*;
+
+/**
+ * A process-wide cache of the instruction prototypes produced by {@link SleighLanguage#parse}.
+ * <p>
+ * Entries are keyed by the language, the context words seen by the decision tree, the delay
+ * slot state and every byte read while resolving the instruction's constructors (see
+ * {@link ReadTracker}).  Resolution is a function of those inputs alone, so the same key always
+ * resolves to the same prototype, and a hit replaces the walk of the decision tree and the
+ * construction of a new prototype.  The bytes read may extend past the end of the instruction:
+ * the decision tree may have to examine later bytes to rule out a longer instruction, e.g.,
+ * x86 {@code WAIT} (9B) versus {@code FINIT} (9B DB E3).  Every client which parses through the language (the
+ * disassembler, the assembler, emulators and p-code emitters) shares the cache, across all
+ * programs which use the language.
+ * <p>
+ * The cache is bounded: it is split into segments, each holding an equal share of the maximum
+ * size and evicting its least-recently-used entries.  The maximum size may be set with the
+ * {@link #SIZE_PROPERTY} system property, where 0 disables the cache.
+ */
+public class SleighPrototypeCache {
+
+	/**
+	 * System property which specifies the maximum number of cached prototypes
+	 */
+	public static final String SIZE_PROPERTY = "ghidra.sleigh.prototype.cache.size";
+
+	private static final int DEFAULT_SIZE = 0x40000;
+	private static final int SEGMENT_COUNT = 16;
+
+	/**
+	 * Instructions whose resolution reads more bytes than this are never cached
+	 */
+	static final int MAX_INSTRUCTION_LENGTH = 63;
+
+	private static final SleighPrototypeCache INSTANCE =
+		new SleighPrototypeCache(Integer.getInteger(SIZE_PROPERTY, DEFAULT_SIZE));
+
+	private final Segment[] segments;
+	private final int maxSize;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * @return the process-wide prototype cache
+	 */
+	public static SleighPrototypeCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Construct a cache which holds up to the given number of prototypes
+	 * @param maxSize the maximum number of cached prototypes, or 0 to disable caching
+	 */
+	SleighPrototypeCache(int maxSize) {
+		this.maxSize = Math.max(0, maxSize);
+		int segmentSize = (this.maxSize + SEGMENT_COUNT - 1) / SEGMENT_COUNT;
+		segments = new Segment[SEGMENT_COUNT];
+		for (int i = 0; i < SEGMENT_COUNT; i++) {
+			segments[i] = new Segment(segmentSize);
+		}
+	}
+
+	/**
+	 * @return true if prototypes are cached
+	 */
+	public boolean isEnabled() {
+		return maxSize != 0;
+	}
+
+	/**
+	 * Find the prototype of the instruction at the start of the given bytes.  The read lengths
+	 * of the prototypes previously cached for the language are tried in increasing order.  At
+	 * most one can match, since resolving the given bytes would read exactly the bytes of the
+	 * matching key.
+	 *
+	 * @param language the language
+	 * @param lengthMask bit i is set if a prototype whose resolution read i bytes has been
+	 * cached for the language
+	 * @param context the context words seen by the decision tree
+	 * @param inDelaySlot true if the instruction is in a delay slot
+	 * @param bytes the bytes at the instruction address
+	 * @param byteCount the number of valid bytes
+	 * @return the prototype or null if not cached
+	 */
+	SleighInstructionPrototype get(SleighLanguage language, long lengthMask, int[] context,
+			boolean inDelaySlot, byte[] bytes, int byteCount) {
+		long mask = lengthMask;
+		while (mask != 0) {
+			int length = Long.numberOfTrailingZeros(mask);
+			if (length > byteCount) {
+				break;
+			}
+			mask &= mask - 1;
+			Key key = new Key(language, context, inDelaySlot, bytes, length);
+			SleighInstructionPrototype proto = segmentFor(key).get(key);
+			if (proto != null) {
+				hitCount.increment();
+				return proto;
+			}
+		}
+		missCount.increment();
+		return null;
+	}
+
+	/**
+	 * Add the prototype of the instruction at the start of the given bytes
+	 *
+	 * @param language the language
+	 * @param context the context words seen by the decision tree
+	 * @param inDelaySlot true if the instruction is in a delay slot
+	 * @param bytes the bytes at the instruction address, at least {@code readLength} of them
+	 * @param readLength the number of bytes read while resolving the prototype
+	 * @param proto the prototype
+	 */
+	void put(SleighLanguage language, int[] context, boolean inDelaySlot, byte[] bytes,
+			int readLength, SleighInstructionPrototype proto) {
+		Key key = new Key(language, context.clone(), inDelaySlot,
+			Arrays.copyOf(bytes, readLength), readLength);
+		segmentFor(key).put(key, proto);
+	}
+
+	/**
+	 * Remove all prototypes of the given language, e.g., after it has been reloaded
+	 * @param language the language
+	 */
+	void invalidate(SleighLanguage language) {
+		for (Segment segment : segments) {
+			segment.removeLanguage(language);
+		}
+	}
+
+	/**
+	 * Remove all cached prototypes.  Statistics are not reset.
+	 */
+	public void clear() {
+		for (Segment segment : segments) {
+			segment.clear();
+		}
+	}
+
+	/**
+	 * @return the number of cached prototypes
+	 */
+	public int size() {
+		int size = 0;
+		for (Segment segment : segments) {
+			size += segment.size();
+		}
+		return size;
+	}
+
+	/**
+	 * @return the maximum number of cached prototypes
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * @return the number of parses answered from the cache
+	 */
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	/**
+	 * @return the number of parses which were not answered from the cache
+	 */
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * @return the number of prototypes evicted to bound the size of the cache
+	 */
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	/**
+	 * @return the fraction of parses answered from the cache, or 0 if there were none
+	 */
+	public double getHitRate() {
+		long hits = hitCount.sum();
+		long total = hits + missCount.sum();
+		return total == 0 ? 0 : (double) hits / total;
+	}
+
+	/**
+	 * Reset the hit, miss and eviction counts to zero
+	 */
+	public void resetStatistics() {
+		hitCount.reset();
+		missCount.reset();
+		evictionCount.reset();
+	}
+
+	@Override
+	public String toString() {
+		return String.format("SleighPrototypeCache[size=%d/%d hits=%d misses=%d (%.1f%%) " +
+			"evictions=%d]", size(), maxSize, getHitCount(), getMissCount(), getHitRate() * 100,
+			getEvictionCount());
+	}
+
+	private Segment segmentFor(Key key) {
+		int h = key.hash;
+		return segments[(h ^ (h >>> 16)) & (SEGMENT_COUNT - 1)];
+	}
+
+	private class Segment {
+		private final LinkedHashMap<Key, SleighInstructionPrototype> map;
+
+		Segment(int segmentSize) {
+			map = new LinkedHashMap<>(16, 0.75f, true) {
+				@Override
+				protected boolean removeEldestEntry(
+						Map.Entry<Key, SleighInstructionPrototype> eldest) {
+					if (size() > segmentSize) {
+						evictionCount.increment();
+						return true;
+					}
+					return false;
+				}
+			};
+		}
+
+		synchronized SleighInstructionPrototype get(Key key) {
+			return map.get(key);
+		}
+
+		synchronized void put(Key key, SleighInstructionPrototype proto) {
+			map.put(key, proto);
+		}
+
+		synchronized void removeLanguage(SleighLanguage language) {
+			map.keySet().removeIf(key -> key.language == language);
+		}
+
+		synchronized void clear() {
+			map.clear();
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+	}
+
+	/**
+	 * Wraps the {@link MemBuffer} passed to the prototype constructor to record the range of
+	 * bytes read while resolving the instruction.  The prototype may only be cached if every
+	 * read was satisfied, since bytes past the end of the buffer read as zero.
+	 */
+	static class ReadTracker implements MemBuffer {
+		private final MemBuffer buf;
+		private int readLength;		// One past the last byte offset read
+		private boolean complete = true;	// False if a read was short or out of range
+
+		ReadTracker(MemBuffer buf) {
+			this.buf = buf;
+		}
+
+		/**
+		 * @return the number of bytes, from the start of the buffer, which covers every byte
+		 * read, or -1 if the reads cannot be described that way
+		 */
+		int getReadLength() {
+			return complete ? readLength : -1;
+		}
+
+		private void record(int offset, int size) {
+			if (offset < 0) {
+				complete = false;
+			}
+			readLength = Math.max(readLength, offset + size);
+		}
+
+		@Override
+		public int getBytes(byte[] b, int offset) {
+			int readSize = buf.getBytes(b, offset);
+			if (readSize != b.length) {
+				complete = false;
+			}
+			record(offset, b.length);
+			return readSize;
+		}
+
+		@Override
+		public byte getByte(int offset) throws MemoryAccessException {
+			record(offset, 1);
+			return buf.getByte(offset);
+		}
+
+		@Override
+		public short getShort(int offset) throws MemoryAccessException {
+			record(offset, 2);
+			return buf.getShort(offset);
+		}
+
+		@Override
+		public int getInt(int offset) throws MemoryAccessException {
+			record(offset, 4);
+			return buf.getInt(offset);
+		}
+
+		@Override
+		public long getLong(int offset) throws MemoryAccessException {
+			record(offset, 8);
+			return buf.getLong(offset);
+		}
+
+		@Override
+		public BigInteger getBigInteger(int offset, int size, boolean signed)
+				throws MemoryAccessException {
+			record(offset, size);
+			return buf.getBigInteger(offset, size, signed);
+		}
+
+		@Override
+		public Address getAddress() {
+			return buf.getAddress();
+		}
+
+		@Override
+		public Memory getMemory() {
+			return buf.getMemory();
+		}
+
+		@Override
+		public boolean isBigEndian() {
+			return buf.isBigEndian();
+		}
+	}
+
+	private static class Key {
+		final SleighLanguage language;
+		final int[] context;
+		final boolean inDelaySlot;
+		final byte[] bytes;
+		final int length;
+		final int hash;
+
+		/**
+		 * Construct a key over the first length bytes.  The arrays are not copied.
+		 */
+		Key(SleighLanguage language, int[] context, boolean inDelaySlot, byte[] bytes,
+				int length) {
+			this.language = language;
+			this.context = context;
+			this.inDelaySlot = inDelaySlot;
+			this.bytes = bytes;
+			this.length = length;
+			int h = System.identityHashCode(language);
+			h = 31 * h + Arrays.hashCode(context);
+			h = 31 * h + (inDelaySlot ? 1 : 0);
+			h = 31 * h + length;
+			for (int i = 0; i < length; i++) {
+				h = 31 * h + bytes[i];
+			}
+			this.hash = h;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key other)) {
+				return false;
+			}
+			return hash == other.hash && language == other.language &&
+				inDelaySlot == other.inDelaySlot && length == other.length &&
+				Arrays.equals(context, other.context) &&
+				Arrays.equals(bytes, 0, length, other.bytes, 0, length);
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import db.DBRecord;
+import ghidra.program.model.address.KeyRange;
+
+/**
+ * A {@link DBObjectCache} which holds up to a maximum number of objects strongly in a concurrent
+ * map, evicting the least recently used objects when that number is exceeded.
+ * <p>
+ * Lookups of strongly held objects neither synchronize nor allocate, and no reference object is
+ * created for an object unless it is evicted. This avoids most of the garbage collection and
+ * lock overhead of {@link DBObjectCache} when very many objects are created and dropped, e.g.,
+ * when iterating all code units of a large program.
+ * <p>
+ * Evicted objects are still tracked by weak reference until they are garbage collected, so that,
+ * as with {@link DBObjectCache}, there is never more than one instance per key, and objects held
+ * by clients are marked deleted or invalid as appropriate. An evicted object which is looked up
+ * again is restored to the strongly held set.
+ * 
+ * @param <T> The type of the object stored in this cache
+ */
+public class BoundedDBObjectCache<T extends DatabaseObject> extends DBObjectCache<T> {
+
+	private static class Entry<T> {
+		final T obj;
+		volatile long lastAccess;
+
+		Entry(T obj, long lastAccess) {
+			this.obj = obj;
+			this.lastAccess = lastAccess;
+		}
+	}
+
+	private static class KeyedWeakReference<T> extends WeakReference<T> {
+		private final long key;
+
+		KeyedWeakReference(long key, T obj, ReferenceQueue<T> queue) {
+			super(obj, queue);
+			this.key = key;
+		}
+	}
+
+	private final Map<Long, Entry<T>> map = new ConcurrentHashMap<>();
+	private final Map<Long, KeyedWeakReference<T>> evicted = new ConcurrentHashMap<>();
+	private final ReferenceQueue<T> refQueue = new ReferenceQueue<>();
+	private final AtomicLong clock = new AtomicLong();
+	private final Object evictionLock = new Object();
+	private volatile int maxSize;
+
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder evictionCount = new LongAdder();
+
+	/**
+	 * Constructs a new cache which strongly holds up to the given number of objects
+	 * @param maxSize the maximum number of strongly held objects
+	 */
+	public BoundedDBObjectCache(int maxSize) {
+		super(0);
+		this.maxSize = Math.max(1, maxSize);
+	}
+
+	@Override
+	public T get(long key) {
+		T obj = lookup(key);
+		if (obj != null && obj.checkIsValid()) {
+			hitCount.increment();
+			return obj;
+		}
+		if (obj != null) {
+			map.remove(key);
+		}
+		missCount.increment();
+		return null;
+	}
+
+	@Override
+	public T get(DBRecord objectRecord) {
+		long key = objectRecord.getKey();
+		T obj = lookup(key);
+		if (obj != null && obj.checkIsValid(objectRecord)) {
+			hitCount.increment();
+			return obj;
+		}
+		if (obj != null) {
+			map.remove(key);
+		}
+		missCount.increment();
+		return null;
+	}
+
+	/**
+	 * Find the object with the given key, restoring it to the strongly held set if it was
+	 * evicted.
+	 * @param key the key
+	 * @return the object or null
+	 */
+	private T lookup(long key) {
+		Entry<T> entry = map.get(key);
+		if (entry != null) {
+			entry.lastAccess = clock.get();
+			return entry.obj;
+		}
+		KeyedWeakReference<T> ref = evicted.get(key);
+		if (ref == null) {
+			return null;
+		}
+		T obj = ref.get();
+		if (obj == null || !evicted.remove(key, ref)) {
+			return null;
+		}
+		ref.clear();
+		map.put(key, new Entry<>(obj, clock.incrementAndGet()));
+		evictIfNeeded();
+		return obj;
+	}
+
+	@Override
+	public int size() {
+		return map.size() + evicted.size();
+	}
+
+	/**
+	 * Returns the number of objects currently held strongly, i.e., not subject to garbage
+	 * collection.
+	 * @return the number of strongly held objects
+	 */
+	public int getStrongSize() {
+		return map.size();
+	}
+
+	/**
+	 * Sets the maximum number of strongly held objects.
+	 * @param size the maximum number of strongly held objects
+	 */
+	@Override
+	public void setHardCacheSize(int size) {
+		maxSize = Math.max(1, size);
+		evictIfNeeded();
+	}
+
+	@Override
+	void put(T data) {
+		processQueue();
+		long key = data.getKey();
+		KeyedWeakReference<T> ref = evicted.remove(key);
+		if (ref != null) {
+			ref.clear();
+		}
+		map.put(key, new Entry<>(data, clock.incrementAndGet()));
+		evictIfNeeded();
+	}
+
+	private void evictIfNeeded() {
+		int max = maxSize;
+		if (map.size() <= max + (max >> 3)) {
+			return;
+		}
+		synchronized (evictionLock) {
+			int excess = map.size() - max;
+			if (excess <= 0) {
+				return;
+			}
+			long[] stamps = new long[map.size()];
+			int n = 0;
+			for (Entry<T> entry : map.values()) {
+				if (n == stamps.length) {
+					break;
+				}
+				stamps[n++] = entry.lastAccess;
+			}
+			Arrays.sort(stamps, 0, n);
+			long threshold = stamps[Math.min(excess, n) - 1];
+			for (Iterator<Entry<T>> it = map.values().iterator(); it.hasNext() && excess > 0;) {
+				Entry<T> entry = it.next();
+				if (entry.lastAccess <= threshold) {
+					it.remove();
+					long key = entry.obj.getKey();
+					evicted.put(key, new KeyedWeakReference<>(key, entry.obj, refQueue));
+					evictionCount.increment();
+					excess--;
+				}
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void processQueue() {
+		KeyedWeakReference<T> ref;
+		while ((ref = (KeyedWeakReference<T>) refQueue.poll()) != null) {
+			evicted.remove(ref.key, ref);
+		}
+	}
+
+	@Override
+	public synchronized List<T> getCachedObjects() {
+		processQueue();
+		List<T> list = new ArrayList<>(size());
+		for (Entry<T> entry : map.values()) {
+			list.add(entry.obj);
+		}
+		for (KeyedWeakReference<T> ref : evicted.values()) {
+			T obj = ref.get();
+			if (obj != null) {
+				list.add(obj);
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public synchronized void delete(List<KeyRange> keyRanges) {
+		processQueue();
+		long rangesSize = 0;
+		for (KeyRange range : keyRanges) {
+			rangesSize += range.length();
+			if (rangesSize < 0) {
+				break;
+			}
+		}
+		if (rangesSize >= 0 && rangesSize <= size()) {
+			for (KeyRange range : keyRanges) {
+				for (long key = range.minKey; key <= range.maxKey; key++) {
+					delete(key);
+				}
+			}
+			return;
+		}
+		for (Long key : new ArrayList<>(map.keySet())) {
+			if (keyRangesContain(keyRanges, key)) {
+				delete(key);
+			}
+		}
+		for (Long key : new ArrayList<>(evicted.keySet())) {
+			if (keyRangesContain(keyRanges, key)) {
+				delete(key);
+			}
+		}
+	}
+
+	private static boolean keyRangesContain(List<KeyRange> keyRanges, long key) {
+		for (KeyRange range : keyRanges) {
+			if (range.contains(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public synchronized void invalidate() {
+		processQueue();
+		if (incrementInvalidateCount()) {
+			for (T obj : getCachedObjects()) {
+				obj.setInvalid();
+			}
+		}
+	}
+
+	@Override
+	public void delete(long key) {
+		Entry<T> entry = map.remove(key);
+		if (entry != null) {
+			entry.obj.setDeleted();
+		}
+		KeyedWeakReference<T> ref = evicted.remove(key);
+		if (ref != null) {
+			T obj = ref.get();
+			if (obj != null) {
+				obj.setDeleted();
+			}
+			ref.clear();
+		}
+	}
+
+	@Override
+	public synchronized void keyChanged(long oldKey, long newKey) {
+		processQueue();
+		Entry<T> entry = map.remove(oldKey);
+		if (entry != null) {
+			map.put(newKey, entry);
+			entry.obj.setInvalid();
+		}
+		KeyedWeakReference<T> ref = evicted.remove(oldKey);
+		T obj = ref == null ? null : ref.get();
+		if (obj != null) {
+			ref.clear();
+			evicted.put(newKey, new KeyedWeakReference<>(newKey, obj, refQueue));
+			obj.setInvalid();
+		}
+	}
+
+	@Override
+	public long getHitCount() {
+		return hitCount.sum();
+	}
+
+	@Override
+	public long getMissCount() {
+		return missCount.sum();
+	}
+
+	/**
+	 * Returns the number of objects evicted from the strongly held set.
+	 * @return the number of evictions
+	 */
+	@Override
+	public long getEvictionCount() {
+		return evictionCount.sum();
+	}
+
+	@Override
+	public String toString() {
+		return "BoundedDBObjectCache[max=" + maxSize + " strong=" + map.size() + " evicted=" +
+			evicted.size() + " hits=" + getHitCount() + " misses=" + getMissCount() +
+			" evictions=" + getEvictionCount() + "]";
+	}
+}
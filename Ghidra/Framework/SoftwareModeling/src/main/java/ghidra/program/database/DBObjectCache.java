@@ -27,17 +27,62 @@ import ghidra.program.model.address.KeyRange;
  * cache such that objects are only ever automatically removed from the cache when there are no
  * references to that object. It also maintains a small "hard" cache so that recently accessed objects
  * are not prematurely removed from the cache if there are no references to them.
+ * <p>
+ * Managers which create and discard very many objects (e.g., when iterating code units) may
+ * instead use a {@link BoundedDBObjectCache}, which is selected per manager by
+ * {@link #create(String, int)}.
  * 
  * @param <T> The type of the object stored in this cache
  */
 public class DBObjectCache<T extends DatabaseObject> {
 
+	/**
+	 * System property which selects the cache policy of all caches created by
+	 * {@link #create(String, int)}: {@value #POLICY_WEAK} (the default) or
+	 * {@value #POLICY_BOUNDED}. The policy of an individual cache may be set by appending its
+	 * name, e.g., {@code ghidra.db.cache.policy.CodeManager=bounded}.
+	 */
+	public static final String POLICY_PROPERTY = "ghidra.db.cache.policy";
+
+	/**
+	 * System property prefix which overrides the size of a named cache, e.g.,
+	 * {@code ghidra.db.cache.size.CodeManager=20000}.
+	 */
+	public static final String SIZE_PROPERTY = "ghidra.db.cache.size";
+
+	public static final String POLICY_WEAK = "weak";
+	public static final String POLICY_BOUNDED = "bounded";
+
 	private Map<Long, KeyedSoftReference<T>> map;
 	private ReferenceQueue<T> refQueue;
 	private LinkedList<T> hardCache;
 	private int hardCacheSize;
 	private volatile int invalidateCount;
 
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
+
+	/**
+	 * Creates a cache for a manager, using the policy and size configured for the given name
+	 * by the {@link #POLICY_PROPERTY} and {@link #SIZE_PROPERTY} system properties.
+	 * @param <T> The type of the object stored in the cache
+	 * @param name the name of the cache, usually the simple name of its manager
+	 * @param hardCacheSize the default size: the hard cache size of a weak cache, or the
+	 * maximum number of strongly held objects of a bounded cache
+	 * @return the new cache
+	 */
+	public static <T extends DatabaseObject> DBObjectCache<T> create(String name,
+			int hardCacheSize) {
+		String policy = System.getProperty(POLICY_PROPERTY + "." + name,
+			System.getProperty(POLICY_PROPERTY, POLICY_WEAK));
+		int size = Integer.getInteger(SIZE_PROPERTY + "." + name, hardCacheSize);
+		if (POLICY_BOUNDED.equalsIgnoreCase(policy)) {
+			return new BoundedDBObjectCache<>(size);
+		}
+		return new DBObjectCache<>(size);
+	}
+
 	/**
 	 * Constructs a new DBObjectCache with a given hard cache size.  The hard cache size is
 	 * the minimum number of objects to keep in the cache. Typically, the cache will contain
@@ -66,11 +111,13 @@ public class DBObjectCache<T extends DatabaseObject> {
 			else {
 				if (obj.checkIsValid()) {
 					addToHardCache(obj);
+					hitCount++;
 					return obj;
 				}
 				map.remove(key);
 			}
 		}
+		missCount++;
 		return null;
 	}
 
@@ -95,11 +142,13 @@ public class DBObjectCache<T extends DatabaseObject> {
 			else {
 				if (obj.checkIsValid(objectRecord)) {
 					addToHardCache(obj);
+					hitCount++;
 					return obj;
 				}
 				map.remove(key);
 			}
 		}
+		missCount++;
 		return null;
 	}
 
@@ -247,8 +296,7 @@ public class DBObjectCache<T extends DatabaseObject> {
 	public synchronized void invalidate() {
 		hardCache.clear();
 		processQueue();
-		if (++invalidateCount <= 0) {
-			invalidateCount = 1;
+		if (incrementInvalidateCount()) {
 			for (KeyedSoftReference<T> ref : map.values()) {
 				DatabaseObject obj = ref.get();
 				if (obj != null) {
@@ -267,6 +315,44 @@ public class DBObjectCache<T extends DatabaseObject> {
 		return invalidateCount;
 	}
 
+	/**
+	 * Increment the invalidate counter, causing all cached objects to become invalid.
+	 * @return true if the counter wrapped, in which case the caller must explicitly invalidate
+	 * all cached objects
+	 */
+	boolean incrementInvalidateCount() {
+		if (++invalidateCount <= 0) {
+			invalidateCount = 1;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Returns the number of lookups which found a valid cached object.
+	 * @return the number of hits
+	 */
+	public synchronized long getHitCount() {
+		return hitCount;
+	}
+
+	/**
+	 * Returns the number of lookups which did not find a valid cached object.
+	 * @return the number of misses
+	 */
+	public synchronized long getMissCount() {
+		return missCount;
+	}
+
+	/**
+	 * Returns the number of objects removed from the cache other than by deletion, e.g.,
+	 * because they were garbage collected.
+	 * @return the number of evictions
+	 */
+	public synchronized long getEvictionCount() {
+		return evictionCount;
+	}
+
 	/**
 	 * Removes the object with the given key from the cache.
 	 * @param key the key of the object to remove.
@@ -306,6 +392,9 @@ public class DBObjectCache<T extends DatabaseObject> {
 				// We want to keep the last value that was added, as it has not been deleted.
 				map.put(key, oldValue);
 			}
+			else if (oldValue != null) {
+				evictionCount++;
+			}
 		}
 	}
 
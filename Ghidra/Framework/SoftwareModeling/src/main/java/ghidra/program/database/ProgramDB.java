@@ -112,8 +112,10 @@ public class ProgramDB extends DomainObjectAdapterDB implements Program, ChangeM
 	 *                            unused flag bits.
 	 * 19-Oct-2023 - version 28   Revised overlay address space table and eliminated min/max.
 	 *                            Multiple blocks are permitted within a single overlay space.
+	 * 15-Oct-2026 - version 29   Added symbol name n-gram index table used to accelerate
+	 *                            symbol name searches.
 	 */
-	static final int DB_VERSION = 28;
+	static final int DB_VERSION = 29;
 
 	/**
 	 * UPGRADE_REQUIRED_BFORE_VERSION should be changed to DB_VERSION anytime the
@@ -1073,6 +1075,25 @@ public class ProgramDB extends DomainObjectAdapterDB implements Program, ChangeM
 		fireEvent(new ProgramChangeRecord(event, start, end, null, oldValue, newValue));
 	}
 
+	/**
+	 * Mark every address in the given set as changed and fire a single change record
+	 * spanning the set.  The set itself is passed as the record's new value.
+	 * @param event the event type
+	 * @param addrs the changed addresses
+	 * @param oldValue the old value, or null
+	 */
+	public void setChanged(ProgramEvent event, AddressSetView addrs, Object oldValue) {
+		if (addrs.isEmpty()) {
+			return;
+		}
+		if (recordChanges) {
+			((ProgramDBChangeSet) changeSet).add(addrs);
+		}
+		changed = true;
+		fireEvent(new ProgramChangeRecord(event, addrs.getMinAddress(), addrs.getMaxAddress(),
+			null, oldValue, addrs));
+	}
+
 	@Override
 	public void setObjChanged(ProgramEvent eventType, Object affected, Object oldValue,
 			Object newValue) {
@@ -1853,6 +1874,25 @@ public class ProgramDB extends DomainObjectAdapterDB implements Program, ChangeM
 		return changeable;
 	}
 
+	/**
+	 * Take an immutable snapshot of this program's current state which many threads may query
+	 * concurrently, without contending for this program's lock.  See {@link ProgramSnapshot}.
+	 * <p>
+	 * The whole program database is copied while the program is locked, as for a save, so all
+	 * other users of this program are blocked for a time proportional to the size of the
+	 * database.  This must not be called while a transaction is open.  The caller must close the
+	 * returned snapshot.
+	 *
+	 * @param monitor task monitor
+	 * @return the snapshot
+	 * @throws IOException if a transaction is open or the snapshot could not be written
+	 * @throws CancelledException if cancelled
+	 */
+	public ProgramSnapshot createSnapshot(TaskMonitor monitor)
+			throws IOException, CancelledException {
+		return ProgramSnapshot.create(this, monitor);
+	}
+
 	@Override
 	public Register getRegister(Address addr) {
 		return language.getRegister(getGlobalAddress(addr), 0);
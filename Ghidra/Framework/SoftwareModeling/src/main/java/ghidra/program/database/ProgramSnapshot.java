@@ -0,0 +1,211 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+import db.DBConstants;
+import db.DBHandle;
+import db.buffers.LocalBufferFile;
+import ghidra.framework.Application;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.exception.VersionException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * An immutable copy of a {@link ProgramDB} as of a single modification number, intended for
+ * parallel, read-only analysis while the live program continues to be modified.
+ * <p>
+ * Taking a snapshot copies the whole program database to a temporary buffer file while holding
+ * the live program's lock, as for a save.  All other users of the live program, including the
+ * Swing listing and background analysis, are blocked until the copy completes, which takes time
+ * proportional to the size of the database.  Each reader thread then obtains its own read-only
+ * {@link ProgramDB} view of that file via {@link #getProgram()}.  Since views share
+ * nothing but the (read-only) buffer file, readers do not contend with one another, nor with
+ * the live program's lock, the Swing listing or background analysis.  Changes made to the live
+ * program after the snapshot was taken are not visible through the snapshot; use
+ * {@link #isCurrent()} to check whether it is stale.
+ * <p>
+ * Views are released and the buffer file is deleted when the snapshot is closed.  Views must not
+ * be used after that, and no further views may be obtained.
+ */
+public class ProgramSnapshot implements AutoCloseable {
+
+	private static final String SNAPSHOT_FILE_PREFIX = "ghidra_snapshot";
+
+	private final ProgramDB liveProgram;
+	private final long modificationNumber;
+	private final File bufferFile;
+
+	// views and threadViews are guarded by views
+	private final List<ProgramDB> views = new ArrayList<>();
+	private final Map<Thread, ProgramDB> threadViews = new WeakHashMap<>();
+	private boolean closed;
+
+	private ProgramSnapshot(ProgramDB liveProgram, long modificationNumber, File bufferFile) {
+		this.liveProgram = liveProgram;
+		this.modificationNumber = modificationNumber;
+		this.bufferFile = bufferFile;
+	}
+
+	/**
+	 * Take a snapshot of the given program.  The program must not have an open transaction.
+	 * @param program the live program
+	 * @param monitor task monitor
+	 * @return the snapshot
+	 * @throws IOException if the program could not be locked or the snapshot could not be written
+	 * @throws CancelledException if cancelled
+	 */
+	static ProgramSnapshot create(ProgramDB program, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		File file = File.createTempFile(SNAPSHOT_FILE_PREFIX, LocalBufferFile.TEMP_FILE_EXT,
+			Application.getUserTempDirectory());
+		file.delete();
+
+		if (!program.lock("snapshot")) {
+			throw new IOException("Unable to lock due to active transaction");
+		}
+		boolean success = false;
+		try {
+			DBHandle dbh = program.getDBHandle();
+			long modNumber = program.getModificationNumber();
+			LocalBufferFile outFile = new LocalBufferFile(file, dbh.getBufferSize());
+			try {
+				dbh.saveAs(outFile, false, monitor);
+			}
+			finally {
+				outFile.dispose();
+			}
+			success = true;
+			return new ProgramSnapshot(program, modNumber, file);
+		}
+		finally {
+			program.unlock();
+			if (!success) {
+				file.delete();
+			}
+		}
+	}
+
+	/**
+	 * @return the modification number of the live program when this snapshot was taken
+	 */
+	public long getModificationNumber() {
+		return modificationNumber;
+	}
+
+	/**
+	 * @return true if the live program has not been modified since this snapshot was taken
+	 */
+	public boolean isCurrent() {
+		return !liveProgram.isClosed() &&
+			liveProgram.getModificationNumber() == modificationNumber;
+	}
+
+	/**
+	 * Returns the read-only view of this snapshot for the calling thread, opening it upon the
+	 * first call from that thread.  The view is owned by this snapshot and must not be released
+	 * by the caller.
+	 * @return the view for the calling thread
+	 * @throws IOException if the view could not be opened
+	 * @throws IllegalStateException if this snapshot has been closed
+	 */
+	public ProgramDB getProgram() throws IOException {
+		Thread thread = Thread.currentThread();
+		synchronized (views) {
+			checkClosed();
+			ProgramDB view = threadViews.get(thread);
+			if (view != null) {
+				return view;
+			}
+		}
+		ProgramDB view = openProgram();
+		synchronized (views) {
+			checkClosed(); // the view was released by close()
+			threadViews.put(thread, view);
+		}
+		return view;
+	}
+
+	/**
+	 * Opens a new read-only view of this snapshot, independent of all other views.  The view is
+	 * owned by this snapshot and must not be released by the caller.
+	 * @return the new view
+	 * @throws IOException if the view could not be opened
+	 * @throws IllegalStateException if this snapshot has been closed
+	 */
+	public ProgramDB openProgram() throws IOException {
+		synchronized (views) {
+			checkClosed();
+		}
+		LocalBufferFile bf = new LocalBufferFile(bufferFile, true);
+		DBHandle dbh = null;
+		ProgramDB view = null;
+		try {
+			dbh = new DBHandle(bf);
+			view = new ProgramDB(dbh, DBConstants.READ_ONLY, TaskMonitor.DUMMY, this);
+		}
+		catch (VersionException | CancelledException e) {
+			throw new IOException("Unable to open program snapshot: " + e.getMessage(), e);
+		}
+		finally {
+			if (view == null) {
+				if (dbh != null) {
+					dbh.close();
+				}
+				bf.dispose();
+			}
+		}
+		synchronized (views) {
+			if (!closed) {
+				views.add(view);
+				return view;
+			}
+		}
+		view.release(this);
+		throw new IllegalStateException("Snapshot has been closed");
+	}
+
+	// Note: must be called while synchronized on views
+	private void checkClosed() {
+		if (closed) {
+			throw new IllegalStateException("Snapshot has been closed");
+		}
+	}
+
+	/**
+	 * Release all views of this snapshot and delete its buffer file
+	 */
+	@Override
+	public void close() {
+		List<ProgramDB> toRelease;
+		synchronized (views) {
+			if (closed) {
+				return;
+			}
+			closed = true;
+			toRelease = new ArrayList<>(views);
+			views.clear();
+			threadViews.clear();
+		}
+		for (ProgramDB view : toRelease) {
+			view.release(this);
+		}
+		bufferFile.delete();
+	}
+}
@@ -94,7 +94,7 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 		this.lock = lock;
 		initializeAdapters(openMode, monitor);
 
-		cache = new DBObjectCache<>(1000);
+		cache = DBObjectCache.create("CodeManager", 1000);
 		protoMgr = new PrototypeManager(handle, addrMap, openMode, monitor);
 		compositeMgr =
 			new VoidPropertyMapDB(dbHandle, openMode, this, null, addrMap, "Composites", monitor);
@@ -1673,7 +1673,7 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 					}
 				}
 
-				RecordIterator instIter = instAdapter.getRecords(start, rangeMax, true);
+				RecordCursor instCursor = instAdapter.getRecordCursor(start, rangeMax);
 				RecordIterator dataIter = dataAdapter.getRecords(start, rangeMax, true);
 
 				Address nextInstAddr = null;
@@ -1683,16 +1683,15 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 
 				while (true) {
 
-					if (nextInstAddr == null && instIter.hasNext()) {
-						DBRecord nextInstRec = instIter.next();
-						nextInstAddr = addrMap.decodeAddress(nextInstRec.getKey());
+					if (nextInstAddr == null && instCursor.next()) {
+						nextInstAddr = addrMap.decodeAddress(instCursor.getKey());
 						nextInstEndAddr = nextInstAddr;
-						int protoID = nextInstRec.getIntValue(InstDBAdapter.PROTO_ID_COL);
+						int protoID = instCursor.getIntValue(InstDBAdapter.PROTO_ID_COL);
 						InstructionPrototype proto = protoMgr.getPrototype(protoID);
 						int len;
 						if (proto != null) {
 							len = InstructionDB.getLength(proto,
-								nextInstRec.getByteValue(InstDBAdapter.FLAGS_COL));
+								instCursor.getByteValue(InstDBAdapter.FLAGS_COL));
 						}
 						else {
 							len = nextInstAddr.getAddressSpace().getAddressableUnitSize();
@@ -2581,6 +2580,45 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 		return null;
 	}
 
+	/**
+	 * Returns a flyweight cursor over all instructions in the given address set, in ascending
+	 * address order.  The cursor does not create an {@link Instruction} per element, making it
+	 * the preferred way to scan the instructions of a whole program when only their addresses,
+	 * prototypes, lengths, flags or bytes are needed.
+	 * @param set restrict the cursor to these addresses, or null for all instructions
+	 * @return the cursor
+	 */
+	public InstructionCursor getInstructionCursor(AddressSetView set) {
+		try {
+			RecordCursor cursor = set == null ? instAdapter.getRecordCursor()
+					: instAdapter.getRecordCursor(set);
+			return new InstructionCursor(this, cursor, addrMap, protoMgr, program.getMemory());
+		}
+		catch (IOException e) {
+			program.dbError(e);
+		}
+		return null;
+	}
+
+	/**
+	 * Returns a flyweight cursor over all defined data in the given address set, in ascending
+	 * address order.  The cursor does not create a {@link Data} per element.
+	 * @param set restrict the cursor to these addresses, or null for all defined data
+	 * @return the cursor
+	 */
+	public DefinedDataCursor getDefinedDataCursor(AddressSetView set) {
+		try {
+			RecordCursor cursor = set == null ? dataAdapter.getRecordCursor()
+					: dataAdapter.getRecordCursor(set);
+			return new DefinedDataCursor(this, cursor, addrMap, dataManager,
+				program.getMemory());
+		}
+		catch (IOException e) {
+			program.dbError(e);
+		}
+		return null;
+	}
+
 	/**
 	 * Check if any instruction intersects the specified address range.
 	 * The specified start and end addresses must form a valid range within
@@ -3537,11 +3575,10 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 			Address maxAddr = null;
 
 			int count = 0;
-			RecordIterator recIter = instAdapter.getRecords();
-			while (recIter.hasNext()) {
-				DBRecord rec = recIter.next();
+			RecordCursor cursor = instAdapter.getRecordCursor();
+			while (cursor.next()) {
 
-				Address addr = addrMap.decodeAddress(rec.getKey());
+				Address addr = addrMap.decodeAddress(cursor.getKey());
 				if (minAddr == null) {
 					minAddr = addr;
 				}
@@ -3559,7 +3596,7 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 					}
 				}
 
-				int protoId = rec.getIntValue(InstDBAdapter.PROTO_ID_COL);
+				int protoId = cursor.getIntValue(InstDBAdapter.PROTO_ID_COL);
 				Integer len = protoLengthCache.get(protoId);
 				if (len == null) {
 					len = protoMgr.getOriginalPrototypeLength(protoId);
@@ -3577,9 +3614,9 @@ public class CodeManager implements ErrorHandler, ManagerDB {
 					// maxAddr will equals addr
 				}
 
-				byte flags = rec.getByteValue(InstDBAdapter.FLAGS_COL);
+				byte flags = cursor.getByteValue(InstDBAdapter.FLAGS_COL);
 				if (flags != 0) {
-					redisassmblyFlags.put(rec.getKey(), flags);
+					redisassmblyFlags.put(cursor.getKey(), flags);
 				}
 
 				if ((++count % 1000) == 0) {
@@ -232,6 +232,21 @@ abstract class DataDBAdapter {
 	 */
 	abstract RecordIterator getRecords(AddressSetView set, boolean forward) throws IOException;
 
+	/**
+	 * Returns a cursor over all records in ascending address order.  Cursor column values may
+	 * be read without instantiating a record for each data item.
+	 * @throws IOException if there was a problem accessing the database
+	 */
+	abstract RecordCursor getRecordCursor() throws IOException;
+
+	/**
+	 * Returns a cursor over all records in the given address set in ascending address order.
+	 * Cursor column values may be read without instantiating a record for each data item.
+	 * @param set the address set
+	 * @throws IOException if there was a problem accessing the database
+	 */
+	abstract RecordCursor getRecordCursor(AddressSetView set) throws IOException;
+
 	/**
 	 * Update the addresses in all records to reflect the movement of a memory block.
 	 * @param fromAddr minimum address of the original block to be moved
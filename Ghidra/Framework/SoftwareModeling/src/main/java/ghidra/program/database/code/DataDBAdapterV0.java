@@ -138,6 +138,16 @@ class DataDBAdapterV0 extends DataDBAdapter {
 				: set.getMaxAddress(), forward);
 	}
 
+	@Override
+	RecordCursor getRecordCursor() throws IOException {
+		return new AddressKeyRecordCursor(dataTable, addrMap);
+	}
+
+	@Override
+	RecordCursor getRecordCursor(AddressSetView set) throws IOException {
+		return new AddressKeyRecordCursor(dataTable, addrMap, set);
+	}
+
 	/**
 	 * @see ghidra.program.database.code.DataDBAdapter#removeData(long)
 	 */
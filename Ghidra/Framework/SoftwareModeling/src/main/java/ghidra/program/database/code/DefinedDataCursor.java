@@ -0,0 +1,185 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database.code;
+
+import java.io.IOException;
+
+import db.RecordCursor;
+import ghidra.program.database.map.AddressMap;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.address.AddressOverflowException;
+import ghidra.program.model.data.*;
+import ghidra.program.model.listing.Data;
+import ghidra.program.model.mem.Memory;
+import ghidra.program.model.mem.MemoryBlock;
+
+/**
+ * A flyweight, forward-only view of the defined data within an address set.
+ * <p>
+ * This is the data counterpart of {@link InstructionCursor}: {@link #next()} repositions the
+ * cursor on the next defined data item, whose data type is read directly from the data table
+ * and resolved through the program's data type manager.  No object is created per data item
+ * unless its address or full {@link Data} is requested.
+ * <p>
+ * Values returned by this cursor are only valid until the next call to {@link #next()}.
+ * 
+ * @see CodeManager#getDefinedDataCursor(ghidra.program.model.address.AddressSetView)
+ */
+public class DefinedDataCursor {
+
+	private final CodeManager codeMgr;
+	private final RecordCursor cursor;
+	private final AddressMap addrMap;
+	private final DataTypeManager dataTypeManager;
+	private final Memory memory;
+
+	private boolean positioned;
+	private Address address;
+	private long dataTypeId;
+	private DataType dataType;
+
+	DefinedDataCursor(CodeManager codeMgr, RecordCursor cursor, AddressMap addrMap,
+			DataTypeManager dataTypeManager, Memory memory) {
+		this.codeMgr = codeMgr;
+		this.cursor = cursor;
+		this.addrMap = addrMap;
+		this.dataTypeManager = dataTypeManager;
+		this.memory = memory;
+	}
+
+	/**
+	 * Advance to the next defined data item.
+	 * @return true if positioned on the next data item, false if there are no more
+	 */
+	public boolean next() {
+		address = null;
+		try {
+			positioned = cursor.next();
+		}
+		catch (IOException e) {
+			codeMgr.dbError(e);
+			positioned = false;
+		}
+		if (!positioned) {
+			dataType = null;
+			return false;
+		}
+		long id = cursor.getLongValue(DataDBAdapter.DATA_TYPE_ID_COL);
+		if (dataType == null || id != dataTypeId) {
+			dataTypeId = id;
+			dataType = dataTypeManager.getDataType(id);
+		}
+		return true;
+	}
+
+	private void checkPositioned() {
+		if (!positioned) {
+			throw new IllegalStateException("Cursor not positioned on a data item");
+		}
+	}
+
+	/**
+	 * Returns the address key of the current data item.
+	 * @return the address key
+	 */
+	public long getAddressKey() {
+		checkPositioned();
+		return cursor.getKey();
+	}
+
+	/**
+	 * Returns the address of the current data item.  The address is decoded upon the first
+	 * request for each data item.
+	 * @return the address
+	 */
+	public Address getAddress() {
+		checkPositioned();
+		if (address == null) {
+			address = addrMap.decodeAddress(cursor.getKey());
+		}
+		return address;
+	}
+
+	/**
+	 * Returns the ID of the data type of the current data item.
+	 * @return the data type ID
+	 */
+	public long getDataTypeID() {
+		checkPositioned();
+		return dataTypeId;
+	}
+
+	/**
+	 * Returns the data type of the current data item.
+	 * @return the data type, or null if it no longer exists
+	 */
+	public DataType getDataType() {
+		checkPositioned();
+		return dataType;
+	}
+
+	/**
+	 * Returns the length of the current data item, which is the same as the length of the
+	 * corresponding {@link Data}.  For data types with a fixed length this is the length of the
+	 * type, truncated at the end of its memory block and at the next defined code unit;
+	 * otherwise the full {@link Data} is obtained to compute it.
+	 * @return the length in bytes
+	 */
+	public int getLength() {
+		checkPositioned();
+		int len = dataType == null ? -1 : dataType.getLength();
+		if (len <= 0) {
+			Data data = getData();
+			return data == null ? 1 : data.getLength();
+		}
+		if (len == 1 || dataType instanceof Undefined) {
+			return len;
+		}
+		Address addr = getAddress();
+		if (addr.isExternalAddress()) {
+			return len;
+		}
+		// same truncation as DataDB.computeLength()
+		Address endAddr;
+		try {
+			endAddr = addr.addNoWrap(len - 1);
+		}
+		catch (AddressOverflowException e) {
+			endAddr = null;
+		}
+		if (endAddr == null || !memory.contains(addr, endAddr)) {
+			MemoryBlock block = memory.getBlock(addr);
+			if (block == null) {
+				return 1;
+			}
+			endAddr = block.getEnd();
+			len = (int) endAddr.subtract(addr) + 1;
+		}
+		Address nextAddr = codeMgr.getDefinedAddressAfter(addr);
+		if (nextAddr != null && nextAddr.compareTo(endAddr) <= 0) {
+			len = (int) nextAddr.subtract(addr);
+		}
+		return len;
+	}
+
+	/**
+	 * Returns the current data item as a full {@link Data}.
+	 * @return the data, or null if it has since been removed
+	 */
+	public Data getData() {
+		return codeMgr.getDataAt(getAddress());
+	}
+}
@@ -196,6 +196,28 @@ abstract class InstDBAdapter {
 	 */
 	abstract RecordIterator getRecords() throws IOException;
 
+	/**
+	 * Returns a cursor over all records in ascending address order.  Cursor column values may
+	 * be read without instantiating a record for each instruction.
+	 * @throws IOException if there was a problem accessing the database
+	 */
+	abstract RecordCursor getRecordCursor() throws IOException;
+
+	/**
+	 * Returns a cursor over all records in the given range in ascending address order.
+	 * @param start the start of the range.
+	 * @param end the end of the range.
+	 * @throws IOException if there was a problem accessing the database
+	 */
+	abstract RecordCursor getRecordCursor(Address start, Address end) throws IOException;
+
+	/**
+	 * Returns a cursor over all records in the given address set in ascending address order.
+	 * @param set the address set
+	 * @throws IOException if there was a problem accessing the database
+	 */
+	abstract RecordCursor getRecordCursor(AddressSetView set) throws IOException;
+
 	/**
 	 * Returns the total number of records in this adapter.
 	 */
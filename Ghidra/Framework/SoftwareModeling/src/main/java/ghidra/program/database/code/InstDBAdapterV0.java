@@ -197,6 +197,21 @@ class InstDBAdapterV0 extends InstDBAdapter {
 		return new RecordIteratorAdapter(new AddressKeyRecordIterator(instTable, addrMap));
 	}
 
+	@Override
+	RecordCursor getRecordCursor() throws IOException {
+		return new RecordIteratorCursor(getRecords());
+	}
+
+	@Override
+	RecordCursor getRecordCursor(Address start, Address end) throws IOException {
+		return new RecordIteratorCursor(getRecords(start, end, true));
+	}
+
+	@Override
+	RecordCursor getRecordCursor(AddressSetView set) throws IOException {
+		return new RecordIteratorCursor(getRecords(set, true));
+	}
+
 	/**
 	 * @see ghidra.program.database.code.InstDBAdapter#getRecords(ghidra.program.model.address.AddressSetView, boolean)
 	 */
@@ -212,6 +212,21 @@ class InstDBAdapterV1 extends InstDBAdapter {
 		return new AddressKeyRecordIterator(instTable, addrMap);
 	}
 
+	@Override
+	RecordCursor getRecordCursor() throws IOException {
+		return new AddressKeyRecordCursor(instTable, addrMap);
+	}
+
+	@Override
+	RecordCursor getRecordCursor(Address start, Address end) throws IOException {
+		return new AddressKeyRecordCursor(instTable, addrMap, start, end);
+	}
+
+	@Override
+	RecordCursor getRecordCursor(AddressSetView set) throws IOException {
+		return new AddressKeyRecordCursor(instTable, addrMap, set);
+	}
+
 	/**
 	 * @see ghidra.program.database.code.InstDBAdapter#updateFlags(long, byte)
 	 */
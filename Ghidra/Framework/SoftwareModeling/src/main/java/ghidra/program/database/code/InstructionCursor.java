@@ -0,0 +1,188 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database.code;
+
+import java.io.IOException;
+
+import db.RecordCursor;
+import ghidra.program.database.map.AddressMap;
+import ghidra.program.model.address.Address;
+import ghidra.program.model.lang.InstructionPrototype;
+import ghidra.program.model.listing.FlowOverride;
+import ghidra.program.model.listing.Instruction;
+import ghidra.program.model.mem.Memory;
+import ghidra.program.model.mem.MemoryAccessException;
+
+/**
+ * A flyweight, forward-only view of the instructions within an address set.
+ * <p>
+ * Unlike an {@link ghidra.program.model.listing.InstructionIterator}, which creates (and
+ * caches) an {@link InstructionDB} for each instruction, this cursor reuses itself for every
+ * step: {@link #next()} repositions it on the next instruction, whose prototype, flags and
+ * length are then read directly from the instruction table.  No object is created per
+ * instruction unless its address or full {@link Instruction} is requested.  This suits
+ * exporters, hashers and analyzers which scan every instruction of a program but only need a
+ * few properties of each.
+ * <p>
+ * Values returned by this cursor are only valid until the next call to {@link #next()}.  As with
+ * iterators, the cursor tolerates changes to the listing, but may or may not reflect them.
+ * 
+ * @see CodeManager#getInstructionCursor(ghidra.program.model.address.AddressSetView)
+ */
+public class InstructionCursor {
+
+	private final CodeManager codeMgr;
+	private final RecordCursor cursor;
+	private final AddressMap addrMap;
+	private final PrototypeManager protoMgr;
+	private final Memory memory;
+
+	private boolean positioned;
+	private Address address;
+	private InstructionPrototype prototype;
+	private byte flags;
+
+	InstructionCursor(CodeManager codeMgr, RecordCursor cursor, AddressMap addrMap,
+			PrototypeManager protoMgr, Memory memory) {
+		this.codeMgr = codeMgr;
+		this.cursor = cursor;
+		this.addrMap = addrMap;
+		this.protoMgr = protoMgr;
+		this.memory = memory;
+	}
+
+	/**
+	 * Advance to the next instruction.
+	 * @return true if positioned on the next instruction, false if there are no more
+	 */
+	public boolean next() {
+		address = null;
+		try {
+			positioned = cursor.next();
+		}
+		catch (IOException e) {
+			codeMgr.dbError(e);
+			positioned = false;
+		}
+		if (!positioned) {
+			prototype = null;
+			return false;
+		}
+		prototype = protoMgr.getPrototype(cursor.getIntValue(InstDBAdapter.PROTO_ID_COL));
+		flags = cursor.getByteValue(InstDBAdapter.FLAGS_COL);
+		return true;
+	}
+
+	private void checkPositioned() {
+		if (!positioned) {
+			throw new IllegalStateException("Cursor not positioned on an instruction");
+		}
+	}
+
+	/**
+	 * Returns the address key of the current instruction, which may be compared against other
+	 * keys of the same program without decoding the address.
+	 * @return the address key
+	 */
+	public long getAddressKey() {
+		checkPositioned();
+		return cursor.getKey();
+	}
+
+	/**
+	 * Returns the address of the current instruction.  The address is decoded upon the first
+	 * request for each instruction.
+	 * @return the address
+	 */
+	public Address getAddress() {
+		checkPositioned();
+		if (address == null) {
+			address = addrMap.decodeAddress(cursor.getKey());
+		}
+		return address;
+	}
+
+	/**
+	 * Returns the prototype of the current instruction.  Prototypes are shared by all
+	 * instructions which parsed identically.
+	 * @return the prototype
+	 */
+	public InstructionPrototype getPrototype() {
+		checkPositioned();
+		return prototype;
+	}
+
+	/**
+	 * Returns the length of the current instruction, including any length override.
+	 * @return the length in bytes
+	 */
+	public int getLength() {
+		checkPositioned();
+		if (prototype == null) {
+			return 1;
+		}
+		return InstructionDB.getLength(prototype, flags);
+	}
+
+	/**
+	 * Returns the stored flags of the current instruction.
+	 * @return the flags
+	 */
+	public byte getFlags() {
+		checkPositioned();
+		return flags;
+	}
+
+	/**
+	 * Returns the flow override of the current instruction.
+	 * @return the flow override
+	 */
+	public FlowOverride getFlowOverride() {
+		checkPositioned();
+		return InstructionDB.getFlowOverride(flags);
+	}
+
+	/**
+	 * Returns true if the fall-through of the current instruction has been overridden.
+	 * @return true if the fall-through is overridden
+	 */
+	public boolean isFallThroughOverridden() {
+		checkPositioned();
+		return InstructionDB.isFallThroughOverridden(flags);
+	}
+
+	/**
+	 * Reads the bytes of the current instruction into the given buffer.
+	 * @param buffer the destination buffer
+	 * @param offset the offset in the buffer at which to store the first byte
+	 * @return the number of bytes read, which is less than the length of the instruction if the
+	 * buffer is too small
+	 * @throws MemoryAccessException if the bytes could not be read
+	 */
+	public int getBytes(byte[] buffer, int offset) throws MemoryAccessException {
+		int len = Math.min(getLength(), buffer.length - offset);
+		return memory.getBytes(getAddress(), buffer, offset, len);
+	}
+
+	/**
+	 * Returns the current instruction as a full {@link Instruction}, e.g., to examine its
+	 * operands or references.
+	 * @return the instruction, or null if it has since been removed
+	 */
+	public Instruction getInstruction() {
+		return codeMgr.getInstructionAt(getAddress());
+	}
+}
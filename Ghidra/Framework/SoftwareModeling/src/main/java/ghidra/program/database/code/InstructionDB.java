@@ -72,8 +72,7 @@ public class InstructionDB extends CodeUnitDB implements Instruction, Instructio
 		super(codeMgr, cache, addr, address, addr, proto.getLength());
 		this.proto = proto;
 		this.flags = flags;
-		flowOverride =
-			FlowOverride.getFlowOverride((flags & FLOW_OVERRIDE_SET_MASK) >> FLOW_OVERRIDE_SHIFT);
+		flowOverride = getFlowOverride(flags);
 		refreshLength();
 	}
 
@@ -119,6 +118,25 @@ public class InstructionDB extends CodeUnitDB implements Instruction, Instructio
 		return length;
 	}
 
+	/**
+	 * Get the flow override encoded within the specified instruction flags.
+	 * @param flags instruction flags
+	 * @return flow override
+	 */
+	static FlowOverride getFlowOverride(byte flags) {
+		return FlowOverride
+				.getFlowOverride((flags & FLOW_OVERRIDE_SET_MASK) >> FLOW_OVERRIDE_SHIFT);
+	}
+
+	/**
+	 * Determine if the specified instruction flags indicate a fall-through override.
+	 * @param flags instruction flags
+	 * @return true if the fall-through has been overridden
+	 */
+	static boolean isFallThroughOverridden(byte flags) {
+		return (flags & FALLTHROUGH_SET_MASK) != 0;
+	}
+
 	@Override
 	protected boolean hasBeenDeleted(DBRecord rec) {
 		if (rec == null) {
@@ -144,8 +162,7 @@ public class InstructionDB extends CodeUnitDB implements Instruction, Instructio
 		}
 
 		flags = rec.getByteValue(InstDBAdapter.FLAGS_COL);
-		flowOverride =
-			FlowOverride.getFlowOverride((flags & FLOW_OVERRIDE_SET_MASK) >> FLOW_OVERRIDE_SHIFT);
+		flowOverride = getFlowOverride(flags);
 		refreshLength();
 		return false;
 	}
@@ -693,7 +710,7 @@ public class InstructionDB extends CodeUnitDB implements Instruction, Instructio
 
 	@Override
 	public boolean isFallThroughOverridden() {
-		return (flags & FALLTHROUGH_SET_MASK) != 0;
+		return isFallThroughOverridden(flags);
 	}
 
 	/**
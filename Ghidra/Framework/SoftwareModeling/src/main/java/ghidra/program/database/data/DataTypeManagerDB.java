@@ -384,7 +384,7 @@ abstract public class DataTypeManagerDB implements DataTypeManager {
 		if (checkForSourceArchiveUpdatesNeeded(openMode, monitor)) {
 			doSourceArchiveUpdates(monitor);
 		}
-		dtCache = new DBObjectCache<>(10);
+		dtCache = DBObjectCache.create("DataTypeManagerDB", 10);
 		sourceArchiveDBCache = new DBObjectCache<>(10);
 		builtInMap = new HashMap<>();
 		builtIn2IdMap = new HashMap<>();
@@ -110,7 +110,7 @@ public class FunctionManagerDB implements FunctionManager {
 		this.dbHandle = dbHandle;
 		this.addrMap = addrMap;
 		this.lock = lock;
-		cache = new DBObjectCache<>(20);
+		cache = DBObjectCache.create("FunctionManagerDB", 20);
 		initializeAdapters(openMode, monitor);
 		functionTagManager = new FunctionTagManagerDB(dbHandle, openMode, lock, monitor);
 	}
@@ -0,0 +1,128 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database.map;
+
+import java.io.IOException;
+import java.util.List;
+
+import db.*;
+import ghidra.program.model.address.*;
+
+/**
+ * Returns a {@link RecordCursor} over records that are address keyed, in ascending address
+ * order.  The cursor may be restricted to an address range or address set.  Memory addresses
+ * encoded as Absolute are not included.
+ */
+public class AddressKeyRecordCursor implements RecordCursor {
+
+	private Table table;
+
+	private List<KeyRange> keyRangeList;
+	private int keyRangeIndex = -1;
+	private RecordCursor cursor;
+
+	/**
+	 * Constructs a new AddressKeyRecordCursor over all records.
+	 * @param table the table to iterate.
+	 * @param addrMap the address map
+	 * @throws IOException if a database io error occurs.
+	 */
+	public AddressKeyRecordCursor(Table table, AddressMap addrMap) throws IOException {
+		this(table, addrMap, null);
+	}
+
+	/**
+	 * Constructs a new AddressKeyRecordCursor over the records within an address range.
+	 * @param table the table to iterate.
+	 * @param addrMap the address map
+	 * @param minAddr the minimum address in the range.
+	 * @param maxAddr the maximum address in the range.
+	 * @throws IOException if a database io error occurs.
+	 */
+	public AddressKeyRecordCursor(Table table, AddressMap addrMap, Address minAddr,
+			Address maxAddr) throws IOException {
+		this(table, addrMap, addrMap.getAddressFactory().getAddressSet(minAddr, maxAddr));
+	}
+
+	/**
+	 * Constructs a new AddressKeyRecordCursor over the records contained within an address set.
+	 * @param table the table to iterate.
+	 * @param addrMap the address map
+	 * @param set the address set to iterate over or null for all addresses
+	 * @throws IOException if a database io error occurs.
+	 */
+	public AddressKeyRecordCursor(Table table, AddressMap addrMap, AddressSetView set)
+			throws IOException {
+		this.table = table;
+		keyRangeList = addrMap.getKeyRanges(set, false, false);
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (cursor == null || !cursor.next()) {
+			if (++keyRangeIndex >= keyRangeList.size()) {
+				keyRangeIndex = keyRangeList.size();
+				cursor = null;
+				return false;
+			}
+			KeyRange keyRange = keyRangeList.get(keyRangeIndex);
+			cursor = table.cursor(keyRange.minKey, keyRange.maxKey);
+		}
+		return true;
+	}
+
+	private RecordCursor getCursor() {
+		if (cursor == null) {
+			throw new IllegalStateException("Cursor not positioned on a record");
+		}
+		return cursor;
+	}
+
+	@Override
+	public long getKey() {
+		return getCursor().getKey();
+	}
+
+	@Override
+	public long getLongValue(int columnIndex) {
+		return getCursor().getLongValue(columnIndex);
+	}
+
+	@Override
+	public int getIntValue(int columnIndex) {
+		return getCursor().getIntValue(columnIndex);
+	}
+
+	@Override
+	public short getShortValue(int columnIndex) {
+		return getCursor().getShortValue(columnIndex);
+	}
+
+	@Override
+	public byte getByteValue(int columnIndex) {
+		return getCursor().getByteValue(columnIndex);
+	}
+
+	@Override
+	public boolean getBooleanValue(int columnIndex) {
+		return getCursor().getBooleanValue(columnIndex);
+	}
+
+	@Override
+	public DBRecord getRecord() throws IOException {
+		return getCursor().getRecord();
+	}
+}
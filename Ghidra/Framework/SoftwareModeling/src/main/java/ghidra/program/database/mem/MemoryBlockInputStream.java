@@ -18,23 +18,38 @@ package ghidra.program.database.mem;
 import java.io.IOException;
 import java.io.InputStream;
 
+import ghidra.program.model.listing.Program;
 import ghidra.program.model.mem.MemoryAccessException;
 
 /**
  * Maps a MemoryBlockDB into an InputStream.
+ * <p>
+ * Single byte reads are served from a chunk of the block's bytes.  The chunk is fetched again
+ * if the program has been modified since it was read, so the stream reflects changes made to
+ * memory while it is open.
  */
 class MemoryBlockInputStream extends InputStream {
+	// single byte reads are served from a chunk of this size to avoid a block lookup per byte
+	static final int CHUNK_SIZE = 16 * 1024;
+
 	private long index = 0;
 	private long resetIndex = 0;
 	private long numBytes = 0;
 	MemoryBlockDB block;
 
+	private final Program program;
+	private byte[] chunk;
+	private long chunkStart = 0;
+	private int chunkLength = 0;
+	private long chunkModificationNumber;
+
 	/**
 	 * Constructs a new MemoryBlockInputStream for reading the bytes of a memory block.
 	 * @param block the memory block whose bytes are to be read as an input stream.
 	 */
 	MemoryBlockInputStream(MemoryBlockDB block) {
 		this.block = block;
+		this.program = block.memMap.getProgram();
 		if (!block.isInitialized()) {
 			numBytes = 0;
 		}
@@ -93,8 +108,35 @@ class MemoryBlockInputStream extends InputStream {
 		if (index >= numBytes) {
 			return -1;
 		}
+		if (!isInChunk(index)) {
+			fillChunk();
+			if (chunkLength == 0) {
+				return -1;
+			}
+		}
+		return chunk[(int) (index++ - chunkStart)] & 0xff;
+	}
+
+	private boolean isInChunk(long i) {
+		if (i < chunkStart || i >= chunkStart + chunkLength) {
+			return false;
+		}
+		// bytes fetched before the program was modified may be stale
+		return program == null || program.getModificationNumber() == chunkModificationNumber;
+	}
+
+	private void fillChunk() throws IOException {
+		if (chunk == null) {
+			chunk = new byte[(int) Math.min(CHUNK_SIZE, numBytes)];
+		}
+		chunkStart = index;
+		chunkLength = 0;
+		if (program != null) {
+			chunkModificationNumber = program.getModificationNumber();
+		}
+		int len = (int) Math.min(chunk.length, numBytes - index);
 		try {
-			return block.getByte(index++) & 0xff;
+			chunkLength = block.getBytes(index, chunk, 0, len);
 		}
 		catch (MemoryAccessException e) {
 			throw new IOException(e);
@@ -110,10 +152,21 @@ class MemoryBlockInputStream extends InputStream {
 		if (remaining < len) {
 			len = (int) remaining;
 		}
+		int copied = 0;
+		if (isInChunk(index)) {
+			// use bytes already fetched by read() before reading directly from the block
+			int chunkOffset = (int) (index - chunkStart);
+			copied = Math.min(len, chunkLength - chunkOffset);
+			System.arraycopy(chunk, chunkOffset, b, off, copied);
+			index += copied;
+			if (copied == len) {
+				return len;
+			}
+		}
 		try {
-			len = block.getBytes(index, b, off, len);
-			index += len;
-			return len;
+			int n = block.getBytes(index, b, off + copied, len - copied);
+			index += n;
+			return copied + n;
 		}
 		catch (MemoryAccessException e) {
 			throw new IOException(e);
@@ -53,6 +53,14 @@ abstract class RefList extends DatabaseObject {
 			boolean isPrimary, SourceType sourceType, boolean isOffset, boolean isShift,
 			long offsetOrShift) throws IOException;
 
+	/**
+	 * Add references to this list, writing the list once.  Offset and shifted state is taken
+	 * from {@link MemReferenceDB} instances.
+	 * @param refs the references to add
+	 * @throws IOException if a database error occurs
+	 */
+	abstract void addRefs(Reference[] refs) throws IOException;
+
 	abstract void updateRefType(Address addr, int opIndex, RefType refType) throws IOException;
 
 	abstract ReferenceDB getRef(Address address, int opIndex) throws IOException;
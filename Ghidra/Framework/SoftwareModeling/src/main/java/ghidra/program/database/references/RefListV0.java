@@ -137,6 +137,8 @@ class RefListV0 extends RefList {
 	}
 
 	synchronized void addRefs(Reference[] refs) throws IOException {
+		byte[][] encodedRefs = new byte[refs.length][];
+		int length = refData.length;
 		for (int i = 0; i < refs.length; i++) {
 
 			boolean isPrimary = refs[i].isPrimary();
@@ -151,24 +153,40 @@ class RefListV0 extends RefList {
 				offsetOrShift = memRef.getOffsetOrShift();
 			}
 
-			appendRef(refs[i].getFromAddress(), refs[i].getToAddress(), refs[i].getOperandIndex(),
-				refs[i].getReferenceType(), refs[i].getSource(), isPrimary, symbolID, isOffset,
-				isShifted, offsetOrShift);
+			updateRefLevel(refs[i].getReferenceType());
+			encodedRefs[i] = encode(refs[i].getFromAddress(), refs[i].getToAddress(),
+				refs[i].getReferenceType(), refs[i].getSource(), refs[i].getOperandIndex(),
+				symbolID, isPrimary, isOffset, isShifted, offsetOrShift);
+			length += encodedRefs[i].length;
+		}
 
+		// grow the encoded list once rather than once per reference
+		byte[] newData = new byte[length];
+		System.arraycopy(refData, 0, newData, 0, refData.length);
+		int offset = refData.length;
+		for (byte[] bytes : encodedRefs) {
+			System.arraycopy(bytes, 0, newData, offset, bytes.length);
+			offset += bytes.length;
 		}
+		refData = newData;
+		numRefs += refs.length;
 		updateRecord();
 	}
 
-	private void appendRef(Address fromAddr, Address toAddr, int opIndex, RefType refType,
-			SourceType source, boolean isPrimary, long symbolID, boolean isOffset,
-			boolean isShifted, long offsetOrShift) {
-
+	private void updateRefLevel(RefType refType) {
 		if (!isFrom) {
 			byte level = getRefLevel(refType);
 			if (level > refLevel) {
 				refLevel = level;
 			}
 		}
+	}
+
+	private void appendRef(Address fromAddr, Address toAddr, int opIndex, RefType refType,
+			SourceType source, boolean isPrimary, long symbolID, boolean isOffset,
+			boolean isShifted, long offsetOrShift) {
+
+		updateRefLevel(refType);
 
 		byte[] bytes =
 			encode(fromAddr, toAddr, refType, source, opIndex, symbolID, isPrimary, isOffset,
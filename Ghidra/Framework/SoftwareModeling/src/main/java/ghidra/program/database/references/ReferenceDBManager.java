@@ -45,6 +45,11 @@ import ghidra.util.task.TaskMonitor;
 public class ReferenceDBManager implements ReferenceManager, ManagerDB, ErrorHandler {
 	private static final Reference[] NO_REFS = new Reference[0];
 
+	/**
+	 * Largest batch of added references reported with one change record per reference
+	 */
+	static final int MAX_BATCH_CHANGE_RECORDS = 1000;
+
 	private FunctionVariableReferenceCacher functionCacher = new FunctionVariableReferenceCacher();
 
 	private OldStackRefDBAdpater oldStackRefAdapter;
@@ -573,6 +578,182 @@ public class ReferenceDBManager implements ReferenceManager, ManagerDB, ErrorHan
 		return null;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * Consecutive plain memory-to-memory references are grouped by from address, keeping their
+	 * order within each from address, and written with a single update of each affected from
+	 * and to reference list.  Offset, shifted and non-memory references are added individually,
+	 * after the plain references which precede them have been written.  A batch of more than {@link #MAX_BATCH_CHANGE_RECORDS} references
+	 * is reported with a single {@link ProgramEvent#REFERENCES_ADDED} change record whose
+	 * new value is the set of from addresses.
+	 */
+	@Override
+	public void addMemoryReferences(Collection<? extends Reference> references) {
+		List<Reference> batch = new ArrayList<>(references.size());
+		for (Reference ref : references) {
+			if (!ref.getFromAddress().isMemoryAddress()) {
+				throw new IllegalArgumentException("From address must be memory addresses");
+			}
+			if (ref.getOperandIndex() < Reference.MNEMONIC) {
+				throw new IllegalArgumentException(
+					"Invalid opIndex specified: " + ref.getOperandIndex());
+			}
+		}
+		lock.acquire();
+		try {
+			for (Reference ref : references) {
+				if (ref.isOffsetReference() || ref.isShiftedReference() ||
+					!ref.getToAddress().isMemoryAddress()) {
+					if (!batch.isEmpty()) {
+						addBatch(batch);
+						batch.clear();
+					}
+					ReferenceManager.super.addMemoryReferences(List.of(ref));
+				}
+				else {
+					batch.add(ref);
+				}
+			}
+			if (!batch.isEmpty()) {
+				addBatch(batch);
+			}
+		}
+		catch (IOException e) {
+			program.dbError(e);
+		}
+		finally {
+			lock.release();
+		}
+	}
+
+	private void addBatch(List<Reference> batch) throws IOException {
+		// stable sort: references from the same address stay in the order given
+		batch.sort(Comparator.comparing(Reference::getFromAddress));
+
+		List<ReferenceDB> added = new ArrayList<>(batch.size());
+		int start = 0;
+		while (start < batch.size()) {
+			Address fromAddr = batch.get(start).getFromAddress();
+			int end = start + 1;
+			while (end < batch.size() && batch.get(end).getFromAddress().equals(fromAddr)) {
+				++end;
+			}
+			addFromBatch(fromAddr, batch.subList(start, end), added);
+			start = end;
+		}
+
+		added.sort(Comparator.comparing(Reference::getToAddress));
+		start = 0;
+		while (start < added.size()) {
+			Address toAddr = added.get(start).getToAddress();
+			int end = start + 1;
+			while (end < added.size() && added.get(end).getToAddress().equals(toAddr)) {
+				++end;
+			}
+			RefList toRefs = getToRefs(toAddr);
+			if (toRefs == null) {
+				toRefs = toAdapter.createRefList(program, toCache, toAddr);
+			}
+			toRefs = toRefs.checkRefListSize(toCache, end - start);
+			toRefs.addRefs(added.subList(start, end).toArray(NO_REFS));
+			start = end;
+		}
+
+		batchAdded(added);
+	}
+
+	/**
+	 * Add the references from a single from address, merging them with any existing references
+	 * the same way {@link #addRef} does.  Only the from reference list is updated.
+	 */
+	private void addFromBatch(Address fromAddr, List<Reference> refs, List<ReferenceDB> added)
+			throws IOException {
+		Map<PendingKey, ReferenceDB> pending = new LinkedHashMap<>();
+		int lastOpIndex = Integer.MIN_VALUE;
+		for (Reference ref : refs) {
+			int opIndex = ref.getOperandIndex();
+			if (opIndex != lastOpIndex) {
+				removeNonMemRefs(fromAddr, opIndex);
+				lastOpIndex = opIndex;
+			}
+			Address toAddr = ref.getToAddress();
+			if (toAddr.getAddressSpace().isOverlaySpace()) {
+				toAddr = ((OverlayAddressSpace) toAddr.getAddressSpace()).translateAddress(toAddr);
+			}
+			RefType type = ref.getReferenceType();
+			boolean isPrimary = false;
+
+			PendingKey key = new PendingKey(toAddr, opIndex);
+			ReferenceDB oldRef = pending.get(key);
+			boolean isPendingRef = oldRef != null;
+			if (oldRef == null) {
+				oldRef = (ReferenceDB) getReference(fromAddr, toAddr, opIndex);
+			}
+			if (oldRef != null) {
+				if (!oldRef.isOffsetReference() && !oldRef.isShiftedReference()) {
+					type = combineReferenceType(type, oldRef.getReferenceType());
+					if (type == oldRef.getReferenceType()) {
+						continue;
+					}
+				}
+				if (!isPendingRef) {
+					removeReference(fromAddr, toAddr, opIndex);
+				}
+				isPrimary = oldRef.isPrimary();
+			}
+
+			if (!isPrimary && !isPendingRef) {
+				//make the 1st reference primary...
+				isPrimary = !hasPendingOperand(pending, opIndex) &&
+					!hasReferencesFrom(fromAddr, opIndex);
+			}
+			pending.put(key, new MemReferenceDB(program, fromAddr, toAddr, type, opIndex,
+				ref.getSource(), isPrimary, -1));
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+
+		RefList fromRefs = getFromRefs(fromAddr);
+		if (fromRefs == null) {
+			fromRefs = fromAdapter.createRefList(program, fromCache, fromAddr);
+		}
+		fromRefs = fromRefs.checkRefListSize(fromCache, pending.size());
+		fromRefs.addRefs(pending.values().toArray(NO_REFS));
+		added.addAll(pending.values());
+	}
+
+	private static boolean hasPendingOperand(Map<PendingKey, ReferenceDB> pending, int opIndex) {
+		for (PendingKey key : pending.keySet()) {
+			if (key.opIndex() == opIndex) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void batchAdded(List<ReferenceDB> added) {
+		if (added.size() <= MAX_BATCH_CHANGE_RECORDS) {
+			for (ReferenceDB ref : added) {
+				referenceAdded(ref);
+			}
+			return;
+		}
+		functionCacher.clearCache();
+		CompactAddressSet fromAddrs = new CompactAddressSet();
+		for (ReferenceDB ref : added) {
+			fromAddrs.add(ref.getFromAddress());
+			if (ref.getReferenceType() == RefType.FALL_THROUGH) {
+				program.getCodeManager().fallThroughChanged(ref.getFromAddress(), ref);
+			}
+		}
+		program.setChanged(ProgramEvent.REFERENCES_ADDED, fromAddrs, null);
+	}
+
+	private record PendingKey(Address toAddr, int opIndex) {
+	}
+
 	@Override
 	public Reference addExternalReference(Address fromAddr, int opIndex, ExternalLocation location,
 			SourceType sourceType, RefType type) throws InvalidInputException {
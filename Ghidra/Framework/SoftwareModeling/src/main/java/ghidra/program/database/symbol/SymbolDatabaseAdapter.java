@@ -18,6 +18,7 @@ package ghidra.program.database.symbol;
 import java.io.IOException;
 import java.util.Objects;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.StringUtils;
 
@@ -77,7 +78,15 @@ abstract class SymbolDatabaseAdapter {
 		}
 
 		try {
-			SymbolDatabaseAdapter adapter = new SymbolDatabaseAdapterV3(dbHandle, addrMap, false);
+			SymbolDatabaseAdapterV3 adapter = new SymbolDatabaseAdapterV3(dbHandle, addrMap, false);
+			if (!adapter.hasNameIndex()) {
+				if (openMode == DBConstants.UPGRADE) {
+					adapter.buildNameIndex(dbHandle, monitor);
+				}
+				else if (openMode == DBConstants.UPDATE) {
+					throw new VersionException(true);
+				}
+			}
 			return adapter;
 		}
 		catch (VersionException e) {
@@ -146,6 +155,7 @@ abstract class SymbolDatabaseAdapter {
 		}
 		finally {
 			tmpHandle.deleteTable(SYMBOL_TABLE_NAME);
+			tmpHandle.deleteTable(SymbolNameIndex.NAME_INDEX_TABLE_NAME);
 		}
 	}
 
@@ -366,6 +376,19 @@ abstract class SymbolDatabaseAdapter {
 	 */
 	abstract RecordIterator getSymbolsByName(String name) throws IOException;
 
+	/**
+	 * Get the symbols whose stored name may match the given pattern, in symbol ID order.  The
+	 * result may include symbols that do not match, including all symbols whose name is not
+	 * stored (e.g., default names), so names must be checked by the caller.  This
+	 * implementation returns all symbols.
+	 * @param pattern the pattern, as used with {@link java.util.regex.Matcher#matches()}
+	 * @return a record iterator over the candidate symbols
+	 * @throws IOException if a database io error occurs
+	 */
+	RecordIterator getSymbolsByNamePattern(Pattern pattern) throws IOException {
+		return getSymbols();
+	}
+
 	/**
 	 * Scan symbols lexicographically by name starting from the given name
 	 * <p>
@@ -16,13 +16,13 @@
 package ghidra.program.database.symbol;
 
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.regex.Pattern;
 
 import db.*;
 import ghidra.program.database.map.*;
-import ghidra.program.database.util.EmptyRecordIterator;
-import ghidra.program.database.util.RecordFilter;
+import ghidra.program.database.symbol.SymbolNameIndex.NameLiterals;
+import ghidra.program.database.util.*;
 import ghidra.program.model.address.*;
 import ghidra.program.model.symbol.SourceType;
 import ghidra.program.model.symbol.SymbolType;
@@ -60,6 +60,7 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 
 	private Table symbolTable;
 	private AddressMap addrMap;
+	private SymbolNameIndex nameIndex; // null if opened read-only before the index was added
 
 	SymbolDatabaseAdapterV3(DBHandle handle, AddressMap addrMap, boolean create)
 			throws VersionException, IOException {
@@ -69,6 +70,7 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 			symbolTable = handle.createTable(SYMBOL_TABLE_NAME, SYMBOL_SCHEMA,
 				new int[] { SYMBOL_ADDR_COL, SYMBOL_NAME_COL, SYMBOL_PARENT_COL, SYMBOL_HASH_COL,
 					SYMBOL_PRIMARY_COL });
+			nameIndex = SymbolNameIndex.create(handle);
 		}
 		else {
 			symbolTable = handle.getTable(SYMBOL_TABLE_NAME);
@@ -82,9 +84,32 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 				}
 				throw new VersionException(VersionException.NEWER_VERSION, false);
 			}
+			nameIndex = SymbolNameIndex.open(handle);
 		}
 	}
 
+	/**
+	 * Determine if the symbol name index exists.
+	 * @return true if the name index exists, false if it must be built by
+	 * {@link #buildNameIndex(DBHandle, TaskMonitor)}
+	 */
+	boolean hasNameIndex() {
+		return nameIndex != null;
+	}
+
+	/**
+	 * Create and populate the symbol name index for an existing symbol table.
+	 * @param handle the database handle
+	 * @param monitor the task monitor
+	 * @throws IOException if a database io error occurs
+	 * @throws CancelledException if the task is cancelled
+	 */
+	void buildNameIndex(DBHandle handle, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		nameIndex = SymbolNameIndex.create(handle);
+		nameIndex.build(symbolTable.iterator(), symbolTable.getRecordCount(), monitor);
+	}
+
 	@Override
 	DBRecord createSymbol(String name, Address address, long namespaceID, SymbolType symbolType,
 			String stringData, Long dataTypeId, Integer varOffset, SourceType source,
@@ -132,11 +157,20 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 		}
 
 		symbolTable.putRecord(rec);
+		if (nameIndex != null) {
+			nameIndex.add(rec);
+		}
 		return rec;
 	}
 
 	@Override
 	void removeSymbol(long symbolID) throws IOException {
+		if (nameIndex != null) {
+			DBRecord rec = symbolTable.getRecord(symbolID);
+			if (rec != null) {
+				nameIndex.remove(rec);
+			}
+		}
 		symbolTable.deleteRecord(symbolID);
 	}
 
@@ -188,6 +222,9 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 		long addressKey = record.getLongValue(SYMBOL_ADDR_COL);
 		record.setField(SYMBOL_HASH_COL,
 			computeLocatorHash(name, namespaceId, addressKey));
+		if (nameIndex != null) {
+			nameIndex.update(symbolTable.getRecord(record.getKey()), record);
+		}
 		symbolTable.putRecord(record);
 	}
 
@@ -226,7 +263,28 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 	}
 
 	void deleteExternalEntries(Address start, Address end) throws IOException {
+		List<DBRecord> records = getRecordsToUnindex(start, end);
 		AddressRecordDeleter.deleteRecords(symbolTable, SYMBOL_ADDR_COL, addrMap, start, end, null);
+		unindexDeletedRecords(records);
+	}
+
+	private List<DBRecord> getRecordsToUnindex(Address start, Address end) throws IOException {
+		List<DBRecord> records = new ArrayList<>();
+		if (nameIndex != null) {
+			RecordIterator it = getSymbols(start, end, true);
+			while (it.hasNext()) {
+				records.add(it.next());
+			}
+		}
+		return records;
+	}
+
+	private void unindexDeletedRecords(List<DBRecord> records) throws IOException {
+		for (DBRecord rec : records) {
+			if (!symbolTable.hasRecord(rec.getKey())) {
+				nameIndex.remove(rec);
+			}
+		}
 	}
 
 	@Override
@@ -245,9 +303,11 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 	Set<Address> deleteAddressRange(Address startAddr, Address endAddr, TaskMonitor monitor)
 			throws CancelledException, IOException {
 
+		List<DBRecord> records = getRecordsToUnindex(startAddr, endAddr);
 		AnchoredSymbolRecordFilter filter = new AnchoredSymbolRecordFilter();
 		AddressRecordDeleter.deleteRecords(symbolTable, SYMBOL_ADDR_COL, addrMap, startAddr,
 			endAddr, filter);
+		unindexDeletedRecords(records);
 
 		return filter.getAddressesForSkippedRecords();
 	}
@@ -270,6 +330,41 @@ class SymbolDatabaseAdapterV3 extends SymbolDatabaseAdapter {
 		return symbolTable.indexIterator(SYMBOL_NAME_COL, field, null, true);
 	}
 
+	@Override
+	RecordIterator getSymbolsByNamePattern(Pattern pattern) throws IOException {
+		NameLiterals literals = SymbolNameIndex.getLiterals(pattern);
+		if (nameIndex == null || literals == null ||
+			symbolTable.getMaxKey() > SymbolNameIndex.MAX_SYMBOL_ID) {
+			return super.getSymbolsByNamePattern(pattern);
+		}
+		long[] prefixIDs = null;
+		if (!literals.hasNGrams()) {
+			if (literals.prefix() == null) {
+				return super.getSymbolsByNamePattern(pattern);
+			}
+			prefixIDs = getSymbolIDsByPrefix(literals.prefix());
+		}
+		long[] ids = nameIndex.findSymbolIDs(literals, prefixIDs);
+		// skip symbols removed after the candidates were found
+		return new QueryRecordIterator(
+			new KeyToRecordIterator(symbolTable, new SymbolNameIndex.KeyIterator(ids)),
+			rec -> rec != null);
+	}
+
+	private long[] getSymbolIDsByPrefix(String prefix) throws IOException {
+		List<Long> ids = new ArrayList<>();
+		RecordIterator it = scanSymbolsByName(prefix);
+		while (it.hasNext()) {
+			DBRecord rec = it.next();
+			String name = rec.getString(SYMBOL_NAME_COL);
+			if (name == null || !name.startsWith(prefix)) {
+				break;
+			}
+			ids.add(rec.getKey());
+		}
+		return ids.stream().mapToLong(Long::longValue).sorted().toArray();
+	}
+
 	@Override
 	RecordIterator getSymbolsByNameAndNamespace(String name, long id) throws IOException {
 		// create a range of hash fields for all symbols with this name and namespace id over all
@@ -99,7 +99,7 @@ public class SymbolManager implements SymbolTable, ManagerDB {
 		this.lock = lock;
 		dynamicSymbolAddressMap = new AddressMapImpl((byte) 0x40, addrMap.getAddressFactory());
 		initializeAdapters(handle, openMode, monitor);
-		cache = new DBObjectCache<>(100);
+		cache = DBObjectCache.create("SymbolManager", 100);
 
 		variableStorageMgr =
 			new VariableStorageManagerDB(handle, addrMap, openMode, errHandler, lock, monitor);
@@ -1347,14 +1347,23 @@ public class SymbolManager implements SymbolTable, ManagerDB {
 
 	@Override
 	public SymbolIterator getSymbolIterator(String searchStr, boolean caseSensitive) {
+		return getSymbolIterator(UserSearchUtils.createSearchPattern(searchStr, caseSensitive));
+	}
+
+	@Override
+	public SymbolIterator getSymbolIterator(Pattern pattern) {
+		lock.acquire();
 		try {
-			RecordIterator iter = adapter.getSymbols();
+			RecordIterator iter = adapter.getSymbolsByNamePattern(pattern);
 			SymbolIterator symbolIterator = new SymbolRecordIterator(iter, false, true);
-			return new SymbolQueryIterator(symbolIterator, searchStr, caseSensitive);
+			return new SymbolQueryIterator(symbolIterator, pattern);
 		}
 		catch (IOException e) {
 			program.dbError(e);
 		}
+		finally {
+			lock.release();
+		}
 		return null;
 	}
 
@@ -1849,10 +1858,9 @@ public class SymbolManager implements SymbolTable, ManagerDB {
 		private Symbol nextMatch;
 		private Pattern pattern;
 
-		SymbolQueryIterator(SymbolIterator it, String query, boolean caseSensitive) {
+		SymbolQueryIterator(SymbolIterator it, Pattern pattern) {
 			this.it = it;
-
-			pattern = UserSearchUtils.createSearchPattern(query, caseSensitive);
+			this.pattern = pattern;
 		}
 
 		@Override
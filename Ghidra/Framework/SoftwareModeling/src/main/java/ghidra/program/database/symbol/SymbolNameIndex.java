@@ -0,0 +1,626 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database.symbol;
+
+import java.io.IOException;
+import java.util.*;
+import java.util.regex.Pattern;
+
+import db.*;
+import ghidra.program.model.symbol.SourceType;
+import ghidra.program.model.symbol.SymbolType;
+import ghidra.util.datastruct.LongArrayList;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.exception.VersionException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Persistent trigram index over stored symbol names, used to find the symbols whose names may
+ * match a search pattern without visiting every symbol record.
+ * <p>
+ * Each record key packs a case-folded trigram into the upper 24 bits and a symbol ID into the
+ * lower 40 bits, so the symbols containing a trigram are a contiguous, ID ordered key range.
+ * Trigrams are lossy (non-ASCII characters are hashed) and matches must always be verified
+ * against the actual symbol name.
+ * <p>
+ * Symbols whose name is not the stored name (e.g., default function names and variable names)
+ * are all indexed under a single reserved key range and are returned as candidates for every
+ * search.
+ */
+class SymbolNameIndex {
+
+	static final String NAME_INDEX_TABLE_NAME = "Symbol Name Index";
+
+	static final int NAME_INDEX_VERSION = 0;
+
+	static final Schema NAME_INDEX_SCHEMA =
+		new Schema(NAME_INDEX_VERSION, "NGram Symbol", new Field[0], new String[0]);
+
+	static final int NGRAM_LENGTH = 3;
+
+	private static final int ID_BITS = 40;
+
+	/**
+	 * Largest symbol ID which can be indexed
+	 */
+	static final long MAX_SYMBOL_ID = (1L << ID_BITS) - 1;
+
+	// trigram bytes are never 0, leaving trigram 0 for symbols with derived names
+	private static final int DERIVED_NAME_NGRAM = 0;
+
+	private static final long[] NO_IDS = new long[0];
+
+	private Table table;
+
+	private SymbolNameIndex(Table table) {
+		this.table = table;
+	}
+
+	/**
+	 * Create a new, empty index table, replacing any existing one.
+	 * @param handle the database handle
+	 * @return the new index
+	 * @throws IOException if a database io error occurs
+	 */
+	static SymbolNameIndex create(DBHandle handle) throws IOException {
+		if (handle.getTable(NAME_INDEX_TABLE_NAME) != null) {
+			handle.deleteTable(NAME_INDEX_TABLE_NAME);
+		}
+		return new SymbolNameIndex(handle.createTable(NAME_INDEX_TABLE_NAME, NAME_INDEX_SCHEMA));
+	}
+
+	/**
+	 * Open the existing index table.
+	 * @param handle the database handle
+	 * @return the index or null if the table does not exist
+	 * @throws VersionException if the table is a newer version
+	 */
+	static SymbolNameIndex open(DBHandle handle) throws VersionException {
+		Table table = handle.getTable(NAME_INDEX_TABLE_NAME);
+		if (table == null) {
+			return null;
+		}
+		if (table.getSchema().getVersion() != NAME_INDEX_VERSION) {
+			throw new VersionException(VersionException.NEWER_VERSION, false);
+		}
+		return new SymbolNameIndex(table);
+	}
+
+	/**
+	 * Index all the given symbol records.
+	 * @param records the symbol records
+	 * @param count the number of records, used for progress
+	 * @param monitor the task monitor
+	 * @throws IOException if a database io error occurs
+	 * @throws CancelledException if the task is cancelled
+	 */
+	void build(RecordIterator records, int count, TaskMonitor monitor)
+			throws IOException, CancelledException {
+		monitor.setMessage("Indexing Symbol Names...");
+		monitor.initialize(count);
+		while (records.hasNext()) {
+			monitor.checkCancelled();
+			add(records.next());
+			monitor.incrementProgress(1);
+		}
+	}
+
+	/**
+	 * Add the index entries for a symbol record.
+	 * @param rec the symbol record
+	 * @throws IOException if a database io error occurs
+	 */
+	void add(DBRecord rec) throws IOException {
+		long id = rec.getKey();
+		if (id < 0 || id > MAX_SYMBOL_ID) {
+			return;
+		}
+		for (int ngram : getNGrams(rec)) {
+			table.putRecord(NAME_INDEX_SCHEMA.createRecord(getKey(ngram, id)));
+		}
+	}
+
+	/**
+	 * Remove the index entries for a symbol record.
+	 * @param rec the symbol record as it was last added
+	 * @throws IOException if a database io error occurs
+	 */
+	void remove(DBRecord rec) throws IOException {
+		long id = rec.getKey();
+		if (id < 0 || id > MAX_SYMBOL_ID) {
+			return;
+		}
+		for (int ngram : getNGrams(rec)) {
+			table.deleteRecord(getKey(ngram, id));
+		}
+	}
+
+	/**
+	 * Update the index entries for a symbol record whose name or source may have changed.
+	 * @param oldRec the symbol record as it was last added, or null
+	 * @param newRec the updated symbol record
+	 * @throws IOException if a database io error occurs
+	 */
+	void update(DBRecord oldRec, DBRecord newRec) throws IOException {
+		if (oldRec != null) {
+			if (hasDerivedName(oldRec) == hasDerivedName(newRec) &&
+				Objects.equals(getName(oldRec), getName(newRec))) {
+				return;
+			}
+			remove(oldRec);
+		}
+		add(newRec);
+	}
+
+	/**
+	 * Find the IDs of the symbols whose names may match the given literal requirements.
+	 * @param literals the literal text a matching name must contain
+	 * @param prefixIDs sorted IDs of the symbols whose name starts with the required prefix, or
+	 * null if the prefix is not used
+	 * @return sorted IDs of candidate symbols, including all symbols with derived names
+	 * @throws IOException if a database io error occurs
+	 */
+	long[] findSymbolIDs(NameLiterals literals, long[] prefixIDs) throws IOException {
+		long[] ids = prefixIDs;
+		for (int ngram : getNGrams(literals.substrings())) {
+			ids = getSymbolIDs(ngram, ids);
+			if (ids.length == 0) {
+				break;
+			}
+		}
+		if (ids == null) {
+			throw new IllegalArgumentException("No literals to search for");
+		}
+		return union(ids, getSymbolIDs(DERIVED_NAME_NGRAM, null));
+	}
+
+	/**
+	 * Get the IDs of the symbols indexed under the given trigram.
+	 * @param ngram the trigram
+	 * @param within if not null, sorted IDs to intersect with
+	 * @return sorted symbol IDs
+	 */
+	private long[] getSymbolIDs(int ngram, long[] within) throws IOException {
+		if (within != null && within.length == 0) {
+			return NO_IDS;
+		}
+		long minKey = getKey(ngram, 0);
+		long maxKey = getKey(ngram, MAX_SYMBOL_ID);
+		if (within != null) {
+			minKey = getKey(ngram, within[0]);
+			maxKey = getKey(ngram, within[within.length - 1]);
+		}
+		LongArrayList ids = new LongArrayList();
+		DBLongIterator it = table.longKeyIterator(minKey, maxKey, minKey);
+		int index = 0;
+		while (it.hasNext()) {
+			long id = it.next() & MAX_SYMBOL_ID;
+			if (within == null) {
+				ids.add(id);
+				continue;
+			}
+			while (index < within.length && within[index] < id) {
+				++index;
+			}
+			if (index == within.length) {
+				break;
+			}
+			if (within[index] == id) {
+				ids.add(id);
+			}
+		}
+		return ids.toLongArray();
+	}
+
+	private static long[] union(long[] a, long[] b) {
+		long[] result = new long[a.length + b.length];
+		int i = 0;
+		int j = 0;
+		int n = 0;
+		while (i < a.length && j < b.length) {
+			if (a[i] < b[j]) {
+				result[n++] = a[i++];
+			}
+			else if (b[j] < a[i]) {
+				result[n++] = b[j++];
+			}
+			else {
+				result[n++] = a[i++];
+				++j;
+			}
+		}
+		while (i < a.length) {
+			result[n++] = a[i++];
+		}
+		while (j < b.length) {
+			result[n++] = b[j++];
+		}
+		return Arrays.copyOf(result, n);
+	}
+
+	private static long getKey(int ngram, long symbolID) {
+		return ((long) ngram << ID_BITS) | symbolID;
+	}
+
+	private static String getName(DBRecord rec) {
+		return rec.getString(SymbolDatabaseAdapter.SYMBOL_NAME_COL);
+	}
+
+	/**
+	 * Symbols whose name is computed rather than stored can not be found by their stored name.
+	 */
+	private static boolean hasDerivedName(DBRecord rec) {
+		byte flags = rec.getByteValue(SymbolDatabaseAdapter.SYMBOL_FLAGS_COL);
+		if ((flags & SymbolDatabaseAdapter.SYMBOL_SOURCE_BITS) == SourceType.DEFAULT.ordinal()) {
+			return true;
+		}
+		SymbolType type =
+			SymbolType.getSymbolType(rec.getByteValue(SymbolDatabaseAdapter.SYMBOL_TYPE_COL));
+		return type == SymbolType.PARAMETER || type == SymbolType.LOCAL_VAR ||
+			type == SymbolType.GLOBAL_VAR;
+	}
+
+	private static int[] getNGrams(DBRecord rec) {
+		if (hasDerivedName(rec)) {
+			return new int[] { DERIVED_NAME_NGRAM };
+		}
+		String name = getName(rec);
+		return name == null ? new int[0] : getNGrams(List.of(name));
+	}
+
+	/**
+	 * Get the distinct trigrams of the given strings.
+	 * @param strings the strings
+	 * @return sorted distinct trigrams
+	 */
+	static int[] getNGrams(Collection<String> strings) {
+		int count = 0;
+		for (String s : strings) {
+			count += Math.max(0, s.length() - NGRAM_LENGTH + 1);
+		}
+		int[] ngrams = new int[count];
+		int n = 0;
+		for (String s : strings) {
+			for (int i = 0; i + NGRAM_LENGTH <= s.length(); i++) {
+				ngrams[n++] = (toByte(s.charAt(i)) << 16) | (toByte(s.charAt(i + 1)) << 8) |
+					toByte(s.charAt(i + 2));
+			}
+		}
+		Arrays.sort(ngrams);
+		int distinct = 0;
+		for (int i = 0; i < ngrams.length; i++) {
+			if (i == 0 || ngrams[i] != ngrams[i - 1]) {
+				ngrams[distinct++] = ngrams[i];
+			}
+		}
+		return Arrays.copyOf(ngrams, distinct);
+	}
+
+	/**
+	 * Case fold a character and reduce it to a non-zero byte
+	 */
+	private static int toByte(char c) {
+		int folded = Character.toLowerCase(Character.toUpperCase(c));
+		if (folded < 0x80) {
+			return Math.max(folded, 1);
+		}
+		return 0x80 | (folded % 0x7f);
+	}
+
+	/**
+	 * Literal text that every name matching a pattern must contain.
+	 *
+	 * @param prefix a case-sensitive prefix of every match, or null if not known
+	 * @param substrings strings contained, ignoring case, by every match
+	 */
+	record NameLiterals(String prefix, List<String> substrings) {
+
+		/**
+		 * {@return true if there is at least one trigram to look up}
+		 */
+		boolean hasNGrams() {
+			for (String s : substrings) {
+				if (s.length() >= NGRAM_LENGTH) {
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Find the literal text which every string matching the given pattern must contain.  The
+	 * pattern is analyzed conservatively: groups, character classes, optional characters and
+	 * escapes other than quoted punctuation end a literal run, and alternation or the
+	 * {@link Pattern#COMMENTS} flag give up on analysis.
+	 * @param pattern the pattern, as used with {@link java.util.regex.Matcher#matches()}
+	 * @return the literals, or null if nothing is known about matching strings
+	 */
+	static NameLiterals getLiterals(Pattern pattern) {
+		int flags = pattern.flags();
+		String p = pattern.pattern();
+		if ((flags & (Pattern.COMMENTS | Pattern.CANON_EQ)) != 0) {
+			return null;
+		}
+		boolean caseSensitive = (flags & Pattern.CASE_INSENSITIVE) == 0;
+		if ((flags & Pattern.LITERAL) != 0) {
+			return new NameLiterals(caseSensitive ? p : null, List.of(p));
+		}
+
+		List<String> runs = new ArrayList<>();
+		StringBuilder run = new StringBuilder();
+		String prefix = null;
+		boolean atStart = true;
+		int i = 0;
+		int n = p.length();
+		while (i < n) {
+			char c = p.charAt(i);
+			String literal = null;
+			if (c == '\\') {
+				if (i + 1 >= n) {
+					return null;
+				}
+				char e = p.charAt(i + 1);
+				if (e == 'Q') {
+					int end = p.indexOf("\\E", i + 2);
+					literal = end < 0 ? p.substring(i + 2) : p.substring(i + 2, end);
+					i = end < 0 ? n : end + 2;
+				}
+				else if (Character.isLetterOrDigit(e)) {
+					i = skipEscape(p, i);
+				}
+				else {
+					literal = String.valueOf(e);
+					i += 2;
+				}
+			}
+			else if (c == '[') {
+				i = skipClass(p, i);
+			}
+			else if (c == '(') {
+				int end = skipGroup(p, i);
+				if (end < 0) {
+					return null;
+				}
+				String group = p.substring(i, end);
+				if (group.matches("\\(\\?[a-zA-Z-]*\\)")) {
+					// inline flags apply to the rest of the pattern
+					if (group.contains("x")) {
+						return null;
+					}
+					if (group.indexOf('i') >= 0) {
+						caseSensitive = false;
+					}
+					if (atStart) {
+						i = end;
+						continue;
+					}
+				}
+				i = end;
+			}
+			else if (c == '|') {
+				return null;
+			}
+			else if (c == '^' && i == 0) {
+				++i;
+				continue;
+			}
+			else if (c == '.' || c == '^' || c == '$') {
+				++i;
+			}
+			else if (c == '*' || c == '+' || c == '?' || c == '{' || c == ')' || c == ']') {
+				return null; // dangling quantifier or bracket, leave it to the regex engine
+			}
+			else {
+				literal = String.valueOf(c);
+				++i;
+			}
+
+			// an atom followed by a quantifier which permits zero occurrences is not required
+			boolean optional = false;
+			boolean repeated = false;
+			if (i < n) {
+				char q = p.charAt(i);
+				if (q == '*' || q == '?' || q == '{') {
+					optional = true;
+				}
+				else if (q == '+') {
+					repeated = true;
+				}
+				if (optional || repeated) {
+					i = q == '{' ? p.indexOf('}', i) + 1 : i + 1;
+					if (i <= 0) {
+						return null;
+					}
+					if (i < n && (p.charAt(i) == '?' || p.charAt(i) == '+')) {
+						++i;
+					}
+				}
+			}
+
+			if (literal == null) {
+				prefix = endRun(runs, run, prefix, atStart);
+				atStart = false;
+				continue;
+			}
+			int keep = optional ? literal.length() - 1 : literal.length();
+			for (int k = 0; k < literal.length(); k++) {
+				char lc = literal.charAt(k);
+				if (k >= keep || Character.isSurrogate(lc)) {
+					prefix = endRun(runs, run, prefix, atStart);
+					atStart = false;
+				}
+				else {
+					run.append(lc);
+				}
+			}
+			if (repeated) {
+				prefix = endRun(runs, run, prefix, atStart);
+				atStart = false;
+			}
+		}
+		prefix = endRun(runs, run, prefix, atStart);
+		if (runs.isEmpty() && prefix == null) {
+			return null;
+		}
+		return new NameLiterals(caseSensitive ? prefix : null, runs);
+	}
+
+	private static String endRun(List<String> runs, StringBuilder run, String prefix,
+			boolean atStart) {
+		if (run.length() == 0) {
+			return prefix;
+		}
+		String s = run.toString();
+		run.setLength(0);
+		runs.add(s);
+		return atStart ? s : prefix;
+	}
+
+	/**
+	 * Skip a backslash escape which is not a quoted literal character.
+	 */
+	private static int skipEscape(String p, int i) {
+		char e = p.charAt(i + 1);
+		i += 2;
+		boolean braced = i < p.length() && p.charAt(i) == '{';
+		switch (e) {
+			case 'x':
+				return braced ? skipPast(p, i, '}') : i + 2;
+			case 'u':
+				return i + 4;
+			case 'c':
+				return i + 1;
+			case 'p':
+			case 'P':
+			case 'N':
+				return braced ? skipPast(p, i, '}') : i + 1;
+			case 'k':
+				return skipPast(p, i, '>');
+			default:
+				while (Character.isDigit(e) && i < p.length() && Character.isDigit(p.charAt(i))) {
+					++i; // octal escape or back reference
+				}
+				return i;
+		}
+	}
+
+	private static int skipPast(String p, int i, char c) {
+		int index = p.indexOf(c, i);
+		return index < 0 ? p.length() : index + 1;
+	}
+
+	/**
+	 * Skip a character class, returning the index after its closing bracket.
+	 */
+	private static int skipClass(String p, int i) {
+		int depth = 0;
+		int start = i;
+		while (i < p.length()) {
+			char c = p.charAt(i);
+			if (c == '\\') {
+				i += 2;
+				continue;
+			}
+			if (c == '[') {
+				++depth;
+			}
+			else if (c == ']' && i > start + 1 &&
+				!(i == start + 2 && p.charAt(start + 1) == '^')) {
+				if (--depth == 0) {
+					return i + 1;
+				}
+			}
+			++i;
+		}
+		return p.length();
+	}
+
+	/**
+	 * Skip a group, returning the index after its closing parenthesis, or -1 if it is not closed.
+	 */
+	private static int skipGroup(String p, int i) {
+		int depth = 0;
+		while (i < p.length()) {
+			char c = p.charAt(i);
+			if (c == '\\') {
+				if (i + 1 < p.length() && p.charAt(i + 1) == 'Q') {
+					int end = p.indexOf("\\E", i + 2);
+					i = end < 0 ? p.length() : end + 2;
+				}
+				else {
+					i += 2;
+				}
+				continue;
+			}
+			if (c == '[') {
+				i = skipClass(p, i);
+				continue;
+			}
+			if (c == '(') {
+				++depth;
+			}
+			else if (c == ')' && --depth == 0) {
+				return i + 1;
+			}
+			++i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Iterates over a sorted array of long keys.
+	 */
+	static class KeyIterator implements DBFieldIterator {
+		private final long[] keys;
+		private int index;
+
+		KeyIterator(long[] keys) {
+			this.keys = keys;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < keys.length;
+		}
+
+		@Override
+		public boolean hasPrevious() {
+			return index > 0;
+		}
+
+		@Override
+		public Field next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return new LongField(keys[index++]);
+		}
+
+		@Override
+		public Field previous() {
+			if (!hasPrevious()) {
+				throw new NoSuchElementException();
+			}
+			return new LongField(keys[--index]);
+		}
+
+		@Override
+		public boolean delete() {
+			throw new UnsupportedOperationException();
+		}
+	}
+}
@@ -19,6 +19,7 @@ import java.lang.reflect.Constructor;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 import ghidra.app.util.PseudoInstruction;
 import ghidra.app.util.RepeatInstructionByteTracker;
@@ -449,9 +450,7 @@ public class Disassembler implements DisassemblerConflictHandler {
 	public AddressSet disassemble(AddressSetView startSet, AddressSetView restrictedSet,
 			RegisterValue initialContextValue, boolean doFollowFlow) {
 
-		AddressSet disassembledAddrs;
-
-		disassembledAddrs = new AddressSet();
+		CompactAddressSet disassembledAddrs = new CompactAddressSet();
 
 		int alignment = language.getInstructionAlignment();
 
@@ -466,7 +465,8 @@ public class Disassembler implements DisassemblerConflictHandler {
 				continue;
 			}
 
-			AddressSet todoSubset = new AddressSet(addressRange);
+			CompactAddressSet todoSubset =
+				new CompactAddressSet(addressRange.getMinAddress(), addressRange.getMaxAddress());
 
 			while (!todoSubset.isEmpty() && !monitor.isCancelled()) {
 				Address nextAddr = todoSubset.getMinAddress();
@@ -491,7 +491,7 @@ public class Disassembler implements DisassemblerConflictHandler {
 					try {
 						undefinedRanges =
 							program.getListing().getUndefinedRanges(todoSubset, true, monitor);
-						todoSubset = new AddressSet(undefinedRanges);
+						todoSubset = new CompactAddressSet(undefinedRanges);
 					}
 					catch (CancelledException e) {
 						break;
@@ -511,7 +511,7 @@ public class Disassembler implements DisassemblerConflictHandler {
 				}
 			}
 		}
-		return disassembledAddrs;
+		return disassembledAddrs.toAddressSet();
 	}
 
 	/**
@@ -571,7 +571,7 @@ public class Disassembler implements DisassemblerConflictHandler {
 			throw new IllegalArgumentException("Invalid initialContextValue");
 		}
 
-		AddressSet disassembledAddrs = new AddressSet();
+		CompactAddressSet disassembledAddrs = new CompactAddressSet();
 		AddressSet reallyDisassembledAddrs = new AddressSet();
 
 		int addressableUnitSize = startAddr.getAddressSpace().getAddressableUnitSize();
@@ -844,6 +844,59 @@ public class Disassembler implements DisassemblerConflictHandler {
 		return block;
 	}
 
+	/**
+	 * Parse a single instruction block for {@link ParallelDisassembler} without making any
+	 * change to the program.  Any context accumulated by previous calls is discarded first, so
+	 * the result depends only upon the program state and the specified flow context.
+	 * The flows out of the block are recorded as block flows within the returned block and
+	 * the context which flows to each destination is added to flowContextMap.
+	 * This method is not intended for use in conjunction with the other disassembly methods
+	 * on this Disassembler instance.
+	 * @param addr start of block (must be properly aligned)
+	 * @param flowContextValue context which flows to addr or null to use the program context
+	 * @param flowFrom the flow-from instruction address or null
+	 * @param restrictedSet the set of addresses that disassembly is restricted to (may be null)
+	 * @param doFollowFlow true if branch and call flows should be recorded
+	 * @param limit maximum number of instructions to disassemble
+	 * @param flowContextMap receives the context value for each block flow destination
+	 * @return instruction block of pseudo-instructions
+	 */
+	InstructionBlock parseFlowBlock(Address addr, RegisterValue flowContextValue,
+			Address flowFrom, AddressSetView restrictedSet, boolean doFollowFlow, int limit,
+			Map<Address, RegisterValue> flowContextMap) {
+
+		resetDisassemblerContext();
+		this.followFlow = doFollowFlow;
+		this.restrictedAddressSet = restrictedSet;
+		this.disassemblerQueue = null;
+
+		if (flowContextValue != null) {
+			disassemblerContext.setFutureRegisterValue(addr, flowContextValue);
+		}
+		disassemblerContext.flowStart(addr);
+
+		InstructionBlock block = new InstructionBlock(addr);
+		block.setFlowFromAddress(flowFrom);
+		disassembleInstructionBlock(block, new DumbMemBufferImpl(program.getMemory(), addr),
+			flowFrom, limit, null, false);
+
+		if (block.isEmpty()) {
+			disassemblerContext.flowAbort();
+			return block;
+		}
+
+		List<InstructionBlockFlow> blockFlows = block.getBlockFlows();
+		if (baseContextRegister != null && blockFlows != null) {
+			for (InstructionBlockFlow blockFlow : blockFlows) {
+				Address destAddr = blockFlow.getDestinationAddress();
+				flowContextMap.put(destAddr,
+					disassemblerContext.getFlowContextValue(destAddr, false));
+			}
+		}
+		disassemblerContext.flowEnd(block.getMaxAddress());
+		return block;
+	}
+
 	/**
 	 * Examine delay-slotted instruction to determine if it has a fall-through
 	 * @param dsInstr pseudo-instruction within existingBlock
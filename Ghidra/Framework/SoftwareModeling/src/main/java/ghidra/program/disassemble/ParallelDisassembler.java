@@ -0,0 +1,479 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.disassemble;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import generic.concurrent.*;
+import ghidra.program.model.address.*;
+import ghidra.program.model.lang.*;
+import ghidra.program.model.lang.InstructionBlockFlow.Type;
+import ghidra.program.model.listing.*;
+import ghidra.program.model.util.CodeUnitInsertionException;
+import ghidra.util.Msg;
+import ghidra.util.exception.CancelledException;
+import ghidra.util.task.TaskMonitor;
+
+/**
+ * Disassembler which parses instruction blocks on a pool of worker threads.
+ * <p>
+ * Disassembly proceeds in rounds.  Each round takes up to a fixed number of the pending flow
+ * destinations in priority order and parses an instruction block at each of them in parallel,
+ * with a separate {@link Disassembler} for each worker.  Workers only read the program, so the
+ * parse of a block depends only upon the program at the start of the round and upon the context
+ * which flowed to the block.  The parsed blocks are then merged in address order on the calling
+ * thread, where overlapping blocks and inconsistent prototypes are resolved, and written to the
+ * program as {@link InstructionSet}s.  Flows out of the blocks which were added to the program
+ * become the pending flows of the next round.  Neither the size of a round nor either stage
+ * depends upon the number of threads or their scheduling, so the instructions produced are the
+ * same for any number of threads.
+ * <p>
+ * As with {@link Disassembler}, fall-through continuations and branches are processed before
+ * call fall-throughs, which are processed before calls.
+ * <p>
+ * NOTE: A single instance of this ParallelDisassembler does not support concurrent
+ * invocations of the disassemble method.
+ */
+public class ParallelDisassembler {
+
+	private static final String THREAD_POOL_NAME = "Parallel Disassembler";
+
+	private static final int NUM_ADDRS_FOR_NOTIFICATION = 1024;
+	private static final int INSTRUCTION_SET_SIZE_LIMIT = 2048;
+	private static final int ROUND_SIZE = 256;	// must not depend upon the thread count
+
+	private final Program program;
+	private final Listing listing;
+	private final TaskMonitor monitor;
+	private final Disassembler conflictHandler;
+	private final Register baseContextRegister;
+	private final int instAlignment;
+	private final boolean doMarkUnimplPcode;
+	private final GThreadPool threadPool;
+	private final int threadCount;
+
+	private final Queue<Disassembler> idleWorkers = new ConcurrentLinkedQueue<>();
+
+	private DisassemblerContextImpl seedContext;
+	private int repeatPatternLimit = Disassembler.MAX_REPEAT_PATTERN_LENGTH;
+	private AddressSetView repeatPatternLimitIgnored;
+
+	private int disassembleCount;
+	private int totalCount;
+
+	/**
+	 * Construct a parallel disassembler for the specified program.
+	 * The program options used by {@link Disassembler} are also used by this disassembler.
+	 * @param program the program to be disassembled
+	 * @param threadCount the maximum number of worker threads, or 0 to use the size of the
+	 * shared thread pool
+	 * @param monitor progress monitor
+	 * @param listener object to notify of disassembly messages (may be null)
+	 */
+	public ParallelDisassembler(Program program, int threadCount, TaskMonitor monitor,
+			DisassemblerMessageListener listener) {
+		this.program = program;
+		this.listing = program.getListing();
+		this.monitor = monitor;
+		this.conflictHandler = Disassembler.getDisassembler(program, monitor, listener);
+		this.baseContextRegister = program.getLanguage().getContextBaseRegister();
+		this.instAlignment = program.getLanguage().getInstructionAlignment();
+		this.doMarkUnimplPcode = Disassembler.isMarkUnimplementedPcodeOptionEnabled(program);
+		this.threadPool = GThreadPool.getSharedThreadPool(THREAD_POOL_NAME);
+		int maxThreadCount = threadPool.getMaxThreadCount();
+		this.threadCount =
+			(threadCount < 1 || threadCount > maxThreadCount) ? maxThreadCount : threadCount;
+	}
+
+	/**
+	 * @return the maximum number of worker threads used to parse instruction blocks
+	 */
+	public int getThreadCount() {
+		return threadCount;
+	}
+
+	/**
+	 * Set seed context which will be used to establish initial context at starting points
+	 * which are not arrived at via a natural disassembly flow.
+	 * @param seedContext initial context for disassembly or null
+	 * @see Disassembler#setSeedContext(DisassemblerContextImpl)
+	 */
+	public void setSeedContext(DisassemblerContextImpl seedContext) {
+		if (seedContext != null && seedContext.getBaseContextRegister() != baseContextRegister) {
+			throw new IllegalArgumentException("Invalid seed context");
+		}
+		this.seedContext = seedContext;
+	}
+
+	/**
+	 * Set the maximum number of instructions in a single run which contain the same byte values.
+	 * @param maxInstructions limit on the number of consecutive instructions with the same
+	 * byte values, or -1 to disable the check
+	 * @see Disassembler#setRepeatPatternLimit(int)
+	 */
+	public void setRepeatPatternLimit(int maxInstructions) {
+		this.repeatPatternLimit = maxInstructions;
+		idleWorkers.clear();
+	}
+
+	/**
+	 * Set the region over which the repeat pattern limit will be ignored.
+	 * @param set region over which the repeat pattern limit will be ignored
+	 * @see Disassembler#setRepeatPatternLimitIgnored(AddressSetView)
+	 */
+	public void setRepeatPatternLimitIgnored(AddressSetView set) {
+		this.repeatPatternLimitIgnored = set;
+		idleWorkers.clear();
+	}
+
+	/**
+	 * Attempt disassembly of all undefined code units within the specified set of addresses.
+	 * @param startSet the minimum set of addresses to disassemble
+	 * @param restrictedSet the set of addresses that disassembling is restricted to (may be null)
+	 * @param initialContextValue initial context value to be applied at the start addresses.
+	 * If not null this value will take precedence when combined with any seed value or program
+	 * context.
+	 * @param doFollowFlow flag to follow references while disassembling
+	 * @return the set of addresses that were disassembled
+	 * @see Disassembler#disassemble(AddressSetView, AddressSetView, RegisterValue, boolean)
+	 */
+	public AddressSet disassemble(AddressSetView startSet, AddressSetView restrictedSet,
+			RegisterValue initialContextValue, boolean doFollowFlow) {
+
+		if (initialContextValue != null &&
+			initialContextValue.getRegister().getBaseRegister() != baseContextRegister) {
+			throw new IllegalArgumentException("Invalid initialContextValue");
+		}
+
+		CompactAddressSet disassembledAddrs = new CompactAddressSet();
+
+		ConcurrentQ<ParseTask, ParseTask> queue = null;
+		if (threadCount > 1) {
+			// @formatter:off
+			queue = new ConcurrentQBuilder<ParseTask, ParseTask>()
+				.setThreadPool(threadPool)
+				.setMaxInProgress(threadCount)
+				.setCollectResults(true)
+				.build((task, taskMonitor) -> parse(task, restrictedSet, doFollowFlow));
+			// @formatter:on
+		}
+
+		try {
+			CompactAddressSet todoSet = new CompactAddressSet(startSet);
+			while (!todoSet.isEmpty() && !monitor.isCancelled()) {
+
+				// Each remaining range is re-seeded at its first undefined address once the
+				// flows from the previous seeds have been exhausted
+				todoSet = new CompactAddressSet(listing.getUndefinedRanges(todoSet, true, monitor));
+
+				List<Address> seedAddrs = new ArrayList<>();
+				for (AddressRange range : todoSet.getAddressRanges()) {
+					seedAddrs.add(range.getMinAddress());
+				}
+
+				FlowQueue flows = new FlowQueue();
+				for (Address seedAddr : seedAddrs) {
+					todoSet.delete(seedAddr, seedAddr);
+					if (seedAddr.getOffset() % instAlignment == 0) {
+						flows.add(new Flow(seedAddr, null,
+							getSeedContextValue(seedAddr, initialContextValue), Type.PRIORITY));
+					}
+				}
+
+				disassembleFlows(flows, queue, restrictedSet, doFollowFlow, disassembledAddrs);
+				todoSet.delete(disassembledAddrs);
+			}
+		}
+		catch (CancelledException e) {
+			// return what was disassembled
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			if (queue != null) {
+				queue.dispose();
+			}
+		}
+		return disassembledAddrs.toAddressSet();
+	}
+
+	private RegisterValue getSeedContextValue(Address addr, RegisterValue initialContextValue) {
+		if (baseContextRegister == null) {
+			return null;
+		}
+		RegisterValue value = null;
+		DisassemblerContextImpl seed = seedContext;
+		if (seed != null) {
+			value = seed.getFlowContextValue(addr, false);
+		}
+		if (initialContextValue != null) {
+			if (value == null) {
+				value = program.getProgramContext().getDisassemblyContext(addr);
+			}
+			value = (value != null) ? value.combineValues(initialContextValue)
+					: initialContextValue;
+		}
+		return value;
+	}
+
+	private void disassembleFlows(FlowQueue flows, ConcurrentQ<ParseTask, ParseTask> queue,
+			AddressSetView restrictedSet, boolean doFollowFlow, CompactAddressSet disassembledAddrs)
+			throws CancelledException, InterruptedException {
+
+		while (!flows.isEmpty()) {
+			monitor.checkCancelled();
+
+			// select the flows for this round in priority order
+			List<ParseTask> tasks = new ArrayList<>();
+			Set<Address> roundAddrs = new HashSet<>();
+			Flow flow;
+			while (tasks.size() < ROUND_SIZE && (flow = flows.poll()) != null) {
+				if (!roundAddrs.add(flow.address()) ||
+					listing.getInstructionAt(flow.address()) != null) {
+					continue; // skip flow silently if it was previously disassembled
+				}
+				tasks.add(new ParseTask(flow));
+			}
+			if (tasks.isEmpty()) {
+				break;
+			}
+
+			// parse stage
+			if (queue == null || tasks.size() == 1) {
+				for (ParseTask task : tasks) {
+					parse(task, restrictedSet, doFollowFlow);
+				}
+			}
+			else {
+				queue.add(tasks);
+				for (QResult<ParseTask, ParseTask> result : queue.waitForResults()) {
+					if (result.hasError()) {
+						Msg.error(this, "Block parse failed at " + result.getItem().flow.address(),
+							result.getError());
+					}
+				}
+			}
+			monitor.checkCancelled();
+
+			// merge stage
+			tasks.sort(Comparator.comparing(task -> task.flow.address()));
+			merge(tasks, flows, disassembledAddrs);
+		}
+	}
+
+	private ParseTask parse(ParseTask task, AddressSetView restrictedSet, boolean doFollowFlow) {
+		Disassembler disassembler = idleWorkers.poll();
+		if (disassembler == null) {
+			disassembler = Disassembler.getDisassembler(program, false, false,
+				Disassembler.isRestrictToExecuteMemory(program), monitor, null);
+			disassembler.setRepeatPatternLimit(repeatPatternLimit);
+			disassembler.setRepeatPatternLimitIgnored(repeatPatternLimitIgnored);
+		}
+		try {
+			Flow flow = task.flow;
+			task.block = disassembler.parseFlowBlock(flow.address(), flow.contextValue(),
+				flow.flowFrom(), restrictedSet, doFollowFlow, INSTRUCTION_SET_SIZE_LIMIT,
+				task.flowContextMap);
+		}
+		finally {
+			idleWorkers.add(disassembler);
+		}
+		return task;
+	}
+
+	private void merge(List<ParseTask> tasks, FlowQueue flows,
+			CompactAddressSet disassembledAddrs) {
+
+		InstructionSet instructionSet = new InstructionSet(program.getAddressFactory());
+		Map<InstructionBlock, ParseTask> blockTasks = new IdentityHashMap<>();
+
+		for (ParseTask task : tasks) {
+			InstructionBlock block = task.block;
+			if (block == null) {
+				continue; // parse failed
+			}
+			Address flowFrom = task.flow.flowFrom();
+			if (block.isEmpty()) {
+				if (block.hasInstructionError()) {
+					instructionSet.addBlock(block);
+				}
+				continue;
+			}
+
+			Address blockAddr = block.getStartAddress();
+			Address maxAddr = block.getMaxAddress();
+
+			Instruction existingInstr = instructionSet.getInstructionAt(blockAddr);
+			if (existingInstr == null) {
+				existingInstr = listing.getInstructionAt(blockAddr);
+			}
+			if (existingInstr != null) {
+				// block duplicates a block already parsed from a lower address
+				InstructionPrototype prototype = block.getInstructionAt(blockAddr).getPrototype();
+				if (!existingInstr.getPrototype().equals(prototype)) {
+					InstructionBlock conflictBlock = new InstructionBlock(blockAddr);
+					conflictBlock.setFlowFromAddress(flowFrom);
+					conflictBlock.setInconsistentPrototypeConflict(blockAddr, flowFrom);
+					instructionSet.addBlock(conflictBlock);
+				}
+				continue;
+			}
+
+			if (instructionSet.intersects(blockAddr, maxAddr)) {
+				// blocks are merged in address order, so the block starts offcut
+				InstructionBlock existingBlock =
+					instructionSet.findFirstIntersectingBlock(blockAddr, maxAddr);
+				existingInstr = existingBlock.findFirstIntersectingInstruction(blockAddr, maxAddr);
+				InstructionBlock conflictBlock = new InstructionBlock(blockAddr);
+				conflictBlock.setFlowFromAddress(flowFrom);
+				conflictBlock.setCodeUnitConflict(existingInstr.getAddress(), blockAddr, flowFrom,
+					true, true);
+				instructionSet.addBlock(conflictBlock);
+				continue;
+			}
+
+			instructionSet.addBlock(block);
+			blockTasks.put(block, task);
+
+			if (instructionSet.getInstructionCount() >= INSTRUCTION_SET_SIZE_LIMIT) {
+				addToProgram(instructionSet, blockTasks, flows, disassembledAddrs);
+				instructionSet = new InstructionSet(program.getAddressFactory());
+				blockTasks.clear();
+			}
+		}
+		addToProgram(instructionSet, blockTasks, flows, disassembledAddrs);
+	}
+
+	private void addToProgram(InstructionSet instructionSet,
+			Map<InstructionBlock, ParseTask> blockTasks, FlowQueue flows,
+			CompactAddressSet disassembledAddrs) {
+
+		if (instructionSet.getInstructionCount() != 0) {
+			try {
+				AddressSetView newDisassembledAddrs =
+					listing.addInstructions(instructionSet, false);
+				if (newDisassembledAddrs != null && !newDisassembledAddrs.isEmpty()) {
+					if (doMarkUnimplPcode) {
+						Disassembler.markUnimplementedPcode(program, newDisassembledAddrs,
+							monitor);
+					}
+					disassembledAddrs.add(newDisassembledAddrs);
+				}
+			}
+			catch (CodeUnitInsertionException e) {
+				Msg.error(this, e.getMessage());
+				return;
+			}
+			catch (CancelledException e) {
+				// flows are still queued below - cancellation is handled by the caller
+			}
+		}
+
+		// check for disassembly errors and queue flows from instructions which were added
+		CompactAddressSet conflictAddrs = new CompactAddressSet();
+		for (InstructionBlock block : instructionSet) {
+			InstructionError conflict = block.getInstructionConflict();
+			if (conflict != null) {
+				conflictHandler.markInstructionError(conflict);
+				Address conflictAddr = conflict.getInstructionAddress();
+				Address blockEndAddr = block.getMaxAddress();
+				if (conflictAddr.compareTo(blockEndAddr) <= 0) {
+					conflictAddrs.add(conflictAddr, blockEndAddr);
+				}
+			}
+
+			int instrCount = block.getInstructionsAddedCount();
+			List<InstructionBlockFlow> blockFlows = block.getBlockFlows();
+			if (instrCount == 0 || blockFlows == null) {
+				continue;
+			}
+			disassembleCount += instrCount;
+
+			Map<Address, RegisterValue> flowContextMap = blockTasks.get(block).flowContextMap;
+			for (InstructionBlockFlow blockFlow : blockFlows) {
+				if (conflict == null || conflict.getInstructionAddress()
+						.compareTo(blockFlow.getFlowFromAddress()) > 0) {
+					Address destAddr = blockFlow.getDestinationAddress();
+					flows.add(new Flow(destAddr, blockFlow.getFlowFromAddress(),
+						flowContextMap.get(destAddr), blockFlow.getType()));
+				}
+			}
+		}
+
+		// check for empty block errors
+		Iterator<InstructionBlock> emptyBlockIterator = instructionSet.emptyBlockIterator();
+		while (emptyBlockIterator.hasNext()) {
+			InstructionBlock emptyBlock = emptyBlockIterator.next();
+			Address flowFromAddress = emptyBlock.getFlowFromAddress();
+			if (flowFromAddress != null && conflictAddrs.contains(flowFromAddress)) {
+				continue; // skip if flow from instruction was never added
+			}
+			InstructionError conflict = emptyBlock.getInstructionConflict();
+			if (conflict != null) {
+				conflictHandler.markInstructionError(conflict);
+			}
+		}
+
+		if (disassembleCount >= NUM_ADDRS_FOR_NOTIFICATION) {
+			totalCount += disassembleCount;
+			monitor.setMessage("Disassembled  " + (totalCount / 1024) + " K");
+			disassembleCount = 0;
+		}
+	}
+
+	/**
+	 * A pending flow to the start of a new instruction block
+	 * @param address flow destination address
+	 * @param flowFrom flow-from instruction address or null for a start address
+	 * @param contextValue context which flows to the destination or null
+	 * @param type flow type which determines its priority
+	 */
+	private record Flow(Address address, Address flowFrom, RegisterValue contextValue,
+			Type type) {
+	}
+
+	/**
+	 * Pending flows ordered by flow type priority and then by address
+	 */
+	private static class FlowQueue {
+		private final TreeSet<Flow> flows = new TreeSet<>(
+			Comparator.comparing(Flow::type).thenComparing(Flow::address));
+
+		void add(Flow flow) {
+			flows.add(flow); // first flow of a given type to an address is retained
+		}
+
+		Flow poll() {
+			return flows.pollFirst();
+		}
+
+		boolean isEmpty() {
+			return flows.isEmpty();
+		}
+	}
+
+	private static class ParseTask {
+		final Flow flow;
+		final Map<Address, RegisterValue> flowContextMap = new HashMap<>();
+		volatile InstructionBlock block;
+
+		ParseTask(Flow flow) {
+			this.flow = flow;
+		}
+	}
+}
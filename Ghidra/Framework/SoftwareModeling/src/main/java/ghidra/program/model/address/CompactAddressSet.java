@@ -0,0 +1,1088 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.model.address;
+
+import java.util.*;
+
+/**
+ * A mutable set of addresses stored as sorted arrays of primitive range bounds, one pair of
+ * arrays per address space.  Compared to {@link AddressSet}, which stores a tree node and two
+ * {@link Address} objects per range, each range costs 16 bytes and no objects, and lookups,
+ * unions, intersections and subtractions run over the arrays without allocating.  Address and
+ * range objects are only created when they are returned to the caller.
+ * <p>
+ * Ranges added in increasing address order are appended.  Ranges added out of order are
+ * buffered and merged into the arrays the next time the set is read, so building a large set
+ * from unordered ranges does not shift the arrays for every range.  Deleting a range shifts
+ * the ranges which follow it.
+ * <p>
+ * The {@link AddressSetView} methods which return a new set return an {@link AddressSet};
+ * the overloads of {@link #union(CompactAddressSet)}, {@link #intersect(CompactAddressSet)}
+ * and {@link #subtract(CompactAddressSet)} return a {@code CompactAddressSet}.  Addresses
+ * returned from a segmented address space use the normalized segment of their offset.
+ * <p>
+ * This class is not thread safe and its iterators do not support modification of the set.
+ */
+public class CompactAddressSet implements AddressSetView {
+
+	private static final int MIN_CAPACITY = 4;
+
+	/**
+	 * Buffered ranges at or below this count are inserted into the arrays one by one, rather
+	 * than being sorted and merged.
+	 */
+	private static final int DIRECT_INSERT_LIMIT = 16;
+
+	private SpaceRanges[] spaces = new SpaceRanges[0]; // sorted by address space
+
+	/**
+	 * Create a new empty set.
+	 */
+	public CompactAddressSet() {
+	}
+
+	/**
+	 * Create a new set containing a single range
+	 * @param start the start address of the range
+	 * @param end the end address of the range
+	 * @throws IllegalArgumentException if the start and end addresses are in different spaces
+	 */
+	public CompactAddressSet(Address start, Address end) {
+		add(start, end);
+	}
+
+	/**
+	 * Create a new set containing the addresses of an existing set.
+	 * @param set the set to copy
+	 */
+	public CompactAddressSet(AddressSetView set) {
+		add(set);
+	}
+
+	/**
+	 * Adds the given address to this set.
+	 * @param address the address to add
+	 */
+	public void add(Address address) {
+		add(address, address);
+	}
+
+	/**
+	 * Adds the given range to this set.
+	 * @param range the range to add
+	 */
+	public void add(AddressRange range) {
+		if (range == null) {
+			return;
+		}
+		add(range.getMinAddress(), range.getMaxAddress());
+	}
+
+	/**
+	 * Adds the range to this set
+	 * @param start the start address of the range to add
+	 * @param end the end address of the range to add
+	 * @throws IllegalArgumentException if the start and end addresses are in different spaces
+	 */
+	public void add(Address start, Address end) {
+		AddressRange.checkValidRange(start, end);
+		SpaceRanges ranges = getOrCreate(start.getAddressSpace());
+		ranges.add(ranges.key(start), ranges.key(end));
+	}
+
+	/**
+	 * Adds all the addresses in the given set to this set.
+	 * @param set the set of addresses to add
+	 */
+	public void add(AddressSetView set) {
+		if (set == null || set.isEmpty()) {
+			return;
+		}
+		if (set instanceof CompactAddressSet other) {
+			for (SpaceRanges otherRanges : other.normalized()) {
+				SpaceRanges ranges = getOrCreate(otherRanges.space);
+				replace(ranges.normalize().union(otherRanges));
+			}
+			return;
+		}
+		SpaceRanges ranges = null;
+		for (AddressRange range : set) {
+			Address min = range.getMinAddress();
+			if (ranges == null || ranges.space != min.getAddressSpace()) {
+				ranges = getOrCreate(min.getAddressSpace());
+			}
+			ranges.add(ranges.key(min), ranges.key(range.getMaxAddress()));
+		}
+	}
+
+	/**
+	 * Deletes the given range from this set.
+	 * @param range the range to delete
+	 */
+	public void delete(AddressRange range) {
+		if (range == null) {
+			return;
+		}
+		delete(range.getMinAddress(), range.getMaxAddress());
+	}
+
+	/**
+	 * Deletes the range from this set
+	 * @param start the start address of the range to delete
+	 * @param end the end address of the range to delete
+	 * @throws IllegalArgumentException if the start and end addresses are in different spaces
+	 */
+	public void delete(Address start, Address end) {
+		AddressRange.checkValidRange(start, end);
+		SpaceRanges ranges = get(start.getAddressSpace());
+		if (ranges != null) {
+			ranges.normalize().delete(ranges.key(start), ranges.key(end));
+			removeIfEmpty(ranges);
+		}
+	}
+
+	/**
+	 * Deletes all the addresses in the given set from this set.
+	 * @param set the set of addresses to delete
+	 */
+	public void delete(AddressSetView set) {
+		if (set == null || set.isEmpty() || isEmpty()) {
+			return;
+		}
+		for (SpaceRanges otherRanges : compact(set).normalized()) {
+			SpaceRanges ranges = get(otherRanges.space);
+			if (ranges != null) {
+				replace(ranges.normalize().subtract(otherRanges));
+			}
+		}
+	}
+
+	/**
+	 * Removes all addresses from this set.
+	 */
+	public void clear() {
+		spaces = new SpaceRanges[0];
+	}
+
+	/**
+	 * @return a new {@link AddressSet} with the same addresses as this set
+	 */
+	public AddressSet toAddressSet() {
+		return new AddressSet(this);
+	}
+
+	/**
+	 * Returns the union of this set and the given set as a new compact set.
+	 * @param set the set to union with this set
+	 * @return the union
+	 */
+	public CompactAddressSet union(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		SpaceRanges[] a = normalized();
+		SpaceRanges[] b = set.normalized();
+		int i = 0;
+		int j = 0;
+		while (i < a.length || j < b.length) {
+			int c = i == a.length ? 1 : j == b.length ? -1 : a[i].space.compareTo(b[j].space);
+			if (c < 0) {
+				result.append(a[i++].copy());
+			}
+			else if (c > 0) {
+				result.append(b[j++].copy());
+			}
+			else {
+				result.append(a[i++].union(b[j++]));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the intersection of this set and the given set as a new compact set.
+	 * @param set the set to intersect with this set
+	 * @return the intersection
+	 */
+	public CompactAddressSet intersect(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		for (SpaceRanges ranges : normalized()) {
+			SpaceRanges other = set.get(ranges.space);
+			if (other != null) {
+				result.append(ranges.intersect(other.normalize()));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the addresses of this set which are not in the given set as a new compact set.
+	 * @param set the set to subtract from this set
+	 * @return the difference
+	 */
+	public CompactAddressSet subtract(CompactAddressSet set) {
+		CompactAddressSet result = new CompactAddressSet();
+		for (SpaceRanges ranges : normalized()) {
+			SpaceRanges other = set.get(ranges.space);
+			result.append(other == null ? ranges.copy() : ranges.subtract(other.normalize()));
+		}
+		return result;
+	}
+
+	@Override
+	public boolean contains(Address addr) {
+		SpaceRanges ranges = get(addr.getAddressSpace());
+		return ranges != null && ranges.normalize().indexContaining(ranges.key(addr)) >= 0;
+	}
+
+	@Override
+	public boolean contains(Address start, Address end) {
+		AddressRange.checkValidRange(start, end);
+		SpaceRanges ranges = get(start.getAddressSpace());
+		if (ranges == null) {
+			return false;
+		}
+		int index = ranges.normalize().indexContaining(ranges.key(start));
+		return index >= 0 && ranges.key(end) <= ranges.ends[index];
+	}
+
+	@Override
+	public boolean contains(AddressSetView set) {
+		if (set.isEmpty()) {
+			return true;
+		}
+		return compact(set).subtract(this).isEmpty();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return spaces.length == 0;
+	}
+
+	@Override
+	public Address getMinAddress() {
+		if (spaces.length == 0) {
+			return null;
+		}
+		SpaceRanges ranges = spaces[0].normalize();
+		return ranges.address(ranges.starts[0]);
+	}
+
+	@Override
+	public Address getMaxAddress() {
+		if (spaces.length == 0) {
+			return null;
+		}
+		SpaceRanges ranges = spaces[spaces.length - 1].normalize();
+		return ranges.address(ranges.ends[ranges.size - 1]);
+	}
+
+	@Override
+	public int getNumAddressRanges() {
+		int count = 0;
+		for (SpaceRanges ranges : normalized()) {
+			count += ranges.size;
+		}
+		return count;
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges() {
+		return getAddressRanges(true);
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges(boolean forward) {
+		SpaceRanges[] all = normalized();
+		if (all.length == 0) {
+			return new EmptyAddressRangeIterator();
+		}
+		if (forward) {
+			return new RangeIterator(all, 0, 0, true);
+		}
+		return new RangeIterator(all, all.length - 1, all[all.length - 1].size - 1, false);
+	}
+
+	@Override
+	public AddressRangeIterator getAddressRanges(Address start, boolean forward) {
+		SpaceRanges[] all = normalized();
+		AddressSpace space = start.getAddressSpace();
+		int spaceIndex = indexOf(space);
+		if (spaceIndex < 0) {
+			int insertion = -spaceIndex - 1;
+			if (forward) {
+				return new RangeIterator(all, insertion, 0, true);
+			}
+			return insertion == 0 ? new EmptyAddressRangeIterator()
+					: new RangeIterator(all, insertion - 1, all[insertion - 1].size - 1, false);
+		}
+		SpaceRanges ranges = all[spaceIndex];
+		long key = ranges.key(start);
+		int index = ranges.lastStartAtMost(key);
+		if (forward && (index < 0 || ranges.ends[index] < key)) {
+			index++;
+		}
+		return new RangeIterator(all, spaceIndex, index, forward);
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator() {
+		return getAddressRanges();
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator(boolean forward) {
+		return getAddressRanges(forward);
+	}
+
+	@Override
+	public Iterator<AddressRange> iterator(Address start, boolean forward) {
+		return getAddressRanges(start, forward);
+	}
+
+	@Override
+	public long getNumAddresses() {
+		long count = 0;
+		for (SpaceRanges ranges : normalized()) {
+			count += ranges.count;
+		}
+		return count;
+	}
+
+	@Override
+	public AddressIterator getAddresses(boolean forward) {
+		return new CompactAddressIterator(getAddressRanges(forward), null, forward);
+	}
+
+	@Override
+	public AddressIterator getAddresses(Address start, boolean forward) {
+		return new CompactAddressIterator(getAddressRanges(start, forward), start, forward);
+	}
+
+	@Override
+	public boolean intersects(AddressSetView set) {
+		if (isEmpty() || set.isEmpty()) {
+			return false;
+		}
+		return !intersect(compact(set)).isEmpty();
+	}
+
+	@Override
+	public boolean intersects(Address start, Address end) {
+		AddressRange.checkValidRange(start, end);
+		SpaceRanges ranges = get(start.getAddressSpace());
+		if (ranges == null) {
+			return false;
+		}
+		int index = ranges.normalize().firstEndAtLeast(ranges.key(start));
+		return index < ranges.size && ranges.starts[index] <= ranges.key(end);
+	}
+
+	@Override
+	public AddressSet intersect(AddressSetView view) {
+		if (view == null || view.isEmpty() || isEmpty()) {
+			return new AddressSet();
+		}
+		return intersect(compact(view)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet intersectRange(Address start, Address end) {
+		return intersect(new CompactAddressSet(start, end)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet union(AddressSetView set) {
+		return union(compact(set)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet subtract(AddressSetView set) {
+		return subtract(compact(set)).toAddressSet();
+	}
+
+	@Override
+	public AddressSet xor(AddressSetView set) {
+		CompactAddressSet other = compact(set);
+		return union(other).subtract(intersect(other)).toAddressSet();
+	}
+
+	@Override
+	public boolean hasSameAddresses(AddressSetView view) {
+		return equals(view);
+	}
+
+	@Override
+	public AddressRange getFirstRange() {
+		if (spaces.length == 0) {
+			return null;
+		}
+		return spaces[0].normalize().range(0);
+	}
+
+	@Override
+	public AddressRange getLastRange() {
+		if (spaces.length == 0) {
+			return null;
+		}
+		SpaceRanges ranges = spaces[spaces.length - 1].normalize();
+		return ranges.range(ranges.size - 1);
+	}
+
+	@Override
+	public AddressRange getRangeContaining(Address address) {
+		SpaceRanges ranges = get(address.getAddressSpace());
+		if (ranges == null) {
+			return null;
+		}
+		int index = ranges.normalize().indexContaining(ranges.key(address));
+		return index < 0 ? null : ranges.range(index);
+	}
+
+	@Override
+	public Address findFirstAddressInCommon(AddressSetView set) {
+		if (isEmpty() || set.isEmpty()) {
+			return null;
+		}
+		return intersect(compact(set)).getMinAddress();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this) {
+			return true;
+		}
+		if (!(obj instanceof AddressSetView set)) {
+			return false;
+		}
+		if (getNumAddresses() != set.getNumAddresses() ||
+			getNumAddressRanges() != set.getNumAddressRanges()) {
+			return false;
+		}
+		Iterator<AddressRange> otherRanges = set.iterator();
+		for (AddressRange range : this) {
+			if (!range.equals(otherRanges.next())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public int hashCode() {
+		// consistent with AddressSet
+		if (isEmpty()) {
+			return 0;
+		}
+		return getMinAddress().hashCode() + getMaxAddress().hashCode();
+	}
+
+	@Override
+	public String toString() {
+		if (isEmpty()) {
+			return "[empty]\n";
+		}
+		StringBuilder buf = new StringBuilder();
+		for (AddressRange range : this) {
+			buf.append("[").append(range.getMinAddress()).append(", ");
+			buf.append(range.getMaxAddress()).append("] ");
+		}
+		return buf.toString();
+	}
+
+	private static CompactAddressSet compact(AddressSetView set) {
+		if (set instanceof CompactAddressSet compactSet) {
+			return compactSet;
+		}
+		return new CompactAddressSet(set);
+	}
+
+	private SpaceRanges[] normalized() {
+		for (SpaceRanges ranges : spaces) {
+			ranges.normalize();
+		}
+		return spaces;
+	}
+
+	private int indexOf(AddressSpace space) {
+		int lo = 0;
+		int hi = spaces.length - 1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int c = spaces[mid].space.compareTo(space);
+			if (c < 0) {
+				lo = mid + 1;
+			}
+			else if (c > 0) {
+				hi = mid - 1;
+			}
+			else {
+				return mid;
+			}
+		}
+		return -lo - 1;
+	}
+
+	private SpaceRanges get(AddressSpace space) {
+		int index = indexOf(space);
+		return index < 0 ? null : spaces[index];
+	}
+
+	private SpaceRanges getOrCreate(AddressSpace space) {
+		int index = indexOf(space);
+		if (index >= 0) {
+			return spaces[index];
+		}
+		index = -index - 1;
+		SpaceRanges ranges = new SpaceRanges(space, MIN_CAPACITY);
+		SpaceRanges[] newSpaces = new SpaceRanges[spaces.length + 1];
+		System.arraycopy(spaces, 0, newSpaces, 0, index);
+		newSpaces[index] = ranges;
+		System.arraycopy(spaces, index, newSpaces, index + 1, spaces.length - index);
+		spaces = newSpaces;
+		return ranges;
+	}
+
+	/**
+	 * Replace the ranges of an address space, removing the space if there are none
+	 */
+	private void replace(SpaceRanges ranges) {
+		int index = indexOf(ranges.space);
+		spaces[index] = ranges;
+		removeIfEmpty(ranges);
+	}
+
+	private void removeIfEmpty(SpaceRanges ranges) {
+		if (ranges.size != 0 || ranges.pendingSize != 0) {
+			return;
+		}
+		int index = indexOf(ranges.space);
+		SpaceRanges[] newSpaces = new SpaceRanges[spaces.length - 1];
+		System.arraycopy(spaces, 0, newSpaces, 0, index);
+		System.arraycopy(spaces, index + 1, newSpaces, index, newSpaces.length - index);
+		spaces = newSpaces;
+	}
+
+	/**
+	 * Append the ranges of an address space greater than any in this set, if not empty
+	 */
+	private void append(SpaceRanges ranges) {
+		if (ranges.size == 0) {
+			return;
+		}
+		spaces = Arrays.copyOf(spaces, spaces.length + 1);
+		spaces[spaces.length - 1] = ranges;
+	}
+
+	/**
+	 * The ranges of a single address space.  Offsets are stored as keys which order correctly
+	 * using signed comparison: the offset itself for spaces with signed offsets, otherwise the
+	 * offset with its sign bit flipped.
+	 */
+	private static final class SpaceRanges {
+		final AddressSpace space;
+		final boolean signed;
+
+		long[] starts;
+		long[] ends;
+		int size;
+		long count; // number of addresses in the sorted ranges
+
+		// ranges added out of order, not yet merged into the sorted ranges
+		long[] pendingStarts;
+		long[] pendingEnds;
+		int pendingSize;
+
+		SpaceRanges(AddressSpace space, int capacity) {
+			this.space = space;
+			this.signed = space.hasSignedOffset();
+			starts = new long[capacity];
+			ends = new long[capacity];
+		}
+
+		long key(Address addr) {
+			long offset = addr.getOffset();
+			return signed ? offset : offset ^ Long.MIN_VALUE;
+		}
+
+		Address address(long key) {
+			return space.getAddressInThisSpaceOnly(signed ? key : key ^ Long.MIN_VALUE);
+		}
+
+		AddressRange range(int index) {
+			return new AddressRangeImpl(address(starts[index]), address(ends[index]));
+		}
+
+		SpaceRanges copy() {
+			SpaceRanges copy = new SpaceRanges(space, Math.max(size, MIN_CAPACITY));
+			System.arraycopy(starts, 0, copy.starts, 0, size);
+			System.arraycopy(ends, 0, copy.ends, 0, size);
+			copy.size = size;
+			copy.count = count;
+			return copy;
+		}
+
+		/**
+		 * @return the index of the last range starting at or before the key, or -1
+		 */
+		int lastStartAtMost(long key) {
+			int lo = 0;
+			int hi = size - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (starts[mid] <= key) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid - 1;
+				}
+			}
+			return hi;
+		}
+
+		/**
+		 * @return the index of the first range ending at or after the key, or size
+		 */
+		int firstEndAtLeast(long key) {
+			int lo = 0;
+			int hi = size - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if (ends[mid] < key) {
+					lo = mid + 1;
+				}
+				else {
+					hi = mid - 1;
+				}
+			}
+			return lo;
+		}
+
+		int indexContaining(long key) {
+			int index = lastStartAtMost(key);
+			return index >= 0 && key <= ends[index] ? index : -1;
+		}
+
+		void add(long start, long end) {
+			if (pendingSize == 0) {
+				if (size == 0 || start > ends[size - 1]) {
+					if (size != 0 && ends[size - 1] + 1 == start) {
+						count += end - ends[size - 1];
+						ends[size - 1] = end;
+					}
+					else {
+						appendRange(start, end);
+					}
+					return;
+				}
+				int index = indexContaining(start);
+				if (index == size - 1) {
+					if (end > ends[index]) {
+						count += end - ends[index];
+						ends[index] = end;
+					}
+					return;
+				}
+				if (index >= 0 && end <= ends[index]) {
+					return; // already contained
+				}
+			}
+			if (pendingStarts == null) {
+				pendingStarts = new long[MIN_CAPACITY];
+				pendingEnds = new long[MIN_CAPACITY];
+			}
+			else if (pendingSize == pendingStarts.length) {
+				pendingStarts = Arrays.copyOf(pendingStarts, pendingSize * 2);
+				pendingEnds = Arrays.copyOf(pendingEnds, pendingSize * 2);
+			}
+			pendingStarts[pendingSize] = start;
+			pendingEnds[pendingSize] = end;
+			pendingSize++;
+		}
+
+		private void appendRange(long start, long end) {
+			if (size == starts.length) {
+				grow(size + 1);
+			}
+			starts[size] = start;
+			ends[size] = end;
+			size++;
+			count += end - start + 1;
+		}
+
+		/**
+		 * Append a range which starts at or after the start of the last range, coalescing it
+		 * with the last range if they overlap or are adjacent
+		 */
+		private void appendCoalesced(long start, long end) {
+			if (size != 0 && (start <= ends[size - 1] || start - 1 == ends[size - 1])) {
+				if (end > ends[size - 1]) {
+					count += end - ends[size - 1];
+					ends[size - 1] = end;
+				}
+				return;
+			}
+			appendRange(start, end);
+		}
+
+		private void grow(int minCapacity) {
+			int capacity = Math.max(minCapacity, starts.length + (starts.length >> 1));
+			starts = Arrays.copyOf(starts, capacity);
+			ends = Arrays.copyOf(ends, capacity);
+		}
+
+		/**
+		 * Merge any buffered ranges into the sorted ranges
+		 * @return this
+		 */
+		SpaceRanges normalize() {
+			if (pendingSize == 0) {
+				return this;
+			}
+			int n = pendingSize;
+			pendingSize = 0;
+			sort(pendingStarts, pendingEnds, 0, n - 1);
+			if (n <= DIRECT_INSERT_LIMIT) {
+				for (int i = 0; i < n; i++) {
+					insert(pendingStarts[i], pendingEnds[i]);
+				}
+				return this;
+			}
+			long[] oldStarts = starts;
+			long[] oldEnds = ends;
+			int oldSize = size;
+			starts = new long[Math.max(oldSize + n, MIN_CAPACITY)];
+			ends = new long[starts.length];
+			size = 0;
+			count = 0;
+			int i = 0;
+			int j = 0;
+			while (i < oldSize || j < n) {
+				if (j == n || (i < oldSize && oldStarts[i] <= pendingStarts[j])) {
+					appendCoalesced(oldStarts[i], oldEnds[i]);
+					i++;
+				}
+				else {
+					appendCoalesced(pendingStarts[j], pendingEnds[j]);
+					j++;
+				}
+			}
+			if (pendingStarts.length > DIRECT_INSERT_LIMIT) {
+				pendingStarts = null;
+				pendingEnds = null;
+			}
+			return this;
+		}
+
+		/**
+		 * Insert a range into the sorted ranges, coalescing it with any ranges it overlaps
+		 * or is adjacent to
+		 */
+		private void insert(long start, long end) {
+			int first = firstEndAtLeast(start == Long.MIN_VALUE ? start : start - 1);
+			int last = lastStartAtMost(end == Long.MAX_VALUE ? end : end + 1);
+			if (first > last) {
+				splice(first, 0, 1);
+				starts[first] = start;
+				ends[first] = end;
+				count += end - start + 1;
+				return;
+			}
+			long newStart = Math.min(start, starts[first]);
+			long newEnd = Math.max(end, ends[last]);
+			for (int i = first; i <= last; i++) {
+				count -= ends[i] - starts[i] + 1;
+			}
+			splice(first, last - first + 1, 1);
+			starts[first] = newStart;
+			ends[first] = newEnd;
+			count += newEnd - newStart + 1;
+		}
+
+		/**
+		 * Delete a range from the sorted ranges.  There must be no buffered ranges.
+		 */
+		void delete(long start, long end) {
+			int first = firstEndAtLeast(start);
+			int last = lastStartAtMost(end);
+			if (first > last) {
+				return;
+			}
+			long firstStart = starts[first];
+			long lastEnd = ends[last];
+			for (int i = first; i <= last; i++) {
+				count -= ends[i] - starts[i] + 1;
+			}
+			boolean keepLeft = firstStart < start;
+			boolean keepRight = lastEnd > end;
+			splice(first, last - first + 1, (keepLeft ? 1 : 0) + (keepRight ? 1 : 0));
+			int index = first;
+			if (keepLeft) {
+				starts[index] = firstStart;
+				ends[index] = start - 1;
+				count += start - firstStart;
+				index++;
+			}
+			if (keepRight) {
+				starts[index] = end + 1;
+				ends[index] = lastEnd;
+				count += lastEnd - end;
+			}
+		}
+
+		/**
+		 * Replace removeCount ranges at the given index with insertCount unset ranges
+		 */
+		private void splice(int index, int removeCount, int insertCount) {
+			if (removeCount == insertCount) {
+				return;
+			}
+			int newSize = size - removeCount + insertCount;
+			if (newSize > starts.length) {
+				grow(newSize);
+			}
+			int tail = size - index - removeCount;
+			System.arraycopy(starts, index + removeCount, starts, index + insertCount, tail);
+			System.arraycopy(ends, index + removeCount, ends, index + insertCount, tail);
+			size = newSize;
+		}
+
+		/**
+		 * @return the union of the sorted ranges of this and another space
+		 */
+		SpaceRanges union(SpaceRanges other) {
+			SpaceRanges result = new SpaceRanges(space, Math.max(size + other.size, 1));
+			int i = 0;
+			int j = 0;
+			while (i < size || j < other.size) {
+				if (j == other.size || (i < size && starts[i] <= other.starts[j])) {
+					result.appendCoalesced(starts[i], ends[i]);
+					i++;
+				}
+				else {
+					result.appendCoalesced(other.starts[j], other.ends[j]);
+					j++;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return the intersection of the sorted ranges of this and another space
+		 */
+		SpaceRanges intersect(SpaceRanges other) {
+			SpaceRanges result = new SpaceRanges(space, MIN_CAPACITY);
+			int i = 0;
+			int j = 0;
+			while (i < size && j < other.size) {
+				long start = Math.max(starts[i], other.starts[j]);
+				long end = Math.min(ends[i], other.ends[j]);
+				if (start <= end) {
+					result.appendRange(start, end);
+				}
+				if (ends[i] < other.ends[j]) {
+					i++;
+				}
+				else {
+					j++;
+				}
+			}
+			return result;
+		}
+
+		/**
+		 * @return the sorted ranges of this space which are not in another space
+		 */
+		SpaceRanges subtract(SpaceRanges other) {
+			SpaceRanges result = new SpaceRanges(space, Math.max(size, MIN_CAPACITY));
+			int j = 0;
+			for (int i = 0; i < size; i++) {
+				long start = starts[i];
+				long end = ends[i];
+				while (j < other.size && other.ends[j] < start) {
+					j++;
+				}
+				long next = start;
+				boolean consumed = false;
+				int k = j;
+				while (k < other.size && other.starts[k] <= end) {
+					if (other.starts[k] > next) {
+						result.appendRange(next, other.starts[k] - 1);
+					}
+					if (other.ends[k] >= end) {
+						consumed = true;
+						break;
+					}
+					next = Math.max(next, other.ends[k] + 1);
+					k++;
+				}
+				if (!consumed) {
+					result.appendRange(next, end);
+				}
+				j = k;
+			}
+			return result;
+		}
+
+		/**
+		 * Sort parallel arrays of range bounds by start
+		 */
+		private static void sort(long[] keys, long[] values, int lo, int hi) {
+			while (hi - lo > 16) {
+				long pivot = keys[(lo + hi) >>> 1];
+				int i = lo;
+				int j = hi;
+				while (i <= j) {
+					while (keys[i] < pivot) {
+						i++;
+					}
+					while (keys[j] > pivot) {
+						j--;
+					}
+					if (i <= j) {
+						swap(keys, values, i++, j--);
+					}
+				}
+				// recurse into the smaller partition to bound the stack depth
+				if (j - lo < hi - i) {
+					sort(keys, values, lo, j);
+					lo = i;
+				}
+				else {
+					sort(keys, values, i, hi);
+					hi = j;
+				}
+			}
+			for (int i = lo + 1; i <= hi; i++) {
+				for (int j = i; j > lo && keys[j - 1] > keys[j]; j--) {
+					swap(keys, values, j - 1, j);
+				}
+			}
+		}
+
+		private static void swap(long[] keys, long[] values, int i, int j) {
+			long k = keys[i];
+			keys[i] = keys[j];
+			keys[j] = k;
+			long v = values[i];
+			values[i] = values[j];
+			values[j] = v;
+		}
+	}
+
+	private static class RangeIterator implements AddressRangeIterator {
+		private final SpaceRanges[] all;
+		private final boolean forward;
+		private int spaceIndex;
+		private int index;
+
+		RangeIterator(SpaceRanges[] all, int spaceIndex, int index, boolean forward) {
+			this.all = all;
+			this.spaceIndex = spaceIndex;
+			this.index = index;
+			this.forward = forward;
+			settle();
+		}
+
+		/**
+		 * Move to the next space in the iteration order if the index is beyond the current one
+		 */
+		private void settle() {
+			if (forward) {
+				while (spaceIndex < all.length && index >= all[spaceIndex].size) {
+					spaceIndex++;
+					index = 0;
+				}
+			}
+			else {
+				while (spaceIndex >= 0 && index < 0) {
+					spaceIndex--;
+					index = spaceIndex < 0 ? -1 : all[spaceIndex].size - 1;
+				}
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return spaceIndex >= 0 && spaceIndex < all.length;
+		}
+
+		@Override
+		public AddressRange next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			AddressRange range = all[spaceIndex].range(index);
+			index += forward ? 1 : -1;
+			settle();
+			return range;
+		}
+	}
+
+	private static class CompactAddressIterator implements AddressIterator {
+		private final AddressRangeIterator ranges;
+		private final boolean forward;
+		private Address next;
+		private Address last;
+
+		CompactAddressIterator(AddressRangeIterator ranges, Address start, boolean forward) {
+			this.ranges = ranges;
+			this.forward = forward;
+			if (!ranges.hasNext()) {
+				return;
+			}
+			AddressRange range = ranges.next();
+			next = forward ? range.getMinAddress() : range.getMaxAddress();
+			last = forward ? range.getMaxAddress() : range.getMinAddress();
+			if (start != null && range.contains(start)) {
+				next = start;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Address next() {
+			Address addr = next;
+			if (addr == null) {
+				return null;
+			}
+			if (!addr.equals(last)) {
+				next = forward ? addr.next() : addr.previous();
+			}
+			else if (ranges.hasNext()) {
+				AddressRange range = ranges.next();
+				next = forward ? range.getMinAddress() : range.getMaxAddress();
+				last = forward ? range.getMaxAddress() : range.getMinAddress();
+			}
+			else {
+				next = null;
+			}
+			return addr;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Iterator<Address> iterator() {
+			return this;
+		}
+	}
+}
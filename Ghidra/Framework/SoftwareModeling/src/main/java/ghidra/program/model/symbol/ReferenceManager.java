@@ -15,6 +15,8 @@
  */
 package ghidra.program.model.symbol;
 
+import java.util.Collection;
+
 import ghidra.program.model.address.*;
 import ghidra.program.model.lang.Register;
 import ghidra.program.model.listing.Library;
@@ -128,6 +130,36 @@ public interface ReferenceManager {
 	public Reference addShiftedMemReference(Address fromAddr, Address toAddr, int shiftValue,
 			RefType type, SourceType source, int opIndex);
 
+	/**
+	 * Add a batch of memory references.  Each reference is added, in the order given, as if by
+	 * {@link #addMemoryReference}, {@link #addOffsetMemReference} (with the base address) or
+	 * {@link #addShiftedMemReference}, according to its kind, so the first memory reference
+	 * placed on an operand is made primary and the primary state of the specified references
+	 * is ignored.  Implementations may apply the batch more efficiently than individual adds,
+	 * e.g., by visiting each from and to address once and reporting a single
+	 * {@link ghidra.program.util.ProgramEvent#REFERENCES_ADDED} change for a large batch.
+	 * @param references the memory references to add
+	 * @throws IllegalArgumentException if an unsupported {@link RefType type} is specified
+	 */
+	public default void addMemoryReferences(Collection<? extends Reference> references) {
+		for (Reference ref : references) {
+			if (ref instanceof OffsetReference offsetRef) {
+				addOffsetMemReference(ref.getFromAddress(), offsetRef.getBaseAddress(), true,
+					offsetRef.getOffset(), ref.getReferenceType(), ref.getSource(),
+					ref.getOperandIndex());
+			}
+			else if (ref instanceof ShiftedReference shiftedRef) {
+				addShiftedMemReference(ref.getFromAddress(), ref.getToAddress(),
+					shiftedRef.getShift(), ref.getReferenceType(), ref.getSource(),
+					ref.getOperandIndex());
+			}
+			else {
+				addMemoryReference(ref.getFromAddress(), ref.getToAddress(),
+					ref.getReferenceType(), ref.getSource(), ref.getOperandIndex());
+			}
+		}
+	}
+
 	/**
 	 * Adds an external reference to an external symbol.  If a reference already
 	 * exists at {@code fromAddr} and {@code opIndex} the existing reference is replaced
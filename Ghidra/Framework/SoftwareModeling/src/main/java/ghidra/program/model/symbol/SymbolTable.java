@@ -16,6 +16,8 @@
 package ghidra.program.model.symbol;
 
 import java.util.*;
+import java.util.regex.Pattern;
+import java.util.stream.StreamSupport;
 
 import ghidra.program.database.symbol.*;
 import ghidra.program.model.address.*;
@@ -459,6 +461,25 @@ public interface SymbolTable {
 	 */
 	public SymbolIterator getSymbolIterator(String searchStr, boolean caseSensitive);
 
+	/**
+	 * Get an iterator over all symbols whose entire name matches the given regular expression
+	 * <p>
+	 * <b>NOTE:</b> The iterator is in the forward direction only and will not return default thunks
+	 * (i.e., thunk function symbol with default source type).
+	 * <p>
+	 * The default implementation filters {@link #getSymbolIterator()}; implementations with a
+	 * name index should override it.
+	 * 
+	 * @param pattern the pattern which must match the whole symbol name
+	 * @return symbol iterator
+	 */
+	public default SymbolIterator getSymbolIterator(Pattern pattern) {
+		return new SymbolIteratorAdapter(
+			StreamSupport.stream(getSymbolIterator().spliterator(), false)
+					.filter(s -> pattern.matcher(s.getName()).matches())
+					.iterator());
+	}
+
 	/**
 	 * Get all the symbols of the given type within the given address set.
 	 * <p>
@@ -66,6 +66,7 @@ public enum ProgramEvent implements EventType {
 	EXTERNAL_REFERENCE_REMOVED,			// an external reference was removed
 
 	REFERENCE_ADDED,					// a memory reference was added
+	REFERENCES_ADDED,					// a batch of memory references was added
 	REFERENCE_REMOVED,					// a memory reference was removed
 	REFERENCE_TYPE_CHANGED,				// a memory reference's type was changed
 	REFERNCE_PRIMARY_SET,				// a memory reference was made to be primary
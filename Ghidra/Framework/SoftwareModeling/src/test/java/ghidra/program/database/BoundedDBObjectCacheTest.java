@@ -0,0 +1,122 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.database;
+
+import static org.junit.Assert.*;
+
+import java.util.*;
+
+import org.junit.Test;
+
+import generic.test.AbstractGenericTest;
+import ghidra.program.model.address.KeyRange;
+
+public class BoundedDBObjectCacheTest extends AbstractGenericTest {
+
+	private Set<Long> existing = new HashSet<>();
+
+	private class TestObject extends DatabaseObject {
+		TestObject(DBObjectCache<TestObject> cache, long key) {
+			super(cache, key);
+			existing.add(key);
+		}
+
+		@Override
+		protected boolean refresh() {
+			return existing.contains(key);
+		}
+
+		boolean isDeleted() {
+			return !checkIsValid();
+		}
+	}
+
+	@Test
+	public void testGetPut() {
+		BoundedDBObjectCache<TestObject> cache = new BoundedDBObjectCache<>(10);
+		TestObject obj = new TestObject(cache, 5);
+		assertSame(obj, cache.get(5));
+		assertNull(cache.get(6));
+		assertEquals(1, cache.getHitCount());
+		assertEquals(1, cache.getMissCount());
+	}
+
+	@Test
+	public void testEvictionKeepsReferencedObjects() {
+		BoundedDBObjectCache<TestObject> cache = new BoundedDBObjectCache<>(10);
+		List<TestObject> objs = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			objs.add(new TestObject(cache, i));
+		}
+		assertTrue(cache.getStrongSize() <= 10 + 10 / 8 + 1);
+		assertTrue(cache.getEvictionCount() > 0);
+
+		// Evicted objects still referenced are found, preserving identity
+		for (int i = 0; i < 100; i++) {
+			assertSame(objs.get(i), cache.get(i));
+		}
+	}
+
+	@Test
+	public void testDeleteEvictedObject() {
+		BoundedDBObjectCache<TestObject> cache = new BoundedDBObjectCache<>(2);
+		TestObject first = new TestObject(cache, 0);
+		for (int i = 1; i < 10; i++) {
+			new TestObject(cache, i);
+		}
+		cache.delete(List.of(new KeyRange(0, 4)));
+		assertTrue(first.isDeleted());
+		for (int i = 0; i <= 4; i++) {
+			assertNull(cache.get(i));
+		}
+	}
+
+	@Test
+	public void testInvalidate() {
+		BoundedDBObjectCache<TestObject> cache = new BoundedDBObjectCache<>(10);
+		TestObject obj = new TestObject(cache, 1);
+		TestObject gone = new TestObject(cache, 2);
+		existing.remove(2L);
+		cache.invalidate();
+		assertFalse(obj.isDeleted());
+		assertTrue(gone.isDeleted());
+		assertSame(obj, cache.get(1));
+		assertNull(cache.get(2));
+	}
+
+	@Test
+	public void testKeyChanged() {
+		BoundedDBObjectCache<TestObject> cache = new BoundedDBObjectCache<>(10);
+		TestObject obj = new TestObject(cache, 1);
+		existing.add(7L);
+		obj.keyChanged(7);
+		assertNull(cache.get(1));
+		assertSame(obj, cache.get(7));
+	}
+
+	@Test
+	public void testCreateSelectsPolicy() {
+		String property = DBObjectCache.POLICY_PROPERTY + ".TestManager";
+		System.setProperty(property, DBObjectCache.POLICY_BOUNDED);
+		try {
+			assertTrue(DBObjectCache.create("TestManager", 10) instanceof BoundedDBObjectCache);
+			assertFalse(DBObjectCache.create("OtherManager", 10) instanceof BoundedDBObjectCache);
+		}
+		finally {
+			System.clearProperty(property);
+		}
+	}
+}
@@ -27,9 +27,11 @@ import db.buffers.BufferFile;
 import generic.test.AbstractGenericTest;
 import ghidra.framework.store.db.PrivateDatabase;
 import ghidra.program.database.ProgramDB;
+import ghidra.program.model.address.Address;
 import ghidra.program.model.lang.*;
 import ghidra.program.model.listing.Program;
 import ghidra.program.model.mem.Memory;
+import ghidra.program.model.mem.MemoryBlock;
 import ghidra.program.util.DefaultLanguageService;
 import ghidra.util.task.TaskMonitor;
 
@@ -238,6 +240,55 @@ public class FileBytesTest extends AbstractGenericTest {
 		assertEquals((byte) (b + 1), fileBytes.getModifiedByte(19000));
 	}
 
+	@Test
+	public void testReadBlockDataStream() throws Exception {
+		// NOTE: need to induce use of indexed ChainedBuffer
+		FileBytesAdapter.setMaxBufferSize(FileBytesAdapter.MAX_BUF_SIZE);
+		int dataSize = MemoryBlockInputStream.CHUNK_SIZE + 20000;
+		FileBytes fileBytes = createFileBytes("file1", dataSize);
+		incrementFileBytes(fileBytes, 18999, 10);
+		Address start = program.getAddressFactory().getDefaultAddressSpace().getAddress(0x1000);
+		MemoryBlock block = mem.createInitializedBlock("test", start, fileBytes, 0, dataSize, false);
+
+		byte[] expected = new byte[dataSize];
+		fileBytes.getModifiedBytes(0, expected);
+
+		try (InputStream is = block.getData()) {
+			byte[] actual = new byte[dataSize];
+			for (int i = 0; i < 100; i++) {
+				actual[i] = (byte) is.read();
+			}
+			is.mark(dataSize);
+			int n = is.read(actual, 100, dataSize - 100);
+			assertEquals(dataSize - 100, n);
+			assertEquals(-1, is.read());
+			assertArrayEquals(expected, actual);
+
+			is.reset();
+			for (int i = 100; i < dataSize; i++) {
+				assertEquals("Byte[" + i + "]", expected[i], (byte) is.read());
+			}
+			assertEquals(-1, is.read());
+		}
+	}
+
+	@Test
+	public void testReadBlockDataStreamSeesModifiedBytes() throws Exception {
+		FileBytes fileBytes = createFileBytes("file1", 1000);
+		Address start = program.getAddressFactory().getDefaultAddressSpace().getAddress(0x1000);
+		MemoryBlock block = mem.createInitializedBlock("test", start, fileBytes, 0, 1000, false);
+
+		try (InputStream is = block.getData()) {
+			assertEquals(0, is.read());
+			mem.setByte(start.add(1), (byte) 0x55);
+			mem.setBytes(start.add(2), new byte[] { 0x66, 0x77 });
+			assertEquals(0x55, is.read());
+			byte[] actual = new byte[3];
+			assertEquals(3, is.read(actual, 0, 3));
+			assertArrayEquals(new byte[] { 0x66, 0x77, 4 }, actual);
+		}
+	}
+
 	private FileBytes createFileBytes(String name, int size) throws Exception {
 		byte[] bytes = new byte[size];
 		for (int i = 0; i < size; i++) {
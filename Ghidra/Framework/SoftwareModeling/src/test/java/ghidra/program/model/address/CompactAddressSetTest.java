@@ -0,0 +1,193 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.model.address;
+
+import static org.junit.Assert.*;
+
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import generic.test.AbstractGenericTest;
+
+public class CompactAddressSetTest extends AbstractGenericTest {
+	private AddressSpace space;
+	private AddressSpace space2;
+	private AddressSpace space64;
+
+	@Before
+	public void setUp() throws Exception {
+		space = new GenericAddressSpace("xx", 32, AddressSpace.TYPE_RAM, 0);
+		space2 = new GenericAddressSpace("xx1", 32, AddressSpace.TYPE_RAM, 2);
+		space64 = new GenericAddressSpace("xx2", 64, AddressSpace.TYPE_RAM, 3);
+		AddressFactory factory =
+			new DefaultAddressFactory(new AddressSpace[] { space, space2, space64 });
+		space = factory.getAddressSpace(space.getName());
+		space2 = factory.getAddressSpace(space2.getName());
+		space64 = factory.getAddressSpace(space64.getName());
+	}
+
+	private Address addr(AddressSpace s, long offset) {
+		return s.getAddress(offset);
+	}
+
+	@Test
+	public void testAddCoalesces() {
+		CompactAddressSet set = new CompactAddressSet();
+		set.add(addr(space, 20), addr(space, 29));
+		set.add(addr(space, 0), addr(space, 9));
+		set.add(addr(space, 10), addr(space, 19)); // adjacent to both
+		set.add(addr(space, 40), addr(space, 49));
+		set.add(addr(space, 45), addr(space, 60));
+
+		assertEquals(2, set.getNumAddressRanges());
+		assertEquals(30 + 21, set.getNumAddresses());
+		assertEquals(new AddressRangeImpl(addr(space, 0), addr(space, 29)), set.getFirstRange());
+		assertEquals(new AddressRangeImpl(addr(space, 40), addr(space, 60)), set.getLastRange());
+		assertTrue(set.contains(addr(space, 25)));
+		assertFalse(set.contains(addr(space, 35)));
+		assertTrue(set.contains(addr(space, 40), addr(space, 60)));
+		assertFalse(set.contains(addr(space, 25), addr(space, 40)));
+	}
+
+	@Test
+	public void testDeleteSplitsRange() {
+		CompactAddressSet set = new CompactAddressSet(addr(space, 0), addr(space, 99));
+		set.delete(addr(space, 10), addr(space, 19));
+		set.delete(addr(space, 0), addr(space, 0));
+		set.delete(addr(space, 99), addr(space, 200));
+
+		AddressSet expected = new AddressSet(addr(space, 1), addr(space, 9));
+		expected.add(addr(space, 20), addr(space, 98));
+		assertEquals(expected, set);
+		assertEquals(set, expected);
+		assertEquals(expected.getNumAddresses(), set.getNumAddresses());
+
+		set.delete(addr(space, 0), addr(space, 100));
+		assertTrue(set.isEmpty());
+		assertNull(set.getMinAddress());
+	}
+
+	@Test
+	public void testUnsignedOffsets() {
+		Address max = space64.getMaxAddress();
+		Address high = addr(space64, 0x8000000000000000L);
+		CompactAddressSet set = new CompactAddressSet();
+		set.add(high, max);
+		set.add(addr(space64, 0), addr(space64, 0x10));
+		set.add(addr(space64, 0x7fffffffffffffffL));
+
+		assertEquals(addr(space64, 0), set.getMinAddress());
+		assertEquals(max, set.getMaxAddress());
+		assertEquals(2, set.getNumAddressRanges());
+		assertEquals(new AddressRangeImpl(addr(space64, 0x7fffffffffffffffL), max),
+			set.getLastRange());
+		assertTrue(set.contains(max));
+	}
+
+	@Test
+	public void testMatchesAddressSet() {
+		Random random = new Random(1);
+		for (int round = 0; round < 50; round++) {
+			CompactAddressSet compactA = new CompactAddressSet();
+			AddressSet a = new AddressSet();
+			CompactAddressSet compactB = new CompactAddressSet();
+			AddressSet b = new AddressSet();
+			for (int i = 0; i < 200; i++) {
+				AddressSpace s = random.nextInt(4) == 0 ? space2 : space;
+				long start = random.nextInt(5000);
+				Address min = addr(s, start);
+				Address max = addr(s, start + random.nextInt(40));
+				switch (random.nextInt(4)) {
+					case 0:
+						compactB.add(min, max);
+						b.add(min, max);
+						break;
+					case 1:
+						compactA.delete(min, max);
+						a.delete(min, max);
+						break;
+					default:
+						compactA.add(min, max);
+						a.add(min, max);
+						break;
+				}
+			}
+
+			assertSameSet(a, compactA);
+			assertSameSet(b, compactB);
+			assertSameSet(a.union(b), compactA.union(compactB));
+			assertSameSet(a.intersect(b), compactA.intersect(compactB));
+			assertSameSet(a.subtract(b), compactA.subtract(compactB));
+			assertSameSet(a.union(b), compactA.union((AddressSetView) b));
+			assertSameSet(a.intersect(b), compactA.intersect((AddressSetView) b));
+			assertSameSet(a.subtract(b), compactA.subtract((AddressSetView) b));
+			assertSameSet(a.xor(b), compactA.xor(b));
+			assertEquals(a.intersects(b), compactA.intersects(b));
+			assertEquals(a.contains(b), compactA.contains(b));
+			assertEquals(a.findFirstAddressInCommon(b), compactA.findFirstAddressInCommon(b));
+
+			for (int i = 0; i < 20; i++) {
+				Address probe = addr(random.nextBoolean() ? space : space2, random.nextInt(5100));
+				assertEquals(a.contains(probe), compactA.contains(probe));
+				assertEquals(a.getRangeContaining(probe), compactA.getRangeContaining(probe));
+				assertSameRanges(a.getAddressRanges(probe, true),
+					compactA.getAddressRanges(probe, true));
+				assertSameRanges(a.getAddressRanges(probe, false),
+					compactA.getAddressRanges(probe, false));
+				assertSameAddresses(a.getAddresses(probe, true),
+					compactA.getAddresses(probe, true));
+				assertSameAddresses(a.getAddresses(probe, false),
+					compactA.getAddresses(probe, false));
+			}
+
+			compactA.add(compactB);
+			a.add(b);
+			assertSameSet(a, compactA);
+			compactA.delete(b);
+			a.delete(b);
+			assertSameSet(a, compactA);
+		}
+	}
+
+	private void assertSameSet(AddressSetView expected, AddressSetView actual) {
+		assertEquals(expected.getNumAddresses(), actual.getNumAddresses());
+		assertEquals(expected.getNumAddressRanges(), actual.getNumAddressRanges());
+		assertEquals(expected.getMinAddress(), actual.getMinAddress());
+		assertEquals(expected.getMaxAddress(), actual.getMaxAddress());
+		assertSameRanges(expected.getAddressRanges(), actual.getAddressRanges());
+		assertSameRanges(expected.getAddressRanges(false), actual.getAddressRanges(false));
+		assertTrue(actual.hasSameAddresses(expected));
+	}
+
+	private void assertSameRanges(Iterator<AddressRange> expected,
+			Iterator<AddressRange> actual) {
+		while (expected.hasNext()) {
+			assertTrue(actual.hasNext());
+			assertEquals(expected.next(), actual.next());
+		}
+		assertFalse(actual.hasNext());
+	}
+
+	private void assertSameAddresses(AddressIterator expected, AddressIterator actual) {
+		for (int i = 0; i < 100 && expected.hasNext(); i++) {
+			assertTrue(actual.hasNext());
+			assertEquals(expected.next(), actual.next());
+		}
+	}
+}
@@ -0,0 +1,301 @@
+/* ###
+ * IP: GHIDRA
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package ghidra.program.disassemble;
+
+import static org.junit.Assert.*;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.*;
+
+import ghidra.program.model.address.*;
+import ghidra.program.model.lang.Register;
+import ghidra.program.model.listing.*;
+import ghidra.test.AbstractGhidraHeadlessIntegrationTest;
+import ghidra.test.ToyProgramBuilder;
+import ghidra.util.task.TaskMonitor;
+
+public class ParallelDisassemblerTest extends AbstractGhidraHeadlessIntegrationTest {
+
+	private ToyProgramBuilder programBuilder;// Instructions are 2-byte aligned
+	private Program program;
+	private Listing listing;
+	private ParallelDisassembler disassembler;
+
+	private int txId;
+
+	@Before
+	public void setUp() throws Exception {
+		programBuilder = createBuilder();
+		program = programBuilder.getProgram();
+		txId = program.startTransaction("Add Memory");// leave open until tearDown
+		listing = program.getListing();
+		disassembler = new ParallelDisassembler(program, 4, TaskMonitor.DUMMY, null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (program != null) {
+			program.endTransaction(txId, true);
+		}
+		if (programBuilder != null) {
+			programBuilder.dispose();
+		}
+	}
+
+	private ToyProgramBuilder createBuilder() throws Exception {
+		return createBuilder(0x1000);
+	}
+
+	private ToyProgramBuilder createBuilder(int size) throws Exception {
+		ToyProgramBuilder builder = new ToyProgramBuilder("Test", true, true, null);
+		builder.createMemory(".text", "0", size).setExecute(true);// initialized
+		return builder;
+	}
+
+	private Address addr(long offset) {
+		return programBuilder.getAddress(offset);
+	}
+
+	private AddressRange range(long start, long end) {
+		return new AddressRangeImpl(addr(start), addr(end));
+	}
+
+	private AddressSet addrset(AddressRange... ranges) {
+		AddressSet addrset = new AddressSet();
+		for (AddressRange range : ranges) {
+			addrset.add(range);
+		}
+		return addrset;
+	}
+
+	private void verifyNoBookmarks() {
+		assertEquals("unexpected bookmarks exist", 0,
+			program.getBookmarkManager().getBookmarkCount());
+	}
+
+	/**
+	 * Add a function at the specified offset with a diamond shaped body which calls the
+	 * specified function and returns
+	 */
+	private static void addFunction(ToyProgramBuilder builder, long offset, long callee)
+			throws Exception {
+		builder.addBytesBranchConditional(offset, offset + 8);
+		builder.addBytesFallthrough(offset + 2);
+		builder.addBytesBranch(offset + 4, offset + 10);
+		builder.addBytesFallthrough(offset + 8);
+		builder.addBytesCall(offset + 10, callee);
+		builder.addBytesReturn(offset + 12);
+	}
+
+	/**
+	 *   +--10: breq 20 (start)
+	 *   |  12: call 30 --+
+	 *   |	14: ret       |
+	 *   |	              |
+	 *   +->	20: or        |
+	 *	 +--	22: bral 40   |
+	 *	 |	              |
+	 *	 |	30: or   <----+
+	 *	 |	32: bral 40 -+
+	 *	 |	             |
+	 *	 +->40: ret  <---+
+	 *
+	 */
+	@Test
+	public void testDisassemblerMultipath() throws Exception {
+
+		programBuilder.addBytesBranchConditional(10, 20);
+		programBuilder.addBytesCall(12, 30);
+		programBuilder.addBytesReturn(14);
+
+		programBuilder.addBytesFallthrough(20);
+		programBuilder.addBytesBranch(22, 40);
+
+		programBuilder.addBytesFallthrough(30);
+		programBuilder.addBytesBranch(32, 40);
+
+		programBuilder.addBytesReturn(40);
+
+		AddressSetView disAddrs = disassembler.disassemble(new AddressSet(addr(10)), null, null,
+			true);
+		assertEquals(addrset(range(10, 15), range(20, 23), range(30, 33), range(40, 41)), disAddrs);
+		assertEquals(programBuilder.getDefinedInstructionAddress().size(),
+			listing.getNumInstructions());
+
+		verifyNoBookmarks();
+	}
+
+	/**
+	 *     4: fctx #2
+	 *     6: bral 14
+	 *
+	 *    10: nfctx #3
+	 *    12: call 30
+	 *    14: breq 10
+	 *    16: ret
+	 *
+	 *    30: ret
+	 *
+	 * Test flow of context across blocks parsed by different workers
+	 */
+	@Test
+	public void testDisassemblerWithContext() throws Exception {
+
+		programBuilder.addBytesFallthroughSetFlowContext(4, 2);
+		programBuilder.addBytesBranch(6, 14);
+
+		programBuilder.addBytesFallthroughSetNoFlowContext(10, 3);
+		programBuilder.addBytesCall(12, 30);
+		programBuilder.addBytesBranchConditional(14, 10);
+		programBuilder.addBytesReturn(16);
+
+		programBuilder.addBytesReturn(30);
+
+		AddressSetView disAddrs = disassembler.disassemble(new AddressSet(addr(4)), null, null,
+			true);
+		assertEquals(addrset(range(4, 7), range(10, 17), range(30, 31)), disAddrs);
+
+		verifyNoBookmarks();
+
+		Register fctxReg = program.getRegister("fctx");
+		ProgramContext programContext = program.getProgramContext();
+		for (long offset : new long[] { 6, 10, 14, 30 }) {
+			assertEquals(BigInteger.valueOf(2),
+				programContext.getValue(fctxReg, addr(offset), false));
+		}
+	}
+
+	/**
+	 *    10: or (start)
+	 *    12: or (start)
+	 *    14: ret
+	 *
+	 * Test start within a block parsed from a lower address within the same round
+	 */
+	@Test
+	public void testDisassemblerDuplicateBlock() throws Exception {
+
+		programBuilder.addBytesFallthrough(10);
+		programBuilder.addBytesFallthrough(12);
+		programBuilder.addBytesReturn(14);
+
+		AddressSet startSet = new AddressSet(addr(10));
+		startSet.add(addr(12));
+		AddressSetView disAddrs = disassembler.disassemble(startSet, null, null, true);
+		assertEquals(addrset(range(10, 15)), disAddrs);
+		assertEquals(3, listing.getNumInstructions());
+
+		verifyNoBookmarks();
+	}
+
+	@Test
+	public void testSameAsSerialDisassembly() throws Exception {
+
+		ToyProgramBuilder serialBuilder = createBuilder();
+		try {
+			Program serialProgram = serialBuilder.getProgram();
+			AddressSet startSet = new AddressSet();
+			for (int i = 0; i < 100; i++) {
+				long offset = 0x20 * i;
+				long callee = 0x20 * ((i * 7 + 3) % 100);
+				addFunction(programBuilder, offset, callee);
+				addFunction(serialBuilder, offset, callee);
+				if (i % 10 == 0) {
+					startSet.add(addr(offset));
+				}
+			}
+
+			AddressSet disAddrs = disassembler.disassemble(startSet, null, null, true);
+
+			AddressSet serialAddrs;
+			int serialTxId = serialProgram.startTransaction("Disassemble");
+			try {
+				serialAddrs = Disassembler.getDisassembler(serialProgram, TaskMonitor.DUMMY, null)
+						.disassemble(startSet, null, true);
+			}
+			finally {
+				serialProgram.endTransaction(serialTxId, true);
+			}
+
+			assertEquals(serialAddrs, disAddrs);
+			assertEquals(serialProgram.getListing().getNumInstructions(),
+				listing.getNumInstructions());
+			InstructionIterator serialIt = serialProgram.getListing().getInstructions(true);
+			for (Instruction instr : listing.getInstructions(true)) {
+				Instruction serialInstr = serialIt.next();
+				assertEquals(serialInstr.getAddress(), instr.getAddress());
+				assertEquals(serialInstr.toString(), instr.toString());
+			}
+			verifyNoBookmarks();
+		}
+		finally {
+			serialBuilder.dispose();
+		}
+	}
+
+	/**
+	 * Disassemble 400 functions, all of which are start points, with the given number of
+	 * threads.  The functions call each other and branch into each other's bodies.
+	 * @return the instructions followed by the number of bookmarks
+	 */
+	private List<String> disassembleFunctions(int threadCount) throws Exception {
+		ToyProgramBuilder builder = createBuilder(0x4000);
+		try {
+			Program p = builder.getProgram();
+			AddressSet startSet = new AddressSet();
+			for (int i = 0; i < 400; i++) {
+				long offset = 0x20 * i;
+				addFunction(builder, offset, 0x20 * ((i * 7 + 3) % 400));
+				builder.addBytesBranch(offset + 16, 0x20 * ((i * 11 + 5) % 400) + 2);
+				startSet.add(builder.getAddress(offset));
+				if (i % 3 == 0) {
+					startSet.add(builder.getAddress(offset + 16));
+				}
+			}
+
+			int id = p.startTransaction("Disassemble");
+			try {
+				new ParallelDisassembler(p, threadCount, TaskMonitor.DUMMY, null)
+						.disassemble(startSet, null, null, true);
+			}
+			finally {
+				p.endTransaction(id, true);
+			}
+
+			List<String> result = new ArrayList<>();
+			for (Instruction instr : p.getListing().getInstructions(true)) {
+				result.add(instr.getAddress() + " " + instr);
+			}
+			result.add("bookmarks " + p.getBookmarkManager().getBookmarkCount());
+			return result;
+		}
+		finally {
+			builder.dispose();
+		}
+	}
+
+	@Test
+	public void testSameForAnyThreadCount() throws Exception {
+		List<String> expected = disassembleFunctions(1);
+		for (int threadCount : new int[] { 2, 3, 8 }) {
+			assertEquals("thread count " + threadCount, expected,
+				disassembleFunctions(threadCount));
+		}
+	}
+}